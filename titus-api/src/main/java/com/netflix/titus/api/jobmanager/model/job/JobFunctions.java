@@ -613,6 +613,60 @@ public final class JobFunctions {
         return Optional.empty();
     }
 
+    /**
+     * Returns the job creation timestamp, which is the timestamp of its {@link JobState#Accepted} state. This is
+     * the primary sort key of the job pagination cursor order.
+     */
+    public static long getJobCreateTimestamp(Job<?> job) {
+        List<JobStatus> statusHistory = job.getStatusHistory();
+        int historySize = statusHistory.size();
+
+        // Fast path
+        if (historySize == 0) {
+            return job.getStatus().getTimestamp();
+        }
+        JobStatus first = statusHistory.get(0);
+        if (historySize == 1 || first.getState() == JobState.Accepted) {
+            return first.getTimestamp();
+        }
+        // Slow path
+        for (int i = 1; i < historySize; i++) {
+            JobStatus next = statusHistory.get(i);
+            if (next.getState() == JobState.Accepted) {
+                return next.getTimestamp();
+            }
+        }
+        // No Accepted state
+        return job.getStatus().getTimestamp();
+    }
+
+    /**
+     * Returns the task creation timestamp, which is the timestamp of its {@link TaskState#Accepted} state. This is
+     * the primary sort key of the task pagination cursor order.
+     */
+    public static long getTaskCreateTimestamp(Task task) {
+        List<TaskStatus> statusHistory = task.getStatusHistory();
+        int historySize = statusHistory.size();
+
+        // Fast path
+        if (historySize == 0) {
+            return task.getStatus().getTimestamp();
+        }
+        TaskStatus first = statusHistory.get(0);
+        if (historySize == 1 || first.getState() == TaskState.Accepted) {
+            return first.getTimestamp();
+        }
+        // Slow path
+        for (int i = 1; i < historySize; i++) {
+            TaskStatus next = statusHistory.get(i);
+            if (next.getState() == TaskState.Accepted) {
+                return next.getTimestamp();
+            }
+        }
+        // No Accepted state
+        return task.getStatus().getTimestamp();
+    }
+
     public static Optional<TaskStatus> findStatusAfter(Task task, TaskState before) {
         TaskStatus after = null;
         for (TaskStatus status : task.getStatusHistory()) {
@@ -16,13 +16,25 @@
 
 package com.netflix.titus.api.jobmanager.service;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.model.IdAndTimestampKey;
+import com.netflix.titus.api.model.Page;
+import com.netflix.titus.api.model.Pagination;
+import com.netflix.titus.api.model.PaginationUtil;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.tuple.Pair;
 import reactor.core.publisher.Flux;
@@ -51,6 +63,55 @@ public interface ReadOnlyJobOperations {
 
     Optional<Pair<Job<?>, Task>> findTaskById(String taskId);
 
+    /**
+     * Returns a page of jobs matching the predicate, in the pagination cursor order (the job creation timestamp
+     * first, and the job id second). The cursor decoder maps a {@link Page#getCursor() cursor} into the job id and
+     * creation timestamp pair it points to. The default implementation evaluates and sorts all jobs on each call.
+     * Implementations keeping jobs in an index ordered this way should seek to the cursor position instead.
+     */
+    default Pair<List<Job<?>>, Pagination> findJobsPage(Predicate<Pair<Job<?>, List<Task>>> queryPredicate,
+                                                         Page page,
+                                                         Function<String, Optional<Pair<String, Long>>> cursorDecoder,
+                                                         Function<Job<?>, String> cursorFactory) {
+        Map<String, Job<?>> jobsById = new HashMap<>();
+        NavigableSet<IdAndTimestampKey<String>> orderedIndex = new TreeSet<>();
+        for (Job<?> job : findJobs(queryPredicate, 0, Integer.MAX_VALUE / 2)) {
+            jobsById.put(job.getId(), job);
+            orderedIndex.add(IdAndTimestampKey.ofId(job.getId(), JobFunctions.getJobCreateTimestamp(job)));
+        }
+        return PaginationUtil.takePageWithSeek(
+                page,
+                orderedIndex,
+                cursor -> cursorDecoder.apply(cursor).map(position -> IdAndTimestampKey.ofId(position.getLeft(), position.getRight())),
+                key -> Optional.ofNullable(jobsById.get(key.getId())),
+                cursorFactory
+        );
+    }
+
+    /**
+     * Task counterpart of {@link #findJobsPage(Predicate, Page, Function, Function)}, with tasks ordered by the
+     * task creation timestamp and the task id.
+     */
+    default Pair<List<Task>, Pagination> findTasksPage(Predicate<Pair<Job<?>, Task>> queryPredicate,
+                                                       Page page,
+                                                       Function<String, Optional<Pair<String, Long>>> cursorDecoder,
+                                                       Function<Task, String> cursorFactory) {
+        Map<String, Task> tasksById = new HashMap<>();
+        NavigableSet<IdAndTimestampKey<String>> orderedIndex = new TreeSet<>();
+        for (Pair<Job<?>, Task> jobAndTask : findTasks(queryPredicate, 0, Integer.MAX_VALUE / 2)) {
+            Task task = jobAndTask.getRight();
+            tasksById.put(task.getId(), task);
+            orderedIndex.add(IdAndTimestampKey.ofId(task.getId(), JobFunctions.getTaskCreateTimestamp(task)));
+        }
+        return PaginationUtil.takePageWithSeek(
+                page,
+                orderedIndex,
+                cursor -> cursorDecoder.apply(cursor).map(position -> IdAndTimestampKey.ofId(position.getLeft(), position.getRight())),
+                key -> Optional.ofNullable(tasksById.get(key.getId())),
+                cursorFactory
+        );
+    }
+
     default Observable<JobManagerEvent<?>> observeJobs() {
         return observeJobs(alwaysTrue(), alwaysTrue());
     }
@@ -58,6 +119,20 @@ public interface ReadOnlyJobOperations {
     Observable<JobManagerEvent<?>> observeJobs(Predicate<Pair<Job<?>, List<Task>>> jobsPredicate,
                                                Predicate<Pair<Job<?>, Task>> tasksPredicate);
 
+    /**
+     * Emits all job and task events, each paired with the task list of its job at the time of the event. The task list
+     * is empty for task events. The default implementation reads the task list when the event is emitted, so it may
+     * already include later changes.
+     */
+    default Observable<Pair<JobManagerEvent<?>, List<Task>>> observeJobsWithTasks() {
+        return observeJobs().map(event -> Pair.of(
+                event,
+                event instanceof JobUpdateEvent
+                        ? getTasks(((JobUpdateEvent) event).getCurrent().getId())
+                        : Collections.emptyList()
+        ));
+    }
+
     Observable<JobManagerEvent<?>> observeJob(String jobId);
 
     default Flux<JobManagerEvent<?>> observeJobsReactor() {
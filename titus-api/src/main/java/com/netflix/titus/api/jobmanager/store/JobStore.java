@@ -79,6 +79,18 @@ public interface JobStore {
      */
     Observable<Pair<List<Task>, Integer>> retrieveTasksForJob(String jobId);
 
+    /**
+     * Retrieve all the tasks for the given jobs. The tasks are emitted in batches, each with the number of task
+     * records that could not be loaded. Tasks of a job may be spread over multiple batches.
+     *
+     * @param jobIds
+     * @param maxConcurrent maximum number of concurrent store reads
+     * @return the tasks for the jobs, in batches.
+     */
+    default Observable<Pair<List<Task>, Integer>> retrieveTasksForJobs(List<String> jobIds, int maxConcurrent) {
+        return Observable.from(jobIds).flatMap(this::retrieveTasksForJob, maxConcurrent);
+    }
+
     /**
      * Retrieve a specific task.
      *
@@ -29,6 +29,10 @@ import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Scheduler;
 import reactor.util.retry.Retry;
 
+/**
+ * Re-connects the delegate stream when it terminates. Each retry subscribes to the delegate again, so a delegate
+ * keeping its stream position across connections (like the job event stream) resumes from the last applied event.
+ */
 public class RetryableReplicatorEventStream<SNAPSHOT, TRIGGER> implements ReplicatorEventStream<SNAPSHOT, TRIGGER> {
 
     private static final Logger logger = LoggerFactory.getLogger(RetryableReplicatorEventStream.class);
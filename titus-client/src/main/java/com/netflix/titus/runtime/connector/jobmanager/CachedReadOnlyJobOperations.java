@@ -18,6 +18,7 @@ package com.netflix.titus.runtime.connector.jobmanager;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
@@ -30,6 +31,10 @@ import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.service.ReadOnlyJobOperations;
+import com.netflix.titus.api.model.IdAndTimestampKey;
+import com.netflix.titus.api.model.Page;
+import com.netflix.titus.api.model.Pagination;
+import com.netflix.titus.api.model.PaginationUtil;
 import com.netflix.titus.common.annotation.Experimental;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.tuple.Pair;
@@ -101,6 +106,38 @@ public class CachedReadOnlyJobOperations implements ReadOnlyJobOperations {
         return replicator.getCurrent().findTaskById(taskId);
     }
 
+    @Override
+    public Pair<List<Job<?>>, Pagination> findJobsPage(Predicate<Pair<Job<?>, List<Task>>> queryPredicate,
+                                                        Page page,
+                                                        Function<String, Optional<Pair<String, Long>>> cursorDecoder,
+                                                        Function<Job<?>, String> cursorFactory) {
+        JobSnapshot snapshot = replicator.getCurrent();
+
+        return PaginationUtil.takePageWithSeek(
+                page,
+                snapshot.getJobCursorKeys(),
+                cursor -> cursorDecoder.apply(cursor).map(position -> IdAndTimestampKey.ofId(position.getLeft(), position.getRight())),
+                key -> snapshot.findJob(key.getId()).filter(job -> queryPredicate.test(Pair.of(job, snapshot.getTasks(job.getId())))),
+                cursorFactory
+        );
+    }
+
+    @Override
+    public Pair<List<Task>, Pagination> findTasksPage(Predicate<Pair<Job<?>, Task>> queryPredicate,
+                                                      Page page,
+                                                      Function<String, Optional<Pair<String, Long>>> cursorDecoder,
+                                                      Function<Task, String> cursorFactory) {
+        JobSnapshot snapshot = replicator.getCurrent();
+
+        return PaginationUtil.takePageWithSeek(
+                page,
+                snapshot.getTaskCursorKeys(),
+                cursor -> cursorDecoder.apply(cursor).map(position -> IdAndTimestampKey.ofId(position.getLeft(), position.getRight())),
+                key -> snapshot.findTaskById(key.getId()).filter(queryPredicate).map(Pair::getRight),
+                cursorFactory
+        );
+    }
+
     /**
      * TODO Emit snapshot on subscription
      * TODO Handle failover scenarios (onError or make full snapshot diff)
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import java.util.Optional;
+
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobChangeNotification.NotificationCase;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
+
+/**
+ * Position of a client in the job event stream, used to resume a broken stream (see {@link ObserveJobsResumeToken}).
+ * The transport updates the received position with each stream notification, before the matching event is emitted.
+ * The client confirms the received position together with its job snapshot, once the received events are applied
+ * to it. Only the confirmed position is sent when the stream is re-opened, so events received, but not applied
+ * before the connection broke, are sent again.
+ * <p>
+ * The confirmed snapshot is the client state the missed events of a resumed stream are applied to. The transport
+ * uses it to resolve jobs and tasks not sent in the resumed stream.
+ */
+public class JobEventStreamPosition {
+
+    private volatile ObserveJobsResumeToken received;
+    private volatile boolean resumed;
+
+    private volatile ObserveJobsResumeToken confirmed;
+    private volatile JobSnapshot confirmedSnapshot;
+
+    /**
+     * Called by the transport when a new stream is opened.
+     */
+    public void onConnect() {
+        this.received = confirmed;
+        this.resumed = false;
+    }
+
+    /**
+     * Called by the transport for each stream notification.
+     */
+    public void onNotification(JobChangeNotification notification) {
+        if (notification.getNotificationCase() == NotificationCase.SNAPSHOTEND) {
+            Optional<ObserveJobsResumeToken> position = ObserveJobsResumeToken.fromSnapshotEndMarker(notification);
+            this.received = position.orElse(null);
+            this.resumed = position.isPresent() && ObserveJobsResumeToken.isResumed(notification);
+        } else if (received != null) {
+            this.received = received.advance(notification);
+        }
+    }
+
+    /**
+     * Returns true, if the last snapshot end marker of the current stream ended a resumed stream. In this case
+     * the events preceding the marker are the events missed since the confirmed position, and not a full snapshot.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Confirms the received position, after all events received so far are applied to the given snapshot.
+     */
+    public void confirm(JobSnapshot snapshot) {
+        this.confirmed = received;
+        this.confirmedSnapshot = snapshot;
+    }
+
+    public Optional<ObserveJobsResumeToken> getResumeToken() {
+        return Optional.ofNullable(confirmed);
+    }
+
+    public Optional<JobSnapshot> getConfirmedSnapshot() {
+        return Optional.ofNullable(confirmedSnapshot);
+    }
+}
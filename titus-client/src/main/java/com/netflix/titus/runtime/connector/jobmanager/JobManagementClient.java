@@ -55,6 +55,15 @@ public interface JobManagementClient {
 
     Flux<JobManagerEvent<?>> observeJobs(Map<String, String> filteringCriteria);
 
+    /**
+     * Variant of {@link #observeJobs(Map)}, which resumes the stream from the confirmed position, if there is one,
+     * and records the position of the received events. Implementations not supporting the stream resume ignore
+     * the position, and always start with a full snapshot.
+     */
+    default Flux<JobManagerEvent<?>> observeJobs(Map<String, String> filteringCriteria, JobEventStreamPosition position) {
+        return observeJobs(filteringCriteria);
+    }
+
     Mono<Void> killJob(String jobId, CallMetadata callMetadata);
 
     Mono<Void> updateJobAttributes(String jobId, Map<String, String> attributes, CallMetadata callMetadata);
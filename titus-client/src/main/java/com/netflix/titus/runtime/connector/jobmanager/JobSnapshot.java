@@ -16,267 +16,101 @@
 
 package com.netflix.titus.runtime.connector.jobmanager;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.TreeSet;
 
-import com.google.common.base.Preconditions;
-import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
-import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
-import com.netflix.titus.api.jobmanager.model.job.TaskState;
-import com.netflix.titus.common.util.CollectionsExt;
-import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.api.model.IdAndTimestampKey;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatedSnapshot;
 
-import static java.util.Collections.unmodifiableList;
-import static java.util.Collections.unmodifiableMap;
-
 /**
+ * An immutable view of all active jobs and tasks, as replicated from TitusMaster. Each update produces a new
+ * snapshot instance. Use {@link JobSnapshotFactories} to choose the implementation.
+ *
  * TODO Handle moved tasks
  * TODO Finished tasks are not handled correctly for batch jobs (they are in active data set until replaced).
  */
-public class JobSnapshot extends ReplicatedSnapshot {
+public abstract class JobSnapshot extends ReplicatedSnapshot {
 
-    private static final JobSnapshot EMPTY = new Builder("empty", Collections.emptyMap(), Collections.emptyMap()).build();
+    protected final String snapshotId;
 
-    private final String snapshotId;
-    private final Map<String, Job<?>> jobsById;
-    private final Map<String, List<Task>> tasksByJobId;
-    private final List<Job<?>> allJobs;
-    private final List<Task> allTasks;
-    private final List<Pair<Job<?>, List<Task>>> allJobsAndTasks;
-    private final Map<String, Task> taskById;
-
-    private final String signature;
+    protected JobSnapshot(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
 
     public static JobSnapshot empty() {
-        return EMPTY;
+        return PCollectionJobSnapshot.empty();
     }
 
     public static JobSnapshot newInstance(String snapshotId, Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId) {
-        return new Builder(snapshotId, jobsById, tasksByJobId).build();
-    }
-
-    public static Builder newBuilder(String snapshotId, Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId) {
-        return new Builder(snapshotId, jobsById, tasksByJobId);
-    }
-
-    public static Builder newBuilder(String snapshotId) {
-        return new Builder(snapshotId);
-    }
-
-    private JobSnapshot(String snapshotId, Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId,
-                        List<Job<?>> allJobs, List<Task> allTasks, List<Pair<Job<?>, List<Task>>> allJobsAndTasks,
-                        Map<String, Task> taskById) {
-        this.snapshotId = snapshotId;
-        this.jobsById = jobsById;
-        this.tasksByJobId = tasksByJobId;
-        this.allJobs = allJobs;
-        this.allTasks = allTasks;
-        this.allJobsAndTasks = allJobsAndTasks;
-        this.taskById = taskById;
-        this.signature = computeSignature();
+        return JobSnapshotFactories.newDefault().newSnapshot(snapshotId, jobsById, tasksByJobId);
     }
 
     public String getSnapshotId() {
         return snapshotId;
     }
 
-    public List<Job<?>> getJobs() {
-        return allJobs;
-    }
+    /**
+     * Number of jobs in the snapshot. Unlike {@link #getJobs()}, it never materializes the job list.
+     */
+    public abstract int getJobCount();
 
-    public Optional<Job<?>> findJob(String jobId) {
-        return Optional.ofNullable(jobsById.get(jobId));
-    }
+    /**
+     * Number of tasks in the snapshot. Unlike {@link #getTasks()}, it never materializes the task list.
+     */
+    public abstract int getTaskCount();
 
-    public List<Task> getTasks() {
-        return allTasks;
-    }
+    public abstract List<Job<?>> getJobs();
 
-    public List<Task> getTasks(String jobId) {
-        return tasksByJobId.getOrDefault(jobId, Collections.emptyList());
-    }
+    public abstract Optional<Job<?>> findJob(String jobId);
 
-    public List<Pair<Job<?>, List<Task>>> getJobsAndTasks() {
-        return allJobsAndTasks;
-    }
+    public abstract List<Task> getTasks();
 
-    public Optional<Pair<Job<?>, Task>> findTaskById(String taskId) {
-        Task task = taskById.get(taskId);
-        if (task == null) {
-            return Optional.empty();
-        }
-        Job<?> job = jobsById.get(task.getJobId());
-        Preconditions.checkState(job != null); // if this happens there is a bug
+    public abstract List<Task> getTasks(String jobId);
 
-        return Optional.of(Pair.of(job, task));
-    }
+    public abstract List<Pair<Job<?>, List<Task>>> getJobsAndTasks();
 
-    public Optional<JobSnapshot> updateJob(Job job) {
-        Job<?> previous = jobsById.get(job.getId());
-        if (previous == null && job.getStatus().getState() == JobState.Finished) {
-            return Optional.empty();
-        }
+    public abstract Optional<Pair<Job<?>, Task>> findTaskById(String taskId);
 
-        Builder builder = new Builder(this);
-        if (job.getStatus().getState() == JobState.Finished) {
-            builder.removeJob(job);
-        } else {
-            builder.addOrUpdateJob(job);
+    /**
+     * Job ids ordered by the job creation timestamp and the job id (the pagination cursor order). The default
+     * implementation sorts all jobs on each call.
+     */
+    public NavigableSet<IdAndTimestampKey<String>> getJobCursorKeys() {
+        NavigableSet<IdAndTimestampKey<String>> keys = new TreeSet<>();
+        for (Job<?> job : getJobs()) {
+            keys.add(IdAndTimestampKey.ofId(job.getId(), JobFunctions.getJobCreateTimestamp(job)));
         }
-        return Optional.of(builder.build());
+        return keys;
     }
 
-    public Optional<JobSnapshot> updateTask(Task task, boolean moved) {
-        if (!jobsById.containsKey(task.getJobId())) { // Inconsistent data
-            return Optional.empty();
+    /**
+     * Task ids ordered by the task creation timestamp and the task id (the pagination cursor order). The default
+     * implementation sorts all tasks on each call.
+     */
+    public NavigableSet<IdAndTimestampKey<String>> getTaskCursorKeys() {
+        NavigableSet<IdAndTimestampKey<String>> keys = new TreeSet<>();
+        for (Task task : getTasks()) {
+            keys.add(IdAndTimestampKey.ofId(task.getId(), JobFunctions.getTaskCreateTimestamp(task)));
         }
+        return keys;
+    }
 
-        Task previous = taskById.get(task.getId());
-        if (previous == null && task.getStatus().getState() == TaskState.Finished) {
-            return Optional.empty();
-        }
+    public abstract Optional<JobSnapshot> updateJob(Job job);
 
-        Builder builder = new Builder(this);
-        if (task.getStatus().getState() == TaskState.Finished) {
-            builder.removeTask(task, moved);
-        } else {
-            builder.addOrUpdateTask(task, moved);
-        }
-        return Optional.of(builder.build());
-    }
+    public abstract Optional<JobSnapshot> updateTask(Task task, boolean moved);
 
     @Override
     public String toSummaryString() {
-        return signature;
-    }
-
-    @Override
-    public String toString() {
-        StringBuilder sb = new StringBuilder("JobSnapshot{snapshotId=").append(snapshotId).append(", jobs=");
-        jobsById.forEach((id, job) -> {
-            List<Task> tasks = tasksByJobId.get(id);
-            int tasksCount = tasks == null ? 0 : tasks.size();
-            sb.append(id).append('=').append(tasksCount).append(',');
-        });
-        sb.setLength(sb.length() - 1);
-        return sb.append('}').toString();
-    }
-
-    private String computeSignature() {
-        return "JobSnapshot{snapshotId=" + snapshotId +
-                ", jobs=" + jobsById.size() +
-                ", tasks=" + allTasks.size() +
+        return getClass().getSimpleName() + "{snapshotId=" + snapshotId +
+                ", jobs=" + getJobCount() +
+                ", tasks=" + getTaskCount() +
                 "}";
     }
-
-    public static class Builder {
-        private final String snapshotId;
-        private final Map<String, Job<?>> jobsById;
-        private final Map<String, List<Task>> tasksByJobId;
-
-        private Builder(String snapshotId) {
-            this.snapshotId = snapshotId;
-            this.jobsById = new HashMap<>();
-            this.tasksByJobId = new HashMap<>();
-        }
-
-        private Builder(JobSnapshot from) {
-            this(from.snapshotId, from.jobsById, from.tasksByJobId);
-        }
-
-        private Builder(String snapshotId, Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId) {
-            this.snapshotId = snapshotId;
-            this.jobsById = new HashMap<>(jobsById);
-            HashMap<String, List<Task>> copy = new HashMap<>();
-            tasksByJobId.forEach((jobId, tasks) -> copy.put(jobId, new ArrayList<>(tasks)));
-            this.tasksByJobId = copy;
-        }
-
-        public JobSnapshot build() {
-            List<Task> allTasks = new ArrayList<>();
-            Map<String, List<Task>> immutableTasksByJobId = new HashMap<>();
-            Map<String, Task> taskById = new HashMap<>();
-            this.tasksByJobId.forEach((jobId, tasks) -> {
-                allTasks.addAll(tasks);
-                immutableTasksByJobId.put(jobId, unmodifiableList(tasks));
-                for (Task task : tasks) {
-                    taskById.put(task.getId(), task);
-                }
-            });
-
-            return new JobSnapshot(
-                    snapshotId,
-                    unmodifiableMap(jobsById),
-                    unmodifiableMap(immutableTasksByJobId),
-                    unmodifiableList(new ArrayList<>(jobsById.values())),
-                    unmodifiableList(allTasks),
-                    buildAllJobsAndTasksList(jobsById, this.tasksByJobId),
-                    unmodifiableMap(taskById)
-            );
-
-        }
-
-        public Builder removeJob(Job<?> job) {
-            jobsById.remove(job.getId());
-            tasksByJobId.remove(job.getId());
-            return this;
-        }
-
-        public Builder addOrUpdateJob(Job<?> job) {
-            jobsById.put(job.getId(), job);
-            return this;
-        }
-
-        public Builder removeTask(Task task, boolean movedFromAnotherJob) {
-            String jobIdIndexToUpdate = movedFromAnotherJob ?
-                    task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_MOVED_FROM_JOB) :
-                    task.getJobId();
-            Preconditions.checkArgument(StringExt.isNotEmpty(jobIdIndexToUpdate));
-
-            if (tasksByJobId.containsKey(jobIdIndexToUpdate)) {
-                tasksByJobId.get(jobIdIndexToUpdate).removeIf(t -> t.getId().equals(task.getId()));
-            }
-
-            return this;
-        }
-
-        public Builder addOrUpdateTask(Task task, boolean movedFromAnotherJob) {
-            if (movedFromAnotherJob) {
-                removeTask(task, true);
-            }
-            tasksByJobId.putIfAbsent(task.getJobId(), new ArrayList<>());
-            List<Task> jobTasks = tasksByJobId.get(task.getJobId());
-            jobTasks.removeIf(t -> t.getId().equals(task.getId()));
-            jobTasks.add(task);
-
-            return this;
-        }
-
-        private static List<Pair<Job<?>, List<Task>>> buildAllJobsAndTasksList(Map<String, Job<?>> jobsById, Map<String, List<Task>> tasksByJobId) {
-            List<Pair<Job<?>, List<Task>>> result = new ArrayList<>();
-
-            jobsById.values().forEach(job -> {
-                List<Task> tasks = tasksByJobId.get(job.getId());
-                if (CollectionsExt.isNullOrEmpty(tasks)) {
-                    result.add(Pair.of(job, Collections.emptyList()));
-                } else {
-                    result.add(Pair.of(job, unmodifiableList(tasks)));
-                }
-            });
-
-            return unmodifiableList(result);
-        }
-
-        public Job<?> getJob(String jobId) {
-            return jobsById.get(jobId);
-        }
-    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+public final class JobSnapshotFactories {
+
+    private static final JobSnapshotFactory LEGACY = LegacyJobSnapshot::newInstance;
+
+    private static final JobSnapshotFactory PCOLLECTION = PCollectionJobSnapshot::newInstance;
+
+    private JobSnapshotFactories() {
+    }
+
+    /**
+     * Returns factory for the default {@link JobSnapshot} implementation.
+     */
+    public static JobSnapshotFactory newDefault() {
+        return PCOLLECTION;
+    }
+
+    /**
+     * Returns factory for the {@link JobSnapshot} implementation that copies all its data on each update. Kept
+     * as a fallback and a performance baseline.
+     */
+    public static JobSnapshotFactory newLegacy() {
+        return LEGACY;
+    }
+
+    /**
+     * Returns factory for the {@link JobSnapshot} implementation based on persistent collections.
+     */
+    public static JobSnapshotFactory newPCollection() {
+        return PCOLLECTION;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.model.IdAndTimestampKey;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.tuple.Pair;
+import org.pcollections.HashTreePMap;
+import org.pcollections.PMap;
+import org.pcollections.PSortedSet;
+import org.pcollections.TreePSet;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * {@link JobSnapshot} implementation backed by persistent collections. An update shares all unchanged state with
+ * the previous snapshot, so its cost is O(log n) instead of O(n). The aggregated views ({@link #getJobs()},
+ * {@link #getTasks()} and {@link #getJobsAndTasks()}), and the per job task lists ({@link #getTasks(String)}) are built
+ * on first access, and cached for the lifetime of the snapshot.
+ * Job and task ids are also kept in persistent sorted sets in the pagination cursor order, so a page can be found
+ * without sorting the snapshot content.
+ */
+public class PCollectionJobSnapshot extends JobSnapshot {
+
+    private static final PCollectionJobSnapshot EMPTY = new PCollectionJobSnapshot(
+            "empty",
+            HashTreePMap.empty(),
+            HashTreePMap.empty(),
+            HashTreePMap.empty(),
+            TreePSet.empty(),
+            TreePSet.empty()
+    );
+
+    private final PMap<String, Job<?>> jobsById;
+    private final PMap<String, PMap<String, Task>> tasksByJobId;
+    private final PMap<String, Task> taskById;
+    private final PSortedSet<IdAndTimestampKey<String>> jobCursorKeys;
+    private final PSortedSet<IdAndTimestampKey<String>> taskCursorKeys;
+
+    private volatile List<Job<?>> allJobs;
+    private volatile List<Task> allTasks;
+    private volatile List<Pair<Job<?>, List<Task>>> allJobsAndTasks;
+    private final ConcurrentMap<String, List<Task>> tasksListByJobId = new ConcurrentHashMap<>();
+
+    private PCollectionJobSnapshot(String snapshotId,
+                                   PMap<String, Job<?>> jobsById,
+                                   PMap<String, PMap<String, Task>> tasksByJobId,
+                                   PMap<String, Task> taskById,
+                                   PSortedSet<IdAndTimestampKey<String>> jobCursorKeys,
+                                   PSortedSet<IdAndTimestampKey<String>> taskCursorKeys) {
+        super(snapshotId);
+        this.jobsById = jobsById;
+        this.tasksByJobId = tasksByJobId;
+        this.taskById = taskById;
+        this.jobCursorKeys = jobCursorKeys;
+        this.taskCursorKeys = taskCursorKeys;
+    }
+
+    public static PCollectionJobSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static PCollectionJobSnapshot newInstance(String snapshotId,
+                                                     Map<String, Job<?>> jobsById,
+                                                     Map<String, List<Task>> tasksByJobId) {
+        PMap<String, PMap<String, Task>> tasksByJobIdPMap = HashTreePMap.empty();
+        PMap<String, Task> taskByIdPMap = HashTreePMap.empty();
+        List<IdAndTimestampKey<String>> taskKeys = new ArrayList<>();
+        for (Map.Entry<String, List<Task>> entry : tasksByJobId.entrySet()) {
+            PMap<String, Task> jobTasks = HashTreePMap.empty();
+            for (Task task : entry.getValue()) {
+                jobTasks = jobTasks.plus(task.getId(), task);
+                taskKeys.add(taskCursorKeyOf(task));
+            }
+            tasksByJobIdPMap = tasksByJobIdPMap.plus(entry.getKey(), jobTasks);
+            taskByIdPMap = taskByIdPMap.plusAll(jobTasks);
+        }
+        List<IdAndTimestampKey<String>> jobKeys = new ArrayList<>();
+        for (Job<?> job : jobsById.values()) {
+            jobKeys.add(jobCursorKeyOf(job));
+        }
+        return new PCollectionJobSnapshot(
+                snapshotId,
+                HashTreePMap.from(jobsById),
+                tasksByJobIdPMap,
+                taskByIdPMap,
+                TreePSet.from(jobKeys),
+                TreePSet.from(taskKeys)
+        );
+    }
+
+    @Override
+    public int getJobCount() {
+        return jobsById.size();
+    }
+
+    @Override
+    public int getTaskCount() {
+        return taskById.size();
+    }
+
+    @Override
+    public List<Job<?>> getJobs() {
+        if (allJobs == null) {
+            allJobs = unmodifiableList(new ArrayList<>(jobsById.values()));
+        }
+        return allJobs;
+    }
+
+    @Override
+    public Optional<Job<?>> findJob(String jobId) {
+        return Optional.ofNullable(jobsById.get(jobId));
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        if (allTasks == null) {
+            allTasks = unmodifiableList(new ArrayList<>(taskById.values()));
+        }
+        return allTasks;
+    }
+
+    @Override
+    public List<Task> getTasks(String jobId) {
+        PMap<String, Task> jobTasks = tasksByJobId.get(jobId);
+        if (jobTasks == null || jobTasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return tasksListByJobId.computeIfAbsent(jobId, id -> unmodifiableList(new ArrayList<>(jobTasks.values())));
+    }
+
+    @Override
+    public List<Pair<Job<?>, List<Task>>> getJobsAndTasks() {
+        if (allJobsAndTasks == null) {
+            List<Pair<Job<?>, List<Task>>> result = new ArrayList<>(jobsById.size());
+            jobsById.values().forEach(job -> result.add(Pair.of(job, getTasks(job.getId()))));
+            allJobsAndTasks = unmodifiableList(result);
+        }
+        return allJobsAndTasks;
+    }
+
+    @Override
+    public Optional<Pair<Job<?>, Task>> findTaskById(String taskId) {
+        Task task = taskById.get(taskId);
+        if (task == null) {
+            return Optional.empty();
+        }
+        Job<?> job = jobsById.get(task.getJobId());
+        Preconditions.checkState(job != null); // if this happens there is a bug
+
+        return Optional.of(Pair.of(job, task));
+    }
+
+    @Override
+    public NavigableSet<IdAndTimestampKey<String>> getJobCursorKeys() {
+        return jobCursorKeys;
+    }
+
+    @Override
+    public NavigableSet<IdAndTimestampKey<String>> getTaskCursorKeys() {
+        return taskCursorKeys;
+    }
+
+    @Override
+    public Optional<JobSnapshot> updateJob(Job job) {
+        Job<?> previous = jobsById.get(job.getId());
+        if (previous == null && job.getStatus().getState() == JobState.Finished) {
+            return Optional.empty();
+        }
+
+        if (job.getStatus().getState() != JobState.Finished) {
+            return Optional.of(new PCollectionJobSnapshot(
+                    snapshotId,
+                    jobsById.plus(job.getId(), job),
+                    tasksByJobId,
+                    taskById,
+                    updateCursorKey(jobCursorKeys, previous == null ? null : jobCursorKeyOf(previous), jobCursorKeyOf(job)),
+                    taskCursorKeys
+            ));
+        }
+        PMap<String, Task> jobTasks = tasksByJobId.get(job.getId());
+        PMap<String, Task> newTaskById = taskById;
+        PSortedSet<IdAndTimestampKey<String>> newTaskCursorKeys = taskCursorKeys;
+        if (jobTasks != null) {
+            newTaskById = taskById.minusAll(jobTasks.keySet());
+            for (Task task : jobTasks.values()) {
+                newTaskCursorKeys = newTaskCursorKeys.minus(taskCursorKeyOf(task));
+            }
+        }
+        return Optional.of(new PCollectionJobSnapshot(
+                snapshotId,
+                jobsById.minus(job.getId()),
+                tasksByJobId.minus(job.getId()),
+                newTaskById,
+                jobCursorKeys.minus(jobCursorKeyOf(previous)),
+                newTaskCursorKeys
+        ));
+    }
+
+    @Override
+    public Optional<JobSnapshot> updateTask(Task task, boolean moved) {
+        if (!jobsById.containsKey(task.getJobId())) { // Inconsistent data
+            return Optional.empty();
+        }
+
+        Task previous = taskById.get(task.getId());
+        if (previous == null && task.getStatus().getState() == TaskState.Finished) {
+            return Optional.empty();
+        }
+
+        if (task.getStatus().getState() == TaskState.Finished) {
+            return Optional.of(removeTask(task, moved));
+        }
+
+        PCollectionJobSnapshot base = moved ? removeTask(task, true) : this;
+        PMap<String, Task> jobTasks = base.tasksByJobId.get(task.getJobId());
+        if (jobTasks == null) {
+            jobTasks = HashTreePMap.empty();
+        }
+        Task basePrevious = base.taskById.get(task.getId());
+        return Optional.of(new PCollectionJobSnapshot(
+                snapshotId,
+                jobsById,
+                base.tasksByJobId.plus(task.getJobId(), jobTasks.plus(task.getId(), task)),
+                base.taskById.plus(task.getId(), task),
+                jobCursorKeys,
+                updateCursorKey(base.taskCursorKeys, basePrevious == null ? null : taskCursorKeyOf(basePrevious), taskCursorKeyOf(task))
+        ));
+    }
+
+    private PCollectionJobSnapshot removeTask(Task task, boolean movedFromAnotherJob) {
+        String jobIdIndexToUpdate = movedFromAnotherJob ?
+                task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_MOVED_FROM_JOB) :
+                task.getJobId();
+        Preconditions.checkArgument(StringExt.isNotEmpty(jobIdIndexToUpdate));
+
+        PMap<String, Task> jobTasks = tasksByJobId.get(jobIdIndexToUpdate);
+        if (jobTasks == null || !jobTasks.containsKey(task.getId())) {
+            return this;
+        }
+        return new PCollectionJobSnapshot(
+                snapshotId,
+                jobsById,
+                tasksByJobId.plus(jobIdIndexToUpdate, jobTasks.minus(task.getId())),
+                taskById.minus(task.getId()),
+                jobCursorKeys,
+                taskCursorKeys.minus(taskCursorKeyOf(jobTasks.get(task.getId())))
+        );
+    }
+
+    /**
+     * The cursor key of an entity may change between its versions, so the key of the previous version is replaced
+     * to keep exactly one key per entity.
+     */
+    private static PSortedSet<IdAndTimestampKey<String>> updateCursorKey(PSortedSet<IdAndTimestampKey<String>> cursorKeys,
+                                                                         IdAndTimestampKey<String> previousKey,
+                                                                         IdAndTimestampKey<String> newKey) {
+        if (newKey.equals(previousKey)) {
+            return cursorKeys;
+        }
+        return previousKey == null ? cursorKeys.plus(newKey) : cursorKeys.minus(previousKey).plus(newKey);
+    }
+
+    private static IdAndTimestampKey<String> jobCursorKeyOf(Job<?> job) {
+        return IdAndTimestampKey.ofId(job.getId(), JobFunctions.getJobCreateTimestamp(job));
+    }
+
+    private static IdAndTimestampKey<String> taskCursorKeyOf(Task task) {
+        return IdAndTimestampKey.ofId(task.getId(), JobFunctions.getTaskCreateTimestamp(task));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("PCollectionJobSnapshot{snapshotId=").append(snapshotId).append(", jobs=");
+        jobsById.forEach((id, job) -> {
+            PMap<String, Task> tasks = tasksByJobId.get(id);
+            int tasksCount = tasks == null ? 0 : tasks.size();
+            sb.append(id).append('=').append(tasksCount).append(',');
+        });
+        sb.setLength(sb.length() - 1);
+        return sb.append('}').toString();
+    }
+}
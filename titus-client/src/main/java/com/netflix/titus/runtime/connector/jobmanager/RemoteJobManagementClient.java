@@ -18,6 +18,7 @@ package com.netflix.titus.runtime.connector.jobmanager;
 
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -39,6 +40,7 @@ import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
 import com.netflix.titus.api.model.Page;
 import com.netflix.titus.api.model.PageResult;
+import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.grpc.protogen.JobAttributesDeleteRequest;
 import com.netflix.titus.grpc.protogen.JobAttributesUpdate;
 import com.netflix.titus.grpc.protogen.JobCapacityUpdate;
@@ -56,6 +58,7 @@ import com.netflix.titus.grpc.protogen.TaskMoveRequest;
 import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -179,10 +182,27 @@ public class RemoteJobManagementClient implements JobManagementClient {
 
     @Override
     public Flux<JobManagerEvent<?>> observeJobs(Map<String, String> filteringCriteria) {
+        return observeJobs(filteringCriteria, new JobEventStreamPosition());
+    }
+
+    /**
+     * If the position has a confirmed resume token, it is sent with the query. A resumed stream includes only the
+     * changed jobs and tasks, so the others are resolved from the confirmed snapshot.
+     */
+    @Override
+    public Flux<JobManagerEvent<?>> observeJobs(Map<String, String> filteringCriteria, JobEventStreamPosition position) {
         return Flux.defer(() -> {
             Map<String, Job> jobMap = new ConcurrentHashMap<>();
             Map<String, Task> taskMap = new ConcurrentHashMap<>();
-            return stub.observeJobs(ObserveJobsQuery.newBuilder().putAllFilteringCriteria(filteringCriteria).build())
+
+            position.onConnect();
+            ObserveJobsQuery.Builder queryBuilder = ObserveJobsQuery.newBuilder().putAllFilteringCriteria(filteringCriteria);
+            Optional<ObserveJobsResumeToken> resumeToken = position.getResumeToken();
+            Optional<JobSnapshot> resumeSnapshot = resumeToken.isPresent() ? position.getConfirmedSnapshot() : Optional.empty();
+            resumeToken.ifPresent(token -> queryBuilder.putFilteringCriteria(ObserveJobsResumeToken.CRITERIA_KEY, token.toCriteriaValue()));
+
+            return stub.observeJobs(queryBuilder.build())
+                    .doOnNext(position::onNotification)
                     .map(event -> {
                         switch (event.getNotificationCase()) {
                             case JOBUPDATE:
@@ -195,9 +215,15 @@ public class RemoteJobManagementClient implements JobManagementClient {
                             case TASKUPDATE:
                                 com.netflix.titus.grpc.protogen.Task grpcTask = event.getTaskUpdate().getTask();
                                 Job job = jobMap.get(grpcTask.getJobId());
+                                if (job == null && resumeSnapshot.isPresent()) {
+                                    job = resumeSnapshot.get().findJob(grpcTask.getJobId()).orElse(null);
+                                }
 
                                 Task newTask = GrpcJobManagementModelConverters.toCoreTask(job, grpcTask);
                                 Task oldTask = taskMap.get(newTask.getId());
+                                if (oldTask == null && resumeSnapshot.isPresent()) {
+                                    oldTask = resumeSnapshot.get().findTaskById(newTask.getId()).map(Pair::getRight).orElse(null);
+                                }
                                 taskMap.put(newTask.getId(), newTask);
 
                                 // Check if task moved
@@ -18,12 +18,15 @@ package com.netflix.titus.runtime.connector.jobmanager.replicator;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
+import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -36,35 +39,48 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.runtime.connector.common.replicator.AbstractReplicatorEventStream;
 import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetrics;
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEvent;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshotFactories;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshotFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Scheduler;
 
+/**
+ * Job event stream building a {@link JobSnapshot} from the job change notifications. The stream position is tracked
+ * across connections, so after a reconnect only the events missed since the last applied one are requested (if the
+ * server still has them in its event journal), and applied to the last snapshot, instead of re-loading all jobs and
+ * tasks.
+ */
 public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<JobSnapshot, JobManagerEvent<?>> {
 
     private static final Logger logger = LoggerFactory.getLogger(GrpcJobReplicatorEventStream.class);
 
     private final JobManagementClient client;
     private final Map<String, String> filteringCriteria;
+    private final JobSnapshotFactory jobSnapshotFactory;
+    private final JobEventStreamPosition position = new JobEventStreamPosition();
 
     public GrpcJobReplicatorEventStream(JobManagementClient client,
                                         DataReplicatorMetrics metrics,
                                         TitusRuntime titusRuntime,
                                         Scheduler scheduler) {
-        this(client, Collections.emptyMap(), metrics, titusRuntime, scheduler);
+        this(client, Collections.emptyMap(), JobSnapshotFactories.newDefault(), metrics, titusRuntime, scheduler);
     }
 
     public GrpcJobReplicatorEventStream(JobManagementClient client,
                                         Map<String, String> filteringCriteria,
+                                        JobSnapshotFactory jobSnapshotFactory,
                                         DataReplicatorMetrics metrics,
                                         TitusRuntime titusRuntime,
                                         Scheduler scheduler) {
         super(metrics, titusRuntime, scheduler);
         this.client = client;
         this.filteringCriteria = filteringCriteria;
+        this.jobSnapshotFactory = jobSnapshotFactory;
     }
 
     @Override
@@ -72,12 +88,16 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
         return Flux.defer(() -> {
             CacheUpdater cacheUpdater = new CacheUpdater();
             logger.info("Connecting to the job event stream (filteringCriteria={})...", filteringCriteria);
-            return client.observeJobs(filteringCriteria).flatMap(cacheUpdater::onEvent);
+            return client.observeJobs(filteringCriteria, position).flatMap(cacheUpdater::onEvent);
         });
     }
 
     private class CacheUpdater {
 
+        /**
+         * Events received before the snapshot end marker. They are either a full snapshot, or the events missed
+         * since the confirmed position of a resumed stream.
+         */
         private List<JobManagerEvent<?>> snapshotEvents = new ArrayList<>();
         private AtomicReference<JobSnapshot> lastJobSnapshotRef = new AtomicReference<>();
 
@@ -87,21 +107,16 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
                     return processCacheUpdate(event);
                 }
                 if (event.equals(JobManagerEvent.snapshotMarker())) {
+                    Optional<JobSnapshot> resumedFrom = position.getConfirmedSnapshot();
+                    if (position.isResumed() && resumedFrom.isPresent()) {
+                        return resumeCache(resumedFrom.get());
+                    }
                     return buildInitialCache();
                 }
-
-                if (event instanceof JobUpdateEvent) {
-                    JobUpdateEvent jobUpdateEvent = (JobUpdateEvent) event;
-                    Job job = jobUpdateEvent.getCurrent();
-                    if (job.getStatus().getState() != JobState.Finished) {
-                        snapshotEvents.add(event);
-                    }
-                } else if (event instanceof TaskUpdateEvent) {
-                    TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
-                    Task task = taskUpdateEvent.getCurrentTask();
-                    if (task.getStatus().getState() != TaskState.Finished) {
-                        snapshotEvents.add(event);
-                    }
+                // Finished jobs and tasks are filtered out when the snapshot is built, as in a resumed stream
+                // they remove the entities from the last snapshot.
+                if (event instanceof JobUpdateEvent || event instanceof TaskUpdateEvent) {
+                    snapshotEvents.add(event);
                 }
             } catch (Exception e) {
                 logger.warn("Unexpected error when handling the job change notification: {}", event, e);
@@ -111,17 +126,30 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
         }
 
         private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> buildInitialCache() {
-            JobSnapshot.Builder builder = JobSnapshot.newBuilder(UUID.randomUUID().toString());
+            Map<String, Job<?>> jobsById = new HashMap<>();
+            Map<String, Map<String, Task>> tasksByJobId = new HashMap<>();
 
             snapshotEvents.forEach(event -> {
                 if (event instanceof JobUpdateEvent) {
-                    builder.addOrUpdateJob(((JobUpdateEvent) event).getCurrent());
+                    Job<?> job = ((JobUpdateEvent) event).getCurrent();
+                    if (job.getStatus().getState() != JobState.Finished) {
+                        jobsById.put(job.getId(), job);
+                    }
                 } else if (event instanceof TaskUpdateEvent) {
                     TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
                     Task task = taskUpdateEvent.getCurrent();
-                    Job<?> taskJob = builder.getJob(task.getJobId());
-                    if (taskJob != null) {
-                        builder.addOrUpdateTask(task, taskUpdateEvent.isMovedFromAnotherJob());
+                    if (task.getStatus().getState() == TaskState.Finished) {
+                        return;
+                    }
+                    if (jobsById.containsKey(task.getJobId())) {
+                        if (taskUpdateEvent.isMovedFromAnotherJob()) {
+                            String movedFromJobId = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_MOVED_FROM_JOB);
+                            Map<String, Task> movedFromJobTasks = movedFromJobId == null ? null : tasksByJobId.get(movedFromJobId);
+                            if (movedFromJobTasks != null) {
+                                movedFromJobTasks.remove(task.getId());
+                            }
+                        }
+                        tasksByJobId.computeIfAbsent(task.getJobId(), jobId -> new LinkedHashMap<>()).put(task.getId(), task);
                     } else {
                         titusRuntime.getCodeInvariants().inconsistent("Job record not found: jobId=%s, taskId=%s", task.getJobId(), task.getId());
                     }
@@ -131,15 +159,47 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
             // No longer needed
             snapshotEvents.clear();
 
-            JobSnapshot initialSnapshot = builder.build();
+            Map<String, List<Task>> taskListsByJobId = new HashMap<>();
+            tasksByJobId.forEach((jobId, tasks) -> taskListsByJobId.put(jobId, new ArrayList<>(tasks.values())));
+            JobSnapshot initialSnapshot = jobSnapshotFactory.newSnapshot(UUID.randomUUID().toString(), jobsById, taskListsByJobId);
             lastJobSnapshotRef.set(initialSnapshot);
+            position.confirm(initialSnapshot);
 
             logger.info("Job snapshot loaded: {}", initialSnapshot.toSummaryString());
 
             return Flux.just(new ReplicatorEvent<>(initialSnapshot, JobManagerEvent.snapshotMarker(), titusRuntime.getClock().wallTime()));
         }
 
+        /**
+         * Applies the events missed while the stream was disconnected to the last confirmed snapshot. Each event is
+         * emitted as a regular cache update, as if the stream was never broken.
+         */
+        private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> resumeCache(JobSnapshot resumedFrom) {
+            lastJobSnapshotRef.set(resumedFrom);
+
+            List<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> updates = new ArrayList<>();
+            snapshotEvents.forEach(event -> applyCacheUpdate(event).ifPresent(updates::add));
+            int missedEvents = snapshotEvents.size();
+            snapshotEvents.clear();
+
+            JobSnapshot snapshot = lastJobSnapshotRef.get();
+            position.confirm(snapshot);
+
+            logger.info("Job event stream resumed: missedEvents={}, snapshot={}", missedEvents, snapshot.toSummaryString());
+
+            if (updates.isEmpty()) {
+                return Flux.just(new ReplicatorEvent<>(snapshot, JobManagerEvent.snapshotMarker(), titusRuntime.getClock().wallTime()));
+            }
+            return Flux.fromIterable(updates);
+        }
+
         private Flux<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> processCacheUpdate(JobManagerEvent<?> event) {
+            Optional<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> update = applyCacheUpdate(event);
+            position.confirm(lastJobSnapshotRef.get());
+            return update.isPresent() ? Flux.just(update.get()) : Flux.empty();
+        }
+
+        private Optional<ReplicatorEvent<JobSnapshot, JobManagerEvent<?>>> applyCacheUpdate(JobManagerEvent<?> event) {
             JobSnapshot lastSnapshot = lastJobSnapshotRef.get();
 
             Optional<JobSnapshot> newSnapshot;
@@ -173,9 +233,9 @@ public class GrpcJobReplicatorEventStream extends AbstractReplicatorEventStream<
             }
             if (newSnapshot.isPresent()) {
                 lastJobSnapshotRef.set(newSnapshot.get());
-                return Flux.just(new ReplicatorEvent<>(newSnapshot.get(), coreEvent, titusRuntime.getClock().wallTime()));
+                return Optional.of(new ReplicatorEvent<>(newSnapshot.get(), coreEvent, titusRuntime.getClock().wallTime()));
             }
-            return Flux.empty();
+            return Optional.empty();
         }
 
         private JobManagerEvent<?> toJobCoreEvent(Job newJob) {
@@ -36,6 +36,8 @@ import com.netflix.titus.runtime.connector.common.replicator.StreamDataReplicato
 import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshotFactories;
+import com.netflix.titus.runtime.connector.jobmanager.JobSnapshotFactory;
 import reactor.core.scheduler.Schedulers;
 
 @Singleton
@@ -55,8 +57,15 @@ public class JobDataReplicatorProvider implements Provider<JobDataReplicator> {
     }
 
     public JobDataReplicatorProvider(JobManagementClient client, Map<String, String> filteringCriteria, TitusRuntime titusRuntime) {
+        this(client, filteringCriteria, JobSnapshotFactories.newDefault(), titusRuntime);
+    }
+
+    public JobDataReplicatorProvider(JobManagementClient client,
+                                     Map<String, String> filteringCriteria,
+                                     JobSnapshotFactory jobSnapshotFactory,
+                                     TitusRuntime titusRuntime) {
         StreamDataReplicator<JobSnapshot, JobManagerEvent<?>> original = StreamDataReplicator.newStreamDataReplicator(
-                newReplicatorEventStream(client, filteringCriteria, titusRuntime),
+                newReplicatorEventStream(client, filteringCriteria, jobSnapshotFactory, titusRuntime),
                 new JobDataReplicatorMetrics(JOB_REPLICATOR, titusRuntime),
                 titusRuntime
         ).blockFirst(Duration.ofMillis(JOB_BOOTSTRAP_TIMEOUT_MS));
@@ -76,10 +85,12 @@ public class JobDataReplicatorProvider implements Provider<JobDataReplicator> {
 
     private static RetryableReplicatorEventStream<JobSnapshot, JobManagerEvent<?>> newReplicatorEventStream(JobManagementClient client,
                                                                                                             Map<String, String> filteringCriteria,
+                                                                                                            JobSnapshotFactory jobSnapshotFactory,
                                                                                                             TitusRuntime titusRuntime) {
         GrpcJobReplicatorEventStream grpcEventStream = new GrpcJobReplicatorEventStream(
                 client,
                 filteringCriteria,
+                jobSnapshotFactory,
                 new JobDataReplicatorMetrics(JOB_REPLICATOR_GRPC_STREAM, titusRuntime),
                 titusRuntime,
                 Schedulers.parallel()
@@ -107,8 +118,8 @@ public class JobDataReplicatorProvider implements Provider<JobDataReplicator> {
         @Override
         public void event(ReplicatorEvent<JobSnapshot, JobManagerEvent<?>> event) {
             super.event(event);
-            setCacheCollectionSize("jobs", event.getSnapshot().getJobs().size());
-            setCacheCollectionSize("tasks", event.getSnapshot().getTasks().size());
+            setCacheCollectionSize("jobs", event.getSnapshot().getJobCount());
+            setCacheCollectionSize("tasks", event.getSnapshot().getTaskCount());
         }
     }
 }
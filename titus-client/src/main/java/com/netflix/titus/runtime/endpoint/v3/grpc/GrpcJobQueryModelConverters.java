@@ -17,6 +17,7 @@
 package com.netflix.titus.runtime.endpoint.v3.grpc;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -55,10 +56,15 @@ public class GrpcJobQueryModelConverters extends CommonRuntimeGrpcModelConverter
     );
 
     public static JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> toJobQueryCriteria(ObserveJobsQuery query) {
-        if (query.getFilteringCriteriaCount() == 0) {
+        Map<String, String> criteriaMap = query.getFilteringCriteriaMap();
+        if (criteriaMap.containsKey(ObserveJobsResumeToken.CRITERIA_KEY)) {
+            criteriaMap = new HashMap<>(criteriaMap);
+            criteriaMap.remove(ObserveJobsResumeToken.CRITERIA_KEY);
+        }
+        if (criteriaMap.isEmpty()) {
             return JobQueryCriteria.<TaskStatus.TaskState, JobSpecCase>newBuilder().build();
         }
-        return toJobQueryCriteria(query.getFilteringCriteriaMap());
+        return toJobQueryCriteria(criteriaMap);
     }
 
     public static JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> toJobQueryCriteria(JobQuery jobQuery) {
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.endpoint.v3.grpc;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+
+/**
+ * Position in the TitusMaster job event stream, which a client can pass back (as the {@link #CRITERIA_KEY}
+ * filtering criteria of ObserveJobsQuery) to resume a broken stream. If the position is still in the master event
+ * journal, only the missed events are sent, followed by a snapshot end marker flagged as resumed. Otherwise a full
+ * snapshot is sent, as if no token was given.
+ * <p>
+ * The API model has no fields for the stream position, so it is carried in protobuf unknown fields of
+ * {@link JobChangeNotification}. Unknown fields are preserved by protobuf parsers (so they pass through TitusGateway),
+ * and are ignored by clients not aware of them. The field numbers are taken from a range that is not used by the API.
+ * <ul>
+ *     <li>job and task updates carry their event sequence number</li>
+ *     <li>the snapshot end marker carries the journal epoch, the sequence number the snapshot is consistent with,
+ *     and the resumed flag</li>
+ * </ul>
+ * A client tracks the epoch from the last marker, and the highest sequence number received.
+ */
+public class ObserveJobsResumeToken {
+
+    public static final String CRITERIA_KEY = "resumeToken";
+
+    public static final long NO_SEQUENCE = -1;
+
+    private static final int SEQUENCE_FIELD = 10_001;
+    private static final int EPOCH_FIELD = 10_002;
+    private static final int RESUMED_FIELD = 10_003;
+
+    private final String epoch;
+    private final long sequence;
+
+    public ObserveJobsResumeToken(String epoch, long sequence) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns a token with the sequence number of the given event, if it is higher than the current one.
+     */
+    public ObserveJobsResumeToken advance(JobChangeNotification event) {
+        long eventSequence = getSequence(event);
+        return eventSequence > sequence ? new ObserveJobsResumeToken(epoch, eventSequence) : this;
+    }
+
+    public String toCriteriaValue() {
+        return epoch + ':' + sequence;
+    }
+
+    public static Optional<ObserveJobsResumeToken> parse(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        int idx = value.lastIndexOf(':');
+        if (idx <= 0 || idx == value.length() - 1) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new ObserveJobsResumeToken(value.substring(0, idx), Long.parseLong(value.substring(idx + 1))));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the resume position from a snapshot end marker, if the server supports stream resume.
+     */
+    public static Optional<ObserveJobsResumeToken> fromSnapshotEndMarker(JobChangeNotification marker) {
+        UnknownFieldSet fields = marker.getUnknownFields();
+        if (!fields.hasField(EPOCH_FIELD) || !fields.hasField(SEQUENCE_FIELD)) {
+            return Optional.empty();
+        }
+        List<ByteString> epochs = fields.getField(EPOCH_FIELD).getLengthDelimitedList();
+        if (epochs.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ObserveJobsResumeToken(epochs.get(0).toStringUtf8(), getSequence(marker)));
+    }
+
+    public static boolean isResumed(JobChangeNotification marker) {
+        UnknownFieldSet fields = marker.getUnknownFields();
+        if (!fields.hasField(RESUMED_FIELD)) {
+            return false;
+        }
+        List<Long> values = fields.getField(RESUMED_FIELD).getVarintList();
+        return !values.isEmpty() && values.get(0) != 0;
+    }
+
+    public static long getSequence(JobChangeNotification event) {
+        UnknownFieldSet fields = event.getUnknownFields();
+        if (!fields.hasField(SEQUENCE_FIELD)) {
+            return NO_SEQUENCE;
+        }
+        List<Long> values = fields.getField(SEQUENCE_FIELD).getVarintList();
+        return values.isEmpty() ? NO_SEQUENCE : values.get(0);
+    }
+
+    public static JobChangeNotification withSequence(JobChangeNotification event, long sequence) {
+        return event.toBuilder()
+                .setUnknownFields(UnknownFieldSet.newBuilder(event.getUnknownFields())
+                        .addField(SEQUENCE_FIELD, UnknownFieldSet.Field.newBuilder().addVarint(sequence).build())
+                        .build()
+                )
+                .build();
+    }
+
+    public static JobChangeNotification newSnapshotEndMarker(ObserveJobsResumeToken position, boolean resumed) {
+        UnknownFieldSet fields = UnknownFieldSet.newBuilder()
+                .addField(SEQUENCE_FIELD, UnknownFieldSet.Field.newBuilder().addVarint(position.getSequence()).build())
+                .addField(EPOCH_FIELD, UnknownFieldSet.Field.newBuilder().addLengthDelimited(ByteString.copyFromUtf8(position.getEpoch())).build())
+                .addField(RESUMED_FIELD, UnknownFieldSet.Field.newBuilder().addVarint(resumed ? 1 : 0).build())
+                .build();
+        return JobChangeNotification.newBuilder()
+                .setSnapshotEnd(JobChangeNotification.SnapshotEnd.newBuilder())
+                .setUnknownFields(fields)
+                .build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ObserveJobsResumeToken that = (ObserveJobsResumeToken) o;
+        return sequence == that.sequence &&
+                Objects.equals(epoch, that.epoch);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(epoch, sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "ObserveJobsResumeToken{" +
+                "epoch='" + epoch + '\'' +
+                ", sequence=" + sequence +
+                '}';
+    }
+}
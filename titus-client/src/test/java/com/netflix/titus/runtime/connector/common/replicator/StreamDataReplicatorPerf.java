@@ -44,7 +44,7 @@ public class StreamDataReplicatorPerf {
     public static void main(String[] args) throws InterruptedException {
         JobManagementClient client = Mockito.mock(JobManagementClient.class);
 
-        Mockito.when(client.observeJobs(ArgumentMatchers.any())).thenAnswer(invocation -> Flux.defer(() -> {
+        Mockito.when(client.observeJobs(ArgumentMatchers.any(), ArgumentMatchers.any())).thenAnswer(invocation -> Flux.defer(() -> {
 
             JobManagerEvent jobUpdateEvent = JobUpdateEvent.newJob(JOB, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
             JobManagerEvent taskUpdateEvent = TaskUpdateEvent.newTask(JOB, TASK, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
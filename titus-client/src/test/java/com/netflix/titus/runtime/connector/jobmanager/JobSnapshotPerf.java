@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+
+/**
+ * Compares the task update cost of {@link LegacyJobSnapshot} and {@link PCollectionJobSnapshot}. Run with
+ * the number of jobs and tasks per job as arguments (defaults to 1000 jobs with 300 tasks each).
+ */
+public class JobSnapshotPerf {
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int UPDATES_PER_ITERATION = 1_000;
+
+    private final List<Task> allTasks = new ArrayList<>();
+    private final Map<String, Job<?>> jobsById = new HashMap<>();
+    private final Map<String, List<Task>> tasksByJobId = new HashMap<>();
+    private final Random random = new Random(123);
+
+    private JobSnapshotPerf(int jobCount, int tasksPerJob) {
+        JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(tasksPerJob)).getValues(jobCount).forEach(job -> {
+            List<Task> tasks = (List) JobGenerator.batchTasks(job).getValues(tasksPerJob);
+            jobsById.put(job.getId(), job);
+            tasksByJobId.put(job.getId(), tasks);
+            allTasks.addAll(tasks);
+        });
+    }
+
+    private void run(String name, JobSnapshotFactory factory) {
+        JobSnapshot snapshot = factory.newSnapshot("perf", jobsById, tasksByJobId);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            snapshot = runIteration(snapshot);
+        }
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            snapshot = runIteration(snapshot);
+        }
+        long elapsedNs = System.nanoTime() - startTime;
+        long updates = MEASURED_ITERATIONS * UPDATES_PER_ITERATION;
+
+        System.out.println(String.format("%-12s tasks=%8d, updates=%8d, avgUpdateTime=%10.2fus, throughput=%10.0fops/s",
+                name, snapshot.getTaskCount(), updates, elapsedNs / 1_000.0 / updates, updates * 1_000_000_000.0 / elapsedNs
+        ));
+    }
+
+    private JobSnapshot runIteration(JobSnapshot snapshot) {
+        for (int i = 0; i < UPDATES_PER_ITERATION; i++) {
+            Task task = allTasks.get(random.nextInt(allTasks.size()));
+            Task updated = JobFunctions.changeTaskStatus(task, TaskState.Started, "perf", "perf", Clocks.system());
+            snapshot = snapshot.updateTask(updated, false).orElse(snapshot);
+        }
+        return snapshot;
+    }
+
+    public static void main(String[] args) {
+        int jobCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int tasksPerJob = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        JobSnapshotPerf perf = new JobSnapshotPerf(jobCount, tasksPerJob);
+        perf.run("legacy", JobSnapshotFactories.newLegacy());
+        perf.run("pcollection", JobSnapshotFactories.newPCollection());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.runtime.connector.jobmanager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobState;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.model.IdAndTimestampKey;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobSnapshotTest {
+
+    private static final List<JobSnapshotFactory> FACTORIES = Arrays.asList(
+            JobSnapshotFactories.newLegacy(),
+            JobSnapshotFactories.newPCollection()
+    );
+
+    @Test
+    public void testNewSnapshot() {
+        Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(2)).getValue();
+        List<Task> tasks = (List) JobGenerator.batchTasks(job).getValues(2);
+
+        for (JobSnapshotFactory factory : FACTORIES) {
+            JobSnapshot snapshot = newSnapshot(factory, job, tasks);
+            assertThat(snapshot.getJobCount()).isEqualTo(1);
+            assertThat(snapshot.getTaskCount()).isEqualTo(2);
+            assertThat(snapshot.getJobs()).containsExactly(job);
+            assertThat(snapshot.getTasks()).containsExactlyInAnyOrderElementsOf(tasks);
+            assertThat(snapshot.getTasks(job.getId())).containsExactlyInAnyOrderElementsOf(tasks);
+            assertThat(snapshot.getJobsAndTasks()).hasSize(1);
+            assertThat(snapshot.findTaskById(tasks.get(0).getId()).get().getRight()).isEqualTo(tasks.get(0));
+        }
+    }
+
+    @Test
+    public void testTaskUpdates() {
+        Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(2)).getValue();
+        List<Task> tasks = (List) JobGenerator.batchTasks(job).getValues(2);
+        Task task1 = tasks.get(0);
+        Task task2 = tasks.get(1);
+
+        for (JobSnapshotFactory factory : FACTORIES) {
+            JobSnapshot initial = newSnapshot(factory, job, Collections.singletonList(task1));
+
+            // Add
+            JobSnapshot withTask2 = initial.updateTask(task2, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withTask2.getTasks(job.getId())).containsExactlyInAnyOrder(task1, task2);
+            assertThat(initial.getTasks(job.getId())).containsExactly(task1);
+
+            // Update
+            Task task2Started = JobFunctions.changeTaskStatus(task2, TaskState.Started, "test", "test", Clocks.system());
+            JobSnapshot withTask2Started = withTask2.updateTask(task2Started, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withTask2Started.findTaskById(task2.getId()).get().getRight()).isEqualTo(task2Started);
+            assertThat(withTask2Started.getTaskCount()).isEqualTo(2);
+
+            // Remove
+            Task task2Finished = JobFunctions.changeTaskStatus(task2, TaskState.Finished, "test", "test", Clocks.system());
+            JobSnapshot withoutTask2 = withTask2Started.updateTask(task2Finished, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withoutTask2.getTasks()).containsExactly(task1);
+            assertThat(withoutTask2.findTaskById(task2.getId())).isEmpty();
+
+            // Finished task not in the snapshot
+            assertThat(withoutTask2.updateTask(task2Finished, false)).isEmpty();
+        }
+    }
+
+    @Test
+    public void testJobUpdates() {
+        Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(1)).getValue();
+        Task task = JobGenerator.batchTasks(job).getValue();
+
+        for (JobSnapshotFactory factory : FACTORIES) {
+            JobSnapshot initial = factory.newSnapshot("test", Collections.emptyMap(), Collections.emptyMap());
+
+            JobSnapshot withJob = initial.updateJob(job).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            JobSnapshot withTask = withJob.updateTask(task, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withTask.getJobsAndTasks().get(0).getRight()).containsExactly(task);
+
+            Job<?> finishedJob = JobFunctions.changeJobStatus(job, JobState.Finished, "test");
+            JobSnapshot withoutJob = withTask.updateJob(finishedJob).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withoutJob.getJobs()).isEmpty();
+            assertThat(withoutJob.getTasks()).isEmpty();
+            assertThat(withoutJob.getTaskCount()).isZero();
+
+            // Task of unknown job is ignored
+            assertThat(withoutJob.updateTask(task, false)).isEmpty();
+        }
+    }
+
+    @Test
+    public void testCursorKeysFollowUpdates() {
+        Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(2)).getValue();
+        List<Task> tasks = (List) JobGenerator.batchTasks(job).getValues(2);
+        Task task1 = tasks.get(0);
+        Task task2 = tasks.get(1);
+
+        for (JobSnapshotFactory factory : FACTORIES) {
+            JobSnapshot initial = newSnapshot(factory, job, Collections.singletonList(task1));
+            assertThat(initial.getJobCursorKeys()).extracting(IdAndTimestampKey::getId).containsExactly(job.getId());
+            assertThat(initial.getTaskCursorKeys()).extracting(IdAndTimestampKey::getId).containsExactly(task1.getId());
+
+            JobSnapshot withTask2 = initial.updateTask(task2, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withTask2.getTaskCursorKeys()).extracting(IdAndTimestampKey::getId).containsExactlyInAnyOrder(task1.getId(), task2.getId());
+            assertThat(withTask2.getTaskCursorKeys().first().getTimestamp()).isLessThanOrEqualTo(withTask2.getTaskCursorKeys().last().getTimestamp());
+
+            Task task2Finished = JobFunctions.changeTaskStatus(task2, TaskState.Finished, "test", "test", Clocks.system());
+            JobSnapshot withoutTask2 = withTask2.updateTask(task2Finished, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withoutTask2.getTaskCursorKeys()).extracting(IdAndTimestampKey::getId).containsExactly(task1.getId());
+
+            Job<?> finishedJob = JobFunctions.changeJobStatus(job, JobState.Finished, "test");
+            JobSnapshot withoutJob = withoutTask2.updateJob(finishedJob).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withoutJob.getJobCursorKeys()).isEmpty();
+            assertThat(withoutJob.getTaskCursorKeys()).isEmpty();
+        }
+    }
+
+    @Test
+    public void testTaskCursorKeyIsReplacedWhenItChanges() {
+        Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(1)).getValue();
+        Task generated = JobGenerator.batchTasks(job).getValue();
+        // Without the status history, the cursor key is computed from the current status timestamp
+        Task started = generated.toBuilder()
+                .withStatus(TaskStatus.newBuilder().withState(TaskState.Started).withTimestamp(1_000).build())
+                .withStatusHistory(Collections.emptyList())
+                .build();
+        Task killInitiated = started.toBuilder()
+                .withStatus(TaskStatus.newBuilder().withState(TaskState.KillInitiated).withTimestamp(2_000).build())
+                .build();
+
+        for (JobSnapshotFactory factory : FACTORIES) {
+            JobSnapshot initial = newSnapshot(factory, job, Collections.singletonList(started));
+            JobSnapshot updated = initial.updateTask(killInitiated, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(updated.getTaskCursorKeys()).extracting(IdAndTimestampKey::getTimestamp).containsExactly(2_000L);
+
+            Task finished = JobFunctions.changeTaskStatus(killInitiated, TaskState.Finished, "test", "test", Clocks.system());
+            JobSnapshot withoutTask = updated.updateTask(finished, false).orElseThrow(() -> new IllegalStateException("snapshot not updated"));
+            assertThat(withoutTask.getTaskCursorKeys()).isEmpty();
+        }
+    }
+
+    private JobSnapshot newSnapshot(JobSnapshotFactory factory, Job<?> job, List<Task> tasks) {
+        Map<String, Job<?>> jobsById = new HashMap<>();
+        jobsById.put(job.getId(), job);
+        Map<String, List<Task>> tasksByJobId = new HashMap<>();
+        tasksByJobId.put(job.getId(), tasks);
+        return factory.newSnapshot("test", jobsById, tasksByJobId);
+    }
+}
@@ -18,8 +18,10 @@ package com.netflix.titus.runtime.connector.jobmanager.replicator;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
@@ -32,19 +34,24 @@ import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
 import com.netflix.titus.runtime.connector.common.replicator.DataReplicatorMetrics;
 import com.netflix.titus.runtime.connector.common.replicator.ReplicatorEvent;
+import com.netflix.titus.runtime.connector.jobmanager.JobEventStreamPosition;
 import com.netflix.titus.runtime.connector.jobmanager.JobManagementClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobSnapshot;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
 import com.netflix.titus.testkit.model.job.JobComponentStub;
 import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
 import org.assertj.core.api.Condition;
 import org.junit.Before;
 import org.junit.Test;
+import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
@@ -223,8 +230,62 @@ public class GrpcJobReplicatorEventStreamTest {
                 .verify();
     }
 
+    @Test
+    public void testStreamIsResumedFromLastAppliedEvent() {
+        Job job1 = dataGenerator.createJob(SERVICE_JOB);
+        Job job2 = dataGenerator.createJob(SERVICE_JOB);
+        Job job3 = dataGenerator.createJob(SERVICE_JOB);
+
+        List<Pair<JobChangeNotification, JobManagerEvent<?>>> firstConnection = Arrays.asList(
+                Pair.of(JobChangeNotification.getDefaultInstance(), newJobEvent(job1)),
+                Pair.of(ObserveJobsResumeToken.newSnapshotEndMarker(new ObserveJobsResumeToken("epoch", 10), false), JobManagerEvent.snapshotMarker()),
+                Pair.of(ObserveJobsResumeToken.withSequence(JobChangeNotification.getDefaultInstance(), 11), newJobEvent(job2))
+        );
+        List<Pair<JobChangeNotification, JobManagerEvent<?>>> secondConnection = Arrays.asList(
+                Pair.of(ObserveJobsResumeToken.withSequence(JobChangeNotification.getDefaultInstance(), 12), newJobEvent(job3)),
+                Pair.of(ObserveJobsResumeToken.newSnapshotEndMarker(new ObserveJobsResumeToken("epoch", 12), true), JobManagerEvent.snapshotMarker())
+        );
+
+        List<Optional<ObserveJobsResumeToken>> sentTokens = new ArrayList<>();
+        AtomicInteger connections = new AtomicInteger();
+        when(client.observeJobs(any(), any())).thenAnswer(invocation -> {
+            JobEventStreamPosition position = invocation.getArgument(1);
+            return Flux.defer(() -> {
+                position.onConnect();
+                sentTokens.add(position.getResumeToken());
+                boolean first = connections.getAndIncrement() == 0;
+                Flux<JobManagerEvent<?>> events = Flux.fromIterable(first ? firstConnection : secondConnection)
+                        .doOnNext(pair -> position.onNotification(pair.getLeft()))
+                        .map(Pair::getRight);
+                return first ? events.concatWith(Flux.error(new RuntimeException("simulated stream error"))) : events;
+            });
+        });
+        GrpcJobReplicatorEventStream stream = new GrpcJobReplicatorEventStream(client, new DataReplicatorMetrics("test", titusRuntime), titusRuntime, Schedulers.parallel());
+
+        StepVerifier.create(stream.connect())
+                .assertNext(next -> assertThat(next.getSnapshot().getJobs()).hasSize(1))
+                .assertNext(next -> assertThat(next.getSnapshot().getJobs()).hasSize(2))
+                .expectError()
+                .verify();
+
+        // Only the missed event is applied to the last snapshot.
+        StepVerifier.create(stream.connect())
+                .assertNext(next -> {
+                    assertThat(next.getSnapshot().getJobs()).hasSize(3);
+                    assertThat(next.getTrigger()).isInstanceOf(JobUpdateEvent.class);
+                })
+                .thenCancel()
+                .verify();
+
+        assertThat(sentTokens).containsExactly(Optional.empty(), Optional.of(new ObserveJobsResumeToken("epoch", 11)));
+    }
+
+    private static JobManagerEvent<?> newJobEvent(Job job) {
+        return JobUpdateEvent.newJob(job, JobManagerConstants.GRPC_REPLICATOR_CALL_METADATA);
+    }
+
     private GrpcJobReplicatorEventStream newStream() {
-        when(client.observeJobs(any())).thenReturn(ReactorExt.toFlux(dataGenerator.observeJobs(true)));
+        when(client.observeJobs(any(), any())).thenReturn(ReactorExt.toFlux(dataGenerator.observeJobs(true)));
         return new GrpcJobReplicatorEventStream(client, new DataReplicatorMetrics("test", titusRuntime), titusRuntime, Schedulers.parallel());
     }
 
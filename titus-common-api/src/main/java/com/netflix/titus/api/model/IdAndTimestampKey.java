@@ -35,6 +35,14 @@ public class IdAndTimestampKey<T> implements PaginableEntityKey<T> {
         this.timestamp = timestamp;
     }
 
+    /**
+     * Creates a key that holds the entity id in place of the entity itself. Such keys are used by ordered indexes
+     * that must not keep references to the entity versions they were built from.
+     */
+    public static IdAndTimestampKey<String> ofId(String id, long timestamp) {
+        return new IdAndTimestampKey<>(id, id, timestamp);
+    }
+
     @Override
     public T getEntity() {
         return entity;
@@ -20,6 +20,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -100,6 +102,125 @@ public final class PaginationUtil {
         return Pair.of(pageItems, pagination);
     }
 
+    /**
+     * Cursor-based pagination over an index kept in the cursor order. Unlike {@link #takePageWithCursor}, the items
+     * are neither copied nor sorted. When a cursor is present, the page is read from the index tail following the
+     * cursor key, and only the page items are materialized. The matcher resolves an index key into an item, or
+     * returns {@link Optional#empty()} if the key does not match the query. The matcher is applied until the page is
+     * filled and one more matching item is found (to resolve {@link Pagination#hasMore()}), so the cost of a page does
+     * not depend on its position in the index.
+     * <p>
+     * Items before the cursor and after the page are not counted. The requested {@link Page#getPageNumber() pageNumber}
+     * is taken as the cursor position estimate, and {@link Pagination#getTotalItems()} is a lower bound including
+     * the items up to the page end, and one more if there are more items. Exact totals are computed only for the
+     * first page, requested without a cursor.
+     * <p>
+     * If the {@link Page#getCursor() requested cursor} is empty, fallback to classic (pageNumber-based) pagination.
+     */
+    public static <K, T> Pair<List<T>, Pagination> takePageWithSeek(Page page,
+                                                                    NavigableSet<K> orderedIndex,
+                                                                    Function<String, Optional<K>> cursorKeyDecoder,
+                                                                    Function<K, Optional<T>> matcher,
+                                                                    Function<T, String> cursorFactory) {
+        if (StringExt.isEmpty(page.getCursor())) {
+            return takePageWithSeekWithoutCursor(page, orderedIndex, matcher, cursorFactory);
+        }
+
+        K cursorKey = cursorKeyDecoder.apply(page.getCursor())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid cursor: " + page.getCursor()));
+        return takePageAfterCursor(page, orderedIndex.tailSet(cursorKey, false), matcher, cursorFactory);
+    }
+
+    /**
+     * Variant of {@link #takePageWithSeek(Page, NavigableSet, Function, Function, Function)} over an index holding
+     * the items as values, so the matcher is applied to the indexed values directly, without resolving the keys.
+     */
+    public static <K, V, T> Pair<List<T>, Pagination> takePageWithSeek(Page page,
+                                                                       NavigableMap<K, V> orderedIndex,
+                                                                       Function<String, Optional<K>> cursorKeyDecoder,
+                                                                       Function<V, Optional<T>> matcher,
+                                                                       Function<T, String> cursorFactory) {
+        if (StringExt.isEmpty(page.getCursor())) {
+            return takePageWithSeekWithoutCursor(page, orderedIndex.values(), matcher, cursorFactory);
+        }
+
+        K cursorKey = cursorKeyDecoder.apply(page.getCursor())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid cursor: " + page.getCursor()));
+        return takePageAfterCursor(page, orderedIndex.tailMap(cursorKey, false).values(), matcher, cursorFactory);
+    }
+
+    private static <E, T> Pair<List<T>, Pagination> takePageAfterCursor(Page page,
+                                                                        Iterable<E> afterCursor,
+                                                                        Function<E, Optional<T>> matcher,
+                                                                        Function<T, String> cursorFactory) {
+        if (page.getPageSize() <= 0) {
+            return Pair.of(Collections.emptyList(), new Pagination(page, false, 0, 0, "", 0));
+        }
+
+        List<T> pageItems = new ArrayList<>();
+        boolean hasMore = false;
+        for (E entry : afterCursor) {
+            Optional<T> item = matcher.apply(entry);
+            if (item.isPresent()) {
+                if (pageItems.size() == page.getPageSize()) {
+                    hasMore = true;
+                    break;
+                }
+                pageItems.add(item.get());
+            }
+        }
+
+        int offset = page.getPageNumber() * page.getPageSize();
+        int totalItems = offset + pageItems.size() + (hasMore ? 1 : 0);
+        int cursorPosition = Math.max(0, offset + pageItems.size() - 1);
+
+        // An empty page after the cursor keeps the requested cursor, so the client can poll for new items.
+        String cursor = pageItems.isEmpty() ? page.getCursor() : cursorFactory.apply(pageItems.get(pageItems.size() - 1));
+        Pagination pagination = new Pagination(
+                page,
+                hasMore,
+                numberOfPages(page, totalItems),
+                totalItems,
+                cursor,
+                cursorPosition
+        );
+        return Pair.of(pageItems, pagination);
+    }
+
+    private static <E, T> Pair<List<T>, Pagination> takePageWithSeekWithoutCursor(Page page,
+                                                                                  Iterable<E> orderedIndex,
+                                                                                  Function<E, Optional<T>> matcher,
+                                                                                  Function<T, String> cursorFactory) {
+        if (page.getPageSize() <= 0) {
+            return Pair.of(Collections.emptyList(), new Pagination(page, false, 0, 0, "", 0));
+        }
+
+        int firstItem = page.getPageNumber() * page.getPageSize();
+        List<T> pageItems = new ArrayList<>();
+        int totalItems = 0;
+        for (E entry : orderedIndex) {
+            Optional<T> item = matcher.apply(entry);
+            if (item.isPresent()) {
+                if (totalItems >= firstItem && pageItems.size() < page.getPageSize()) {
+                    pageItems.add(item.get());
+                }
+                totalItems++;
+            }
+        }
+        if (totalItems == 0) {
+            return Pair.of(Collections.emptyList(), new Pagination(page, false, 0, 0, "", 0));
+        }
+
+        int lastItem = Math.min(totalItems, firstItem + page.getPageSize());
+        boolean more = totalItems > lastItem;
+        int totalPages = numberOfPages(page, totalItems);
+
+        String cursor = pageItems.isEmpty() ? "" : cursorFactory.apply(pageItems.get(pageItems.size() - 1));
+        int cursorPosition = pageItems.isEmpty() ? 0 : lastItem - 1;
+
+        return Pair.of(pageItems, new Pagination(page, more, totalPages, totalItems, cursor, cursorPosition));
+    }
+
     /**
      * {@link Page#getPageNumber() Number} (index) based pagination.
      * <p>
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.api.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.titus.common.util.tuple.Pair;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PaginationUtilTest {
+
+    private static final int PAGE_SIZE = 7;
+
+    /**
+     * Index of 100 keys, of which only even ones match the query.
+     */
+    private final NavigableSet<Integer> orderedIndex = new TreeSet<>();
+    private final List<Integer> matchingItems = new ArrayList<>();
+
+    public PaginationUtilTest() {
+        for (int i = 0; i < 100; i++) {
+            orderedIndex.add(i);
+            if (i % 2 == 0) {
+                matchingItems.add(i);
+            }
+        }
+    }
+
+    @Test
+    public void testSeekPaginationWithCursor() {
+        Page page = Page.newBuilder().withPageSize(PAGE_SIZE).build();
+        Pair<List<Integer>, Pagination> expected = takePageWithCursor(page);
+        Pair<List<Integer>, Pagination> actual = takePageWithSeek(page);
+
+        // Exact totals are computed for the first page only.
+        assertThat(actual).isEqualTo(expected);
+        int pages = 1;
+        while (actual.getRight().hasMore()) {
+            page = page.toBuilder().withCursor(actual.getRight().getCursor()).withPageNumber(pages).build();
+            expected = takePageWithCursor(page);
+            actual = takePageWithSeek(page);
+            assertSamePage(actual, expected);
+            pages++;
+        }
+        assertThat(pages).isEqualTo(PaginationUtil.numberOfPages(page, matchingItems.size()));
+        assertThat(actual.getRight().getTotalItems()).isEqualTo(matchingItems.size());
+    }
+
+    @Test
+    public void testSeekPaginationWithCursorOfNotMatchingItem() {
+        Page page = Page.newBuilder().withPageSize(PAGE_SIZE).withCursor("11").build();
+        Pair<List<Integer>, Pagination> result = takePageWithSeek(page);
+        assertThat(result.getLeft()).containsExactly(12, 14, 16, 18, 20, 22, 24);
+        assertSamePage(result, takePageWithCursor(page));
+    }
+
+    @Test
+    public void testSeekPaginationPastLastItem() {
+        Page page = Page.newBuilder().withPageSize(PAGE_SIZE).withCursor("1000").build();
+        Pair<List<Integer>, Pagination> result = takePageWithSeek(page);
+        assertThat(result.getLeft()).isEmpty();
+        assertThat(result.getRight().hasMore()).isFalse();
+        assertThat(result.getRight().getCursor()).isEqualTo("1000");
+    }
+
+    @Test
+    public void testSeekPaginationStopsAfterPageIsFilled() {
+        AtomicInteger evaluated = new AtomicInteger();
+        Page page = Page.newBuilder().withPageSize(PAGE_SIZE).withCursor("10").build();
+        Pair<List<Integer>, Pagination> result = PaginationUtil.takePageWithSeek(
+                page,
+                orderedIndex,
+                PaginationUtilTest::decodeCursor,
+                key -> {
+                    evaluated.incrementAndGet();
+                    return key % 2 == 0 ? Optional.of(key) : Optional.empty();
+                },
+                String::valueOf
+        );
+        assertThat(result.getLeft()).containsExactly(12, 14, 16, 18, 20, 22, 24);
+        assertThat(result.getRight().hasMore()).isTrue();
+        // Keys 11 to 26, with the item 26 matched to resolve hasMore.
+        assertThat(evaluated.get()).isEqualTo(16);
+    }
+
+    @Test
+    public void testSeekPaginationWithPageNumber() {
+        for (int pageNumber = 0; pageNumber < 10; pageNumber++) {
+            Page page = Page.newBuilder().withPageSize(PAGE_SIZE).withPageNumber(pageNumber).build();
+            assertThat(takePageWithSeek(page)).isEqualTo(PaginationUtil.takePageWithoutCursor(page, matchingItems, String::valueOf));
+        }
+    }
+
+    @Test
+    public void testSeekPaginationOverValueIndex() {
+        NavigableMap<Integer, String> valueIndex = new TreeMap<>();
+        orderedIndex.forEach(key -> valueIndex.put(key, String.valueOf(key)));
+
+        Page page = Page.newBuilder().withPageSize(PAGE_SIZE).build();
+        Pair<List<Integer>, Pagination> actual;
+        do {
+            actual = PaginationUtil.takePageWithSeek(
+                    page,
+                    valueIndex,
+                    PaginationUtilTest::decodeCursor,
+                    value -> decodeCursor(value).filter(key -> key % 2 == 0),
+                    String::valueOf
+            );
+            assertThat(actual).isEqualTo(takePageWithSeek(page));
+            page = page.toBuilder().withCursor(actual.getRight().getCursor()).build();
+        } while (actual.getRight().hasMore());
+    }
+
+    @Test
+    public void testSeekPaginationOfEmptyIndex() {
+        Page page = Page.newBuilder().withPageSize(PAGE_SIZE).build();
+        Pair<List<Integer>, Pagination> result = PaginationUtil.takePageWithSeek(
+                page, new TreeSet<>(), PaginationUtilTest::decodeCursor, Optional::of, String::valueOf
+        );
+        assertThat(result).isEqualTo(PaginationUtil.takePageWithoutCursor(page, Collections.<Integer>emptyList(), String::valueOf));
+    }
+
+    private static void assertSamePage(Pair<List<Integer>, Pagination> actual, Pair<List<Integer>, Pagination> expected) {
+        assertThat(actual.getLeft()).isEqualTo(expected.getLeft());
+        assertThat(actual.getRight().hasMore()).isEqualTo(expected.getRight().hasMore());
+        assertThat(actual.getRight().getCursor()).isEqualTo(expected.getRight().getCursor());
+    }
+
+    private Pair<List<Integer>, Pagination> takePageWithSeek(Page page) {
+        return PaginationUtil.takePageWithSeek(
+                page,
+                orderedIndex,
+                PaginationUtilTest::decodeCursor,
+                key -> key % 2 == 0 ? Optional.of(key) : Optional.empty(),
+                String::valueOf
+        );
+    }
+
+    private Pair<List<Integer>, Pagination> takePageWithCursor(Page page) {
+        return PaginationUtil.takePageWithCursor(
+                page,
+                matchingItems,
+                Comparator.naturalOrder(),
+                (items, cursor) -> decodeCursor(cursor).map(key -> {
+                    int idx = Collections.binarySearch(items, key);
+                    return idx >= 0 ? idx : Math.max(-1, -idx - 2);
+                }),
+                String::valueOf
+        );
+    }
+
+    private static Optional<Integer> decodeCursor(String cursor) {
+        return Optional.of(Integer.parseInt(cursor));
+    }
+}
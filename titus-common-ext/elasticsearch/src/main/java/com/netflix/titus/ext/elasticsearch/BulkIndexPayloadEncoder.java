@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.elasticsearch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.netflix.titus.ext.elasticsearch.model.IndexHeader;
+import com.netflix.titus.ext.elasticsearch.model.IndexHeaderLine;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * Writes the bulk index NDJSON payload into a {@link DataBuffer}, without materializing the intermediate JSON strings.
+ * Each document is serialized with a single Jackson generator into a reused staging buffer, so its size is known
+ * before it is appended to the payload. The staged bytes of the document that did not fit are returned with the
+ * payload, so the next payload starts with them, instead of serializing the document again. With the Netty based HTTP
+ * client, the payload buffer comes from the channel's pooled allocator.
+ */
+class BulkIndexPayloadEncoder {
+
+    private static final char NEW_LINE = '\n';
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final boolean compressed;
+
+    BulkIndexPayloadEncoder(ObjectMapper mapper, boolean compressed) {
+        this.mapper = mapper;
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.compressed = compressed;
+    }
+
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Encodes documents starting from the given position, while the uncompressed payload size stays within
+     * maxPayloadBytes. At least one document is always encoded, even if it alone exceeds the limit.
+     *
+     * @param fromDocument the staged bytes of the document at the start position returned by the previous call
+     *                     ({@link Payload#getNextDocument()}), or null if it is not encoded yet
+     */
+    Payload encode(DataBufferFactory bufferFactory,
+                   List<? extends EsDoc> documents,
+                   int from,
+                   byte[] fromDocument,
+                   String index,
+                   String type,
+                   long maxPayloadBytes) throws IOException {
+        DataBuffer buffer = bufferFactory.allocateBuffer();
+        try {
+            OutputStream bufferStream = buffer.asOutputStream();
+            ByteArrayOutputStream documentBytes = new ByteArrayOutputStream();
+            int next = from;
+            long payloadSize = 0;
+            byte[] nextDocument = null;
+            // Closing the output stream writes the gzip trailer.
+            try (OutputStream output = compressed ? new GZIPOutputStream(bufferStream) : bufferStream;
+                 JsonGenerator generator = mapper.getFactory().createGenerator(documentBytes)) {
+                // Documents are separated by the explicit new lines only.
+                generator.setRootValueSeparator(null);
+                if (fromDocument != null && next < documents.size()) {
+                    output.write(fromDocument);
+                    payloadSize += fromDocument.length;
+                    next++;
+                }
+                while (next < documents.size()) {
+                    EsDoc document = documents.get(next);
+                    writer.writeValue(generator, new IndexHeaderLine(new IndexHeader(index, type, document.getId())));
+                    generator.writeRaw(NEW_LINE);
+                    writer.writeValue(generator, document);
+                    generator.writeRaw(NEW_LINE);
+                    generator.flush();
+
+                    if (next > from && payloadSize + documentBytes.size() > maxPayloadBytes) {
+                        nextDocument = documentBytes.toByteArray();
+                        break;
+                    }
+                    documentBytes.writeTo(output);
+                    payloadSize += documentBytes.size();
+                    documentBytes.reset();
+                    next++;
+                }
+            }
+            return new Payload(buffer, next, nextDocument);
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+    }
+
+    static class Payload {
+
+        private final DataBuffer buffer;
+        private final int next;
+        private final byte[] nextDocument;
+
+        private Payload(DataBuffer buffer, int next, byte[] nextDocument) {
+            this.buffer = buffer;
+            this.next = next;
+            this.nextDocument = nextDocument;
+        }
+
+        DataBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Returns the position of the first document not included in the payload.
+         */
+        int getNext() {
+            return next;
+        }
+
+        /**
+         * Returns the staged bytes of the first document not included in the payload, or null if it was not encoded.
+         */
+        byte[] getNextDocument() {
+            return nextDocument;
+        }
+    }
+}
@@ -15,32 +15,50 @@
  */
 package com.netflix.titus.ext.elasticsearch;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.netflix.titus.common.util.jackson.CommonObjectMappers;
 import com.netflix.titus.ext.elasticsearch.model.BulkEsIndexResp;
 import com.netflix.titus.ext.elasticsearch.model.EsIndexResp;
 import com.netflix.titus.ext.elasticsearch.model.EsRespCount;
 import com.netflix.titus.ext.elasticsearch.model.EsRespSrc;
-import com.netflix.titus.ext.elasticsearch.model.IndexHeader;
-import com.netflix.titus.ext.elasticsearch.model.IndexHeaderLine;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 public class DefaultEsClient<T extends EsDoc> implements EsClient<T> {
-    private static final Logger logger = LoggerFactory.getLogger(DefaultEsClient.class);
     private final WebClient client;
+    private final BulkIndexPayloadEncoder payloadEncoder;
+    private final Scheduler encodingScheduler;
 
     public DefaultEsClient(EsWebClientFactory esWebClientFactory) {
-        client = esWebClientFactory.buildWebClient();
+        this(esWebClientFactory, false);
+    }
+
+    public DefaultEsClient(EsWebClientFactory esWebClientFactory, EsClientConfiguration configuration) {
+        this(esWebClientFactory, configuration.isBulkRequestCompressionEnabled());
+    }
+
+    private DefaultEsClient(EsWebClientFactory esWebClientFactory, boolean compressed) {
+        this.client = esWebClientFactory.buildWebClient();
+        this.payloadEncoder = new BulkIndexPayloadEncoder(CommonObjectMappers.jacksonDefaultMapper(), compressed);
+        this.encodingScheduler = Schedulers.parallel();
     }
 
     @Override
@@ -55,12 +73,46 @@ public class DefaultEsClient<T extends EsDoc> implements EsClient<T> {
 
     @Override
     public Mono<BulkEsIndexResp> bulkIndexDocuments(List<T> taskDocuments, String index, String type) {
-        return client.post()
+        return bulkIndexDocuments(taskDocuments, index, type, Long.MAX_VALUE).next();
+    }
+
+    @Override
+    public Flux<BulkEsIndexResp> bulkIndexDocuments(List<T> documents, String index, String type, long maxPayloadBytes) {
+        return bulkIndexDocumentsFrom(documents, 0, null, index, type, maxPayloadBytes);
+    }
+
+    /**
+     * The payload is encoded when the request body is written, so the buffer is allocated by the HTTP client, and
+     * there is nothing to release if the request fails before that. The serialization and compression are CPU bound,
+     * so they run on the bounded parallel scheduler, not on the HTTP client event loop. The position where the next
+     * request starts is known only after the payload is encoded, so the requests are chained one after another. The
+     * document that did not fit into a request is passed to the next one already serialized.
+     */
+    private Flux<BulkEsIndexResp> bulkIndexDocumentsFrom(List<T> documents, int from, byte[] fromDocument, String index, String type, long maxPayloadBytes) {
+        if (from >= documents.size()) {
+            return Flux.empty();
+        }
+        AtomicInteger next = new AtomicInteger(documents.size());
+        AtomicReference<byte[]> nextDocument = new AtomicReference<>();
+        BodyInserter<Object, ClientHttpRequest> payloadInserter = (outputMessage, context) -> outputMessage.writeWith(Mono.fromCallable(() -> {
+            BulkIndexPayloadEncoder.Payload payload = payloadEncoder.encode(outputMessage.bufferFactory(), documents, from, fromDocument, index, type, maxPayloadBytes);
+            next.set(payload.getNext());
+            nextDocument.set(payload.getNextDocument());
+            return payload.getBuffer();
+        }).subscribeOn(encodingScheduler));
+
+        WebClient.RequestBodySpec request = client.post()
                 .uri("/_bulk")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(buildBulkIndexPayload(taskDocuments, index, type)))
+                .contentType(MediaType.APPLICATION_JSON);
+        if (payloadEncoder.isCompressed()) {
+            request = request.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        Mono<BulkEsIndexResp> response = request
+                .body(payloadInserter)
                 .retrieve()
                 .bodyToMono(BulkEsIndexResp.class);
+
+        return response.flux().concatWith(Flux.defer(() -> bulkIndexDocumentsFrom(documents, next.get(), nextDocument.get(), index, type, maxPayloadBytes)));
     }
 
     @Override
@@ -85,24 +137,15 @@ public class DefaultEsClient<T extends EsDoc> implements EsClient<T> {
 
     @VisibleForTesting
     String buildBulkIndexPayload(List<T> tasks, String index, String type) {
-        StringBuilder sb = new StringBuilder();
-
-        final ObjectMapper mapper = CommonObjectMappers.jacksonDefaultMapper();
-
-        tasks.forEach(taskDocument -> {
-            final IndexHeader indexHeader = new IndexHeader(index, type, taskDocument.getId());
-            final IndexHeaderLine indexHeaderLine = new IndexHeaderLine(indexHeader);
+        try {
+            DataBuffer payload = payloadEncoder.encode(new DefaultDataBufferFactory(), tasks, 0, null, index, type, Long.MAX_VALUE).getBuffer();
             try {
-                final String indexLine = mapper.writeValueAsString(indexHeaderLine);
-                sb.append(indexLine);
-                sb.append("\n");
-                final String fieldsLine = mapper.writeValueAsString(taskDocument);
-                sb.append(fieldsLine);
-                sb.append("\n");
-            } catch (JsonProcessingException e) {
-                logger.error("Exception in transforming taskDocument into JSON ", e);
+                return payload.toString(StandardCharsets.UTF_8);
+            } finally {
+                DataBufferUtils.release(payload);
             }
-        });
-        return sb.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode bulk index payload", e);
+        }
     }
 }
@@ -23,6 +23,7 @@ import com.netflix.titus.ext.elasticsearch.model.EsIndexResp;
 import com.netflix.titus.ext.elasticsearch.model.EsRespCount;
 import com.netflix.titus.ext.elasticsearch.model.EsRespSrc;
 import org.springframework.core.ParameterizedTypeReference;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface EsClient<T extends EsDoc> {
@@ -30,6 +31,12 @@ public interface EsClient<T extends EsDoc> {
 
     Mono<BulkEsIndexResp> bulkIndexDocuments(List<T> documents, String index, String type);
 
+    /**
+     * Indexes the documents with as many bulk requests as needed to keep each request payload (before compression)
+     * within maxPayloadBytes. A document larger than the limit is sent in a request of its own.
+     */
+    Flux<BulkEsIndexResp> bulkIndexDocuments(List<T> documents, String index, String type, long maxPayloadBytes);
+
     Mono<EsRespSrc<T>> findDocumentById(String id, String index, String type,
                                         ParameterizedTypeReference<EsRespSrc<T>> responseTypeRef);
 
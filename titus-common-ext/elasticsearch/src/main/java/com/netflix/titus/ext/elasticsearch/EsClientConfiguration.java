@@ -32,4 +32,10 @@ public interface EsClientConfiguration {
     String getHost();
 
     int getPort();
+
+    /**
+     * Set to true to send the bulk index request payloads gzip compressed.
+     */
+    @DefaultValue("false")
+    boolean isBulkRequestCompressionEnabled();
 }
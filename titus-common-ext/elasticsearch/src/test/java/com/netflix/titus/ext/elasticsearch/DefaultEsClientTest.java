@@ -15,11 +15,21 @@
  */
 package com.netflix.titus.ext.elasticsearch;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import com.google.common.io.ByteStreams;
+import com.netflix.titus.common.util.jackson.CommonObjectMappers;
+import com.netflix.titus.common.util.tuple.Pair;
 import org.junit.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -55,4 +65,84 @@ public class DefaultEsClientTest {
         assertThat(payloadLines[2]).isEqualTo(line2);
         assertThat(payloadLines[4]).isEqualTo(line3);
     }
+
+    @Test
+    public void compressedBulkIndexPayload() throws IOException {
+        List<TestDoc> testDocs = Arrays.asList(
+                new TestDoc("id1", "Accepted", Instant.now().getEpochSecond()),
+                new TestDoc("id2", "Running", Instant.now().getEpochSecond())
+        );
+
+        String plain = encode(new BulkIndexPayloadEncoder(CommonObjectMappers.jacksonDefaultMapper(), false), testDocs, 0, null, Long.MAX_VALUE).getLeft();
+        BulkIndexPayloadEncoder compressedEncoder = new BulkIndexPayloadEncoder(CommonObjectMappers.jacksonDefaultMapper(), true);
+        BulkIndexPayloadEncoder.Payload compressed = compressedEncoder.encode(new DefaultDataBufferFactory(), testDocs, 0, null, "titustasks", "default", Long.MAX_VALUE);
+        try (InputStream input = new GZIPInputStream(compressed.getBuffer().asInputStream())) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ByteStreams.copy(input, output);
+            assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(plain);
+        } finally {
+            DataBufferUtils.release(compressed.getBuffer());
+        }
+        assertThat(plain).endsWith("\n");
+        assertThat(compressed.getNext()).isEqualTo(2);
+        assertThat(compressed.getNextDocument()).isNull();
+    }
+
+    @Test
+    public void bulkIndexPayloadIsSplitBySize() throws IOException {
+        List<TestDoc> testDocs = Arrays.asList(
+                new TestDoc("id1", "Accepted", 1),
+                new TestDoc("id2", "Running", 2),
+                new TestDoc("id3", "Stopped", 3)
+        );
+        BulkIndexPayloadEncoder encoder = new BulkIndexPayloadEncoder(CommonObjectMappers.jacksonDefaultMapper(), false);
+        int singleDocumentSize = encode(encoder, testDocs, 0, null, 1).getLeft().length();
+
+        // The third document does not fit
+        long maxPayloadBytes = 2 * singleDocumentSize;
+        Pair<String, BulkIndexPayloadEncoder.Payload> first = encode(encoder, testDocs, 0, null, maxPayloadBytes);
+        assertThat(first.getRight().getNext()).isEqualTo(2);
+        assertThat(first.getLeft().split("\n")).hasSize(4);
+        assertThat(first.getLeft().getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(maxPayloadBytes);
+
+        // The staged bytes of the document that did not fit are returned
+        String thirdDocument = encode(encoder, testDocs, 2, null, Long.MAX_VALUE).getLeft();
+        assertThat(new String(first.getRight().getNextDocument(), StandardCharsets.UTF_8)).isEqualTo(thirdDocument);
+
+        // A document larger than the limit is sent alone
+        Pair<String, BulkIndexPayloadEncoder.Payload> oversized = encode(encoder, testDocs, 0, null, 1);
+        assertThat(oversized.getRight().getNext()).isEqualTo(1);
+
+        Pair<String, BulkIndexPayloadEncoder.Payload> second = encode(encoder, testDocs, first.getRight().getNext(), first.getRight().getNextDocument(), maxPayloadBytes);
+        assertThat(second.getRight().getNext()).isEqualTo(3);
+        assertThat(second.getRight().getNextDocument()).isNull();
+        assertThat(second.getLeft()).isEqualTo(thirdDocument);
+    }
+
+    @Test
+    public void carriedOverDocumentIsNotSerializedAgain() throws IOException {
+        List<TestDoc> testDocs = Arrays.asList(
+                new TestDoc("id1", "Accepted", 1),
+                new TestDoc("id2", "Running", 2)
+        );
+        BulkIndexPayloadEncoder encoder = new BulkIndexPayloadEncoder(CommonObjectMappers.jacksonDefaultMapper(), false);
+        byte[] carriedOver = "carried-over\n".getBytes(StandardCharsets.UTF_8);
+
+        Pair<String, BulkIndexPayloadEncoder.Payload> payload = encode(encoder, testDocs, 0, carriedOver, Long.MAX_VALUE);
+        assertThat(payload.getLeft()).startsWith("carried-over\n{\"index\":{\"_index\":\"titustasks\",\"_type\":\"default\",\"_id\":\"id2\"}}\n");
+        assertThat(payload.getRight().getNext()).isEqualTo(2);
+    }
+
+    private Pair<String, BulkIndexPayloadEncoder.Payload> encode(BulkIndexPayloadEncoder encoder,
+                                                                 List<TestDoc> testDocs,
+                                                                 int from,
+                                                                 byte[] fromDocument,
+                                                                 long maxPayloadBytes) throws IOException {
+        BulkIndexPayloadEncoder.Payload payload = encoder.encode(new DefaultDataBufferFactory(), testDocs, from, fromDocument, "titustasks", "default", maxPayloadBytes);
+        try {
+            return Pair.of(payload.getBuffer().toString(StandardCharsets.UTF_8), payload);
+        } finally {
+            DataBufferUtils.release(payload.getBuffer());
+        }
+    }
 }
@@ -78,6 +78,11 @@ public class EsExternalResource extends ExternalResource {
             public int getPort() {
                 return esPort;
             }
+
+            @Override
+            public boolean isBulkRequestCompressionEnabled() {
+                return false;
+            }
         };
     }
 }
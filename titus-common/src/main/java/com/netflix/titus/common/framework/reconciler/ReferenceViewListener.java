@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler;
+
+/**
+ * Listener of the {@link ReconciliationEngine} reference view changes. It is called by the reconciliation loop, right
+ * after the {@link ReconciliationFramework#orderedView(Object)} indexes are updated, and before the change action
+ * subscribers are completed, and the model events are emitted. It can be used to maintain secondary indexes, which
+ * are consistent with the reference model in the same way as the ordered views are.
+ * <p>
+ * The callbacks are executed in the reconciliation loop, so they must be fast. If the framework runs multiple
+ * reconciliation loops (shards), the callbacks may be executed concurrently.
+ */
+public interface ReferenceViewListener {
+
+    /**
+     * Called when an engine is added, or its reference view changed.
+     */
+    void onUpdate(EntityHolder referenceView);
+
+    /**
+     * Called when an engine is removed. The argument is the last reference view reported with {@link #onUpdate}.
+     */
+    void onRemove(EntityHolder referenceView);
+
+    static ReferenceViewListener noop() {
+        return new ReferenceViewListener() {
+            @Override
+            public void onUpdate(EntityHolder referenceView) {
+            }
+
+            @Override
+            public void onRemove(EntityHolder referenceView) {
+            }
+        };
+    }
+}
@@ -65,6 +65,9 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
 
     private boolean firstTrigger;
 
+    private volatile Runnable dirtyListener = () -> {
+    };
+
     public DefaultReconciliationEngine(EntityHolder bootstrapModel,
                                        boolean newlyCreated,
                                        DifferenceResolver<EVENT> runningDifferenceResolver,
@@ -85,6 +88,11 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
         indexEntityHolder(bootstrapModel);
     }
 
+    @Override
+    public void setDirtyListener(Runnable dirtyListener) {
+        this.dirtyListener = dirtyListener;
+    }
+
     @Override
     public boolean applyModelUpdates() {
         return pendingTransaction.applyModelUpdates(modelHolder)
@@ -172,6 +180,7 @@ public class DefaultReconciliationEngine<EVENT> implements InternalReconciliatio
             changeActionEventQueue.add(eventFactory.newBeforeChangeEvent(this, referenceUpdate, transactionId));
             referenceChangeActions.add(new ChangeActionHolder(entityHolderId, referenceUpdate, subscriber, transactionId, clock.wallTime()));
             metrics.updateChangeActionQueueSize(referenceChangeActions.size());
+            dirtyListener.run();
         });
     }
 
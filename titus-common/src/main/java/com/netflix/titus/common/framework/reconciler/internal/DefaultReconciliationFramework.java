@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -32,13 +33,14 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Tag;
 import com.netflix.spectator.api.Timer;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
@@ -47,6 +49,7 @@ import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
 import com.netflix.titus.common.framework.reconciler.MultiEngineChangeAction;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.framework.reconciler.ReferenceViewListener;
 import com.netflix.titus.common.util.ExceptionExt;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
@@ -68,6 +71,9 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
     private static final String LOOP_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "executionTime";
     private static final String LAST_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "lastExecutionTime";
     private static final String LAST_FULL_CYCLE_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "lastFullCycleExecutionTime";
+    private static final String PHASE_EXECUTION_TIME_METRIC = ROOT_METRIC_NAME + "phaseExecutionTime";
+    private static final String DIRTY_ENGINES_METRIC = ROOT_METRIC_NAME + "dirtyEngines";
+    private static final String PROCESSED_ENGINES_METRIC = ROOT_METRIC_NAME + "processedEngines";
 
     private final Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory;
     private final long idleTimeoutMs;
@@ -78,11 +84,27 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     private final Set<InternalReconciliationEngine<EVENT>> engines = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    /**
+     * Engines with pending work (a new change action or a running transaction). Only these engines are processed
+     * in the active (non full) reconciliation cycles.
+     */
+    private final Set<InternalReconciliationEngine<EVENT>> dirtyEngines = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
     private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> enginesAdded = new LinkedBlockingQueue<>();
     private final BlockingQueue<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> enginesToRemove = new LinkedBlockingQueue<>();
 
-    private final AtomicReference<Map<String, InternalReconciliationEngine<EVENT>>> idToEngineMapRef = new AtomicReference<>(Collections.emptyMap());
-    private IndexSet<EntityHolder> indexSet;
+    /**
+     * Maps root and child entity ids to their engines. Entries are only removed conditionally (if still owned by
+     * the removing engine), so the map may be shared by multiple framework instances.
+     */
+    private final Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap;
+    private final IncrementalIndexSet<EntityHolder> indexSet;
+    private final ReferenceViewListener referenceViewListener;
+
+    /**
+     * Reference views of engines, as they were indexed last time. Accessed from the reconciliation loop only.
+     */
+    private final Map<InternalReconciliationEngine<EVENT>, EntityHolder> indexedViews = new HashMap<>();
 
     private final Scheduler.Worker worker;
 
@@ -92,6 +114,11 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
     private final EventDistributor<EVENT> eventDistributor;
 
     private final Timer loopExecutionTime;
+    private final Timer applyModelUpdatesTime;
+    private final Timer emitEventsTime;
+    private final Timer closeFinishedTransactionsTime;
+    private final Timer triggerActionsTime;
+    private final DistributionSummary processedEngines;
     private volatile long lastFullCycleExecutionTimeMs; // Probed by a polled meter.
     private volatile long lastExecutionTimeMs; // Probed by a polled meter.
 
@@ -104,11 +131,45 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                                           Map<Object, Comparator<EntityHolder>> indexComparators,
                                           Registry registry,
                                           Optional<Scheduler> optionalScheduler) {
+        this(bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, indexComparators, registry, optionalScheduler,
+                ReferenceViewListener.noop()
+        );
+    }
+
+    public DefaultReconciliationFramework(List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          Registry registry,
+                                          Optional<Scheduler> optionalScheduler,
+                                          ReferenceViewListener referenceViewListener) {
+        this(bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, indexComparators, registry, optionalScheduler,
+                referenceViewListener, Collections.emptyList(), new ConcurrentHashMap<>()
+        );
+    }
+
+    /**
+     * @param commonTags    tags added to all framework metrics, so multiple instances can share the same registry
+     * @param idToEngineMap entity id to engine map, which may be shared with other framework instances
+     */
+    DefaultReconciliationFramework(List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                   Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                   long idleTimeoutMs,
+                                   long activeTimeoutMs,
+                                   Map<Object, Comparator<EntityHolder>> indexComparators,
+                                   Registry registry,
+                                   Optional<Scheduler> optionalScheduler,
+                                   ReferenceViewListener referenceViewListener,
+                                   List<Tag> commonTags,
+                                   Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap) {
         Preconditions.checkArgument(idleTimeoutMs > 0, "idleTimeout <= 0 (%s)", idleTimeoutMs);
         Preconditions.checkArgument(activeTimeoutMs <= idleTimeoutMs, "activeTimeout(%s) > idleTimeout(%s)", activeTimeoutMs, idleTimeoutMs);
 
         this.engineFactory = engineFactory;
-        this.indexSet = IndexSet.newIndexSet(indexComparators);
+        this.idToEngineMap = idToEngineMap;
+        this.indexSet = IncrementalIndexSet.newIndexSet(indexComparators, EntityHolder::getId);
+        this.referenceViewListener = referenceViewListener;
 
         this.idleTimeoutMs = idleTimeoutMs;
         this.activeTimeoutMs = activeTimeoutMs;
@@ -127,18 +188,28 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
         this.worker = scheduler.createWorker();
 
-        this.eventDistributor = new EventDistributor<>(registry);
+        this.eventDistributor = new EventDistributor<>(registry, commonTags);
 
-        this.loopExecutionTime = registry.timer(LOOP_EXECUTION_TIME_METRIC);
+        this.loopExecutionTime = registry.timer(registry.createId(LOOP_EXECUTION_TIME_METRIC, commonTags));
+        Id phaseExecutionTimeId = registry.createId(PHASE_EXECUTION_TIME_METRIC, commonTags);
+        this.applyModelUpdatesTime = registry.timer(phaseExecutionTimeId.withTag("phase", "applyModelUpdates"));
+        this.emitEventsTime = registry.timer(phaseExecutionTimeId.withTag("phase", "emitEvents"));
+        this.closeFinishedTransactionsTime = registry.timer(phaseExecutionTimeId.withTag("phase", "closeFinishedTransactions"));
+        this.triggerActionsTime = registry.timer(phaseExecutionTimeId.withTag("phase", "triggerActions"));
+        this.processedEngines = registry.distributionSummary(registry.createId(PROCESSED_ENGINES_METRIC, commonTags));
+        PolledMeter.using(registry).withName(DIRTY_ENGINES_METRIC).withTags(commonTags).monitorSize(dirtyEngines);
         this.lastFullCycleExecutionTimeMs = scheduler.now() - idleTimeoutMs;
         this.lastExecutionTimeMs = scheduler.now();
-        PolledMeter.using(registry).withName(LAST_EXECUTION_TIME_METRIC).monitorValue(this, self -> scheduler.now() - self.lastExecutionTimeMs);
-        PolledMeter.using(registry).withName(LAST_FULL_CYCLE_EXECUTION_TIME_METRIC).monitorValue(this, self -> scheduler.now() - self.lastFullCycleExecutionTimeMs);
+        PolledMeter.using(registry).withName(LAST_EXECUTION_TIME_METRIC).withTags(commonTags).monitorValue(this, self -> scheduler.now() - self.lastExecutionTimeMs);
+        PolledMeter.using(registry).withName(LAST_FULL_CYCLE_EXECUTION_TIME_METRIC).withTags(commonTags).monitorValue(this, self -> scheduler.now() - self.lastFullCycleExecutionTimeMs);
 
         engines.addAll(bootstrapEngines);
-        bootstrapEngines.forEach(eventDistributor::connectReconciliationEngine);
+        bootstrapEngines.forEach(engine -> {
+            engine.setDirtyListener(() -> dirtyEngines.add(engine));
+            eventDistributor.connectReconciliationEngine(engine);
+        });
 
-        updateIndexSet();
+        bootstrapEngines.forEach(this::updateIndexes);
     }
 
     @Override
@@ -220,11 +291,22 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 "Change action for multiple engines requested, but %s root id holders provided", rootEntityHolderIds.length
         );
 
+        return executeMultiEngineChangeAction(this::findEngineByRootId, multiEngineChangeLock, multiEngineChangeAction, engineChangeActionFactory, rootEntityHolderIds);
+    }
+
+    /**
+     * Multi-engine change action execution logic, shared with {@link ShardedReconciliationFramework}.
+     */
+    static <EVENT> Observable<Void> executeMultiEngineChangeAction(Function<String, Optional<ReconciliationEngine<EVENT>>> engineResolver,
+                                                                   Object multiEngineChangeLock,
+                                                                   MultiEngineChangeAction multiEngineChangeAction,
+                                                                   BiFunction<String, Observable<List<ModelActionHolder>>, ChangeAction> engineChangeActionFactory,
+                                                                   String... rootEntityHolderIds) {
         return Observable.create(emitter -> {
 
             List<ReconciliationEngine<EVENT>> engines = new ArrayList<>();
             for (String id : rootEntityHolderIds) {
-                ReconciliationEngine<EVENT> engine = findEngineByRootId(id).orElseThrow(() -> new IllegalArgumentException("Reconciliation engine not found: rootId=" + id));
+                ReconciliationEngine<EVENT> engine = engineResolver.apply(id).orElseThrow(() -> new IllegalArgumentException("Reconciliation engine not found: rootId=" + id));
                 engines.add(engine);
             }
 
@@ -267,7 +349,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     @Override
     public Optional<ReconciliationEngine<EVENT>> findEngineByRootId(String id) {
-        InternalReconciliationEngine<EVENT> engine = idToEngineMapRef.get().get(id);
+        InternalReconciliationEngine<EVENT> engine = idToEngineMap.get(id);
         if (engine == null) {
             return Optional.empty();
         }
@@ -276,7 +358,7 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
 
     @Override
     public Optional<Pair<ReconciliationEngine<EVENT>, EntityHolder>> findEngineByChildId(String childId) {
-        InternalReconciliationEngine<EVENT> engine = idToEngineMapRef.get().get(childId);
+        InternalReconciliationEngine<EVENT> engine = idToEngineMap.get(childId);
         if (engine == null) {
             return Optional.empty();
         }
@@ -321,16 +403,22 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
     private void doLoop(boolean fullReconciliationCycle) {
         Set<InternalReconciliationEngine<EVENT>> mustRunEngines = new HashSet<>();
 
+        // In the full cycle all engines are processed. Otherwise only engines that reported pending work.
+        List<InternalReconciliationEngine<EVENT>> enginesToProcess = drainDirtyEngines(fullReconciliationCycle);
+
         // Apply pending model updates/send events
-        boolean modelUpdates = false;
-        for (InternalReconciliationEngine engine : engines) {
+        long phaseStartTime = worker.now();
+        List<InternalReconciliationEngine<EVENT>> updatedEngines = new ArrayList<>();
+        for (InternalReconciliationEngine<EVENT> engine : enginesToProcess) {
             try {
-                boolean anyChange = engine.applyModelUpdates();
-                modelUpdates = modelUpdates || anyChange;
+                if (engine.applyModelUpdates()) {
+                    updatedEngines.add(engine);
+                }
             } catch (Exception e) {
                 logger.warn("Unexpected error from reconciliation engine 'applyModelUpdates' method", e);
             }
         }
+        applyModelUpdatesTime.record(worker.now() - phaseStartTime, TimeUnit.MILLISECONDS);
 
         // Add new engines.
         List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<ReconciliationEngine>>> recentlyAdded = new ArrayList<>();
@@ -339,6 +427,8 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
             InternalReconciliationEngine<EVENT> newEngine = pair.getLeft();
             engines.add(newEngine);
             mustRunEngines.add(newEngine);
+            enginesToProcess.add(newEngine);
+            newEngine.setDirtyListener(() -> dirtyEngines.add(newEngine));
             eventDistributor.connectReconciliationEngine(newEngine);
         });
 
@@ -346,14 +436,19 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> recentlyRemoved = new ArrayList<>();
         enginesToRemove.drainTo(recentlyRemoved);
         shutdownEnginesToRemove(recentlyRemoved);
-
-        boolean engineSetUpdate = !recentlyAdded.isEmpty() || !recentlyRemoved.isEmpty();
-
-        // Update indexes if there are model changes.
-        if (modelUpdates || engineSetUpdate) {
-            updateIndexSet();
+        if (!recentlyRemoved.isEmpty()) {
+            enginesToProcess.removeIf(engine -> !engines.contains(engine));
         }
 
+        // Update indexes of the changed engines only.
+        updatedEngines.forEach(engine -> {
+            if (engines.contains(engine)) {
+                updateIndexes(engine);
+            }
+        });
+        recentlyAdded.forEach(pair -> updateIndexes(pair.getLeft()));
+        recentlyRemoved.forEach(pair -> removeIndexes(pair.getLeft()));
+
         // Complete engine add/remove subscribers.
         // We want to complete the subscribers that create new engines, before the first event is emitted.
         // Otherwise the initial event would be emitted immediately, before the subscriber has a chance to subscriber to the event stream.
@@ -367,16 +462,19 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         recentlyRemoved.forEach(pair -> pair.getRight().onCompleted());
 
         // Emit events
-        for (InternalReconciliationEngine engine : engines) {
+        phaseStartTime = worker.now();
+        for (InternalReconciliationEngine<EVENT> engine : enginesToProcess) {
             try {
                 engine.emitEvents();
             } catch (Exception e) {
                 logger.warn("Unexpected error from reconciliation engine 'emitEvents' method", e);
             }
         }
+        emitEventsTime.record(worker.now() - phaseStartTime, TimeUnit.MILLISECONDS);
 
         // Complete ChangeAction subscribers
-        for (InternalReconciliationEngine<EVENT> engine : engines) {
+        phaseStartTime = worker.now();
+        for (InternalReconciliationEngine<EVENT> engine : enginesToProcess) {
             try {
                 if (engine.closeFinishedTransactions()) {
                     mustRunEngines.add(engine);
@@ -385,17 +483,40 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
                 logger.warn("Unexpected error from reconciliation engine 'closeFinishedTransactions' method", e);
             }
         }
+        closeFinishedTransactionsTime.record(worker.now() - phaseStartTime, TimeUnit.MILLISECONDS);
 
-        // Trigger actions on engines.
-        for (InternalReconciliationEngine engine : engines) {
+        // Trigger actions on engines. Engines with running actions stay dirty, so they are visited in the next cycle.
+        phaseStartTime = worker.now();
+        for (InternalReconciliationEngine<EVENT> engine : enginesToProcess) {
             if (fullReconciliationCycle || engine.hasPendingTransactions() || mustRunEngines.contains(engine)) {
                 try {
-                    engine.triggerActions();
+                    if (engine.triggerActions()) {
+                        dirtyEngines.add(engine);
+                    }
                 } catch (Exception e) {
                     logger.warn("Unexpected error from reconciliation engine 'triggerActions' method", e);
+                    dirtyEngines.add(engine);
                 }
             }
         }
+        triggerActionsTime.record(worker.now() - phaseStartTime, TimeUnit.MILLISECONDS);
+
+        processedEngines.record(enginesToProcess.size());
+    }
+
+    private List<InternalReconciliationEngine<EVENT>> drainDirtyEngines(boolean fullReconciliationCycle) {
+        List<InternalReconciliationEngine<EVENT>> result = new ArrayList<>();
+        for (Iterator<InternalReconciliationEngine<EVENT>> it = dirtyEngines.iterator(); it.hasNext(); ) {
+            InternalReconciliationEngine<EVENT> engine = it.next();
+            it.remove();
+            if (!fullReconciliationCycle && engines.contains(engine)) {
+                result.add(engine);
+            }
+        }
+        if (fullReconciliationCycle) {
+            result.addAll(engines);
+        }
+        return result;
     }
 
     private void shutdownEnginesToRemove(List<Pair<InternalReconciliationEngine<EVENT>, Subscriber<Void>>> toRemove) {
@@ -409,11 +530,46 @@ public class DefaultReconciliationFramework<EVENT> implements ReconciliationFram
         });
     }
 
-    private void updateIndexSet() {
-        Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap = new HashMap<>();
-        engines.forEach(engine -> engine.getReferenceView().visit(h -> idToEngineMap.put(h.getId(), engine)));
-        this.idToEngineMapRef.set(idToEngineMap);
+    private void updateIndexes(InternalReconciliationEngine<EVENT> engine) {
+        EntityHolder previous = indexedViews.get(engine);
+        EntityHolder current = engine.getReferenceView();
+        if (previous == current) {
+            return;
+        }
+        indexedViews.put(engine, current);
 
-        indexSet = indexSet.apply(engines.stream().map(ReconciliationEngine::getReferenceView).collect(Collectors.toList()));
+        Set<String> currentIds = new HashSet<>();
+        current.visit(h -> {
+            currentIds.add(h.getId());
+            idToEngineMap.put(h.getId(), engine);
+        });
+        if (previous != null) {
+            previous.visit(h -> {
+                if (!currentIds.contains(h.getId())) {
+                    idToEngineMap.remove(h.getId(), engine);
+                }
+            });
+        }
+
+        indexSet.addOrUpdate(current);
+        try {
+            referenceViewListener.onUpdate(current);
+        } catch (Exception e) {
+            logger.warn("Unexpected error from the reference view listener 'onUpdate' method", e);
+        }
+    }
+
+    private void removeIndexes(InternalReconciliationEngine<EVENT> engine) {
+        EntityHolder previous = indexedViews.remove(engine);
+        if (previous == null) {
+            return;
+        }
+        previous.visit(h -> idToEngineMap.remove(h.getId(), engine));
+        indexSet.remove(previous.getId());
+        try {
+            referenceViewListener.onRemove(previous);
+        } catch (Exception e) {
+            logger.warn("Unexpected error from the reference view listener 'onRemove' method", e);
+        }
     }
 }
@@ -17,6 +17,7 @@
 package com.netflix.titus.common.framework.reconciler.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -31,6 +32,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Tag;
 import com.netflix.spectator.api.Timer;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
@@ -69,11 +71,15 @@ class EventDistributor<EVENT> {
     private final Counter metricEmittedEvents;
 
     EventDistributor(Registry registry) {
-        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "connectedEngines").monitorSize(engineHolders);
-        this.metricLoopExecutionTime = registry.timer(ROOT_METRIC_NAME + "executionTime");
-        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "eventQueue").monitorValue(this, self -> self.eventQueueDepth.get());
-        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "activeSubscribers").monitorSize(activeEmitters);
-        this.metricEmittedEvents = registry.counter(ROOT_METRIC_NAME + "emittedEvents");
+        this(registry, Collections.emptyList());
+    }
+
+    EventDistributor(Registry registry, List<Tag> commonTags) {
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "connectedEngines").withTags(commonTags).monitorSize(engineHolders);
+        this.metricLoopExecutionTime = registry.timer(registry.createId(ROOT_METRIC_NAME + "executionTime", commonTags));
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "eventQueue").withTags(commonTags).monitorValue(this, self -> self.eventQueueDepth.get());
+        PolledMeter.using(registry).withName(ROOT_METRIC_NAME + "activeSubscribers").withTags(commonTags).monitorSize(activeEmitters);
+        this.metricEmittedEvents = registry.counter(registry.createId(ROOT_METRIC_NAME + "emittedEvents", commonTags));
     }
 
     void start() {
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Mutable variant of {@link IndexSet}, in which each update costs O(log n) per index instead of a full re-sort.
+ * Values are identified by an id, so an updated value replaces its previous version. The ordered views are
+ * materialized on first access after a change, and cached until the next change. All methods are thread safe, but
+ * the updates are expected to be executed by a single thread (the reconciliation loop).
+ */
+public class IncrementalIndexSet<T> {
+
+    private final Function<T, String> idResolver;
+    private final Map<Object, Index<T>> indexes;
+    private final Map<String, T> valuesById = new HashMap<>();
+
+    private IncrementalIndexSet(Map<Object, Comparator<T>> comparators, Function<T, String> idResolver) {
+        this.idResolver = idResolver;
+        Map<Object, Index<T>> indexes = new HashMap<>();
+        comparators.forEach((k, v) -> indexes.put(k, new Index<>(v, idResolver)));
+        this.indexes = indexes;
+    }
+
+    /**
+     * Adds a new value or replaces an existing one with the same id.
+     */
+    public synchronized void addOrUpdate(T value) {
+        String id = idResolver.apply(value);
+        T previous = valuesById.put(id, value);
+        indexes.values().forEach(index -> index.addOrUpdate(previous, value));
+    }
+
+    public synchronized void remove(String id) {
+        T previous = valuesById.remove(id);
+        if (previous != null) {
+            indexes.values().forEach(index -> index.remove(previous));
+        }
+    }
+
+    public synchronized int size() {
+        return valuesById.size();
+    }
+
+    public synchronized List<T> getOrdered(Object indexId) {
+        Index<T> result = indexes.get(indexId);
+        if (result == null) {
+            throw new IllegalArgumentException("Unknown index id " + indexId);
+        }
+        return result.getOrdered();
+    }
+
+    public static <T> IncrementalIndexSet<T> newIndexSet(Map<Object, Comparator<T>> comparators, Function<T, String> idResolver) {
+        return new IncrementalIndexSet<>(comparators, idResolver);
+    }
+
+    private static class Index<T> {
+
+        private final TreeSet<T> ordered;
+        private List<T> orderedView = Collections.emptyList();
+        private boolean changed;
+
+        private Index(Comparator<T> comparator, Function<T, String> idResolver) {
+            // Break ties with the id, so two distinct values are never considered equal.
+            this.ordered = new TreeSet<>(comparator.thenComparing(idResolver));
+        }
+
+        private void addOrUpdate(T previous, T value) {
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            ordered.add(value);
+            changed = true;
+        }
+
+        private void remove(T previous) {
+            ordered.remove(previous);
+            changed = true;
+        }
+
+        private List<T> getOrdered() {
+            if (changed) {
+                orderedView = Collections.unmodifiableList(new ArrayList<>(ordered));
+                changed = false;
+            }
+            return orderedView;
+        }
+    }
+}
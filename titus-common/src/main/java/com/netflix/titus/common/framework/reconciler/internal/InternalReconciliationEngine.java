@@ -20,6 +20,12 @@ import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 
 public interface InternalReconciliationEngine<EVENT>  extends ReconciliationEngine<EVENT> {
 
+    /**
+     * Sets a callback which the engine invokes whenever new work is queued for it (for example a new change action),
+     * so the reconciliation loop does not have to scan all engines to find it.
+     */
+    void setDirtyListener(Runnable dirtyListener);
+
     boolean hasPendingTransactions();
 
     /**
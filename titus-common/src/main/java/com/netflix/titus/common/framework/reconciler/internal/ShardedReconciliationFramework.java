@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+import com.netflix.spectator.api.BasicTag;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.common.framework.reconciler.ChangeAction;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
+import com.netflix.titus.common.framework.reconciler.MultiEngineChangeAction;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.framework.reconciler.ReferenceViewListener;
+import com.netflix.titus.common.util.tuple.Pair;
+import rx.Completable;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+/**
+ * {@link ReconciliationFramework} implementation that partitions reconciliation engines by their root id hash
+ * into N shards. Each shard is a {@link DefaultReconciliationFramework} instance with its own reconciliation loop
+ * thread. As all events of an engine are emitted by a single shard, the event order for an engine is preserved.
+ * Multi-engine change actions may span multiple shards. They are serialized by a framework level lock, exactly like
+ * in the single loop version. All shards share one entity id to engine map, so child id lookups do not depend on
+ * the number of shards. The shard metrics are tagged with the shard index.
+ */
+public class ShardedReconciliationFramework<EVENT> implements ReconciliationFramework<EVENT> {
+
+    private final List<DefaultReconciliationFramework<EVENT>> shards;
+    private final List<ExecutorService> executors;
+    private final Map<Object, Comparator<EntityHolder>> indexComparators;
+    private final Map<String, InternalReconciliationEngine<EVENT>> idToEngineMap = new ConcurrentHashMap<>();
+
+    private final Object multiEngineChangeLock = new Object();
+
+    public ShardedReconciliationFramework(int shardCount,
+                                          List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          Registry registry,
+                                          Optional<Scheduler> optionalScheduler) {
+        this(shardCount, bootstrapEngines, engineFactory, idleTimeoutMs, activeTimeoutMs, indexComparators, registry, optionalScheduler,
+                ReferenceViewListener.noop()
+        );
+    }
+
+    /**
+     * @param referenceViewListener listener shared by all shards, so it is called concurrently from their loops
+     */
+    public ShardedReconciliationFramework(int shardCount,
+                                          List<InternalReconciliationEngine<EVENT>> bootstrapEngines,
+                                          Function<EntityHolder, InternalReconciliationEngine<EVENT>> engineFactory,
+                                          long idleTimeoutMs,
+                                          long activeTimeoutMs,
+                                          Map<Object, Comparator<EntityHolder>> indexComparators,
+                                          Registry registry,
+                                          Optional<Scheduler> optionalScheduler,
+                                          ReferenceViewListener referenceViewListener) {
+        Preconditions.checkArgument(shardCount > 0, "shardCount <= 0 (%s)", shardCount);
+
+        this.indexComparators = indexComparators;
+
+        List<List<InternalReconciliationEngine<EVENT>>> bootstrapEnginesByShard = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            bootstrapEnginesByShard.add(new ArrayList<>());
+        }
+        bootstrapEngines.forEach(engine -> bootstrapEnginesByShard.get(shardOf(engine.getReferenceView().getId(), shardCount)).add(engine));
+
+        this.shards = new ArrayList<>();
+        this.executors = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            Scheduler shardScheduler;
+            if (optionalScheduler.isPresent()) {
+                shardScheduler = optionalScheduler.get();
+            } else {
+                String threadName = "TitusReconciliationFramework-shard-" + i;
+                ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                executors.add(executor);
+                shardScheduler = Schedulers.from(executor);
+            }
+            shards.add(new DefaultReconciliationFramework<>(
+                    bootstrapEnginesByShard.get(i),
+                    engineFactory,
+                    idleTimeoutMs,
+                    activeTimeoutMs,
+                    indexComparators,
+                    registry,
+                    Optional.of(shardScheduler),
+                    referenceViewListener,
+                    Collections.singletonList(new BasicTag("shard", Integer.toString(i))),
+                    idToEngineMap
+            ));
+        }
+    }
+
+    @Override
+    public void start() {
+        shards.forEach(DefaultReconciliationFramework::start);
+    }
+
+    @Override
+    public boolean stop(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        boolean allStopped = true;
+        for (DefaultReconciliationFramework<EVENT> shard : shards) {
+            allStopped = shard.stop(Math.max(0, deadline - System.currentTimeMillis())) && allStopped;
+        }
+        executors.forEach(ExecutorService::shutdownNow);
+        return allStopped;
+    }
+
+    @Override
+    public Observable<EVENT> events() {
+        List<Observable<EVENT>> shardEvents = new ArrayList<>();
+        shards.forEach(shard -> shardEvents.add(shard.events()));
+        return Observable.merge(shardEvents);
+    }
+
+    @Override
+    public Optional<ReconciliationEngine<EVENT>> findEngineByRootId(String id) {
+        return shardFor(id).findEngineByRootId(id);
+    }
+
+    @Override
+    public Optional<Pair<ReconciliationEngine<EVENT>, EntityHolder>> findEngineByChildId(String childId) {
+        InternalReconciliationEngine<EVENT> engine = idToEngineMap.get(childId);
+        if (engine == null) {
+            return Optional.empty();
+        }
+        return shardFor(engine.getReferenceView().getId()).findEngineByChildId(childId);
+    }
+
+    /**
+     * Merges the ordered views of all shards. The cost is O(n * log(shardCount)).
+     */
+    @Override
+    public <ORDER_BY> List<EntityHolder> orderedView(ORDER_BY orderingCriteria) {
+        Comparator<EntityHolder> comparator = indexComparators.get(orderingCriteria);
+        if (comparator == null) {
+            throw new IllegalArgumentException("Unknown index id " + orderingCriteria);
+        }
+        if (shards.size() == 1) {
+            return shards.get(0).orderedView(orderingCriteria);
+        }
+        Comparator<EntityHolder> comparatorWithTieBreaker = comparator.thenComparing(EntityHolder::getId);
+
+        List<List<EntityHolder>> shardViews = new ArrayList<>();
+        int total = 0;
+        for (DefaultReconciliationFramework<EVENT> shard : shards) {
+            List<EntityHolder> shardView = shard.orderedView(orderingCriteria);
+            shardViews.add(shardView);
+            total += shardView.size();
+        }
+
+        // Heap entry: (shard index, position in the shard view)
+        PriorityQueue<int[]> heap = new PriorityQueue<>(shardViews.size(),
+                (first, second) -> comparatorWithTieBreaker.compare(shardViews.get(first[0]).get(first[1]), shardViews.get(second[0]).get(second[1]))
+        );
+        for (int i = 0; i < shardViews.size(); i++) {
+            if (!shardViews.get(i).isEmpty()) {
+                heap.add(new int[]{i, 0});
+            }
+        }
+        List<EntityHolder> result = new ArrayList<>(total);
+        while (!heap.isEmpty()) {
+            int[] next = heap.poll();
+            List<EntityHolder> shardView = shardViews.get(next[0]);
+            result.add(shardView.get(next[1]));
+            if (next[1] + 1 < shardView.size()) {
+                heap.add(new int[]{next[0], next[1] + 1});
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public Observable<ReconciliationEngine<EVENT>> newEngine(EntityHolder bootstrapModel) {
+        return shardFor(bootstrapModel.getId()).newEngine(bootstrapModel);
+    }
+
+    @Override
+    public Completable removeEngine(ReconciliationEngine<EVENT> engine) {
+        return shardFor(engine.getReferenceView().getId()).removeEngine(engine);
+    }
+
+    @Override
+    public Observable<Void> changeReferenceModel(MultiEngineChangeAction multiEngineChangeAction,
+                                                 BiFunction<String, Observable<List<ModelActionHolder>>, ChangeAction> engineChangeActionFactory,
+                                                 String... rootEntityHolderIds) {
+        Preconditions.checkArgument(rootEntityHolderIds.length > 1,
+                "Change action for multiple engines requested, but %s root id holders provided", rootEntityHolderIds.length
+        );
+        return DefaultReconciliationFramework.executeMultiEngineChangeAction(
+                this::findEngineByRootId, multiEngineChangeLock, multiEngineChangeAction, engineChangeActionFactory, rootEntityHolderIds
+        );
+    }
+
+    private DefaultReconciliationFramework<EVENT> shardFor(String rootId) {
+        return shards.get(shardOf(rootId, shards.size()));
+    }
+
+    private static int shardOf(String rootId, int shardCount) {
+        return Math.floorMod(rootId.hashCode(), shardCount);
+    }
+}
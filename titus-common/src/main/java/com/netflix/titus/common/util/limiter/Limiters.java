@@ -21,6 +21,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.limiter.tokenbucket.FixedIntervalTokenBucketConfiguration;
 import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
@@ -29,6 +30,7 @@ import com.netflix.titus.common.util.limiter.tokenbucket.internal.DefaultTokenBu
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.DynamicTokenBucketDelegate;
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.FixedIntervalRefillStrategy;
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.FixedIntervalTokenBucketSupplier;
+import com.netflix.titus.common.util.limiter.tokenbucket.internal.LockFreeTokenBucket;
 import com.netflix.titus.common.util.limiter.tokenbucket.internal.SpectatorTokenBucketDecorator;
 
 public class Limiters {
@@ -53,6 +55,16 @@ public class Limiters {
         return new DefaultTokenBucket(name, capacity, refillStrategy, initialNumberOfTokens);
     }
 
+    /**
+     * Functionally equivalent to {@link #createFixedIntervalTokenBucket(String, long, long, long, long, TimeUnit)},
+     * but lock free, which is better for buckets shared by many threads. The capacity is limited to
+     * {@link Integer#MAX_VALUE}.
+     */
+    public static TokenBucket createLockFreeFixedIntervalTokenBucket(String name, long capacity, long initialNumberOfTokens,
+                                                                     long numberOfTokensPerInterval, long interval, TimeUnit unit) {
+        return new LockFreeTokenBucket(name, capacity, initialNumberOfTokens, numberOfTokensPerInterval, interval, unit, Ticker.systemTicker());
+    }
+
     /**
      * Create a {@link TokenBucket} with a fixed interval {@link RefillStrategy}. The token bucket configuration is
      * checked on each invocation, and the bucket is automatically recreated if it changes.
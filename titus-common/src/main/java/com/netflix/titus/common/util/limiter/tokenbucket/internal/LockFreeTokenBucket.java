@@ -0,0 +1,246 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.netflix.titus.common.util.DateTimeExt;
+import com.netflix.titus.common.util.limiter.tokenbucket.RefillStrategy;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+
+/**
+ * {@link TokenBucket} with a fixed interval refill, functionally equivalent to {@link DefaultTokenBucket} with
+ * {@link FixedIntervalRefillStrategy}, but without locks. The number of tokens and the number of the last refill
+ * interval are packed into a single long value, which is updated with compare-and-set. The refill is computed from
+ * the current time whenever the bucket is accessed, so a rejected {@link #tryTake(long)} does not write anything.
+ * <p>
+ * The token count uses as many low bits as needed to hold the capacity, and the interval number the remaining
+ * ones. The interval number wraps around, which is only a problem if the bucket is not accessed for more than half
+ * of the wrap period (2^62 intervals for capacity 1, 2^32 intervals for the maximum capacity).
+ */
+public class LockFreeTokenBucket implements TokenBucket {
+
+    private final String name;
+    private final long capacity;
+    private final long numberOfTokensPerInterval;
+    private final long intervalNanos;
+    private final Ticker ticker;
+    private final long startTime;
+
+    private final int tokenBits;
+    private final long tokenMask;
+
+    private final AtomicLong state;
+
+    private final RefillStrategy refillStrategy;
+
+    public LockFreeTokenBucket(String name,
+                               long capacity,
+                               long initialNumberOfTokens,
+                               long numberOfTokensPerInterval,
+                               long interval,
+                               TimeUnit unit,
+                               Ticker ticker) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "Name must not be null or empty.");
+        Preconditions.checkArgument(capacity > 0, "Capacity must be greater than 0.");
+        Preconditions.checkArgument(capacity <= Integer.MAX_VALUE, "Capacity must not be greater than %s.", Integer.MAX_VALUE);
+        Preconditions.checkArgument(initialNumberOfTokens >= 0, "Initial number of tokens must not be negative.");
+        Preconditions.checkArgument(numberOfTokensPerInterval >= 0, "Number of tokens per interval must not be negative.");
+        Preconditions.checkArgument(interval > 0, "Interval must be greater than 0.");
+
+        this.name = name;
+        this.capacity = capacity;
+        this.numberOfTokensPerInterval = numberOfTokensPerInterval;
+        this.intervalNanos = unit.toNanos(interval);
+        this.ticker = ticker;
+        this.startTime = ticker.read();
+
+        this.tokenBits = 64 - Long.numberOfLeadingZeros(capacity);
+        this.tokenMask = (1L << tokenBits) - 1;
+
+        // Interval 0 ends at the bucket creation time, so the first access adds the tokens of the first interval,
+        // the same as FixedIntervalRefillStrategy does.
+        this.state = new AtomicLong(pack(0, Math.min(capacity, initialNumberOfTokens)));
+
+        this.refillStrategy = new LockFreeRefillStrategy(
+                "FixedIntervalRefillStrategy{refillRate=" + DateTimeExt.toRateString(interval, numberOfTokensPerInterval, unit, "refill") + '}'
+        );
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getNumberOfTokens() {
+        return tokensOf(refilled(state.get(), currentInterval()));
+    }
+
+    @Override
+    public boolean tryTake() {
+        return tryTake(1);
+    }
+
+    @Override
+    public boolean tryTake(long numberOfTokens) {
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        long currentInterval = currentInterval();
+        while (true) {
+            long current = state.get();
+            long refilled = refilled(current, currentInterval);
+            if (tokensOf(refilled) < numberOfTokens) {
+                return false;
+            }
+            // Tokens are in the low bits, and there are enough of them, so the subtraction does not borrow.
+            if (state.compareAndSet(current, refilled - numberOfTokens)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void take() {
+        take(1);
+    }
+
+    @Override
+    public void take(long numberOfTokens) {
+        Preconditions.checkArgument(numberOfTokens > 0, "Number of tokens must be greater than 0.");
+        Preconditions.checkArgument(numberOfTokens <= capacity, "Number of tokens must not be greater than the capacity.");
+
+        while (true) {
+            if (tryTake(numberOfTokens)) {
+                break;
+            }
+            long timeUntilNextRefill = refillStrategy.getTimeUntilNextRefill(TimeUnit.NANOSECONDS);
+            if (timeUntilNextRefill > 0) {
+                Uninterruptibles.sleepUninterruptibly(timeUntilNextRefill, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void refill(long numberOfTokens) {
+        long currentInterval = currentInterval();
+        while (true) {
+            long current = state.get();
+            long refilled = refilled(current, currentInterval);
+            long tokens = Math.min(capacity, Math.max(0, tokensOf(refilled) + numberOfTokens));
+            if (state.compareAndSet(current, pack(intervalOf(refilled), tokens))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public RefillStrategy getRefillStrategy() {
+        return refillStrategy;
+    }
+
+    @Override
+    public String toString() {
+        return "LockFreeTokenBucket{" +
+                "name='" + name + '\'' +
+                ", capacity=" + capacity +
+                ", refillStrategy=" + refillStrategy +
+                ", numberOfTokens=" + getNumberOfTokens() +
+                '}';
+    }
+
+    private long currentInterval() {
+        return (ticker.read() - startTime) / intervalNanos + 1;
+    }
+
+    /**
+     * Returns the state with the refills due by the given interval applied. If the state was already updated by
+     * another thread which read the time later, it is returned unchanged.
+     */
+    private long refilled(long current, long currentInterval) {
+        int intervalBits = 64 - tokenBits;
+        // Difference of the interval numbers modulo 2^intervalBits, sign extended
+        long refills = ((currentInterval - intervalOf(current)) << tokenBits) >> tokenBits;
+        if (refills <= 0) {
+            return current;
+        }
+        long tokens = tokensOf(current);
+        if (numberOfTokensPerInterval > 0) {
+            tokens = refills > (capacity - tokens) / numberOfTokensPerInterval
+                    ? capacity
+                    : tokens + refills * numberOfTokensPerInterval;
+        }
+        return pack(currentInterval & ((1L << intervalBits) - 1), tokens);
+    }
+
+    private long pack(long interval, long tokens) {
+        return (interval << tokenBits) | tokens;
+    }
+
+    private long intervalOf(long state) {
+        return state >>> tokenBits;
+    }
+
+    private long tokensOf(long state) {
+        return state & tokenMask;
+    }
+
+    /**
+     * Refills are applied by the bucket itself whenever it is accessed, so {@link #refill()} only applies the pending
+     * ones, and always returns 0.
+     */
+    private class LockFreeRefillStrategy implements RefillStrategy {
+
+        private final String toStringValue;
+
+        private LockFreeRefillStrategy(String toStringValue) {
+            this.toStringValue = toStringValue;
+        }
+
+        @Override
+        public long refill() {
+            long currentInterval = currentInterval();
+            long current;
+            do {
+                current = state.get();
+            } while (!state.compareAndSet(current, refilled(current, currentInterval)));
+            return 0;
+        }
+
+        @Override
+        public long getTimeUntilNextRefill(TimeUnit unit) {
+            long elapsed = ticker.read() - startTime;
+            return unit.convert(intervalNanos - elapsed % intervalNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return toStringValue;
+        }
+    }
+}
@@ -23,4 +23,18 @@ import java.util.function.Function;
  * should be allowed or discarded.
  */
 public interface AdmissionController extends Function<AdmissionControllerRequest, AdmissionControllerResponse> {
+
+    /**
+     * Called when an allowed request completes, with its execution time. Only controllers adapting their limits to
+     * the observed latency need this, so the default implementation does nothing.
+     */
+    default void onCompleted(AdmissionControllerRequest request, AdmissionControllerResponse response, long elapsedNanos) {
+    }
+
+    /**
+     * Called instead of {@link #onCompleted(AdmissionControllerRequest, AdmissionControllerResponse, long)} for
+     * allowed requests whose execution time should not be taken into account (cancelled or long-lived calls).
+     */
+    default void onIgnored(AdmissionControllerRequest request, AdmissionControllerResponse response) {
+    }
 }
@@ -20,6 +20,8 @@ import java.util.function.Supplier;
 
 import com.netflix.archaius.api.Config;
 import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.loadshedding.adaptive.AdaptiveAdmissionController;
+import com.netflix.titus.common.util.loadshedding.adaptive.AdaptiveAdmissionControllerConfiguration;
 import com.netflix.titus.common.util.loadshedding.tokenbucket.ArchaiusTokenBucketAdmissionConfigurationParser;
 import com.netflix.titus.common.util.loadshedding.tokenbucket.ConfigurableTokenBucketAdmissionController;
 
@@ -36,6 +38,12 @@ public final class AdmissionControllers {
         return new SpectatorAdmissionController(delegate, titusRuntime);
     }
 
+    public static AdmissionController adaptive(AdmissionController delegate,
+                                               AdaptiveAdmissionControllerConfiguration configuration,
+                                               TitusRuntime titusRuntime) {
+        return new AdaptiveAdmissionController(delegate, configuration, titusRuntime);
+    }
+
     public static AdmissionController tokenBucketsFromArchaius(Config config, TitusRuntime titusRuntime) {
         return new ConfigurableTokenBucketAdmissionController(new ArchaiusTokenBucketAdmissionConfigurationParser(config), titusRuntime);
     }
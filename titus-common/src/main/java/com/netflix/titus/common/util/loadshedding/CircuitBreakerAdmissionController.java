@@ -45,4 +45,19 @@ public class CircuitBreakerAdmissionController implements AdmissionController {
         }
         return OK_FROM_CIRCUIT_BREAKER;
     }
+
+    @Override
+    public void onCompleted(AdmissionControllerRequest request, AdmissionControllerResponse response, long elapsedNanos) {
+        // The circuit breaker state could change during the request execution, so we check who made the decision.
+        if (response != OK_FROM_CIRCUIT_BREAKER) {
+            delegate.onCompleted(request, response, elapsedNanos);
+        }
+    }
+
+    @Override
+    public void onIgnored(AdmissionControllerRequest request, AdmissionControllerResponse response) {
+        if (response != OK_FROM_CIRCUIT_BREAKER) {
+            delegate.onIgnored(request, response);
+        }
+    }
 }
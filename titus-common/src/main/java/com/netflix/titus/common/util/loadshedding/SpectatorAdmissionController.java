@@ -62,4 +62,14 @@ public class SpectatorAdmissionController implements AdmissionController {
             throw e;
         }
     }
+
+    @Override
+    public void onCompleted(AdmissionControllerRequest request, AdmissionControllerResponse response, long elapsedNanos) {
+        delegate.onCompleted(request, response, elapsedNanos);
+    }
+
+    @Override
+    public void onIgnored(AdmissionControllerRequest request, AdmissionControllerResponse response) {
+        delegate.onIgnored(request, response);
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.loadshedding.adaptive;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.StringExt;
+import com.netflix.titus.common.util.loadshedding.AdmissionController;
+import com.netflix.titus.common.util.loadshedding.AdmissionControllerRequest;
+import com.netflix.titus.common.util.loadshedding.AdmissionControllerResponse;
+
+/**
+ * {@link AdmissionController} limiting the number of requests in flight per endpoint group, with the limits adapting
+ * to the observed latency (see {@link GradientConcurrencyLimit}). This protects the server when it gets slower,
+ * without the hand tuned rates of the token buckets. The endpoint group is the part of the endpoint name before the
+ * first '/', which for GRPC is the service name.
+ * <p>
+ * The delegate is evaluated first, and only requests allowed by it are counted. The completed requests must be
+ * reported via {@link #onCompleted(AdmissionControllerRequest, AdmissionControllerResponse, long)} or
+ * {@link #onIgnored(AdmissionControllerRequest, AdmissionControllerResponse)}.
+ */
+public class AdaptiveAdmissionController implements AdmissionController {
+
+    private static final String METRIC_ROOT = "titus.admissionController.adaptive.";
+
+    private static final String UNKNOWN_GROUP = "unknown";
+
+    private final AdmissionController delegate;
+    private final AdaptiveAdmissionControllerConfiguration configuration;
+    private final Registry registry;
+
+    private final ConcurrentMap<String, GradientConcurrencyLimit> limitsByGroup = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> groupsByEndpoint = new ConcurrentHashMap<>();
+
+    public AdaptiveAdmissionController(AdmissionController delegate,
+                                       AdaptiveAdmissionControllerConfiguration configuration,
+                                       TitusRuntime titusRuntime) {
+        this.delegate = delegate;
+        this.configuration = configuration;
+        this.registry = titusRuntime.getRegistry();
+    }
+
+    @Override
+    public AdmissionControllerResponse apply(AdmissionControllerRequest request) {
+        AdmissionControllerResponse response = delegate.apply(request);
+        if (!response.isAllowed()) {
+            return response;
+        }
+
+        String group = toGroup(request);
+        GradientConcurrencyLimit limit = limitsByGroup.get(group);
+        if (limit == null) {
+            limit = limitsByGroup.computeIfAbsent(group, this::newLimit);
+        }
+        if (limit.tryAcquire(configuration.isEnabled())) {
+            return response;
+        }
+        return AdmissionControllerResponse.newBuilder()
+                .withAllowed(false)
+                .withReasonMessage(String.format("Concurrency limit reached: group=%s, limit=%s", group, limit.getLimit()))
+                .withDecisionPoint(AdaptiveAdmissionController.class.getSimpleName())
+                .withEquivalenceGroup(group)
+                .build();
+    }
+
+    @Override
+    public void onCompleted(AdmissionControllerRequest request, AdmissionControllerResponse response, long elapsedNanos) {
+        GradientConcurrencyLimit limit = limitsByGroup.get(toGroup(request));
+        if (limit != null) {
+            limit.release(elapsedNanos);
+        }
+        delegate.onCompleted(request, response, elapsedNanos);
+    }
+
+    @Override
+    public void onIgnored(AdmissionControllerRequest request, AdmissionControllerResponse response) {
+        GradientConcurrencyLimit limit = limitsByGroup.get(toGroup(request));
+        if (limit != null) {
+            limit.release();
+        }
+        delegate.onIgnored(request, response);
+    }
+
+    private String toGroup(AdmissionControllerRequest request) {
+        String endpointName = request.getEndpointName();
+        if (StringExt.isEmpty(endpointName)) {
+            return UNKNOWN_GROUP;
+        }
+        String group = groupsByEndpoint.get(endpointName);
+        if (group == null) {
+            int idx = endpointName.indexOf('/');
+            group = idx > 0 ? endpointName.substring(0, idx) : endpointName;
+            groupsByEndpoint.putIfAbsent(endpointName, group);
+        }
+        return group;
+    }
+
+    private GradientConcurrencyLimit newLimit(String group) {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(configuration);
+        PolledMeter.using(registry)
+                .withId(registry.createId(METRIC_ROOT + "limit", "group", group))
+                .monitorValue(limit, GradientConcurrencyLimit::getLimit);
+        PolledMeter.using(registry)
+                .withId(registry.createId(METRIC_ROOT + "inFlight", "group", group))
+                .monitorValue(limit, GradientConcurrencyLimit::getInFlight);
+        return limit;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.loadshedding.adaptive;
+
+import com.netflix.archaius.api.annotations.DefaultValue;
+
+/**
+ * Configuration of {@link AdaptiveAdmissionController}. The property prefix is chosen by the server embedding it.
+ */
+public interface AdaptiveAdmissionControllerConfiguration {
+
+    /**
+     * If false, the concurrency limits are computed, but requests are not rejected when they are exceeded.
+     */
+    @DefaultValue("false")
+    boolean isEnabled();
+
+    @DefaultValue("100")
+    int getInitialLimit();
+
+    @DefaultValue("20")
+    int getMinLimit();
+
+    @DefaultValue("1000")
+    int getMaxLimit();
+
+    /**
+     * Ratio of the long term to the short term latency below which the limit is lowered. Values above 1 allow some
+     * latency increase before the limit is reduced.
+     */
+    @DefaultValue("1.5")
+    double getRttTolerance();
+
+    /**
+     * Weight (0-1] of a newly computed limit. Lower values make the limit change slower.
+     */
+    @DefaultValue("0.2")
+    double getSmoothing();
+
+    /**
+     * Number of samples in the short term latency window.
+     */
+    @DefaultValue("10")
+    int getShortWindow();
+
+    /**
+     * Number of samples in the long term (baseline) latency window.
+     */
+    @DefaultValue("600")
+    int getLongWindow();
+}
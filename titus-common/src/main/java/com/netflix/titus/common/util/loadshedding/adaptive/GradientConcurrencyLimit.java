@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.loadshedding.adaptive;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit following the observed latency (gradient algorithm). The limit is scaled by the ratio of the long
+ * term (baseline) latency to the short term latency, so it drops as soon as requests start queueing, and it grows by
+ * a square root of its value while the latency stays flat. Updates are skipped when less than half of the limit is
+ * used, as the latency tells nothing about the capacity in that case.
+ */
+class GradientConcurrencyLimit {
+
+    /**
+     * If the short term latency drops below half of the baseline, the baseline is lowered faster than the long window
+     * would allow.
+     */
+    private static final double BASELINE_RECOVERY_RATIO = 2.0;
+    private static final double BASELINE_RECOVERY_FACTOR = 0.95;
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final AdaptiveAdmissionControllerConfiguration configuration;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    /**
+     * Guarded by this object monitor.
+     */
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long sampleCount;
+
+    GradientConcurrencyLimit(AdaptiveAdmissionControllerConfiguration configuration) {
+        this.configuration = configuration;
+        this.estimatedLimit = clamp(configuration.getInitialLimit());
+        this.limit = (int) estimatedLimit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Registers a new request in flight. If enforced is false, the request is registered even if the limit is reached.
+     */
+    boolean tryAcquire(boolean enforced) {
+        if (!enforced) {
+            inFlight.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long rttNanos) {
+        int current = release();
+        update(rttNanos, current);
+    }
+
+    /**
+     * Returns the number of requests in flight before the release.
+     */
+    int release() {
+        return inFlight.getAndUpdate(current -> current > 0 ? current - 1 : 0);
+    }
+
+    private synchronized void update(long rttNanos, int currentInFlight) {
+        if (sampleCount == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+        } else {
+            shortRttNanos = average(shortRttNanos, rttNanos, Math.min(sampleCount, configuration.getShortWindow()));
+            longRttNanos = average(longRttNanos, rttNanos, Math.min(sampleCount, configuration.getLongWindow()));
+        }
+        sampleCount++;
+
+        if (longRttNanos / shortRttNanos > BASELINE_RECOVERY_RATIO) {
+            longRttNanos *= BASELINE_RECOVERY_FACTOR;
+        }
+        if (currentInFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, configuration.getRttTolerance() * longRttNanos / shortRttNanos));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        double smoothing = configuration.getSmoothing();
+        estimatedLimit = clamp(estimatedLimit * (1 - smoothing) + newLimit * smoothing);
+        limit = (int) estimatedLimit;
+    }
+
+    private double clamp(double value) {
+        return Math.max(configuration.getMinLimit(), Math.min(configuration.getMaxLimit(), value));
+    }
+
+    /**
+     * Exponential moving average over the given number of samples.
+     */
+    private static double average(double current, double sample, long window) {
+        return current + (sample - current) * 2.0 / (window + 1);
+    }
+}
@@ -16,12 +16,16 @@
 
 package com.netflix.titus.common.util.loadshedding.grpc;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
 import com.netflix.titus.common.util.loadshedding.AdmissionController;
 import com.netflix.titus.common.util.loadshedding.AdmissionControllerRequest;
 import com.netflix.titus.common.util.loadshedding.AdmissionControllerResponse;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
 import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
 import io.grpc.ServerCall;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
@@ -47,9 +51,10 @@ public class GrpcAdmissionControllerServerInterceptor implements ServerIntercept
 
     @Override
     public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        AdmissionControllerRequest request;
         AdmissionControllerResponse result;
         try {
-            AdmissionControllerRequest request = AdmissionControllerRequest.newBuilder()
+            request = AdmissionControllerRequest.newBuilder()
                     .withCallerId(callerIdResolver.get())
                     .withEndpointName(call.getMethodDescriptor().getFullMethodName())
                     .build();
@@ -62,10 +67,74 @@ public class GrpcAdmissionControllerServerInterceptor implements ServerIntercept
         }
 
         if (result.isAllowed()) {
-            return next.startCall(call, headers);
+            return startMonitoredCall(call, headers, next, request, result);
         }
 
         call.close(Status.RESOURCE_EXHAUSTED.withDescription(result.getReasonMessage()), new Metadata());
         return (ServerCall.Listener<ReqT>) NO_OP_LISTENER;
     }
+
+    /**
+     * Reports the call completion back to the admission controller. The execution time of unary calls only is
+     * relevant, so streaming calls are reported as ignored as soon as they are started.
+     */
+    private <ReqT, RespT> ServerCall.Listener<ReqT> startMonitoredCall(ServerCall<ReqT, RespT> call,
+                                                                       Metadata headers,
+                                                                       ServerCallHandler<ReqT, RespT> next,
+                                                                       AdmissionControllerRequest request,
+                                                                       AdmissionControllerResponse result) {
+        if (call.getMethodDescriptor().getType() != MethodDescriptor.MethodType.UNARY) {
+            onIgnored(request, result);
+            return next.startCall(call, headers);
+        }
+
+        long startTime = System.nanoTime();
+        AtomicBoolean reported = new AtomicBoolean();
+        ServerCall<ReqT, RespT> monitoredCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                if (reported.compareAndSet(false, true)) {
+                    onCompleted(request, result, System.nanoTime() - startTime);
+                }
+                super.close(status, trailers);
+            }
+        };
+
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(monitoredCall, headers);
+        } catch (RuntimeException e) {
+            if (reported.compareAndSet(false, true)) {
+                onIgnored(request, result);
+            }
+            throw e;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onCancel() {
+                if (reported.compareAndSet(false, true)) {
+                    onIgnored(request, result);
+                }
+                super.onCancel();
+            }
+        };
+    }
+
+    private void onCompleted(AdmissionControllerRequest request, AdmissionControllerResponse result, long elapsedNanos) {
+        try {
+            admissionController.onCompleted(request, result, elapsedNanos);
+        } catch (Exception e) {
+            logger.warn("Admission controller error: {}", e.getMessage());
+            logger.debug("Stack trace", e);
+        }
+    }
+
+    private void onIgnored(AdmissionControllerRequest request, AdmissionControllerResponse result) {
+        try {
+            admissionController.onIgnored(request, result);
+        } catch (Exception e) {
+            logger.warn("Admission controller error: {}", e.getMessage());
+            logger.debug("Stack trace", e);
+        }
+    }
 }
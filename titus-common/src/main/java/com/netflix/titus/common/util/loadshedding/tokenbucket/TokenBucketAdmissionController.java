@@ -194,7 +194,7 @@ public class TokenBucketAdmissionController implements AdmissionController {
 
         private TokenBucketInstance(String effectiveCallerId, TokenBucketConfiguration configuration) {
             this.configuration = configuration;
-            this.tokenBucket = Limiters.createFixedIntervalTokenBucket(
+            this.tokenBucket = Limiters.createLockFreeFixedIntervalTokenBucket(
                     configuration.getName(),
                     configuration.getCapacity(),
                     configuration.getCapacity(),
@@ -32,12 +32,14 @@ import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
 import com.netflix.titus.common.framework.reconciler.MultiEngineChangeAction;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.ReferenceViewListener;
 import com.netflix.titus.common.framework.reconciler.internal.SimpleReconcilerEvent.EventType;
 import com.netflix.titus.common.util.ExceptionExt;
 import com.netflix.titus.testkit.rx.ExtTestSubscriber;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import rx.Observable;
 import rx.observers.AssertableSubscriber;
 import rx.schedulers.Schedulers;
@@ -169,6 +171,68 @@ public class DefaultReconciliationFrameworkTest {
         verify(engine, times(1)).triggerActions();
     }
 
+    @Test
+    public void testReferenceViewListenerIsCalledBeforeSubscribersComplete() {
+        ReferenceViewListener listener = mock(ReferenceViewListener.class);
+        DefaultReconciliationFramework<SimpleReconcilerEvent> framework = new DefaultReconciliationFramework<>(
+                Collections.emptyList(),
+                engineFactory,
+                IDLE_TIMEOUT_MS,
+                ACTIVE_TIMEOUT_MS,
+                indexComparators,
+                new DefaultRegistry(),
+                Optional.of(testScheduler),
+                listener
+        );
+        framework.start();
+
+        ExtTestSubscriber<ReconciliationEngine> addSubscriber = new ExtTestSubscriber<>();
+        framework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe(
+                next -> {
+                    verify(listener, times(1)).onUpdate(engine1.getReferenceView());
+                    addSubscriber.onNext(next);
+                },
+                addSubscriber::onError,
+                addSubscriber::onCompleted
+        );
+        testScheduler.triggerActions();
+        assertThat(addSubscriber.takeNext()).isSameAs(engine1);
+
+        ExtTestSubscriber<Void> removeSubscriber = new ExtTestSubscriber<>();
+        framework.removeEngine(engine1).subscribe(
+                () -> {
+                    verify(listener, times(1)).onRemove(engine1.getReferenceView());
+                    removeSubscriber.onCompleted();
+                },
+                removeSubscriber::onError
+        );
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        removeSubscriber.assertOnCompleted();
+        framework.stop(STOP_TIMEOUT_MS);
+    }
+
+    @Test
+    public void testOnlyDirtyEnginesAreProcessedInActiveCycle() {
+        when(engine2.triggerActions()).thenReturn(false);
+
+        framework.newEngine(EntityHolder.newRoot("myRoot1", "myEntity1")).subscribe();
+        framework.newEngine(EntityHolder.newRoot("myRoot2", "myEntity2")).subscribe();
+        testScheduler.triggerActions();
+
+        // engine1 has running actions, so it stays dirty. engine2 is idle.
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(engine1, times(1)).applyModelUpdates();
+        verify(engine2, times(0)).applyModelUpdates();
+
+        // Now engine2 reports new work.
+        ArgumentCaptor<Runnable> dirtyListenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(engine2).setDirtyListener(dirtyListenerCaptor.capture());
+        dirtyListenerCaptor.getValue().run();
+
+        testScheduler.advanceTimeBy(ACTIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        verify(engine2, times(1)).applyModelUpdates();
+    }
+
     @Test
     public void testMultiEngineChangeAction() {
         EntityHolder root1 = EntityHolder.newRoot("myRoot1", "myEntity1");
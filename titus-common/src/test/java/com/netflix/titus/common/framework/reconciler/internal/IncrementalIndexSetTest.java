@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.Collections;
+import java.util.Comparator;
+
+import com.netflix.titus.common.util.tuple.Pair;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalIndexSetTest {
+
+    private static final String INDEX_ID = "byValue";
+
+    private static final Comparator<Pair<String, Integer>> BY_VALUE = Comparator.comparing(Pair::getRight);
+
+    private final IncrementalIndexSet<Pair<String, Integer>> indexSet = IncrementalIndexSet.newIndexSet(
+            Collections.<Object, Comparator<Pair<String, Integer>>>singletonMap(INDEX_ID, BY_VALUE),
+            Pair::getLeft
+    );
+
+    @Test
+    public void testAddOrUpdate() {
+        indexSet.addOrUpdate(Pair.of("a", 3));
+        indexSet.addOrUpdate(Pair.of("b", 1));
+        indexSet.addOrUpdate(Pair.of("c", 2));
+        assertThat(indexSet.getOrdered(INDEX_ID)).containsExactly(Pair.of("b", 1), Pair.of("c", 2), Pair.of("a", 3));
+
+        // Update changes the position of the value
+        indexSet.addOrUpdate(Pair.of("b", 4));
+        assertThat(indexSet.getOrdered(INDEX_ID)).containsExactly(Pair.of("c", 2), Pair.of("a", 3), Pair.of("b", 4));
+        assertThat(indexSet.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testValuesWithEqualOrderAreKept() {
+        indexSet.addOrUpdate(Pair.of("b", 1));
+        indexSet.addOrUpdate(Pair.of("a", 1));
+        assertThat(indexSet.getOrdered(INDEX_ID)).containsExactly(Pair.of("a", 1), Pair.of("b", 1));
+    }
+
+    @Test
+    public void testRemove() {
+        indexSet.addOrUpdate(Pair.of("a", 1));
+        indexSet.addOrUpdate(Pair.of("b", 2));
+        indexSet.remove("a");
+        indexSet.remove("unknown");
+        assertThat(indexSet.getOrdered(INDEX_ID)).containsExactly(Pair.of("b", 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownIndex() {
+        indexSet.getOrdered("unknown");
+    }
+}
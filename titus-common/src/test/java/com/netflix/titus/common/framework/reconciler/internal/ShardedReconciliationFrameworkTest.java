@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.framework.reconciler.internal;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Utils;
+import com.netflix.titus.common.framework.reconciler.EntityHolder;
+import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
+import com.netflix.titus.common.util.tuple.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardedReconciliationFrameworkTest {
+
+    private static final int SHARD_COUNT = 4;
+    private static final long IDLE_TIMEOUT_MS = 100;
+    private static final long ACTIVE_TIMEOUT_MS = 20;
+    private static final int STOP_TIMEOUT_MS = 1_000;
+    private static final int ENGINE_COUNT = 20;
+
+    private final TestScheduler testScheduler = Schedulers.test();
+
+    private final Map<Object, Comparator<EntityHolder>> indexComparators = ImmutableMap.<Object, Comparator<EntityHolder>>builder()
+            .put("ascending", Comparator.comparing(EntityHolder::getEntity))
+            .put("descending", Comparator.<EntityHolder, String>comparing(EntityHolder::getEntity).reversed())
+            .build();
+
+    private final Registry registry = new DefaultRegistry();
+
+    private final ShardedReconciliationFramework<SimpleReconcilerEvent> framework = new ShardedReconciliationFramework<>(
+            SHARD_COUNT,
+            Collections.emptyList(),
+            ShardedReconciliationFrameworkTest::newEngineMock,
+            IDLE_TIMEOUT_MS,
+            ACTIVE_TIMEOUT_MS,
+            indexComparators,
+            registry,
+            Optional.of(testScheduler)
+    );
+
+    @Before
+    public void setUp() {
+        framework.start();
+        for (int i = 0; i < ENGINE_COUNT; i++) {
+            EntityHolder root = EntityHolder.newRoot(String.format("root%02d", i), String.format("entity%02d", i))
+                    .addChild(EntityHolder.newRoot(String.format("child%02d", i), String.format("childEntity%02d", i)));
+            framework.newEngine(root).subscribe();
+        }
+        testScheduler.triggerActions();
+    }
+
+    @After
+    public void tearDown() {
+        framework.stop(STOP_TIMEOUT_MS);
+    }
+
+    @Test
+    public void testEnginesAreFoundInAllShards() {
+        for (int i = 0; i < ENGINE_COUNT; i++) {
+            String rootId = String.format("root%02d", i);
+            Optional<ReconciliationEngine<SimpleReconcilerEvent>> engine = framework.findEngineByRootId(rootId);
+            assertThat(engine).isPresent();
+            assertThat(engine.get().getReferenceView().getId()).isEqualTo(rootId);
+        }
+        assertThat(framework.findEngineByRootId("unknown")).isEmpty();
+    }
+
+    @Test
+    public void testChildrenAreFoundInAllShards() {
+        for (int i = 0; i < ENGINE_COUNT; i++) {
+            String childId = String.format("child%02d", i);
+            Optional<Pair<ReconciliationEngine<SimpleReconcilerEvent>, EntityHolder>> result = framework.findEngineByChildId(childId);
+            assertThat(result).isPresent();
+            assertThat(result.get().getLeft().getReferenceView().getId()).isEqualTo(String.format("root%02d", i));
+            assertThat(result.get().getRight().getId()).isEqualTo(childId);
+        }
+        assertThat(framework.findEngineByChildId("unknown")).isEmpty();
+        assertThat(framework.findEngineByChildId("root01")).isEmpty();
+    }
+
+    @Test
+    public void testShardMetricsAreTagged() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            String shard = Integer.toString(i);
+            assertThat(registry.timers().filter(timer ->
+                    timer.id().name().equals(DefaultReconciliationFramework.ROOT_METRIC_NAME + "executionTime")
+                            && shard.equals(Utils.getTagValue(timer.id(), "shard"))
+            ).count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testOrderedViewMergesShards() {
+        List<String> ascending = framework.orderedView("ascending").stream().map(h -> (String) h.getEntity()).collect(Collectors.toList());
+        assertThat(ascending).hasSize(ENGINE_COUNT).isSorted();
+
+        List<String> descending = framework.orderedView("descending").stream().map(h -> (String) h.getEntity()).collect(Collectors.toList());
+        Collections.reverse(descending);
+        assertThat(descending).isEqualTo(ascending);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOrderingCriteria() {
+        framework.orderedView("unknown");
+    }
+
+    @Test
+    public void testEngineRemove() {
+        ReconciliationEngine<SimpleReconcilerEvent> engine = framework.findEngineByRootId("root01").get();
+        framework.removeEngine(engine).subscribe();
+        testScheduler.triggerActions();
+
+        assertThat(framework.findEngineByRootId("root01")).isEmpty();
+        assertThat(framework.findEngineByChildId("child01")).isEmpty();
+        assertThat(framework.orderedView("ascending")).hasSize(ENGINE_COUNT - 1);
+    }
+
+    private static InternalReconciliationEngine<SimpleReconcilerEvent> newEngineMock(EntityHolder bootstrapModel) {
+        InternalReconciliationEngine<SimpleReconcilerEvent> engine = mock(InternalReconciliationEngine.class);
+        when(engine.getReferenceView()).thenReturn(bootstrapModel);
+        when(engine.events()).thenReturn(Observable.never());
+        return engine;
+    }
+}
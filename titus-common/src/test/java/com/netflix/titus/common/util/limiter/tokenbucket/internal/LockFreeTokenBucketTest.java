@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Ticker;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LockFreeTokenBucketTest {
+
+    private final TestTicker testTicker = new TestTicker();
+
+    @Test
+    public void testFirstIntervalIsRefilledImmediately() {
+        TokenBucket tokenBucket = new LockFreeTokenBucket("test", 10, 0, 2, 1, TimeUnit.SECONDS, testTicker);
+        assertThat(tokenBucket.getNumberOfTokens()).isEqualTo(2);
+        assertThat(tokenBucket.tryTake(2)).isTrue();
+        assertThat(tokenBucket.tryTake()).isFalse();
+
+        testTicker.advance(TimeUnit.MILLISECONDS.toNanos(999));
+        assertThat(tokenBucket.tryTake()).isFalse();
+        assertThat(tokenBucket.getRefillStrategy().getTimeUntilNextRefill(TimeUnit.MILLISECONDS)).isEqualTo(1);
+
+        testTicker.advance(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(tokenBucket.tryTake(2)).isTrue();
+    }
+
+    @Test
+    public void testCapacityIsNotExceeded() {
+        TokenBucket tokenBucket = new LockFreeTokenBucket("test", 10, 100, 5, 1, TimeUnit.SECONDS, testTicker);
+        assertThat(tokenBucket.getNumberOfTokens()).isEqualTo(10);
+
+        testTicker.advance(TimeUnit.DAYS.toNanos(365));
+        assertThat(tokenBucket.getNumberOfTokens()).isEqualTo(10);
+
+        tokenBucket.refill(5);
+        assertThat(tokenBucket.getNumberOfTokens()).isEqualTo(10);
+        tokenBucket.refill(-15);
+        assertThat(tokenBucket.getNumberOfTokens()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSameResultsAsDefaultTokenBucket() {
+        Random random = new Random(123);
+        TokenBucket expected = new DefaultTokenBucket("expected", 50,
+                new FixedIntervalRefillStrategy(Stopwatch.createStarted(testTicker), 3, 10, TimeUnit.MILLISECONDS), 20
+        );
+        TokenBucket actual = new LockFreeTokenBucket("actual", 50, 20, 3, 10, TimeUnit.MILLISECONDS, testTicker);
+
+        for (int i = 0; i < 10_000; i++) {
+            testTicker.advance(random.nextInt(5_000_000));
+            if (random.nextInt(20) == 0) {
+                // DefaultTokenBucket does not apply the pending refills before adding the tokens
+                expected.getNumberOfTokens();
+                int tokens = random.nextInt(20) - 10;
+                expected.refill(tokens);
+                actual.refill(tokens);
+            } else {
+                int tokens = 1 + random.nextInt(5);
+                assertThat(actual.tryTake(tokens)).isEqualTo(expected.tryTake(tokens));
+            }
+            assertThat(actual.getNumberOfTokens()).isEqualTo(expected.getNumberOfTokens());
+        }
+    }
+
+    @Test
+    public void testConcurrentTakesDoNotExceedAvailableTokens() throws InterruptedException {
+        int capacity = 100_000;
+        TokenBucket tokenBucket = new LockFreeTokenBucket("test", capacity, capacity, 0, 1, TimeUnit.SECONDS, Ticker.systemTicker());
+
+        AtomicLong taken = new AtomicLong();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (tokenBucket.tryTake()) {
+                    taken.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(taken.get()).isEqualTo(capacity);
+        assertThat(tokenBucket.getNumberOfTokens()).isEqualTo(0);
+    }
+
+    private static class TestTicker extends Ticker {
+
+        private volatile long nanos;
+
+        void advance(long delta) {
+            nanos += delta;
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
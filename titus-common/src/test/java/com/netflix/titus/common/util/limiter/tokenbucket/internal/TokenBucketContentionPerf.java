@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.limiter.tokenbucket.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.netflix.titus.common.util.limiter.Limiters;
+import com.netflix.titus.common.util.limiter.tokenbucket.TokenBucket;
+
+/**
+ * Compares {@link DefaultTokenBucket} and {@link LockFreeTokenBucket} throughput with many threads calling
+ * {@link TokenBucket#tryTake()} on a single shared bucket. Two cases are measured: a bucket refilled faster than
+ * the tokens are taken (all calls succeed), and an empty bucket (all calls are rejected). Run with the measurement
+ * time per case in seconds as an argument (defaults to 3).
+ */
+public class TokenBucketContentionPerf {
+
+    private static final long WARMUP_MS = 1_000;
+
+    private final long measurementMs;
+
+    private TokenBucketContentionPerf(long measurementMs) {
+        this.measurementMs = measurementMs;
+    }
+
+    private void run() throws InterruptedException {
+        int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+        System.out.println(String.format("%-10s %-9s %8s %16s", "case", "bucket", "threads", "ops/sec"));
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            measure("allowed", "default", threads, () -> Limiters.createFixedIntervalTokenBucket("perf", 1_000_000, 1_000_000, 1_000_000, 1, TimeUnit.MILLISECONDS));
+            measure("allowed", "lockFree", threads, () -> Limiters.createLockFreeFixedIntervalTokenBucket("perf", 1_000_000, 1_000_000, 1_000_000, 1, TimeUnit.MILLISECONDS));
+            measure("rejected", "default", threads, () -> Limiters.createFixedIntervalTokenBucket("perf", 1, 0, 0, 1, TimeUnit.HOURS));
+            measure("rejected", "lockFree", threads, () -> Limiters.createLockFreeFixedIntervalTokenBucket("perf", 1, 0, 0, 1, TimeUnit.HOURS));
+        }
+    }
+
+    private void measure(String caseName, String bucketName, int threadCount, Supplier<TokenBucket> bucketFactory) throws InterruptedException {
+        TokenBucket tokenBucket = bucketFactory.get();
+        execute(tokenBucket, threadCount, WARMUP_MS);
+        long operations = execute(tokenBucket, threadCount, measurementMs);
+        System.out.println(String.format("%-10s %-9s %8d %16d", caseName, bucketName, threadCount, operations * 1_000 / measurementMs));
+    }
+
+    private long execute(TokenBucket tokenBucket, int threadCount, long durationMs) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder operations = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    tokenBucket.tryTake();
+                    count++;
+                }
+                operations.add(count);
+            }, "tokenBucketPerf-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        Thread.sleep(durationMs);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return operations.sum();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long measurementSec = args.length > 0 ? Long.parseLong(args[0]) : 3;
+        new TokenBucketContentionPerf(TimeUnit.SECONDS.toMillis(measurementSec)).run();
+    }
+}
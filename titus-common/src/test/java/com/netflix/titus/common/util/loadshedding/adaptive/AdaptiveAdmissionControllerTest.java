@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.common.util.loadshedding.adaptive;
+
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.archaius2.Archaius2Ext;
+import com.netflix.titus.common.util.loadshedding.AdmissionController;
+import com.netflix.titus.common.util.loadshedding.AdmissionControllerRequest;
+import com.netflix.titus.common.util.loadshedding.AdmissionControllerResponse;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveAdmissionControllerTest {
+
+    private static final AdmissionControllerResponse DELEGATE_OK = AdmissionControllerResponse.newBuilder()
+            .withAllowed(true)
+            .withReasonMessage("delegate")
+            .build();
+
+    private static final AdmissionControllerRequest SERVICE_A_REQUEST = newRequest("ServiceA/method1");
+    private static final AdmissionControllerRequest SERVICE_A_OTHER_REQUEST = newRequest("ServiceA/method2");
+    private static final AdmissionControllerRequest SERVICE_B_REQUEST = newRequest("ServiceB/method1");
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+    @Test
+    public void testLimitIsSharedByEndpointGroup() {
+        AdmissionController controller = newController(true, 2);
+
+        assertThat(controller.apply(SERVICE_A_REQUEST)).isEqualTo(DELEGATE_OK);
+        assertThat(controller.apply(SERVICE_A_OTHER_REQUEST)).isEqualTo(DELEGATE_OK);
+
+        AdmissionControllerResponse rejected = controller.apply(SERVICE_A_REQUEST);
+        assertThat(rejected.isAllowed()).isFalse();
+        assertThat(rejected.getDecisionPoint()).isEqualTo(AdaptiveAdmissionController.class.getSimpleName());
+        assertThat(rejected.getEquivalenceGroup()).isEqualTo("ServiceA");
+
+        // Other group not affected
+        assertThat(controller.apply(SERVICE_B_REQUEST).isAllowed()).isTrue();
+
+        // Completed and ignored requests free the slots
+        controller.onCompleted(SERVICE_A_REQUEST, DELEGATE_OK, TimeUnit.MILLISECONDS.toNanos(10));
+        controller.onIgnored(SERVICE_A_OTHER_REQUEST, DELEGATE_OK);
+        assertThat(controller.apply(SERVICE_A_REQUEST).isAllowed()).isTrue();
+        assertThat(controller.apply(SERVICE_A_REQUEST).isAllowed()).isTrue();
+    }
+
+    @Test
+    public void testNotEnforcedWhenDisabled() {
+        AdmissionController controller = newController(false, 2);
+        for (int i = 0; i < 10; i++) {
+            assertThat(controller.apply(SERVICE_A_REQUEST).isAllowed()).isTrue();
+        }
+    }
+
+    @Test
+    public void testRejectedByDelegate() {
+        AdmissionControllerResponse delegateRejected = AdmissionControllerResponse.newBuilder().withAllowed(false).build();
+        AdmissionController controller = new AdaptiveAdmissionController(request -> delegateRejected, newConfiguration(true, 1), titusRuntime);
+        assertThat(controller.apply(SERVICE_A_REQUEST)).isEqualTo(delegateRejected);
+    }
+
+    @Test
+    public void testLimitFollowsLatency() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(newConfiguration(true, 20));
+
+        // Stable latency under full load grows the limit
+        runFullyLoaded(limit, 200, 10);
+        int grownLimit = limit.getLimit();
+        assertThat(grownLimit).isGreaterThan(20);
+
+        // Latency increase lowers it
+        runFullyLoaded(limit, 20, 100);
+        assertThat(limit.getLimit()).isLessThan(grownLimit);
+    }
+
+    @Test
+    public void testLimitNotChangedWhenUnderused() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(newConfiguration(true, 20));
+        for (int i = 0; i < 100; i++) {
+            assertThat(limit.tryAcquire(true)).isTrue();
+            limit.release(TimeUnit.MILLISECONDS.toNanos(i % 2 == 0 ? 10 : 100));
+        }
+        assertThat(limit.getLimit()).isEqualTo(20);
+        assertThat(limit.getInFlight()).isEqualTo(0);
+    }
+
+    private void runFullyLoaded(GradientConcurrencyLimit limit, int samples, long latencyMs) {
+        for (int i = 0; i < samples; i++) {
+            while (limit.tryAcquire(true)) {
+            }
+            limit.release(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        }
+    }
+
+    private AdmissionController newController(boolean enabled, int limit) {
+        return new AdaptiveAdmissionController(request -> DELEGATE_OK, newConfiguration(enabled, limit), titusRuntime);
+    }
+
+    private static AdaptiveAdmissionControllerConfiguration newConfiguration(boolean enabled, int initialLimit) {
+        return Archaius2Ext.newConfiguration(AdaptiveAdmissionControllerConfiguration.class,
+                "enabled", "" + enabled,
+                "initialLimit", "" + initialLimit,
+                "minLimit", "1",
+                "maxLimit", "1000"
+        );
+    }
+
+    private static AdmissionControllerRequest newRequest(String endpointName) {
+        return AdmissionControllerRequest.newBuilder()
+                .withCallerId("myUser")
+                .withEndpointName(endpointName)
+                .build();
+    }
+}
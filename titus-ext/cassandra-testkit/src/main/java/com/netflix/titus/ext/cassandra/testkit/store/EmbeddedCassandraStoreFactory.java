@@ -76,6 +76,26 @@ public class EmbeddedCassandraStoreFactory {
             return 10;
         }
 
+        @Override
+        public boolean isBulkBootstrapEnabled() {
+            return false;
+        }
+
+        @Override
+        public int getBootstrapBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public int getBootstrapConcurrencyLimit() {
+            return 10;
+        }
+
+        @Override
+        public int getBootstrapFetchSize() {
+            return 1000;
+        }
+
         @Override
         public int getLoadBalancerWriteConcurrencyLimit() {
             return 100;
@@ -86,6 +106,26 @@ public class EmbeddedCassandraStoreFactory {
             return 10;
         }
 
+        @Override
+        public boolean isWarmStartEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getWarmStartRefreshIntervalMs() {
+            return 300_000;
+        }
+
+        @Override
+        public long getWarmStartRefreshTimeoutMs() {
+            return 120_000;
+        }
+
+        @Override
+        public String getJobRecordFormat() {
+            return "json";
+        }
+
         @Override
         public boolean isTracingEnabled() {
             return false;
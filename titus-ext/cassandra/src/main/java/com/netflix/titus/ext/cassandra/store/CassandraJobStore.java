@@ -16,15 +16,23 @@
 
 package com.netflix.titus.ext.cassandra.store;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -38,6 +46,7 @@ import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.exceptions.DriverException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -57,16 +66,20 @@ import com.netflix.titus.api.jobmanager.store.JobStoreFitAction;
 import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.framework.fit.FitFramework;
 import com.netflix.titus.common.framework.fit.FitInjection;
+import com.netflix.titus.common.framework.scheduler.ScheduleReference;
+import com.netflix.titus.common.framework.scheduler.model.ScheduleDescriptor;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.guice.annotation.ProxyConfiguration;
 import com.netflix.titus.common.util.tuple.Either;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.executor.FuturePaginatedQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.Completable;
 import rx.Emitter;
 import rx.Observable;
 import rx.exceptions.Exceptions;
+import rx.subjects.AsyncSubject;
 
 import static com.netflix.titus.common.util.guice.ProxyType.Logging;
 import static com.netflix.titus.common.util.guice.ProxyType.Spectator;
@@ -80,6 +93,12 @@ public class CassandraJobStore implements JobStore {
 
     private static final int INITIAL_BUCKET_COUNT = 100;
     private static final int MAX_BUCKET_SIZE = 2_000;
+
+    /**
+     * A standby node reads at the lowest consistency level, as all cached records are validated against their
+     * revisions read at LOCAL_QUORUM during the leader bootstrap.
+     */
+    private static final ConsistencyLevel WARM_UP_CONSISTENCY_LEVEL = ConsistencyLevel.LOCAL_ONE;
     private static final String METRIC_NAME_ROOT = "titusMaster.jobManager.cassandra";
 
     // SELECT Queries
@@ -92,6 +111,13 @@ public class CassandraJobStore implements JobStore {
     private static final String RETRIEVE_ACTIVE_TASK_STRING = "SELECT value FROM active_tasks WHERE task_id = ?;";
     private static final String RETRIEVE_ARCHIVED_TASK_STRING = "SELECT value FROM archived_tasks WHERE task_id = ?;";
     private static final String RETRIEVE_ARCHIVED_TASKS_COUNT_STRING = "SELECT count(*) FROM archived_task_ids WHERE job_id = ?;";
+    private static final String RETRIEVE_ACTIVE_JOBS_BULK_STRING = "SELECT value FROM active_jobs WHERE job_id IN ?;";
+    private static final String RETRIEVE_ACTIVE_TASKS_BULK_STRING = "SELECT value FROM active_tasks WHERE task_id IN ?;";
+    private static final String RETRIEVE_ACTIVE_TASK_IDS_FOR_JOBS_BULK_STRING = "SELECT task_id FROM active_task_ids WHERE job_id IN ?;";
+    private static final String RETRIEVE_ACTIVE_JOB_REVISIONS_BULK_STRING = "SELECT job_id, writetime(value) FROM active_jobs WHERE job_id IN ?;";
+    private static final String RETRIEVE_ACTIVE_TASK_REVISIONS_BULK_STRING = "SELECT task_id, writetime(value) FROM active_tasks WHERE task_id IN ?;";
+    private static final String RETRIEVE_ACTIVE_JOBS_WITH_REVISIONS_BULK_STRING = "SELECT job_id, value, writetime(value) FROM active_jobs WHERE job_id IN ?;";
+    private static final String RETRIEVE_ACTIVE_TASKS_WITH_REVISIONS_BULK_STRING = "SELECT task_id, value, writetime(value) FROM active_tasks WHERE task_id IN ?;";
 
     private final PreparedStatement retrieveActiveJobIdBucketsStatement;
     private final PreparedStatement retrieveActiveJobIdsStatement;
@@ -102,6 +128,9 @@ public class CassandraJobStore implements JobStore {
     private final PreparedStatement retrieveActiveTaskStatement;
     private final PreparedStatement retrieveArchivedTaskStatement;
     private final PreparedStatement retrieveArchivedTasksCountStatement;
+    private final PreparedStatement retrieveActiveJobsBulkStatement;
+    private final PreparedStatement retrieveActiveTasksBulkStatement;
+    private final PreparedStatement retrieveActiveTaskIdsForJobsBulkStatement;
 
     // INSERT Queries
     private static final String INSERT_ACTIVE_JOB_ID_STRING = "INSERT INTO active_job_ids (bucket, job_id) VALUES (?, ?);";
@@ -137,12 +166,18 @@ public class CassandraJobStore implements JobStore {
 
     private final TitusRuntime titusRuntime;
     private final Session session;
-    private final ObjectMapper mapper;
+    private final StoreRecordCodec codec;
     private final BalancedBucketManager<String> activeJobIdsBucketManager;
     private final CassandraStoreConfiguration configuration;
     private final Optional<FitInjection> fitDriverInjection;
     private final Optional<FitInjection> fitBadDataInjection;
 
+    private final ActiveRecordTable activeJobTable;
+    private final ActiveRecordTable activeTaskTable;
+    private volatile ScheduleReference warmStartScheduleRef;
+    private final AsyncSubject<Void> warmStartCancellation = AsyncSubject.create();
+    private volatile boolean warmStartStopped;
+
     @Inject
     public CassandraJobStore(CassandraStoreConfiguration configuration,
                              Session session,
@@ -180,7 +215,7 @@ public class CassandraJobStore implements JobStore {
             this.fitBadDataInjection = Optional.empty();
         }
 
-        this.mapper = mapper;
+        this.codec = new StoreRecordCodec(mapper, StoreRecordCodec.Format.parse(configuration.getJobRecordFormat()));
         this.activeJobIdsBucketManager = new BalancedBucketManager<>(initialBucketCount, maxBucketSize, METRIC_NAME_ROOT, titusRuntime.getRegistry());
 
         retrieveActiveJobIdBucketsStatement = session.prepare(RETRIEVE_ACTIVE_JOB_ID_BUCKETS_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
@@ -192,6 +227,9 @@ public class CassandraJobStore implements JobStore {
         retrieveActiveTaskStatement = session.prepare(RETRIEVE_ACTIVE_TASK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
         retrieveArchivedTaskStatement = session.prepare(RETRIEVE_ARCHIVED_TASK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
         retrieveArchivedTasksCountStatement = session.prepare(RETRIEVE_ARCHIVED_TASKS_COUNT_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        retrieveActiveJobsBulkStatement = session.prepare(RETRIEVE_ACTIVE_JOBS_BULK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        retrieveActiveTasksBulkStatement = session.prepare(RETRIEVE_ACTIVE_TASKS_BULK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        retrieveActiveTaskIdsForJobsBulkStatement = session.prepare(RETRIEVE_ACTIVE_TASK_IDS_FOR_JOBS_BULK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
 
         insertActiveJobStatement = session.prepare(INSERT_ACTIVE_JOB_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
         insertActiveJobIdStatement = session.prepare(INSERT_ACTIVE_JOB_ID_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
@@ -207,11 +245,47 @@ public class CassandraJobStore implements JobStore {
         deleteActiveTaskStatement = session.prepare(DELETE_ACTIVE_TASK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
         deletedArchivedTaskIdStatement = session.prepare(DELETE_ARCHIVED_TASK_ID_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
         deletedArchivedTaskStatement = session.prepare(DELETE_ARCHIVED_TASK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+
+        activeJobTable = new ActiveRecordTable(
+                "activeJobs",
+                retrieveActiveJobStatement,
+                retrieveActiveJobsBulkStatement,
+                session.prepare(RETRIEVE_ACTIVE_JOB_REVISIONS_BULK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM),
+                session.prepare(RETRIEVE_ACTIVE_JOBS_WITH_REVISIONS_BULK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM)
+        );
+        activeTaskTable = new ActiveRecordTable(
+                "activeTasks",
+                retrieveActiveTaskStatement,
+                retrieveActiveTasksBulkStatement,
+                session.prepare(RETRIEVE_ACTIVE_TASK_REVISIONS_BULK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM),
+                session.prepare(RETRIEVE_ACTIVE_TASKS_WITH_REVISIONS_BULK_STRING).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM)
+        );
+
+        if (configuration.isWarmStartEnabled()) {
+            Duration interval = Duration.ofMillis(configuration.getWarmStartRefreshIntervalMs());
+            ScheduleDescriptor scheduleDescriptor = ScheduleDescriptor.newBuilder()
+                    .withName("jobStoreWarmStart")
+                    .withDescription("Keep the job store warm start cache up to date on a standby node")
+                    .withInitialDelay(interval)
+                    .withInterval(interval)
+                    .withTimeout(Duration.ofMillis(configuration.getWarmStartRefreshTimeoutMs()))
+                    .build();
+            this.warmStartScheduleRef = titusRuntime.getLocalScheduler().schedule(scheduleDescriptor, context -> refreshWarmStartCache(), true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopWarmStartRefresh();
     }
 
     @Override
     public Completable init() {
-        return Observable.fromCallable(() -> retrieveActiveJobIdBucketsStatement.bind().setFetchSize(Integer.MAX_VALUE))
+        return Observable.fromCallable(() -> {
+                    // The node is the leader now, and from now on the store is the only source of truth.
+                    stopWarmStartRefresh();
+                    return retrieveActiveJobIdBucketsStatement.bind().setFetchSize(Integer.MAX_VALUE);
+                })
                 .flatMap(statement -> execute(statement).flatMap(resultSet -> {
                     List<Completable> completables = new ArrayList<>();
                     for (Row row : resultSet.all()) {
@@ -247,17 +321,12 @@ public class CassandraJobStore implements JobStore {
 
     @Override
     public Observable<Pair<List<Job<?>>, Integer>> retrieveJobs() {
-        Observable result = Observable.fromCallable(() -> {
-            List<String> jobIds = activeJobIdsBucketManager.getItems();
-            return jobIds.stream().map(retrieveActiveJobStatement::bind).map(this::execute).collect(Collectors.toList());
-        }).flatMap(observables -> Observable.merge(observables, getConcurrencyLimit()).flatMapIterable(resultSet -> {
-            List<Row> allRows = resultSet.all();
-            if (allRows.isEmpty()) {
+        Observable result = Observable.fromCallable(activeJobIdsBucketManager::getItems).flatMap(jobIds -> activeJobTable.read(jobIds).flatMapIterable(values -> {
+            if (values.isEmpty()) {
                 logger.debug("Job id with no record");
                 return Collections.emptyList();
             }
-            return allRows.stream()
-                    .map(row -> row.getString(0))
+            return values.stream()
                     .map(value -> {
                         String effectiveValue;
                         if (fitBadDataInjection.isPresent()) {
@@ -268,7 +337,7 @@ public class CassandraJobStore implements JobStore {
 
                         Job<?> job;
                         try {
-                            job = ObjectMappers.readValue(mapper, effectiveValue, Job.class);
+                            job = codec.decode(effectiveValue, Job.class);
                         } catch (Exception e) {
                             logger.error("Cannot map serialized job data to Job class: {}", effectiveValue, e);
                             return Either.ofError(e);
@@ -307,7 +376,8 @@ public class CassandraJobStore implements JobStore {
             return Pair.of(goodJobs, errors);
         });
 
-        return result;
+        // Jobs are read once during the leader bootstrap, after which the warm start cache is not needed anymore.
+        return result.doAfterTerminate(activeJobTable.cache::clear);
     }
 
     @Override
@@ -321,7 +391,7 @@ public class CassandraJobStore implements JobStore {
                 throw JobStoreException.jobDoesNotExist(jobId);
             }
             String value = row.getString(0);
-            return (Job<?>) ObjectMappers.readValue(mapper, value, Job.class);
+            return (Job<?>) codec.decode(value, Job.class);
         }));
     }
 
@@ -332,11 +402,11 @@ public class CassandraJobStore implements JobStore {
                     String jobId = job.getId();
                     checkIfJobAlreadyExists(jobId);
 
-                    String jobJsonString = writeJobToString(job);
+                    String jobRecord = writeJobToString(job);
 
                     int bucket = activeJobIdsBucketManager.getNextBucket();
                     activeJobIdsBucketManager.addItem(bucket, jobId);
-                    Statement jobStatement = insertActiveJobStatement.bind(jobId, jobJsonString);
+                    Statement jobStatement = insertActiveJobStatement.bind(jobId, jobRecord);
                     Statement jobIdStatement = insertActiveJobIdStatement.bind(bucket, jobId);
 
                     BatchStatement batchStatement = new BatchStatement();
@@ -355,7 +425,7 @@ public class CassandraJobStore implements JobStore {
     }
 
     private String writeJobToString(Job job) {
-        return ObjectMappers.writeValueAsString(mapper, job);
+        return codec.encode(job);
     }
 
     @Override
@@ -364,10 +434,10 @@ public class CassandraJobStore implements JobStore {
                 .fromCallable((Callable<Statement>) () -> {
                     String jobId = job.getId();
                     checkIfJobIsActive(jobId);
-                    String jobJsonString = writeJobToString(job);
+                    String jobRecord = writeJobToString(job);
 
                     transactionLogger().logBeforeUpdate(insertActiveJobStatement, "updateJob", job);
-                    return insertActiveJobStatement.bind(jobId, jobJsonString);
+                    return insertActiveJobStatement.bind(jobId, jobRecord);
                 })
                 .flatMap(statement ->
                         execute(statement).doOnNext(rs -> transactionLogger().logAfterUpdate(insertActiveJobStatement, "updateJob", job))
@@ -425,65 +495,92 @@ public class CassandraJobStore implements JobStore {
             checkIfJobIsActive(jobId);
             return retrieveActiveTaskIdsForJobStatement.bind(jobId).setFetchSize(Integer.MAX_VALUE);
         }).flatMap(retrieveActiveTaskIdsForJob -> execute(retrieveActiveTaskIdsForJob).flatMap(taskIdsResultSet -> {
-            List<String> taskIds = taskIdsResultSet.all().stream()
-                    .map(row -> row.getString(0))
-                    .flatMap(taskId -> {
-                        if (fitBadDataInjection.isPresent()) {
-                            List<String> effectiveTaskIds = new ArrayList<>();
-                            String effectiveTaskId = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.LostTaskIds.name(), taskId);
-                            if (effectiveTaskId != null) {
-                                effectiveTaskIds.add(effectiveTaskId);
-                            }
-                            String phantomId = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.PhantomTaskIds.name(), taskId);
-                            if (phantomId != null && !phantomId.equals(taskId)) {
-                                effectiveTaskIds.add(phantomId);
-                            }
-                            return effectiveTaskIds.stream();
-                        }
-                        return Stream.of(taskId);
-                    })
-                    .collect(Collectors.toList());
-
-            List<Observable<ResultSet>> observables = taskIds.stream().map(retrieveActiveTaskStatement::bind).map(this::execute).collect(Collectors.toList());
+            List<String> taskIds = toEffectiveTaskIds(taskIdsResultSet.all().stream().map(row -> row.getString(0)));
+            return activeTaskTable.read(taskIds).flatMapIterable(values -> decodeTasks(values, "retrieveTasksForJob"));
+        })).toList().map(CassandraJobStore::toTasksAndErrors);
+    }
 
-            return Observable.merge(observables, getConcurrencyLimit()).flatMapIterable(tasksResultSet -> {
-                List<Either<Task, Throwable>> tasks = new ArrayList<>();
-                for (Row row : tasksResultSet.all()) {
-                    String value = row.getString(0);
+    /**
+     * In the bulk mode, task ids of multiple jobs are read with a single 'IN' query (up to
+     * {@link CassandraStoreConfiguration#getBootstrapBatchSize()} jobs per query). The query result is paged, as a
+     * single batch of jobs may have an arbitrary number of tasks. Otherwise, tasks are loaded job by job.
+     * Tasks are read once during the leader bootstrap, so the warm start cache is released when the read terminates.
+     */
+    @Override
+    public Observable<Pair<List<Task>, Integer>> retrieveTasksForJobs(List<String> jobIds, int maxConcurrent) {
+        if (!configuration.isBulkBootstrapEnabled()) {
+            return JobStore.super.retrieveTasksForJobs(jobIds, maxConcurrent).doAfterTerminate(activeTaskTable.cache::clear);
+        }
+        List<Observable<Pair<List<Task>, Integer>>> batches = newBulkStatements(jobIds, retrieveActiveTaskIdsForJobsBulkStatement).stream()
+                .map(statement -> executePaged(statement.setFetchSize(configuration.getBootstrapFetchSize()))
+                        .flatMapIterable(rows -> rows)
+                        .map(row -> row.getString(0))
+                        .toList()
+                        .flatMap(taskIds -> activeTaskTable.read(toEffectiveTaskIds(taskIds.stream())))
+                        .flatMapIterable(values -> decodeTasks(values, "retrieveTasksForJobs"))
+                        .toList()
+                        .map(CassandraJobStore::toTasksAndErrors)
+                )
+                .collect(Collectors.toList());
+        return Observable.merge(batches, Math.min(maxConcurrent, getRetrieveConcurrencyLimit())).doAfterTerminate(activeTaskTable.cache::clear);
+    }
 
-                    String effectiveValue;
+    private List<String> toEffectiveTaskIds(Stream<String> taskIds) {
+        return taskIds
+                .flatMap(taskId -> {
                     if (fitBadDataInjection.isPresent()) {
-                        effectiveValue = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedRawTaskRecords.name(), value);
-                    } else {
-                        effectiveValue = value;
+                        List<String> effectiveTaskIds = new ArrayList<>();
+                        String effectiveTaskId = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.LostTaskIds.name(), taskId);
+                        if (effectiveTaskId != null) {
+                            effectiveTaskIds.add(effectiveTaskId);
+                        }
+                        String phantomId = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.PhantomTaskIds.name(), taskId);
+                        if (phantomId != null && !phantomId.equals(taskId)) {
+                            effectiveTaskIds.add(phantomId);
+                        }
+                        return effectiveTaskIds.stream();
                     }
+                    return Stream.of(taskId);
+                })
+                .collect(Collectors.toList());
+    }
 
-                    Task task;
-                    try {
-                        task = deserializeTask(effectiveValue);
-
-                        if (!fitBadDataInjection.isPresent()) {
-                            tasks.add(Either.ofValue(task));
-                        } else {
-                            Task effectiveTask = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedTaskRecords.name(), task);
-                            effectiveTask = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.DuplicatedEni.name(), effectiveTask);
-                            effectiveTask = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedTaskPlacementData.name(), effectiveTask);
-                            tasks.add(Either.ofValue(effectiveTask));
-                        }
+    private List<Either<Task, Throwable>> decodeTasks(List<String> values, String operation) {
+        List<Either<Task, Throwable>> tasks = new ArrayList<>();
+        for (String value : values) {
+            String effectiveValue;
+            if (fitBadDataInjection.isPresent()) {
+                effectiveValue = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedRawTaskRecords.name(), value);
+            } else {
+                effectiveValue = value;
+            }
 
-                        transactionLogger().logAfterRead(retrieveActiveTaskStatement, "retrieveTasksForJob", task);
-                    } catch (Exception e) {
-                        logger.error("Cannot map serialized task data to Task class: {}", effectiveValue, e);
-                        tasks.add(Either.ofError(e));
-                    }
+            Task task;
+            try {
+                task = deserializeTask(effectiveValue);
+
+                if (!fitBadDataInjection.isPresent()) {
+                    tasks.add(Either.ofValue(task));
+                } else {
+                    Task effectiveTask = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedTaskRecords.name(), task);
+                    effectiveTask = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.DuplicatedEni.name(), effectiveTask);
+                    effectiveTask = fitBadDataInjection.get().afterImmediate(JobStoreFitAction.ErrorKind.CorruptedTaskPlacementData.name(), effectiveTask);
+                    tasks.add(Either.ofValue(effectiveTask));
                 }
-                return tasks;
-            });
-        })).toList().map(taskErrorPairs -> {
-            List<Task> tasks = taskErrorPairs.stream().filter(Either::hasValue).map(Either::getValue).collect(Collectors.toList());
-            int errors = (int) taskErrorPairs.stream().filter(Either::hasError).count();
-            return Pair.of(tasks, errors);
-        });
+
+                transactionLogger().logAfterRead(retrieveActiveTaskStatement, operation, task);
+            } catch (Exception e) {
+                logger.error("Cannot map serialized task data to Task class: {}", effectiveValue, e);
+                tasks.add(Either.ofError(e));
+            }
+        }
+        return tasks;
+    }
+
+    private static Pair<List<Task>, Integer> toTasksAndErrors(List<Either<Task, Throwable>> taskErrorPairs) {
+        List<Task> tasks = taskErrorPairs.stream().filter(Either::hasValue).map(Either::getValue).collect(Collectors.toList());
+        int errors = (int) taskErrorPairs.stream().filter(Either::hasError).count();
+        return Pair.of(tasks, errors);
     }
 
     @Override
@@ -514,8 +611,8 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
-            Statement taskStatement = insertActiveTaskStatement.bind(taskId, taskJsonString);
+            String taskRecord = codec.encode(task);
+            Statement taskStatement = insertActiveTaskStatement.bind(taskId, taskRecord);
             Statement taskIdStatement = insertActiveTaskIdStatement.bind(jobId, taskId);
 
             BatchStatement batchStatement = new BatchStatement();
@@ -536,11 +633,11 @@ public class CassandraJobStore implements JobStore {
             String jobId = task.getJobId();
             String taskId = task.getId();
             checkIfJobIsActive(jobId);
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
+            String taskRecord = codec.encode(task);
 
             transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "updateTask", task);
 
-            return insertActiveTaskStatement.bind(taskId, taskJsonString);
+            return insertActiveTaskStatement.bind(taskId, taskRecord);
         }).flatMap(statement -> {
                     transactionLogger().logAfterUpdate(insertActiveTaskStatement, "updateTask", task);
                     return execute(statement);
@@ -554,11 +651,11 @@ public class CassandraJobStore implements JobStore {
             String jobId = newTask.getJobId();
             checkIfJobIsActive(jobId);
             String taskId = newTask.getId();
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, newTask);
+            String taskRecord = codec.encode(newTask);
 
             BatchStatement batchStatement = getArchiveTaskBatchStatement(oldTask);
 
-            Statement insertTaskStatement = insertActiveTaskStatement.bind(taskId, taskJsonString);
+            Statement insertTaskStatement = insertActiveTaskStatement.bind(taskId, taskRecord);
             Statement insertTaskIdStatement = insertActiveTaskIdStatement.bind(jobId, taskId);
 
             batchStatement.add(insertTaskStatement);
@@ -584,13 +681,13 @@ public class CassandraJobStore implements JobStore {
             checkIfJobIsActive(jobFrom.getId());
             checkIfJobIsActive(jobTo.getId());
 
-            String taskJsonString = ObjectMappers.writeValueAsString(mapper, taskAfter);
-            transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "moveTask", taskJsonString);
+            String taskRecord = codec.encode(taskAfter);
+            transactionLogger().logBeforeUpdate(insertActiveTaskStatement, "moveTask", taskRecord);
 
             BatchStatement batchStatement = new BatchStatement();
-            batchStatement.add(insertActiveJobStatement.bind(jobFrom.getId(), ObjectMappers.writeValueAsString(mapper, jobFrom)));
-            batchStatement.add(insertActiveJobStatement.bind(jobTo.getId(), ObjectMappers.writeValueAsString(mapper, jobTo)));
-            batchStatement.add(insertActiveTaskStatement.bind(taskAfter.getId(), taskJsonString));
+            batchStatement.add(insertActiveJobStatement.bind(jobFrom.getId(), codec.encode(jobFrom)));
+            batchStatement.add(insertActiveJobStatement.bind(jobTo.getId(), codec.encode(jobTo)));
+            batchStatement.add(insertActiveTaskStatement.bind(taskAfter.getId(), taskRecord));
             batchStatement.add(deleteActiveTaskIdStatement.bind(jobFrom.getId(), taskAfter.getId()));
             batchStatement.add(insertActiveTaskIdStatement.bind(jobTo.getId(), taskAfter.getId()));
 
@@ -723,7 +820,7 @@ public class CassandraJobStore implements JobStore {
                         if (type.isAssignableFrom(Task.class)) {
                             return Observable.just(type.cast(deserializeTask(value)));
                         }
-                        return Observable.just(ObjectMappers.readValue(mapper, value, type));
+                        return Observable.just(codec.decode(value, type));
                     } catch (Exception e) {
                         return Observable.error(e);
                     }
@@ -731,7 +828,7 @@ public class CassandraJobStore implements JobStore {
     }
 
     private Task deserializeTask(String value) {
-        Task task = ObjectMappers.readValue(mapper, value, Task.class);
+        Task task = codec.decode(value, Task.class);
 
         // Task attributes field check
         if (task.getAttributes() == null) {
@@ -748,11 +845,11 @@ public class CassandraJobStore implements JobStore {
     private BatchStatement getArchiveJobBatchStatement(Job job) {
         String jobId = job.getId();
         int bucket = activeJobIdsBucketManager.getItemBucket(jobId);
-        String jobJsonString = writeJobToString(job);
+        String jobRecord = writeJobToString(job);
 
         Statement deleteJobStatement = deleteActiveJobStatement.bind(jobId);
         Statement deleteJobIdStatement = deleteActiveJobIdStatement.bind(bucket, jobId);
-        Statement insertJobStatement = insertArchivedJobStatement.bind(jobId, jobJsonString);
+        Statement insertJobStatement = insertArchivedJobStatement.bind(jobId, jobRecord);
 
         BatchStatement statement = new BatchStatement();
         statement.add(deleteJobStatement);
@@ -765,11 +862,11 @@ public class CassandraJobStore implements JobStore {
     private BatchStatement getArchiveTaskBatchStatement(Task task) {
         String jobId = task.getJobId();
         String taskId = task.getId();
-        String taskJsonString = ObjectMappers.writeValueAsString(mapper, task);
+        String taskRecord = codec.encode(task);
 
         Statement deleteTaskStatement = deleteActiveTaskStatement.bind(taskId);
         Statement deleteTaskIdStatement = deleteActiveTaskIdStatement.bind(jobId, taskId);
-        Statement insertTaskStatement = insertArchivedTaskStatement.bind(taskId, taskJsonString);
+        Statement insertTaskStatement = insertArchivedTaskStatement.bind(taskId, taskRecord);
         Statement insertTaskIdStatement = insertArchivedTaskIdStatement.bind(jobId, taskId);
 
         BatchStatement batchStatement = new BatchStatement();
@@ -792,16 +889,43 @@ public class CassandraJobStore implements JobStore {
         return batchStatement;
     }
 
+    private ListenableFuture<ResultSet> executeAsync(Statement statement) {
+        return fitDriverInjection
+                .map(injection -> injection.aroundListenableFuture(
+                        "executeAsync", () -> session.executeAsync(statement))
+                )
+                .orElseGet(() -> session.executeAsync(statement));
+    }
+
+    /**
+     * Executes a query, and emits its rows page by page. Unlike {@link #execute(Statement)} followed by
+     * {@link ResultSet#all()}, the next pages are fetched asynchronously, so no driver thread is blocked.
+     */
+    private Observable<List<Row>> executePaged(Statement statement) {
+        return FuturePaginatedQuery.<ResultSet, List<Row>>paginatedQuery(
+                () -> executeAsync(statement),
+                ResultSet::fetchMoreResults,
+                (resultSet, total) -> {
+                    int available = resultSet.getAvailableWithoutFetching();
+                    List<Row> rows = new ArrayList<>(available);
+                    for (int i = 0; i < available; i++) {
+                        rows.add(resultSet.one());
+                    }
+                    return Collections.singletonList(rows);
+                },
+                ResultSet::isFullyFetched
+        ).onErrorResumeNext(e -> {
+            logger.error("Cassandra operation error: {}", e.getMessage());
+            return Observable.error(JobStoreException.cassandraDriverError(e));
+        });
+    }
+
     private Observable<ResultSet> execute(Statement statement) {
         return Observable.<ResultSet>create(
                 emitter -> {
                     boolean tracingEnabled = configuration.isTracingEnabled();
                     Statement modifiedStatement = tracingEnabled ? statement.enableTracing() : statement;
-                    ListenableFuture<ResultSet> resultSetFuture = fitDriverInjection
-                            .map(injection -> injection.aroundListenableFuture(
-                                    "executeAsync", () -> session.executeAsync(modifiedStatement))
-                            )
-                            .orElseGet(() -> session.executeAsync(modifiedStatement));
+                    ListenableFuture<ResultSet> resultSetFuture = executeAsync(modifiedStatement);
 
                     Futures.addCallback(resultSetFuture, new FutureCallback<ResultSet>() {
                         @Override
@@ -831,6 +955,114 @@ public class CassandraJobStore implements JobStore {
         return Math.max(2, configuration.getConcurrencyLimit());
     }
 
+    private int getRetrieveConcurrencyLimit() {
+        return configuration.isBulkBootstrapEnabled()
+                ? Math.max(1, configuration.getBootstrapConcurrencyLimit())
+                : getConcurrencyLimit();
+    }
+
+    /**
+     * In the bulk mode ids are grouped into multi-key 'IN' queries of a configurable size, so the number of Cassandra
+     * round trips during bootstrap is reduced by a factor of {@link CassandraStoreConfiguration#getBootstrapBatchSize()}.
+     * Otherwise, one query per id is created.
+     */
+    private List<Statement> newRetrieveStatements(List<String> ids, PreparedStatement singleKeyStatement, PreparedStatement bulkStatement) {
+        if (!configuration.isBulkBootstrapEnabled()) {
+            return ids.stream().map(singleKeyStatement::bind).collect(Collectors.toList());
+        }
+        return newBulkStatements(ids, bulkStatement);
+    }
+
+    private List<Statement> newBulkStatements(List<String> ids, PreparedStatement bulkStatement) {
+        int batchSize = Math.max(1, configuration.getBootstrapBatchSize());
+        List<Statement> statements = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            List<String> batch = new ArrayList<>(ids.subList(i, Math.min(ids.size(), i + batchSize)));
+            // Record queries return at most one row per key, so all rows fit into a single page. Queries returning
+            // more rows per key override the fetch size, and must be executed with executePaged.
+            statements.add(bulkStatement.bind(batch).setFetchSize(batchSize));
+        }
+        return statements;
+    }
+
+    /**
+     * Loads into the warm start cache the job and task records that changed since the last refresh. Executed
+     * periodically on a standby node, until it becomes the leader. Records are staged, and merged into the cache only
+     * if the refresh completes before {@link #init()} is called. {@link #init()} cancels a running refresh, so the
+     * leader bootstrap never waits for it.
+     */
+    @VisibleForTesting
+    void refreshWarmStartCache() {
+        if (warmStartStopped) {
+            return;
+        }
+        long startTime = titusRuntime.getClock().wallTime();
+
+        List<String> jobIds = new ArrayList<>();
+        Set<String> taskIds = ConcurrentHashMap.newKeySet();
+        WarmStartRecordCache.Staging jobStaging = activeJobTable.cache.newStaging();
+        WarmStartRecordCache.Staging taskStaging = activeTaskTable.cache.newStaging();
+        Observable.fromCallable(() -> retrieveActiveJobIdBucketsStatement.bind().setFetchSize(Integer.MAX_VALUE))
+                .flatMap(this::execute)
+                .flatMapIterable(ResultSet::all)
+                .flatMap(bucketRow -> execute(retrieveActiveJobIdsStatement.bind(bucketRow.getInt(0)).setFetchSize(Integer.MAX_VALUE)), getConcurrencyLimit())
+                .flatMapIterable(ResultSet::all)
+                .map(row -> row.getString(0))
+                .toList()
+                .flatMap(allJobIds -> {
+                    jobIds.addAll(allJobIds);
+                    return Completable.merge(activeJobTable.warmUp(allJobIds, jobStaging), warmUpTasks(allJobIds, taskIds, taskStaging)).toObservable();
+                })
+                .toCompletable()
+                .timeout(configuration.getWarmStartRefreshTimeoutMs(), TimeUnit.MILLISECONDS)
+                .ambWith(warmStartCancellation.toCompletable())
+                .await();
+
+        if (!activeJobTable.cache.commit(jobStaging, new HashSet<>(jobIds)) || !activeTaskTable.cache.commit(taskStaging, taskIds)) {
+            logger.info("Warm start cache refresh cancelled, as the node became the leader");
+            return;
+        }
+        logger.info("Warm start cache refreshed in {}ms: jobs={}, tasks={}",
+                titusRuntime.getClock().wallTime() - startTime, activeJobTable.cache.size(), activeTaskTable.cache.size()
+        );
+    }
+
+    /**
+     * Task ids are read for multiple jobs at once, with the same bulk queries as in the bootstrap.
+     */
+    private Completable warmUpTasks(List<String> jobIds, Set<String> taskIds, WarmStartRecordCache.Staging staging) {
+        List<Completable> batches = newBulkStatements(jobIds, retrieveActiveTaskIdsForJobsBulkStatement).stream()
+                .map(statement -> executePaged(statement.setFetchSize(configuration.getBootstrapFetchSize()).setConsistencyLevel(WARM_UP_CONSISTENCY_LEVEL))
+                        .flatMapIterable(rows -> rows)
+                        .map(row -> row.getString(0))
+                        .toList()
+                        .flatMap(batchTaskIds -> {
+                            taskIds.addAll(batchTaskIds);
+                            return activeTaskTable.warmUp(batchTaskIds, staging).toObservable();
+                        })
+                        .toCompletable()
+                )
+                .collect(Collectors.toList());
+        return Completable.merge(Observable.from(batches), getRetrieveConcurrencyLimit());
+    }
+
+    /**
+     * Stops the warm start refresh process. A running refresh is cancelled without waiting for it, and the caches
+     * are closed, so records it has staged so far are discarded, and it cannot update the cache while it is read
+     * by the leader bootstrap.
+     */
+    private void stopWarmStartRefresh() {
+        warmStartStopped = true;
+        activeJobTable.cache.close();
+        activeTaskTable.cache.close();
+        warmStartCancellation.onCompleted();
+        ScheduleReference ref = warmStartScheduleRef;
+        if (ref != null) {
+            warmStartScheduleRef = null;
+            ref.cancel();
+        }
+    }
+
     private void checkIfJobIsActive(String jobId) {
         if (!isJobActive(jobId)) {
             throw Exceptions.propagate(JobStoreException.jobMustBeActive(jobId));
@@ -842,4 +1074,105 @@ public class CassandraJobStore implements JobStore {
             throw Exceptions.propagate(JobStoreException.jobAlreadyExists(jobId));
         }
     }
+
+    /**
+     * Reads active records, either directly from the store, or (if warm start is enabled and the cache is not empty)
+     * by reading their revisions first, and loading from the store only those not found in the warm start cache.
+     */
+    private class ActiveRecordTable {
+
+        private final PreparedStatement singleKeyStatement;
+        private final PreparedStatement bulkStatement;
+        private final PreparedStatement bulkRevisionsStatement;
+        private final PreparedStatement bulkWithRevisionsStatement;
+        private final WarmStartRecordCache cache;
+
+        private ActiveRecordTable(String table,
+                                  PreparedStatement singleKeyStatement,
+                                  PreparedStatement bulkStatement,
+                                  PreparedStatement bulkRevisionsStatement,
+                                  PreparedStatement bulkWithRevisionsStatement) {
+            this.singleKeyStatement = singleKeyStatement;
+            this.bulkStatement = bulkStatement;
+            this.bulkRevisionsStatement = bulkRevisionsStatement;
+            this.bulkWithRevisionsStatement = bulkWithRevisionsStatement;
+            this.cache = new WarmStartRecordCache(METRIC_NAME_ROOT, table, titusRuntime.getRegistry());
+        }
+
+        /**
+         * Emits record values in batches, one per executed query.
+         */
+        private Observable<List<String>> read(List<String> ids) {
+            if (!configuration.isWarmStartEnabled() || cache.isEmpty()) {
+                List<Observable<ResultSet>> queries = newRetrieveStatements(ids, singleKeyStatement, bulkStatement).stream()
+                        .map(CassandraJobStore.this::execute)
+                        .collect(Collectors.toList());
+                return Observable.merge(queries, getRetrieveConcurrencyLimit()).map(resultSet ->
+                        resultSet.all().stream().map(row -> row.getString(0)).collect(Collectors.toList())
+                );
+            }
+            return readRevisions(ids, ConsistencyLevel.LOCAL_QUORUM).flatMap(revisions -> {
+                List<String> values = new ArrayList<>();
+                List<String> staleIds = new ArrayList<>();
+                revisions.forEach((id, revision) -> {
+                    Optional<String> cached = cache.take(id, revision);
+                    if (cached.isPresent()) {
+                        values.add(cached.get());
+                    } else {
+                        staleIds.add(id);
+                    }
+                });
+                return Observable.just(values).concatWith(readWithRevisions(staleIds, null));
+            });
+        }
+
+        private Completable warmUp(List<String> ids, WarmStartRecordCache.Staging staging) {
+            return readRevisions(ids, WARM_UP_CONSISTENCY_LEVEL).flatMap(revisions -> {
+                List<String> staleIds = revisions.entrySet().stream()
+                        .filter(entry -> !cache.contains(entry.getKey(), entry.getValue()))
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
+                return readWithRevisions(staleIds, staging);
+            }).toCompletable();
+        }
+
+        private Observable<Map<String, Long>> readRevisions(List<String> ids, ConsistencyLevel consistencyLevel) {
+            List<Observable<ResultSet>> queries = newBulkStatements(ids, bulkRevisionsStatement).stream()
+                    .map(statement -> execute(statement.setConsistencyLevel(consistencyLevel)))
+                    .collect(Collectors.toList());
+            return Observable.merge(queries, getRetrieveConcurrencyLimit()).toList().map(resultSets -> {
+                Map<String, Long> revisions = new HashMap<>();
+                for (ResultSet resultSet : resultSets) {
+                    for (Row row : resultSet.all()) {
+                        // Records with no value have no revision, so they are always read from the store.
+                        revisions.put(row.getString(0), row.isNull(1) ? -1 : row.getLong(1));
+                    }
+                }
+                return revisions;
+            });
+        }
+
+        /**
+         * Reads records with their revisions. Records read for a warm start refresh are put into the given staging area.
+         */
+        private Observable<List<String>> readWithRevisions(List<String> ids, @Nullable WarmStartRecordCache.Staging staging) {
+            if (ids.isEmpty()) {
+                return Observable.empty();
+            }
+            List<Observable<ResultSet>> queries = newBulkStatements(ids, bulkWithRevisionsStatement).stream()
+                    .map(statement -> execute(staging != null ? statement.setConsistencyLevel(WARM_UP_CONSISTENCY_LEVEL) : statement))
+                    .collect(Collectors.toList());
+            return Observable.merge(queries, getRetrieveConcurrencyLimit()).map(resultSet -> {
+                List<String> values = new ArrayList<>();
+                for (Row row : resultSet.all()) {
+                    String value = row.getString(1);
+                    if (staging != null && !row.isNull(2)) {
+                        staging.put(row.getString(0), row.getLong(2), value);
+                    }
+                    values.add(value);
+                }
+                return values;
+            });
+        }
+    }
 }
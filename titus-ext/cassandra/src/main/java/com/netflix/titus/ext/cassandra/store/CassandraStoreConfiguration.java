@@ -50,6 +50,33 @@ public interface CassandraStoreConfiguration {
     @DefaultValue("10")
     int getConcurrencyLimit();
 
+    /**
+     * If enabled, job and task records are loaded during bootstrap with multi-key 'IN' queries, instead of issuing
+     * one query per record.
+     */
+    @DefaultValue("false")
+    boolean isBulkBootstrapEnabled();
+
+    /**
+     * Maximum number of keys in a single bulk query. Applied only if {@link #isBulkBootstrapEnabled()} is set.
+     */
+    @DefaultValue("100")
+    int getBootstrapBatchSize();
+
+    /**
+     * Maximum number of bulk queries running concurrently per store method invocation. Applied only if
+     * {@link #isBulkBootstrapEnabled()} is set.
+     */
+    @DefaultValue("10")
+    int getBootstrapConcurrencyLimit();
+
+    /**
+     * Page size of bulk queries which may return multiple rows per key (task ids of multiple jobs). Applied only if
+     * {@link #isBulkBootstrapEnabled()} is set.
+     */
+    @DefaultValue("1000")
+    int getBootstrapFetchSize();
+
     /**
      * Concurrency limit for load balancer target write operations (bulk INSERTs), in number of concurrent queries that
      * can be running per method invocation in {@link CassandraLoadBalancerStore#addOrUpdateTargets(Collection)}.
@@ -74,6 +101,39 @@ public interface CassandraStoreConfiguration {
     @DefaultValue("1")
     int getLoadBalancerDeleteConcurrencyLimit();
 
+    /**
+     * If enabled, a standby node keeps in memory the job and task records, together with their revisions (write time).
+     * After the node becomes the leader, only records which changed since the last refresh are loaded from the store,
+     * and the cache is released once the bootstrap has read them.
+     * The warm start reads use bulk queries configured with {@link #getBootstrapBatchSize()} and
+     * {@link #getBootstrapConcurrencyLimit()}.
+     */
+    @DefaultValue("false")
+    boolean isWarmStartEnabled();
+
+    /**
+     * Interval at which a standby node refreshes its warm start cache. Each refresh reads revisions of all active
+     * records, so the interval should be long relative to the refresh time.
+     */
+    @DefaultValue("300000")
+    long getWarmStartRefreshIntervalMs();
+
+    /**
+     * Maximum time of a single warm start cache refresh. A refresh still running when the node becomes the leader
+     * is cancelled, and its results are discarded.
+     */
+    @DefaultValue("120000")
+    long getWarmStartRefreshTimeoutMs();
+
+    /**
+     * Encoding of job and task records written by {@link CassandraJobStore}. One of 'json', 'smile' or 'smileSnappy'.
+     * Records in any of these formats can be read back irrespective of this setting.
+     *
+     * @see StoreRecordCodec
+     */
+    @DefaultValue("json")
+    String getJobRecordFormat();
+
     /**
      * @return whether or not each query should have tracing enabled.
      */
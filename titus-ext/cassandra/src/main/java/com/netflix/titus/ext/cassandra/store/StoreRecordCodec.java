@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.xerial.snappy.Snappy;
+import rx.exceptions.Exceptions;
+
+/**
+ * Encodes store records into the text 'value' column. Binary formats are written with a header
+ * <tt>#&lt;version&gt;&lt;format&gt;:</tt> followed by the Base64 encoded payload. Records with no header are plain JSON,
+ * so rows written before a binary format was enabled (or after it was disabled) remain readable, as
+ * {@link #decode(String, Class)} always accepts all formats irrespective of the one used for writing.
+ * <p>
+ * The binary formats use the same {@link ObjectMapper} configuration (and mix-ins) as JSON, so the persisted model
+ * is identical, only its representation differs.
+ */
+public class StoreRecordCodec {
+
+    private static final char HEADER_MARKER = '#';
+    private static final char HEADER_VERSION = '1';
+    private static final int HEADER_LENGTH = 4;
+
+    public enum Format {
+        Json('J'),
+        Smile('S'),
+        SmileSnappy('Z');
+
+        private final char code;
+
+        Format(char code) {
+            this.code = code;
+        }
+
+        /**
+         * Parses the format name (case insensitive). An unknown name is rejected, so a misconfigured format does not
+         * silently disable the compression.
+         */
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown store record format: " + name);
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final Format format;
+    private final SmileFactory smileFactory;
+
+    /**
+     * Returns a codec for tools which only read records. Records in all formats are decoded, and new records are
+     * written as JSON.
+     */
+    public static StoreRecordCodec newReader(ObjectMapper mapper) {
+        return new StoreRecordCodec(mapper, Format.Json);
+    }
+
+    public StoreRecordCodec(ObjectMapper mapper, Format format) {
+        this.mapper = mapper;
+        this.format = format;
+        this.smileFactory = new SmileFactory(mapper);
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public String encode(Object value) {
+        try {
+            switch (format) {
+                case Smile:
+                    return withHeader(Format.Smile, toSmile(value));
+                case SmileSnappy:
+                    return withHeader(Format.SmileSnappy, Snappy.compress(toSmile(value)));
+                case Json:
+                default:
+                    return mapper.writeValueAsString(value);
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    public <T> T decode(String value, Class<T> type) {
+        try {
+            if (value.length() < HEADER_LENGTH || value.charAt(0) != HEADER_MARKER) {
+                return mapper.readValue(value, type);
+            }
+            if (value.charAt(1) != HEADER_VERSION || value.charAt(3) != ':') {
+                throw new IllegalArgumentException("Unsupported store record header: " + value.substring(0, HEADER_LENGTH));
+            }
+            byte[] payload = Base64.getDecoder().decode(value.substring(HEADER_LENGTH).getBytes(StandardCharsets.US_ASCII));
+            char code = value.charAt(2);
+            if (code == Format.Smile.code) {
+                return fromSmile(payload, type);
+            }
+            if (code == Format.SmileSnappy.code) {
+                return fromSmile(Snappy.uncompress(payload), type);
+            }
+            throw new IllegalArgumentException("Unsupported store record format: " + code);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private byte[] toSmile(Object value) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(512);
+        try (JsonGenerator generator = smileFactory.createGenerator(output)) {
+            mapper.writeValue(generator, value);
+        }
+        return output.toByteArray();
+    }
+
+    private <T> T fromSmile(byte[] payload, Class<T> type) throws IOException {
+        try (JsonParser parser = smileFactory.createParser(payload)) {
+            return mapper.readValue(parser, type);
+        }
+    }
+
+    private static String withHeader(Format format, byte[] payload) {
+        return new StringBuilder(HEADER_LENGTH + (payload.length + 2) / 3 * 4)
+                .append(HEADER_MARKER)
+                .append(HEADER_VERSION)
+                .append(format.code)
+                .append(':')
+                .append(Base64.getEncoder().encodeToString(payload))
+                .toString();
+    }
+}
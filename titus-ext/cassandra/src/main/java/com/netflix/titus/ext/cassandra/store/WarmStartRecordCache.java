@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
+
+/**
+ * Raw store records keyed by id, and tagged with their revision (Cassandra write time of the value column). A standby
+ * node keeps the cache up to date, so after a leader election only records with a changed revision must be loaded
+ * from the store. A cached record is returned only if its revision matches the current one in the store.
+ * <p>
+ * A refresh loads records into a {@link Staging} area first, which is merged into the cache only when the refresh
+ * completes. Once the cache is closed (the node became the leader), no refresh can update it anymore, so records
+ * staged by a cancelled refresh are discarded.
+ */
+class WarmStartRecordCache {
+
+    private final ConcurrentMap<String, Record> records = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    private boolean closed;
+
+    WarmStartRecordCache(String metricRoot, String table, Registry registry) {
+        this.hits = registry.counter(metricRoot + ".warmStart.hits", "table", table);
+        this.misses = registry.counter(metricRoot + ".warmStart.misses", "table", table);
+        PolledMeter.using(registry)
+                .withName(metricRoot + ".warmStart.records")
+                .withTag("table", table)
+                .monitorSize(records);
+    }
+
+    boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    int size() {
+        return records.size();
+    }
+
+    boolean contains(String id, long revision) {
+        Record record = records.get(id);
+        return record != null && record.revision == revision;
+    }
+
+    /**
+     * Returns and removes a record, if its revision matches the one given. A record is read once during the leader
+     * bootstrap, so removing it releases the memory as soon as it is not needed anymore.
+     */
+    Optional<String> take(String id, long revision) {
+        Record record = records.remove(id);
+        if (record != null && record.revision == revision) {
+            hits.increment();
+            return Optional.of(record.value);
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    Staging newStaging() {
+        return new Staging();
+    }
+
+    /**
+     * Merges the staged records into the cache, and removes records with ids not in the live set.
+     *
+     * @return false if the cache is closed, and the staged records were discarded
+     */
+    synchronized boolean commit(Staging staging, Set<String> liveIds) {
+        if (closed) {
+            return false;
+        }
+        records.putAll(staging.records);
+        records.keySet().retainAll(liveIds);
+        return true;
+    }
+
+    /**
+     * Rejects all subsequent commits. Records already in the cache are kept for the leader bootstrap.
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Releases all records once the leader bootstrap does not need them anymore.
+     */
+    void clear() {
+        records.clear();
+    }
+
+    static class Staging {
+
+        private final ConcurrentMap<String, Record> records = new ConcurrentHashMap<>();
+
+        void put(String id, long revision, String value) {
+            records.put(id, new Record(revision, value));
+        }
+    }
+
+    private static class Record {
+
+        private final long revision;
+        private final String value;
+
+        private Record(long revision, String value) {
+            this.revision = revision;
+            this.value = value;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.StoreRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
 import com.netflix.titus.ext.cassandra.tool.Command;
 import com.netflix.titus.ext.cassandra.tool.CommandContext;
@@ -42,6 +43,8 @@ import static com.netflix.titus.ext.cassandra.tool.CassandraSchemas.ACTIVE_TASK_
 
 public class JobReconcilerCommand implements Command {
 
+    private static final StoreRecordCodec CODEC = StoreRecordCodec.newReader(ObjectMappers.storeMapper());
+
     @Override
     public String getDescription() {
         return "Report inconsistencies between V3 job/task tables";
@@ -130,7 +133,7 @@ public class JobReconcilerCommand implements Command {
                         String jobId = (String) pair.getLeft();
                         String value = (String) pair.getRight();
                         try {
-                            return (Job<?>) ObjectMappers.storeMapper().readValue(value, Job.class);
+                            return (Job<?>) CODEC.decode(value, Job.class);
                         } catch (Exception e) {
                             recordViolation("badJobRecord", String.format("Job %s cannot be mapped to Job object: %s", jobId, e.getMessage()), 1);
                             return null;
@@ -169,7 +172,7 @@ public class JobReconcilerCommand implements Command {
                         String taskId = (String) pair.getLeft();
                         String value = (String) pair.getRight();
                         try {
-                            return ObjectMappers.storeMapper().readValue(value, Task.class);
+                            return CODEC.decode(value, Task.class);
                         } catch (Exception e) {
                             recordViolation("badTaskRecord", String.format("Task %s cannot be mapped to Task object: %s", taskId, e.getMessage()), 1);
                             return null;
@@ -32,6 +32,7 @@ import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.ext.cassandra.store.CassandraJobStore;
 import com.netflix.titus.ext.cassandra.store.CassandraStoreConfiguration;
+import com.netflix.titus.ext.cassandra.store.StoreRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.Command;
 import com.netflix.titus.ext.cassandra.tool.CommandContext;
 import org.apache.commons.cli.CommandLine;
@@ -79,6 +80,26 @@ public class TestStoreLoadCommand implements Command {
             return MAX_RETRIEVE_TASK_CONCURRENCY;
         }
 
+        @Override
+        public boolean isBulkBootstrapEnabled() {
+            return false;
+        }
+
+        @Override
+        public int getBootstrapBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public int getBootstrapConcurrencyLimit() {
+            return 10;
+        }
+
+        @Override
+        public int getBootstrapFetchSize() {
+            return 1000;
+        }
+
         @Override
         public int getLoadBalancerWriteConcurrencyLimit() {
             return MAX_RETRIEVE_TASK_CONCURRENCY;
@@ -89,6 +110,26 @@ public class TestStoreLoadCommand implements Command {
             return 1;
         }
 
+        @Override
+        public boolean isWarmStartEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getWarmStartRefreshIntervalMs() {
+            return 300_000;
+        }
+
+        @Override
+        public long getWarmStartRefreshTimeoutMs() {
+            return 120_000;
+        }
+
+        @Override
+        public String getJobRecordFormat() {
+            return StoreRecordCodec.Format.Json.name();
+        }
+
         @Override
         public boolean isTracingEnabled() {
             return false;
@@ -29,14 +29,17 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Preconditions;
+import com.netflix.titus.api.json.ObjectMappers;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.ext.cassandra.store.StoreRecordCodec;
 import com.netflix.titus.ext.cassandra.tool.CassandraSchemas;
 import com.netflix.titus.ext.cassandra.tool.CassandraUtils;
 import rx.Observable;
 
 /**
  * Downloads jobs active data from Cassandra database into set of files. A snapshot can be loaded back into
- * Cassandra using {@link JobSnapshotLoader}.
+ * Cassandra using {@link JobSnapshotLoader}. Records are decoded with {@link StoreRecordCodec}, so the snapshot files
+ * are plain JSON irrespective of the store record format.
  */
 public class JobSnapshotDownloader {
 
@@ -47,6 +50,8 @@ public class JobSnapshotDownloader {
         MAPPER.enable(SerializationFeature.INDENT_OUTPUT);
     }
 
+    private static final StoreRecordCodec CODEC = StoreRecordCodec.newReader(ObjectMappers.storeMapper());
+
     private final Session session;
     private final boolean includeArchived;
     private final File outputFolder;
@@ -80,8 +85,8 @@ public class JobSnapshotDownloader {
         List<JsonNode> allItems = CassandraUtils.readTwoColumnTable(session, table)
                 .flatMap(p -> {
                     try {
-                        return Observable.just(MAPPER.readTree((String) p.getRight()));
-                    } catch (IOException e) {
+                        return Observable.just(CODEC.decode((String) p.getRight(), JsonNode.class));
+                    } catch (RuntimeException e) {
                         return Observable.error(e);
                     }
                 })
@@ -35,6 +35,7 @@ import rx.Observable;
 
 /**
  * Loads jobs active data from files into Cassandra database. A snapshot can be created using {@link JobSnapshotDownloader}.
+ * Records are written as plain JSON, which the job store reads irrespective of its configured record format.
  */
 public class JobSnapshotLoader {
 
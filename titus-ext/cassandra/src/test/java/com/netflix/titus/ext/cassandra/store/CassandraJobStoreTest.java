@@ -19,6 +19,7 @@ package com.netflix.titus.ext.cassandra.store;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
@@ -100,6 +101,101 @@ public class CassandraJobStoreTest {
         }
     }
 
+    @Test
+    public void testRetrieveJobsAndTasksInBulkMode() {
+        Session session = cassandraCqlUnit.getSession();
+        JobStore bootstrappingStore = getJobStore(session);
+        bootstrappingStore.init().await();
+
+        List<Job<BatchJobExt>> jobs = new ArrayList<>();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Job<BatchJobExt> job = createBatchJobObject();
+            bootstrappingStore.storeJob(job).await();
+            jobs.add(job);
+        }
+        Job<BatchJobExt> firstJob = jobs.get(0);
+        for (int i = 0; i < 5; i++) {
+            Task task = createTaskObject(firstJob);
+            bootstrappingStore.storeTask(task).await();
+            tasks.add(task);
+        }
+        List<Task> allTasks = new ArrayList<>(tasks);
+        for (int i = 1; i < jobs.size(); i++) {
+            Task task = createTaskObject(jobs.get(i));
+            bootstrappingStore.storeTask(task).await();
+            allTasks.add(task);
+        }
+
+        JobStore store = new CassandraJobStore(new TestCassandraStoreConfiguration() {
+            @Override
+            public boolean isBulkBootstrapEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getBootstrapBatchSize() {
+                return 2;
+            }
+        }, session, TitusRuntimes.internal(), ObjectMappers.storeMapper(), INITIAL_BUCKET_COUNT, MAX_BUCKET_SIZE);
+        store.init().await();
+
+        Pair<List<Job<?>>, Integer> jobsAndErrors = store.retrieveJobs().toBlocking().first();
+        assertThat(jobsAndErrors.getLeft()).containsExactlyInAnyOrderElementsOf(jobs);
+        assertThat(jobsAndErrors.getRight()).isEqualTo(0);
+
+        Pair<List<Task>, Integer> tasksAndErrors = store.retrieveTasksForJob(firstJob.getId()).toBlocking().first();
+        assertThat(tasksAndErrors.getLeft()).containsExactlyInAnyOrderElementsOf(tasks);
+        assertThat(tasksAndErrors.getRight()).isEqualTo(0);
+
+        List<String> jobIds = jobs.stream().map(Job::getId).collect(Collectors.toList());
+        List<Pair<List<Task>, Integer>> batches = store.retrieveTasksForJobs(jobIds, 10).toList().toBlocking().first();
+        assertThat(batches).hasSize(3);
+        assertThat(batches.stream().flatMap(batch -> batch.getLeft().stream())).containsExactlyInAnyOrderElementsOf(allTasks);
+        assertThat(batches.stream().mapToInt(Pair::getRight).sum()).isEqualTo(0);
+    }
+
+    @Test
+    public void testWarmStartLoadsOnlyChangedRecordsFromStore() {
+        Session session = cassandraCqlUnit.getSession();
+        JobStore leaderStore = getJobStore(session);
+        leaderStore.init().await();
+
+        Job<BatchJobExt> job = createBatchJobObject();
+        leaderStore.storeJob(job).await();
+        Task unchangedTask = createTaskObject(job);
+        Task changedTask = createTaskObject(job);
+        leaderStore.storeTask(unchangedTask).await();
+        leaderStore.storeTask(changedTask).await();
+
+        CassandraJobStore standbyStore = new CassandraJobStore(new TestCassandraStoreConfiguration() {
+            @Override
+            public boolean isWarmStartEnabled() {
+                return true;
+            }
+
+            @Override
+            public long getWarmStartRefreshIntervalMs() {
+                return 3_600_000;
+            }
+        }, session, TitusRuntimes.internal(), ObjectMappers.storeMapper(), INITIAL_BUCKET_COUNT, MAX_BUCKET_SIZE);
+        standbyStore.refreshWarmStartCache();
+
+        // Changes made by the leader after the last warm start cache refresh.
+        Task updatedTask = JobFunctions.changeTaskStatus(changedTask, TaskStatus.newBuilder().withState(TaskState.Launched).build());
+        leaderStore.updateTask(updatedTask).await();
+        Task newTask = createTaskObject(job);
+        leaderStore.storeTask(newTask).await();
+
+        standbyStore.init().await();
+        Pair<List<Job<?>>, Integer> jobsAndErrors = standbyStore.retrieveJobs().toBlocking().first();
+        assertThat(jobsAndErrors.getLeft()).containsExactly(job);
+
+        Pair<List<Task>, Integer> tasksAndErrors = standbyStore.retrieveTasksForJob(job.getId()).toBlocking().first();
+        assertThat(tasksAndErrors.getLeft()).containsExactlyInAnyOrder(unchangedTask, updatedTask, newTask);
+        assertThat(tasksAndErrors.getRight()).isEqualTo(0);
+    }
+
     @Test
     public void testRetrieveBatchJob() {
         doRetrieveJob(createBatchJobObject());
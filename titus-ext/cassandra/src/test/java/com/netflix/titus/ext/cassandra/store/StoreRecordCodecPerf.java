@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.ext.cassandra.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+
+/**
+ * Compares encode/decode throughput and record size of the {@link StoreRecordCodec} formats. Run with the number
+ * of tasks as an argument (defaults to 10000).
+ */
+public class StoreRecordCodecPerf {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    private final List<Task> tasks;
+
+    private StoreRecordCodecPerf(int taskCount) {
+        Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(taskCount)).getValue();
+        this.tasks = new ArrayList<>(JobGenerator.batchTasks(job).getValues(taskCount));
+    }
+
+    private void run(StoreRecordCodec.Format format) {
+        StoreRecordCodec codec = new StoreRecordCodec(ObjectMappers.storeMapper(), format);
+
+        List<String> records = new ArrayList<>(tasks.size());
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            records = encodeAll(codec);
+            decodeAll(codec, records);
+        }
+
+        long encodeNs = 0;
+        long decodeNs = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long startTime = System.nanoTime();
+            records = encodeAll(codec);
+            encodeNs += System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            decodeAll(codec, records);
+            decodeNs += System.nanoTime() - startTime;
+        }
+
+        long totalChars = records.stream().mapToLong(String::length).sum();
+        long operations = (long) MEASURED_ITERATIONS * tasks.size();
+        System.out.println(String.format("%-12s bytesPerTask=%6d, encode=%10.0fops/s, decode=%10.0fops/s",
+                format, totalChars / tasks.size(), operations * 1_000_000_000.0 / encodeNs, operations * 1_000_000_000.0 / decodeNs
+        ));
+    }
+
+    private List<String> encodeAll(StoreRecordCodec codec) {
+        List<String> records = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            records.add(codec.encode(task));
+        }
+        return records;
+    }
+
+    private void decodeAll(StoreRecordCodec codec, List<String> records) {
+        for (String record : records) {
+            codec.decode(record, Task.class);
+        }
+    }
+
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        StoreRecordCodecPerf perf = new StoreRecordCodecPerf(taskCount);
+        for (StoreRecordCodec.Format format : StoreRecordCodec.Format.values()) {
+            perf.run(format);
+        }
+    }
+}
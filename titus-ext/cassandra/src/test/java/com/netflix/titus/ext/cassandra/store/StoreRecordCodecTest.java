@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.titus.ext.cassandra.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.json.ObjectMappers;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StoreRecordCodecTest {
+
+    private static final StoreRecordCodec JSON = new StoreRecordCodec(ObjectMappers.storeMapper(), StoreRecordCodec.Format.Json);
+    private static final StoreRecordCodec SMILE = new StoreRecordCodec(ObjectMappers.storeMapper(), StoreRecordCodec.Format.Smile);
+    private static final StoreRecordCodec SMILE_SNAPPY = new StoreRecordCodec(ObjectMappers.storeMapper(), StoreRecordCodec.Format.SmileSnappy);
+
+    private final Job<BatchJobExt> job = JobGenerator.batchJobs(JobDescriptorGenerator.oneTaskBatchJobDescriptor()).getValue();
+    private final Task task = JobGenerator.batchTasks(job).getValue();
+
+    @Test
+    public void testJsonIsWrittenWithNoHeader() {
+        String encoded = JSON.encode(job);
+        assertThat(encoded).startsWith("{");
+        assertThat(encoded).isEqualTo(ObjectMappers.writeValueAsString(ObjectMappers.storeMapper(), job));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        for (StoreRecordCodec codec : new StoreRecordCodec[]{JSON, SMILE, SMILE_SNAPPY}) {
+            assertThat(codec.decode(codec.encode(job), Job.class)).isEqualTo(job);
+            assertThat(codec.decode(codec.encode(task), Task.class)).isEqualTo(task);
+        }
+    }
+
+    @Test
+    public void testAllFormatsAreReadableByAnyCodec() {
+        String jsonRecord = JSON.encode(task);
+        String smileRecord = SMILE.encode(task);
+        String snappyRecord = SMILE_SNAPPY.encode(task);
+
+        for (StoreRecordCodec codec : new StoreRecordCodec[]{JSON, SMILE, SMILE_SNAPPY}) {
+            assertThat(codec.decode(jsonRecord, Task.class)).isEqualTo(task);
+            assertThat(codec.decode(smileRecord, Task.class)).isEqualTo(task);
+            assertThat(codec.decode(snappyRecord, Task.class)).isEqualTo(task);
+        }
+    }
+
+    @Test
+    public void testFormatNameIsCaseInsensitive() {
+        assertThat(StoreRecordCodec.Format.parse("smileSnappy")).isEqualTo(StoreRecordCodec.Format.SmileSnappy);
+        assertThat(StoreRecordCodec.Format.parse("json")).isEqualTo(StoreRecordCodec.Format.Json);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormatNameIsRejected() {
+        StoreRecordCodec.Format.parse("smileSnapy");
+    }
+
+    @Test
+    public void testReaderDecodesRecordsAsJsonTree() {
+        StoreRecordCodec reader = StoreRecordCodec.newReader(ObjectMappers.storeMapper());
+        JsonNode expected = ObjectMappers.storeMapper().valueToTree(task);
+        assertThat(reader.decode(SMILE_SNAPPY.encode(task), JsonNode.class)).isEqualTo(expected);
+        assertThat(reader.decode(JSON.encode(task), JsonNode.class)).isEqualTo(expected);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedHeaderVersion() {
+        SMILE.decode("#9S:AAAA", Task.class);
+    }
+}
@@ -47,6 +47,26 @@ public class TestCassandraStoreConfiguration implements CassandraStoreConfigurat
         return 10;
     }
 
+    @Override
+    public boolean isBulkBootstrapEnabled() {
+        return false;
+    }
+
+    @Override
+    public int getBootstrapBatchSize() {
+        return 100;
+    }
+
+    @Override
+    public int getBootstrapConcurrencyLimit() {
+        return 10;
+    }
+
+    @Override
+    public int getBootstrapFetchSize() {
+        return 1000;
+    }
+
     @Override
     public int getLoadBalancerWriteConcurrencyLimit() {
         return 100;
@@ -57,6 +77,26 @@ public class TestCassandraStoreConfiguration implements CassandraStoreConfigurat
         return 10;
     }
 
+    @Override
+    public boolean isWarmStartEnabled() {
+        return false;
+    }
+
+    @Override
+    public long getWarmStartRefreshIntervalMs() {
+        return 300_000;
+    }
+
+    @Override
+    public long getWarmStartRefreshTimeoutMs() {
+        return 120_000;
+    }
+
+    @Override
+    public String getJobRecordFormat() {
+        return "json";
+    }
+
     @Override
     public boolean isTracingEnabled() {
         return false;
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.jooq.jobactivity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobactivity.store.JobActivityPublisherRecord;
+import com.netflix.titus.api.jobactivity.store.JobActivityStoreException;
+import com.netflix.titus.common.util.spectator.DatabaseMetrics;
+import com.netflix.titus.ext.jooq.activity.Activity;
+import com.netflix.titus.ext.jooq.activity.tables.records.ActivityQueueRecord;
+import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Coalesces concurrent queue writes into multi-row inserts. A record is added to the pending batch when its
+ * {@link Mono} is subscribed to, and it is removed from it, if the subscription is cancelled before the batch is
+ * written. A batch is written when it reaches the maximum size, or when the batching window expires, whichever comes
+ * first. All batches are written by a single thread, which assigns the queue indexes in the submission order, so
+ * batches are committed in the queue index order, and cancelled records do not leave gaps in it. Each caller's
+ * {@link Mono} completes when the batch holding its record is committed.
+ */
+class GroupCommitQueueWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitQueueWriter.class);
+
+    private final DSLContext dslContext;
+    private final AtomicLong queueIndex;
+    private final int maxBatchSize;
+    private final Duration batchWindow;
+    private final DatabaseMetrics databaseMetrics;
+    private final DistributionSummary batchSizeSummary;
+    private final Scheduler scheduler;
+
+    private final Object lock = new Object();
+    private List<PendingRecord> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    GroupCommitQueueWriter(DSLContext dslContext,
+                           AtomicLong queueIndex,
+                           int maxBatchSize,
+                           Duration batchWindow,
+                           DatabaseMetrics databaseMetrics,
+                           Registry registry) {
+        this.dslContext = dslContext;
+        this.queueIndex = queueIndex;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindow = batchWindow;
+        this.databaseMetrics = databaseMetrics;
+        this.batchSizeSummary = registry.distributionSummary("titus.jobActivityPublisher.groupCommit.batchSize");
+        this.scheduler = Schedulers.newSingle("jobActivityPublisherGroupCommit");
+    }
+
+    void shutdown() {
+        scheduler.dispose();
+    }
+
+    Mono<Void> write(JobActivityPublisherRecord.RecordType recordType, String recordId, byte[] serializedRecord) {
+        return Mono.create(sink -> {
+            PendingRecord record = new PendingRecord(recordType, recordId, serializedRecord, sink);
+            boolean flushNow = false;
+            synchronized (lock) {
+                pending.add(record);
+                if (pending.size() >= maxBatchSize) {
+                    flushNow = true;
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    scheduler.schedule(this::flush, batchWindow.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            }
+            sink.onCancel(() -> cancel(record));
+            if (flushNow) {
+                scheduler.schedule(this::flush);
+            }
+        });
+    }
+
+    private void cancel(PendingRecord record) {
+        synchronized (lock) {
+            // A record that is already taken into a batch is written anyway.
+            pending.remove(record);
+        }
+    }
+
+    private void flush() {
+        List<PendingRecord> batch;
+        synchronized (lock) {
+            if (pending.size() <= maxBatchSize) {
+                batch = pending;
+                pending = new ArrayList<>();
+                flushScheduled = false;
+            } else {
+                List<PendingRecord> head = pending.subList(0, maxBatchSize);
+                batch = new ArrayList<>(head);
+                head.clear();
+                // Write the remaining records in the next batch, without waiting for the batching window.
+                scheduler.schedule(this::flush);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (PendingRecord record : batch) {
+            record.queueIndex = queueIndex.getAndIncrement();
+        }
+
+        long startTimeMs = System.currentTimeMillis();
+        try {
+            InsertValuesStep3<ActivityQueueRecord, Long, Short, byte[]> insert = dslContext.insertInto(
+                    Activity.ACTIVITY.ACTIVITY_QUEUE,
+                    Activity.ACTIVITY.ACTIVITY_QUEUE.QUEUE_INDEX,
+                    Activity.ACTIVITY.ACTIVITY_QUEUE.EVENT_TYPE,
+                    Activity.ACTIVITY.ACTIVITY_QUEUE.SERIALIZED_EVENT
+            );
+            for (PendingRecord record : batch) {
+                insert = insert.values(record.queueIndex, (short) record.recordType.ordinal(), record.serializedRecord);
+            }
+            insert.execute();
+        } catch (Exception e) {
+            logger.warn("Failed to write a batch of {} job activity records", batch.size(), e);
+            batch.forEach(record -> record.sink.error(JobActivityStoreException.jobActivityUpdateRecordException(record.recordId, e)));
+            return;
+        }
+        databaseMetrics.registerInsertLatency(startTimeMs, batch.size(), Activity.ACTIVITY.ACTIVITY_QUEUE.getName(), Collections.emptyList());
+        batchSizeSummary.record(batch.size());
+        batch.forEach(record -> record.sink.success());
+    }
+
+    private static class PendingRecord {
+
+        private final JobActivityPublisherRecord.RecordType recordType;
+        private final String recordId;
+        private final byte[] serializedRecord;
+        private final MonoSink<Void> sink;
+
+        /**
+         * Assigned by the writer thread, when the record is taken into a batch.
+         */
+        private long queueIndex;
+
+        private PendingRecord(JobActivityPublisherRecord.RecordType recordType,
+                              String recordId,
+                              byte[] serializedRecord,
+                              MonoSink<Void> sink) {
+            this.recordType = recordType;
+            this.recordId = recordId;
+            this.serializedRecord = serializedRecord;
+            this.sink = sink;
+        }
+    }
+}
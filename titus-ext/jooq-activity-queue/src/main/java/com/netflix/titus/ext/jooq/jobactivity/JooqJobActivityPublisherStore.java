@@ -16,16 +16,17 @@
 
 package com.netflix.titus.ext.jooq.jobactivity;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.netflix.titus.api.jobactivity.store.JobActivityPublisherRecord;
 import com.netflix.titus.api.jobactivity.store.JobActivityPublisherStore;
-import com.netflix.titus.api.jobactivity.store.JobActivityStoreException;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.LogStorageInfo;
 import com.netflix.titus.api.jobmanager.model.job.Task;
@@ -56,6 +57,16 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
 
     private static final String JOOQ_METRICS_DATABASE_NAME = "JobActivityPublisher";
 
+    /**
+     * Maximum number of records written in a single multi-row insert.
+     */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Maximum time a record waits for other records to be written together.
+     */
+    private static final Duration BATCH_WINDOW = Duration.ofMillis(5);
+
     private final JooqContext jooqContext;
     private final LogStorageInfo<Task> logStorageInfo;
     private final DSLContext dslContext;
@@ -74,11 +85,23 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
      */
     private AtomicLong queueIndex;
 
+    private final GroupCommitQueueWriter groupCommitWriter;
+
     @Inject
     public JooqJobActivityPublisherStore(JooqConfiguration configuration,
                                          JooqContext jooqContext,
                                          TitusRuntime runtime,
                                          LogStorageInfo<Task> logStorageInfo) {
+        this(configuration, jooqContext, runtime, logStorageInfo, MAX_BATCH_SIZE, BATCH_WINDOW);
+    }
+
+    @VisibleForTesting
+    public JooqJobActivityPublisherStore(JooqConfiguration configuration,
+                                         JooqContext jooqContext,
+                                         TitusRuntime runtime,
+                                         LogStorageInfo<Task> logStorageInfo,
+                                         int maxBatchSize,
+                                         Duration batchWindow) {
         this.jooqContext = jooqContext;
         this.logStorageInfo = logStorageInfo;
         this.dslContext = jooqContext.getDslContext();
@@ -88,6 +111,13 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
 
         queueIndex = new AtomicLong(getInitialQueueIndex());
         logger.info("Loaded initial job activity publisher queue index {}", queueIndex);
+
+        this.groupCommitWriter = new GroupCommitQueueWriter(dslContext, queueIndex, maxBatchSize, batchWindow, databaseMetrics, runtime.getRegistry());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        groupCommitWriter.shutdown();
     }
 
     private void createSchemaIfNotExist(boolean createIfNotExists) {
@@ -141,24 +171,7 @@ public class JooqJobActivityPublisherStore implements JobActivityPublisherStore
     }
 
     private Mono<Void> publishByteString(JobActivityPublisherRecord.RecordType recordType, String recordId, byte[] serializedRecord) {
-        long assignedQueueIndex = queueIndex.getAndIncrement();
-
-        return JooqUtils.executeAsyncMono(() -> {
-            long startTimeMs = System.currentTimeMillis();
-            int numInserts = dslContext
-                    .insertInto(Activity.ACTIVITY.ACTIVITY_QUEUE,
-                            Activity.ACTIVITY.ACTIVITY_QUEUE.QUEUE_INDEX,
-                            Activity.ACTIVITY.ACTIVITY_QUEUE.EVENT_TYPE,
-                            Activity.ACTIVITY.ACTIVITY_QUEUE.SERIALIZED_EVENT)
-                    .values(assignedQueueIndex,
-                            (short) recordType.ordinal(),
-                            serializedRecord)
-                    .execute();
-            databaseMetrics.registerInsertLatency(startTimeMs, 1, Activity.ACTIVITY.ACTIVITY_QUEUE.getName(), Collections.emptyList());
-            return numInserts;
-        }, dslContext)
-                .onErrorMap(e -> JobActivityStoreException.jobActivityUpdateRecordException(recordId, e))
-                .then();
+        return groupCommitWriter.write(recordType, recordId, serializedRecord);
     }
 
     @VisibleForTesting
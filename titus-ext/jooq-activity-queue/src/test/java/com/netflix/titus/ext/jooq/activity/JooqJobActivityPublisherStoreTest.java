@@ -16,6 +16,8 @@
 
 package com.netflix.titus.ext.jooq.activity;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Stopwatch;
@@ -146,6 +148,22 @@ public class JooqJobActivityPublisherStoreTest {
         assertThat(publisher.getQueueIndex()).isEqualTo(numRecords);
     }
 
+    @Test
+    public void testConcurrentPublishesAreGroupCommitted() {
+        int numRecords = 100;
+        publisher = new JooqJobActivityPublisherStore(configuration, jooqContext, TitusRuntimes.internal(), EmptyLogStorageInfo.empty(),
+                10, Duration.ofMillis(50));
+
+        StepVerifier.create(publishJobs(numRecords)).verifyComplete();
+
+        List<Long> queueIndexes = publisher.getRecords().map(JobActivityPublisherRecord::getQueueIndex).collectList().block();
+        assertThat(queueIndexes).hasSize(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            assertThat(queueIndexes.get(i)).isEqualTo(i);
+        }
+        assertThat(publisher.getQueueIndex()).isEqualTo(numRecords);
+    }
+
     private void createJooqPublisherStore() {
         publisher = new JooqJobActivityPublisherStore(configuration, jooqContext, TitusRuntimes.internal(), EmptyLogStorageInfo.empty());
     }
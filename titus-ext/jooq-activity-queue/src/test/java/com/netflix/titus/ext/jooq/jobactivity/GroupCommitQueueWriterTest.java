@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.ext.jooq.jobactivity;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.titus.api.jobactivity.store.JobActivityPublisherRecord;
+import com.netflix.titus.common.util.spectator.DatabaseMetrics;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockExecuteContext;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroupCommitQueueWriterTest {
+
+    private static final int MAX_BATCH_SIZE = 5;
+    private static final Duration BATCH_WINDOW = Duration.ofMillis(10);
+    private static final long TIMEOUT_MS = 30_000;
+
+    private final DefaultRegistry registry = new DefaultRegistry();
+
+    /**
+     * Queue indexes of the records of each executed batch insert.
+     */
+    private final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    private final CountDownLatch firstBatchReleased = new CountDownLatch(1);
+
+    private GroupCommitQueueWriter writer;
+
+    @Before
+    public void setUp() {
+        MockConnection connection = new MockConnection(this::execute);
+        writer = new GroupCommitQueueWriter(
+                DSL.using(connection, SQLDialect.POSTGRES),
+                new AtomicLong(),
+                MAX_BATCH_SIZE,
+                BATCH_WINDOW,
+                new DatabaseMetrics(registry, "titus", "test"),
+                registry
+        );
+    }
+
+    @After
+    public void tearDown() {
+        firstBatchReleased.countDown();
+        writer.shutdown();
+    }
+
+    @Test(timeout = TIMEOUT_MS)
+    public void testWritesIssuedTogetherAreCoalesced() throws Exception {
+        CompletableFuture<Void> first = write("first").toFuture();
+        firstBatchStarted.await();
+
+        // The writer thread is blocked, so all writes below are pending at the same time.
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            writes.add(write("record" + i).toFuture());
+        }
+        firstBatchReleased.countDown();
+
+        first.get();
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get();
+
+        assertThat(batches).containsExactly(
+                asList(0L),
+                asList(1L, 2L, 3L, 4L, 5L),
+                asList(6L, 7L, 8L, 9L, 10L),
+                asList(11L, 12L)
+        );
+        assertThat(registry.distributionSummary("titus.jobActivityPublisher.groupCommit.batchSize").count()).isEqualTo(4);
+    }
+
+    @Test(timeout = TIMEOUT_MS)
+    public void testCancelledWriteIsNotWritten() throws Exception {
+        CompletableFuture<Void> first = write("first").toFuture();
+        firstBatchStarted.await();
+
+        CompletableFuture<Void> before = write("before").toFuture();
+        Disposable cancelled = write("cancelled").subscribe();
+        CompletableFuture<Void> after = write("after").toFuture();
+        cancelled.dispose();
+        firstBatchReleased.countDown();
+
+        CompletableFuture.allOf(first, before, after).get();
+
+        // The cancelled record does not leave a gap in the queue indexes.
+        assertThat(batches).containsExactly(asList(0L), asList(1L, 2L));
+    }
+
+    private Mono<Void> write(String recordId) {
+        return writer.write(JobActivityPublisherRecord.RecordType.JOB, recordId, new byte[0]);
+    }
+
+    /**
+     * A blocking database sink, which records the batches, and holds the writer thread on the first one, until
+     * the test releases it.
+     */
+    private MockResult[] execute(MockExecuteContext context) throws SQLException {
+        List<Long> queueIndexes = new ArrayList<>();
+        Object[] bindings = context.bindings();
+        // Each row binds the queue index, the event type, and the serialized record.
+        for (int i = 0; i < bindings.length; i += 3) {
+            queueIndexes.add((Long) bindings[i]);
+        }
+        batches.add(queueIndexes);
+        if (batches.size() == 1) {
+            firstBatchStarted.countDown();
+            try {
+                firstBatchReleased.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+        }
+        return new MockResult[]{new MockResult(queueIndexes.size(), null)};
+    }
+}
@@ -17,14 +17,21 @@
 package com.netflix.titus.ext.jobactivityhistory;
 
 import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Gauge;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.Timer;
 import com.netflix.titus.api.jobactivity.store.JobActivityPublisherRecord;
 import com.netflix.titus.api.jobactivity.store.JobActivityStoreException;
 import com.netflix.titus.api.jobmanager.model.job.Job;
@@ -33,12 +40,15 @@ import com.netflix.titus.common.framework.scheduler.ScheduleReference;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.spectator.DatabaseMetrics;
 import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.ext.jooq.JooqContext;
 import com.netflix.titus.ext.jooq.JooqUtils;
 import com.netflix.titus.runtime.jobactivity.JobActivityPublisherRecordUtils;
 import com.netflix.titus.supplementary.jobactivity.store.JobActivityStore;
 import org.flywaydb.core.Flyway;
 import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -50,6 +60,14 @@ import static com.netflix.titus.ext.jobactivity.jobactivity.Jobactivity.JOBACTIV
 public class JooqJobActivityStore implements JobActivityStore {
 
     private static final Logger logger = LoggerFactory.getLogger(JobActivityStore.class);
+
+    private static final String METRIC_ROOT = "titus.jobActivityHistory.consumer.";
+
+    /**
+     * Maximum number of queue records processed in a single read/write/delete cycle.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
     private final JooqContext jobActivityJooqContext;
     private final JooqContext producerJooqContext;
     private final TitusRuntime titusRuntime;
@@ -60,19 +78,26 @@ public class JooqJobActivityStore implements JobActivityStore {
     private final DSLContext producerDSLContext;
     private final DatabaseMetrics producerDatabaseMetrics;
     private final DatabaseMetrics jobActivityDatabaseMetrics;
+    private final int batchSize;
+
+    private final Gauge queueDepth;
+    private final Counter drainedRecords;
+    private final Counter corruptedRecords;
+    private final Timer recordLag;
 
     @Inject
     public JooqJobActivityStore(TitusRuntime titusRuntime,
                                 JooqContext jobActivityJooqContext,
                                 JooqContext producerJooqContext) {
-        this(titusRuntime, jobActivityJooqContext, producerJooqContext, true);
+        this(titusRuntime, jobActivityJooqContext, producerJooqContext, true, DEFAULT_BATCH_SIZE);
     }
 
     @VisibleForTesting
     public JooqJobActivityStore(TitusRuntime titusRuntime,
                                 JooqContext jobActivityJooqContext,
                                 JooqContext producerJooqContext,
-                                boolean createIfNotExists) {
+                                boolean createIfNotExists,
+                                int batchSize) {
         this.jobActivityJooqContext = jobActivityJooqContext;
         this.producerJooqContext = producerJooqContext;
         this.titusRuntime = titusRuntime;
@@ -81,6 +106,13 @@ public class JooqJobActivityStore implements JobActivityStore {
         this.producerDSLContext = producerJooqContext.getDslContext();
         this.producerDatabaseMetrics = new DatabaseMetrics(titusRuntime.getRegistry(), "titus", "JobActivityPublisher");
         this.jobActivityDatabaseMetrics = new DatabaseMetrics(titusRuntime.getRegistry(), "titus", "JobActivityHistory");
+        this.batchSize = batchSize;
+
+        Registry registry = titusRuntime.getRegistry();
+        this.queueDepth = registry.gauge(METRIC_ROOT + "queueDepth");
+        this.drainedRecords = registry.counter(METRIC_ROOT + "drainedRecords");
+        this.corruptedRecords = registry.counter(METRIC_ROOT + "corruptedRecords");
+        this.recordLag = registry.timer(METRIC_ROOT + "recordLag");
 
         initializeSchema(createIfNotExists);
     }
@@ -97,64 +129,119 @@ public class JooqJobActivityStore implements JobActivityStore {
         }
     }
 
+    /**
+     * Drains the publisher queue in batches, until it is empty. Each batch is read with a single query, written
+     * to the history tables in one transaction, and removed from the queue with a single delete. Records are written
+     * with upsert semantics, so a batch that is written but not deleted (for example due to a crash) can be safely
+     * processed again.
+     */
     @Override
     public Mono<Void> processRecords() {
-        return readRecordFromPublisherQueue()
-                .flatMap(this::writeRecord)
-                .flatMap(this::deleteRecordFromPublisher);
+        return drainBatch()
+                .expand(drained -> drained >= batchSize ? drainBatch() : Mono.empty())
+                .then(updateQueueDepth());
     }
 
-    public Mono<JobActivityPublisherRecord> readRecordFromPublisherQueue() {
-        return JooqUtils.executeAsyncMono(() -> {
-            long startTimeMs = System.currentTimeMillis();
-            List<JobActivityPublisherRecord> records = producerDSLContext
-                    .selectFrom(ACTIVITY_QUEUE)
-                    .orderBy(ACTIVITY_QUEUE.QUEUE_INDEX.asc())
-                    .limit(1)
-                    .fetchInto(JobActivityPublisherRecord.class);
-            if (records.size() != 0) {
-                System.out.println(records.get(0).getRecordType());
-                return records.get(0);
-            } else {
-                System.out.println("no records");
-                return null;
-            }
-        }, producerDSLContext).onErrorMap(e -> JobActivityStoreException.jobActivityUpdateRecordException("Read failed", e));
+    private Mono<Integer> drainBatch() {
+        return readRecordsFromPublisherQueue(batchSize)
+                .flatMap(records -> {
+                    if (records.isEmpty()) {
+                        return Mono.just(0);
+                    }
+                    return writeRecords(records)
+                            .then(deleteRecordsFromPublisher(records))
+                            .thenReturn(records.size());
+                });
     }
 
+    public Mono<List<JobActivityPublisherRecord>> readRecordsFromPublisherQueue(int limit) {
+        return JooqUtils.executeAsyncMono(() -> producerDSLContext
+                .selectFrom(ACTIVITY_QUEUE)
+                .orderBy(ACTIVITY_QUEUE.QUEUE_INDEX.asc())
+                .limit(limit)
+                .fetchInto(JobActivityPublisherRecord.class), producerDSLContext
+        ).onErrorMap(e -> JobActivityStoreException.jobActivityUpdateRecordException("Read failed", e));
+    }
 
-    public Mono<JobActivityPublisherRecord> writeRecord(JobActivityPublisherRecord jobActivityPublisherRecord) {
-        if (jobActivityPublisherRecord.getRecordType() == JobActivityPublisherRecord.RecordType.JOB) {
+    public Mono<Void> writeRecords(List<JobActivityPublisherRecord> records) {
+        // Only the latest record for a given job or task must be written, as the history tables are keyed by id.
+        Map<String, Pair<JobActivityPublisherRecord.RecordType, Timestamp>> latestById = new LinkedHashMap<>();
+        long now = clock.wallTime();
+        for (JobActivityPublisherRecord record : records) {
             try {
-                Job job = JobActivityPublisherRecordUtils.getJobFromRecord(jobActivityPublisherRecord);
-                logger.info("Read back job {}", JobActivityPublisherRecordUtils.getJobFromRecord(jobActivityPublisherRecord));
-                return JooqUtils.executeAsyncMono(() -> {
-                    int numInserts = jobActivityDSLContext
-                            .insertInto(JOBACTIVITY.JOBS, JOBACTIVITY.JOBS.JOB_ID, JOBACTIVITY.JOBS.RECORD_TIME)
-                            .values(job.getId(), Timestamp.valueOf(LocalDateTime.ofEpochSecond(job.getStatus().getTimestamp(), 0, ZoneOffset.UTC)))
-                            .execute();
-                    return jobActivityPublisherRecord;
-                }, jobActivityDSLContext)
-                        .onErrorMap(e -> JobActivityStoreException.jobActivityUpdateRecordException("e", e));
+                Pair<String, Long> idAndTimestamp = getIdAndTimestamp(record);
+                latestById.put(idAndTimestamp.getLeft(), Pair.of(record.getRecordType(), new Timestamp(idAndTimestamp.getRight())));
+                recordLag.record(Math.max(0, now - idAndTimestamp.getRight()), TimeUnit.MILLISECONDS);
             } catch (InvalidProtocolBufferException e) {
-                System.out.println("Write failed");
-                return null;
+                logger.warn("Dropping corrupted job activity record: queueIndex={}, type={}", record.getQueueIndex(), record.getRecordType(), e);
+                corruptedRecords.increment();
             }
         }
-        return null;
+        if (latestById.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return JooqUtils.executeAsyncMono(() -> {
+            jobActivityDSLContext.transaction(configuration -> {
+                DSLContext transactionContext = DSL.using(configuration);
+                List<Query> queries = new ArrayList<>(latestById.size());
+                latestById.forEach((id, typeAndTimestamp) -> {
+                    Timestamp recordTime = typeAndTimestamp.getRight();
+                    if (typeAndTimestamp.getLeft() == JobActivityPublisherRecord.RecordType.JOB) {
+                        queries.add(transactionContext
+                                .insertInto(JOBACTIVITY.JOBS, JOBACTIVITY.JOBS.JOB_ID, JOBACTIVITY.JOBS.RECORD_TIME)
+                                .values(id, recordTime)
+                                .onDuplicateKeyUpdate()
+                                .set(JOBACTIVITY.JOBS.RECORD_TIME, recordTime)
+                        );
+                    } else {
+                        queries.add(transactionContext
+                                .insertInto(JOBACTIVITY.TASKS, JOBACTIVITY.TASKS.TASK_ID, JOBACTIVITY.TASKS.RECORD_TIME)
+                                .values(id, recordTime)
+                                .onDuplicateKeyUpdate()
+                                .set(JOBACTIVITY.TASKS.RECORD_TIME, recordTime)
+                        );
+                    }
+                });
+                transactionContext.batch(queries).execute();
+            });
+            return true;
+        }, jobActivityDSLContext)
+                .onErrorMap(e -> JobActivityStoreException.jobActivityUpdateRecordException("Write failed", e))
+                .then();
     }
 
-    public Mono<Void> deleteRecordFromPublisher(JobActivityPublisherRecord jobActivityPublisherRecord) {
+    public Mono<Void> deleteRecordsFromPublisher(List<JobActivityPublisherRecord> records) {
+        // Delete by the exact indexes read, instead of a range, as a record with a lower index may be committed
+        // by the publisher after a record with a higher one.
+        List<Long> queueIndexes = records.stream().map(JobActivityPublisherRecord::getQueueIndex).collect(Collectors.toList());
         return JooqUtils.executeAsyncMono(() -> {
-            try {
-                producerDSLContext.deleteFrom(ACTIVITY_QUEUE).where(ACTIVITY_QUEUE.QUEUE_INDEX.eq(jobActivityPublisherRecord.getQueueIndex())).execute();
-            } catch (Exception e) {
-                System.out.println("didnt work");
-            }
-            return null;
+            int deleted = producerDSLContext.deleteFrom(ACTIVITY_QUEUE).where(ACTIVITY_QUEUE.QUEUE_INDEX.in(queueIndexes)).execute();
+            drainedRecords.increment(deleted);
+            return deleted;
+        }, producerDSLContext)
+                .onErrorMap(e -> JobActivityStoreException.jobActivityUpdateRecordException("Delete failed", e))
+                .then();
+    }
+
+    private Mono<Void> updateQueueDepth() {
+        return JooqUtils.executeAsyncMono(() -> {
+            int depth = producerDSLContext.selectCount().from(ACTIVITY_QUEUE).fetchOne(0, Integer.class);
+            queueDepth.set(depth);
+            return depth;
         }, producerDSLContext).then();
     }
 
+    private Pair<String, Long> getIdAndTimestamp(JobActivityPublisherRecord record) throws InvalidProtocolBufferException {
+        if (record.getRecordType() == JobActivityPublisherRecord.RecordType.JOB) {
+            Job<?> job = JobActivityPublisherRecordUtils.getJobFromRecord(record);
+            return Pair.of(job.getId(), job.getStatus().getTimestamp());
+        }
+        // The task record cannot be converted to the core model without its job, but only its id and timestamp are needed.
+        com.netflix.titus.grpc.protogen.Task grpcTask = com.netflix.titus.grpc.protogen.Task.parseFrom(record.getSerializedEvent());
+        return Pair.of(grpcTask.getId(), grpcTask.getStatus().getTimestamp());
+    }
+
     @Override
     public Mono<Void> consumeJob(Job job) {
         return null;
@@ -16,6 +16,7 @@
 
 package com.netflix.titus.ext.jobactivityhistory;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.netflix.titus.api.jobactivity.store.JobActivityPublisherRecord;
@@ -49,7 +50,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import static com.netflix.titus.ext.jobactivity.jobactivity.Jobactivity.JOBACTIVITY;
 import static com.netflix.titus.ext.jooq.activity.Tables.ACTIVITY_QUEUE;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD;
 
 
@@ -69,6 +72,8 @@ import static org.springframework.test.annotation.DirtiesContext.ClassMode.AFTER
 public class JooqJobActivityStoreTest {
     private final static Logger logger = LoggerFactory.getLogger(JooqJobActivityStoreTest.class);
 
+    private static final int BATCH_SIZE = 3;
+
     private DataGenerator<Job<BatchJobExt>> batchJobsGenerator = JobGenerator.batchJobs(JobDescriptorGenerator.oneTaskBatchJobDescriptor());
     private DataGenerator<BatchJobTask> batchTasksGenerator = JobGenerator.batchTasks(JobGenerator.batchJobs(JobDescriptorGenerator.oneTaskBatchJobDescriptor()).getValue());
 
@@ -108,7 +113,7 @@ public class JooqJobActivityStoreTest {
         // Load JooqJobActivityPublisherStore to trigger schema creation.
         new JooqJobActivityPublisherStore(producerJooqConfiguration, producerJooqContext, titusRuntime, EmptyLogStorageInfo.empty());
 
-        jooqJobActivityStore = new JooqJobActivityStore(titusRuntime, jobActivityJooqContext, producerJooqContext, true);
+        jooqJobActivityStore = new JooqJobActivityStore(titusRuntime, jobActivityJooqContext, producerJooqContext, true, BATCH_SIZE);
     }
 
     public Mono<Void> publishJobs() {
@@ -164,6 +169,33 @@ public class JooqJobActivityStoreTest {
         //jooqJobActivityStore.consumeRecords();
     }
 
+    @Test
+    public void consumeRecordsInBatches() {
+        List<Job<BatchJobExt>> jobs = batchJobsGenerator.batch(10).getValue();
+        Flux.fromIterable(jobs).concatMap(this::publishJob).blockLast();
+        // A second update of the same job is merged with the first one.
+        publishJob(jobs.get(0)).block();
+        assertThat(queueSize()).isEqualTo(11);
+
+        StepVerifier
+                .create(jooqJobActivityStore.processRecords())
+                .verifyComplete();
+
+        assertThat(queueSize()).isEqualTo(0);
+        int historySize = jobActivityJooqContext.getDslContext()
+                .selectCount()
+                .from(JOBACTIVITY.JOBS)
+                .fetchOneInto(Integer.class);
+        assertThat(historySize).isEqualTo(10);
+    }
+
+    private int queueSize() {
+        return producerJooqContext.getDslContext()
+                .selectCount()
+                .from(ACTIVITY_QUEUE)
+                .fetchOneInto(Integer.class);
+    }
+
     /**
      * Produces a Flux stream a of batch jobs based on the provided count.
      */
@@ -22,6 +22,7 @@ import com.netflix.titus.common.util.archaius2.Archaius2Ext;
 import com.netflix.titus.common.util.archaius2.SpringConfig;
 import com.netflix.titus.common.util.loadshedding.AdmissionController;
 import com.netflix.titus.common.util.loadshedding.AdmissionControllers;
+import com.netflix.titus.common.util.loadshedding.adaptive.AdaptiveAdmissionControllerConfiguration;
 import com.netflix.titus.common.util.loadshedding.grpc.GrpcAdmissionControllerServerInterceptor;
 import com.netflix.titus.federation.endpoint.grpc.FederationGrpcComponent;
 import com.netflix.titus.federation.endpoint.rest.FederationRestComponent;
@@ -41,6 +42,7 @@ import org.springframework.stereotype.Component;
 public class FederationEndpointComponent {
 
     private static final String ADMISSION_CONTROLLER_CONFIGURATION_PREFIX = "titus.federation.admissionController.buckets";
+    private static final String ADAPTIVE_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX = "titus.federation.admissionController.adaptive";
     private static final String UNIDENTIFIED = "unidentified";
 
     @Bean
@@ -53,10 +55,15 @@ public class FederationEndpointComponent {
                                                                                                 EndpointConfiguration configuration,
                                                                                                 CallMetadataResolver callMetadataResolver,
                                                                                                 TitusRuntime titusRuntime) {
-        AdmissionController mainController = AdmissionControllers.tokenBucketsFromArchaius(
+        AdmissionController tokenBuckets = AdmissionControllers.tokenBucketsFromArchaius(
                 new SpringConfig(ADMISSION_CONTROLLER_CONFIGURATION_PREFIX, environment),
                 titusRuntime
         );
+        AdmissionController mainController = AdmissionControllers.adaptive(
+                tokenBuckets,
+                Archaius2Ext.newConfiguration(AdaptiveAdmissionControllerConfiguration.class, ADAPTIVE_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX, environment),
+                titusRuntime
+        );
         AdmissionController circuitBreaker = AdmissionControllers.circuitBreaker(
                 mainController,
                 configuration::isAdmissionControllerEnabled
@@ -26,6 +26,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.loadshedding.AdmissionController;
 import com.netflix.titus.common.util.loadshedding.AdmissionControllers;
+import com.netflix.titus.common.util.loadshedding.adaptive.AdaptiveAdmissionControllerConfiguration;
 import com.netflix.titus.common.util.loadshedding.grpc.GrpcAdmissionControllerServerInterceptor;
 import com.netflix.titus.federation.endpoint.grpc.FederationGrpcModule;
 import com.netflix.titus.federation.endpoint.rest.JerseyModule;
@@ -34,6 +35,7 @@ import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
 
 public class FederationEndpointModule extends AbstractModule {
     private static final String ADMISSION_CONTROLLER_CONFIGURATION_PREFIX = "titus.federation.admissionController.buckets";
+    private static final String ADAPTIVE_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX = "titus.federation.admissionController.adaptive";
     private static final String UNIDENTIFIED = "unidentified";
 
     @Override
@@ -52,13 +54,19 @@ public class FederationEndpointModule extends AbstractModule {
     @Provides
     @Singleton
     public GrpcAdmissionControllerServerInterceptor getGrpcAdmissionControllerServerInterceptor(Config config,
+                                                                                                ConfigProxyFactory factory,
                                                                                                 EndpointConfiguration configuration,
                                                                                                 CallMetadataResolver callMetadataResolver,
                                                                                                 TitusRuntime titusRuntime) {
-        AdmissionController mainController = AdmissionControllers.tokenBucketsFromArchaius(
+        AdmissionController tokenBuckets = AdmissionControllers.tokenBucketsFromArchaius(
                 config.getPrefixedView(ADMISSION_CONTROLLER_CONFIGURATION_PREFIX),
                 titusRuntime
         );
+        AdmissionController mainController = AdmissionControllers.adaptive(
+                tokenBuckets,
+                factory.newProxy(AdaptiveAdmissionControllerConfiguration.class, ADAPTIVE_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX),
+                titusRuntime
+        );
         AdmissionController circuitBreaker = AdmissionControllers.circuitBreaker(
                 mainController,
                 configuration::isAdmissionControllerEnabled
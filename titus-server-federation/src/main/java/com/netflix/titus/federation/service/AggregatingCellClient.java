@@ -18,6 +18,7 @@ package com.netflix.titus.federation.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -35,6 +36,7 @@ import rx.Observable;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createSimpleClientResponseObserver;
 import static com.netflix.titus.federation.service.CellConnectorUtil.stubs;
+import static com.netflix.titus.federation.service.CellConnectorUtil.toStub;
 
 @Singleton
 class AggregatingCellClient {
@@ -89,6 +91,25 @@ class AggregatingCellClient {
         return Observable.merge(results);
     }
 
+    /**
+     * Call a service on a single {@link Cell}, with the same result representation as
+     * {@link #callExpectingErrors(Function, BiConsumer)}. Emits nothing if the cell is not known to the connector.
+     */
+    <STUB extends AbstractStub<STUB>, RespT>
+    Observable<CellResponse<STUB, Either<RespT, Throwable>>> callExpectingErrors(
+            Cell cell,
+            Function<ManagedChannel, STUB> stubFactory,
+            BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
+        Optional<STUB> optionalClient = toStub(cell, connector, stubFactory);
+        if (!optionalClient.isPresent()) {
+            return Observable.empty();
+        }
+        STUB client = optionalClient.get();
+        return callSingleCell(client, fnCall)
+                .map(result -> new CellResponse<>(cell, client, Either.<RespT, Throwable>ofValue(result)))
+                .onErrorResumeNext(error -> Observable.just(new CellResponse<>(cell, client, Either.ofError(error))));
+    }
+
     private <STUB extends AbstractStub<STUB>, RespT>
     Observable<RespT> callSingleCell(STUB client, BiConsumer<STUB, StreamObserver<RespT>> fnCall) {
         return createRequestObservable(emitter -> {
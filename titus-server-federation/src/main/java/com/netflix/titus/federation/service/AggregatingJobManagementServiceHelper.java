@@ -15,17 +15,24 @@
  */
 package com.netflix.titus.federation.service;
 
+import java.util.Optional;
 import java.util.function.BiConsumer;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
 import com.netflix.titus.common.util.rx.ReactorExt;
+import com.netflix.titus.common.util.tuple.Either;
+import com.netflix.titus.federation.service.CellLocationCache.EntityType;
 import com.netflix.titus.federation.startup.GrpcConfiguration;
 import com.netflix.titus.grpc.protogen.Job;
 import com.netflix.titus.grpc.protogen.JobId;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc;
 import com.netflix.titus.grpc.protogen.JobManagementServiceGrpc.JobManagementServiceStub;
+import com.netflix.titus.grpc.protogen.Task;
+import com.netflix.titus.grpc.protogen.TaskId;
+import io.grpc.Status;
 import io.grpc.stub.AbstractStub;
 import io.grpc.stub.StreamObserver;
 import reactor.core.publisher.Mono;
@@ -39,37 +46,113 @@ public class AggregatingJobManagementServiceHelper {
 
     private final AggregatingCellClient aggregatingCellClient;
     private final GrpcConfiguration grpcConfiguration;
+    private final CellLocationCache cellLocationCache;
 
     @Inject
     public AggregatingJobManagementServiceHelper(AggregatingCellClient aggregatingCellClient,
-                                                 GrpcConfiguration grpcConfiguration) {
+                                                 GrpcConfiguration grpcConfiguration,
+                                                 CellLocationCache cellLocationCache) {
         this.aggregatingCellClient = aggregatingCellClient;
         this.grpcConfiguration = grpcConfiguration;
-
+        this.cellLocationCache = cellLocationCache;
     }
 
     private <STUB extends AbstractStub<STUB>> STUB wrap(STUB stub, CallMetadata callMetadata) {
         return createWrappedStub(stub, callMetadata, grpcConfiguration.getRequestTimeoutMs());
     }
 
+    /**
+     * Finds the cell owning a job. If the job location is cached, only the owning cell is called.
+     */
     public Observable<CellResponse<JobManagementServiceStub, Job>> findJobInAllCells(String jobId, CallMetadata callMetadata) {
-        return aggregatingCellClient.callExpectingErrors(JobManagementServiceGrpc::newStub, findJobInCell(jobId, callMetadata))
-                .reduce(ResponseMerger.singleValue())
-                .flatMap(response -> response.getResult()
-                        .map(v -> Observable.just(CellResponse.ofValue(response)))
-                        .onErrorGet(Observable::error)
-                );
+        return findInCells(EntityType.Job, jobId, findJobInCell(jobId, callMetadata));
     }
 
     public Mono<CellResponse<JobManagementServiceStub, Job>> findJobInAllCellsReact(String jobId, CallMetadata callMetadata) {
         return ReactorExt.toMono(findJobInAllCells(jobId, callMetadata).toSingle());
     }
 
+    /**
+     * Finds the cell owning a task. If the task location is cached, only the owning cell is called.
+     */
+    public Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInAllCells(String taskId, CallMetadata callMetadata) {
+        return findInCells(EntityType.Task, taskId, findTaskInCell(taskId, callMetadata));
+    }
+
     public ClientCall<Job> findJobInCell(String jobId, CallMetadata callMetadata) {
         JobId id = JobId.newBuilder().setId(jobId).build();
         return (client, streamObserver) -> wrap(client, callMetadata).findJob(id, streamObserver);
     }
 
+    public ClientCall<Task> findTaskInCell(String taskId, CallMetadata callMetadata) {
+        TaskId id = TaskId.newBuilder().setId(taskId).build();
+        return (client, streamObserver) -> wrap(client, callMetadata).findTask(id, streamObserver);
+    }
+
+    /**
+     * Records the cell a job was created in, so the subsequent operations on the job are not broadcast.
+     */
+    public void onJobCreated(String jobId, Cell cell) {
+        cellLocationCache.put(EntityType.Job, jobId, cell);
+    }
+
+    /**
+     * Records locations of jobs returned by a cell query.
+     */
+    public void onJobsFound(Cell cell, Iterable<Job> jobs) {
+        cellLocationCache.putJobs(cell, jobs);
+    }
+
+    /**
+     * Records locations of tasks (and their jobs) returned by a cell query.
+     */
+    public void onTasksFound(Cell cell, Iterable<Task> tasks) {
+        cellLocationCache.putTasks(cell, tasks);
+    }
+
+    private <T> Observable<CellResponse<JobManagementServiceStub, T>> findInCells(EntityType type, String id, ClientCall<T> clientCall) {
+        Optional<Either<Cell, Throwable>> location = cellLocationCache.find(type, id);
+        if (!location.isPresent()) {
+            return findInAllCells(type, id, clientCall);
+        }
+        if (location.get().hasError()) {
+            return Observable.error(location.get().getError());
+        }
+
+        Observable<CellResponse<JobManagementServiceStub, T>> fallback = Observable.defer(() -> findInAllCells(type, id, clientCall));
+        return aggregatingCellClient.callExpectingErrors(location.get().getValue(), JobManagementServiceGrpc::newStub, clientCall)
+                .flatMap(response -> {
+                    if (response.getResult().hasValue()) {
+                        return Observable.just(CellResponse.ofValue(response));
+                    }
+                    Throwable error = response.getResult().getError();
+                    if (Status.fromThrowable(error).getCode() != Status.Code.NOT_FOUND) {
+                        return Observable.error(error);
+                    }
+                    // Stale location. The entity may have been removed, or moved to another cell.
+                    cellLocationCache.invalidate(type, id);
+                    return fallback;
+                })
+                // The cell is no longer configured.
+                .switchIfEmpty(fallback);
+    }
+
+    private <T> Observable<CellResponse<JobManagementServiceStub, T>> findInAllCells(EntityType type, String id, ClientCall<T> clientCall) {
+        return aggregatingCellClient.callExpectingErrors(JobManagementServiceGrpc::newStub, clientCall)
+                .reduce(ResponseMerger.singleValue())
+                .flatMap(response -> {
+                    if (response.getResult().hasValue()) {
+                        cellLocationCache.put(type, id, response.getCell());
+                        return Observable.just(CellResponse.ofValue(response));
+                    }
+                    Throwable error = response.getResult().getError();
+                    if (Status.fromThrowable(error).getCode() == Status.Code.NOT_FOUND) {
+                        cellLocationCache.putNotFound(type, id, error);
+                    }
+                    return Observable.error(error);
+                });
+    }
+
     public interface ClientCall<T> extends BiConsumer<JobManagementServiceStub, StreamObserver<T>> {
         // generics sanity
     }
@@ -16,6 +16,7 @@
 
 package com.netflix.titus.federation.service;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -65,12 +66,12 @@ import com.netflix.titus.grpc.protogen.Pagination;
 import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.grpc.protogen.TaskAttributesDeleteRequest;
 import com.netflix.titus.grpc.protogen.TaskAttributesUpdate;
-import com.netflix.titus.grpc.protogen.TaskId;
 import com.netflix.titus.grpc.protogen.TaskKillRequest;
 import com.netflix.titus.grpc.protogen.TaskMoveRequest;
 import com.netflix.titus.grpc.protogen.TaskQuery;
 import com.netflix.titus.grpc.protogen.TaskQueryResult;
 import com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
 import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
 import com.netflix.titus.runtime.jobmanager.gateway.JobServiceGateway;
 import io.grpc.stub.StreamObserver;
@@ -86,8 +87,7 @@ import static com.netflix.titus.api.jobmanager.JobAttributes.JOB_ATTRIBUTES_STAC
 import static com.netflix.titus.api.jobmanager.JobAttributes.JOB_ATTRIBUTE_ROUTING_CELL;
 import static com.netflix.titus.api.jobmanager.TaskAttributes.TASK_ATTRIBUTES_STACK;
 import static com.netflix.titus.federation.service.CellConnectorUtil.callToCell;
-import static com.netflix.titus.federation.service.PageAggregationUtil.combinePagination;
-import static com.netflix.titus.federation.service.PageAggregationUtil.takeCombinedPage;
+import static com.netflix.titus.federation.service.PageAggregationUtil.takeMergedPage;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createRequestObservable;
 import static com.netflix.titus.runtime.endpoint.common.grpc.GrpcUtil.createWrappedStub;
 import static com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobQueryModelConverters.emptyGrpcPagination;
@@ -151,7 +151,12 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
             jobDescriptorBuilder = removeFederationAttributes(jobDescriptorBuilder);
         }
 
-        return getCreateObservable(client, jobDescriptorBuilder.build(), callMetadata);
+        Observable<String> createObservable = getCreateObservable(client, jobDescriptorBuilder.build(), callMetadata);
+        if (federationConfiguration.isRemoteFederationEnabled()) {
+            // The job may be created by the remote federation in a cell that is not known here.
+            return createObservable;
+        }
+        return createObservable.doOnNext(jobId -> jobManagementServiceHelper.onJobCreated(jobId, cell));
     }
 
     private Observable<String> getCreateObservable(
@@ -278,27 +283,31 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
 
     private Observable<JobQueryResult> findJobsWithCursorPagination(JobQuery request, Set<String> fields, CallMetadata callMetadata) {
         return aggregatingClient.call(JobManagementServiceGrpc::newStub, findJobsInCell(request, callMetadata))
+                .doOnNext(response -> jobManagementServiceHelper.onJobsFound(response.getCell(), response.getResult().getItemsList()))
                 .map(CellResponse::getResult)
-                .map(this::addStackName)
-                .reduce(this::combineJobResults)
-                .map(combinedResults -> {
-                    Pair<List<Job>, Pagination> combinedPage = takeCombinedPage(
+                .toList()
+                .map(cellResults -> {
+                    Pagination combinedPagination = cellResults.stream()
+                            .map(JobQueryResult::getPagination)
+                            .reduce(PageAggregationUtil::combinePagination)
+                            .orElseGet(Pagination::getDefaultInstance);
+                    Pair<List<Job>, Pagination> combinedPage = takeMergedPage(
                             request.getPage(),
-                            combinedResults.getItemsList(),
-                            combinedResults.getPagination(),
+                            cellResults.stream().map(JobQueryResult::getItemsList).collect(Collectors.toList()),
+                            combinedPagination,
                             JobManagerCursors.jobCursorOrderComparator(),
                             JobManagerCursors::newCursorFrom
                     );
 
-                    if (!CollectionsExt.isNullOrEmpty(fields)) {
-                        combinedPage = combinedPage.mapLeft(jobs -> jobs.stream()
-                                .map(job -> ProtobufExt.copy(job, fields))
-                                .collect(Collectors.toList())
-                        );
+                    // Only the items of the returned page are rebuilt
+                    List<Job> pageItems = new ArrayList<>(combinedPage.getLeft().size());
+                    for (Job job : combinedPage.getLeft()) {
+                        Job withStackName = addStackName(job);
+                        pageItems.add(CollectionsExt.isNullOrEmpty(fields) ? withStackName : ProtobufExt.copy(withStackName, fields));
                     }
 
                     return JobQueryResult.newBuilder()
-                            .addAllItems(combinedPage.getLeft())
+                            .addAllItems(pageItems)
                             .setPagination(combinedPage.getRight())
                             .build();
                 });
@@ -308,15 +317,6 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         return (client, streamObserver) -> wrap(client, callMetadata).findJobs(request, streamObserver);
     }
 
-    private JobQueryResult combineJobResults(JobQueryResult one, JobQueryResult other) {
-        Pagination pagination = combinePagination(one.getPagination(), other.getPagination());
-        return JobQueryResult.newBuilder()
-                .setPagination(pagination)
-                .addAllItems(one.getItemsList())
-                .addAllItems(other.getItemsList())
-                .build();
-    }
-
     @Override
     public Observable<JobChangeNotification> observeJob(String jobId, CallMetadata callMetadata) {
         JobId request = JobId.newBuilder().setId(jobId).build();
@@ -328,7 +328,20 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     }
 
     @Override
-    public Observable<JobChangeNotification> observeJobs(ObserveJobsQuery query, CallMetadata callMetadata) {
+    public Observable<JobChangeNotification> observeJobs(ObserveJobsQuery originalQuery, CallMetadata callMetadata) {
+        Set<Cell> cells = cellConnector.getChannels().keySet();
+        if (cells.size() == 1) {
+            // The stream of a single cell is passed through together with its snapshot end marker, which carries
+            // the cell event journal position, so the client can resume it.
+            return this.<JobChangeNotification>singleCellCallWithNoDeadline(cells.iterator().next(),
+                    (client, streamObserver) -> client.observeJobs(originalQuery, streamObserver),
+                    callMetadata
+            ).map(this::addStackName);
+        }
+
+        // Each cell has its own event journal, so a merged stream cannot be resumed. The merged snapshot end marker
+        // carries no journal position, so clients do not send a resume token for it.
+        ObserveJobsQuery query = originalQuery.toBuilder().removeFilteringCriteria(ObserveJobsResumeToken.CRITERIA_KEY).build();
         final Observable<JobChangeNotification> observable = createRequestObservable(delegate -> {
             Emitter<JobChangeNotification> emitter = new EmitterWithMultipleSubscriptions<>(delegate);
             Map<Cell, JobManagementServiceStub> clients = CellConnectorUtil.stubs(cellConnector, JobManagementServiceGrpc::newStub);
@@ -360,17 +373,7 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
     }
 
     private Observable<CellResponse<JobManagementServiceStub, Task>> findTaskInAllCells(String taskId, CallMetadata callMetadata) {
-        return aggregatingClient.callExpectingErrors(JobManagementServiceGrpc::newStub, findTaskInCell(taskId, callMetadata))
-                .reduce(ResponseMerger.singleValue())
-                .flatMap(response -> response.getResult()
-                        .map(v -> Observable.just(CellResponse.ofValue(response)))
-                        .onErrorGet(Observable::error)
-                );
-    }
-
-    private ClientCall<Task> findTaskInCell(String taskId, CallMetadata callMetadata) {
-        TaskId id = TaskId.newBuilder().setId(taskId).build();
-        return (client, streamObserver) -> wrap(client, callMetadata).findTask(id, streamObserver);
+        return jobManagementServiceHelper.findTaskInAllCells(taskId, callMetadata);
     }
 
     @Override
@@ -400,27 +403,31 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
 
     private Observable<TaskQueryResult> findTasksWithCursorPagination(TaskQuery request, Set<String> fields, CallMetadata callMetadata) {
         return aggregatingClient.call(JobManagementServiceGrpc::newStub, findTasksInCell(request, callMetadata))
+                .doOnNext(response -> jobManagementServiceHelper.onTasksFound(response.getCell(), response.getResult().getItemsList()))
                 .map(CellResponse::getResult)
-                .map(this::addStackName)
-                .reduce(this::combineTaskResults)
-                .map(combinedResults -> {
-                    Pair<List<Task>, Pagination> combinedPage = takeCombinedPage(
+                .toList()
+                .map(cellResults -> {
+                    Pagination combinedPagination = cellResults.stream()
+                            .map(TaskQueryResult::getPagination)
+                            .reduce(PageAggregationUtil::combinePagination)
+                            .orElseGet(Pagination::getDefaultInstance);
+                    Pair<List<Task>, Pagination> combinedPage = takeMergedPage(
                             request.getPage(),
-                            combinedResults.getItemsList(),
-                            combinedResults.getPagination(),
+                            cellResults.stream().map(TaskQueryResult::getItemsList).collect(Collectors.toList()),
+                            combinedPagination,
                             JobManagerCursors.taskCursorOrderComparator(),
                             JobManagerCursors::newTaskCursorFrom
                     );
 
-                    if (!CollectionsExt.isNullOrEmpty(fields)) {
-                        combinedPage = combinedPage.mapLeft(tasks -> tasks.stream()
-                                .map(task -> ProtobufExt.copy(task, fields))
-                                .collect(Collectors.toList())
-                        );
+                    // Only the items of the returned page are rebuilt
+                    List<Task> pageItems = new ArrayList<>(combinedPage.getLeft().size());
+                    for (Task task : combinedPage.getLeft()) {
+                        Task withStackName = addStackName(task);
+                        pageItems.add(CollectionsExt.isNullOrEmpty(fields) ? withStackName : ProtobufExt.copy(withStackName, fields));
                     }
 
                     return TaskQueryResult.newBuilder()
-                            .addAllItems(combinedPage.getLeft())
+                            .addAllItems(pageItems)
                             .setPagination(combinedPage.getRight())
                             .build();
                 });
@@ -430,15 +437,6 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
         return (client, streamObserver) -> wrap(client, callMetadata).findTasks(request, streamObserver);
     }
 
-    private TaskQueryResult combineTaskResults(TaskQueryResult one, TaskQueryResult other) {
-        Pagination pagination = combinePagination(one.getPagination(), other.getPagination());
-        return TaskQueryResult.newBuilder()
-                .setPagination(pagination)
-                .addAllItems(one.getItemsList())
-                .addAllItems(other.getItemsList())
-                .build();
-    }
-
     @Override
     public Completable killTask(TaskKillRequest request, CallMetadata callMetadata) {
         Observable<Empty> result = findTaskInAllCells(request.getTaskId(), callMetadata)
@@ -489,16 +487,6 @@ public class AggregatingJobServiceGateway implements JobServiceGateway {
                 .removeAttributes(JOB_ATTRIBUTE_ROUTING_CELL);
     }
 
-    private JobQueryResult addStackName(JobQueryResult result) {
-        List<Job> withStackName = result.getItemsList().stream().map(this::addStackName).collect(Collectors.toList());
-        return result.toBuilder().clearItems().addAllItems(withStackName).build();
-    }
-
-    private TaskQueryResult addStackName(TaskQueryResult result) {
-        List<Task> withStackName = result.getItemsList().stream().map(this::addStackName).collect(Collectors.toList());
-        return result.toBuilder().clearItems().addAllItems(withStackName).build();
-    }
-
     private JobDescriptor.Builder addStackName(JobDescriptor.Builder jobDescriptorBuilder) {
         return jobDescriptorBuilder.putAttributes(JOB_ATTRIBUTES_STACK, federationConfiguration.getStack());
     }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.federation.model.Cell;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.tuple.Either;
+import com.netflix.titus.federation.startup.TitusFederationConfiguration;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.Task;
+import io.grpc.Status;
+
+/**
+ * Remembers which cell owns a job or a task, so lookups by id can be sent to a single cell instead of being
+ * broadcast to all of them. Locations are learned from cell responses and from the job creation routing. An id not
+ * found in any cell is remembered as missing for a short time (negative caching), so repeated lookups of finished
+ * jobs do not fan out either. A stale location is detected by a NOT_FOUND response of the cached cell, after which
+ * the caller invalidates the entry and falls back to a broadcast.
+ */
+@Singleton
+public class CellLocationCache {
+
+    private static final String METRIC_ROOT = "titus.federation.cellLocationCache.";
+
+    public enum EntityType {Job, Task}
+
+    private final TitusFederationConfiguration configuration;
+
+    private final Cache<String, Cell> jobLocations;
+    private final Cache<String, Cell> taskLocations;
+
+    /**
+     * Ids not found in any cell, with the description of the NOT_FOUND error returned by the cells.
+     */
+    private final Cache<String, String> missingJobs;
+    private final Cache<String, String> missingTasks;
+
+    private final Counter hitCounter;
+    private final Counter negativeHitCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+
+    @Inject
+    public CellLocationCache(TitusFederationConfiguration configuration, TitusRuntime titusRuntime) {
+        this.configuration = configuration;
+        this.jobLocations = newCache(configuration.getCellLocationCacheTtlMs());
+        this.taskLocations = newCache(configuration.getCellLocationCacheTtlMs());
+        this.missingJobs = newCache(configuration.getCellLocationNegativeCacheTtlMs());
+        this.missingTasks = newCache(configuration.getCellLocationNegativeCacheTtlMs());
+
+        Registry registry = titusRuntime.getRegistry();
+        this.hitCounter = registry.counter(METRIC_ROOT + "hits");
+        this.negativeHitCounter = registry.counter(METRIC_ROOT + "negativeHits");
+        this.missCounter = registry.counter(METRIC_ROOT + "misses");
+        this.invalidationCounter = registry.counter(METRIC_ROOT + "invalidations");
+    }
+
+    private <V> Cache<String, V> newCache(long ttlMs) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(configuration.getCellLocationCacheMaxSize())
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return configuration.isCellLocationCacheEnabled();
+    }
+
+    /**
+     * Returns the cell owning the entity (left), a new NOT_FOUND error if the entity was recently not found in any
+     * cell (right), or {@link Optional#empty()} if the location is not known.
+     */
+    public Optional<Either<Cell, Throwable>> find(EntityType type, String id) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Cell cell = locationsOf(type).getIfPresent(id);
+        if (cell != null) {
+            hitCounter.increment();
+            return Optional.of(Either.ofValue(cell));
+        }
+        String notFoundDescription = missingOf(type).getIfPresent(id);
+        if (notFoundDescription != null) {
+            negativeHitCounter.increment();
+            return Optional.of(Either.ofError(Status.NOT_FOUND.withDescription(notFoundDescription).asRuntimeException()));
+        }
+        missCounter.increment();
+        return Optional.empty();
+    }
+
+    public void put(EntityType type, String id, Cell cell) {
+        if (isEnabled()) {
+            missingOf(type).invalidate(id);
+            locationsOf(type).put(id, cell);
+        }
+    }
+
+    public void putJobs(Cell cell, Iterable<Job> jobs) {
+        for (Job job : jobs) {
+            put(EntityType.Job, job.getId(), cell);
+        }
+    }
+
+    public void putTasks(Cell cell, Iterable<Task> tasks) {
+        for (Task task : tasks) {
+            put(EntityType.Task, task.getId(), cell);
+            put(EntityType.Job, task.getJobId(), cell);
+        }
+    }
+
+    /**
+     * Records that the entity does not exist in any cell. Until the negative cache entry expires, lookups of this
+     * id return a new NOT_FOUND error with the description of the given one.
+     */
+    public void putNotFound(EntityType type, String id, Throwable notFoundError) {
+        if (isEnabled()) {
+            locationsOf(type).invalidate(id);
+            String description = Status.fromThrowable(notFoundError).getDescription();
+            missingOf(type).put(id, description == null ? type + " not found: " + id : description);
+        }
+    }
+
+    public void invalidate(EntityType type, String id) {
+        locationsOf(type).invalidate(id);
+        missingOf(type).invalidate(id);
+        invalidationCounter.increment();
+    }
+
+    private Cache<String, Cell> locationsOf(EntityType type) {
+        return type == EntityType.Job ? jobLocations : taskLocations;
+    }
+
+    private Cache<String, String> missingOf(EntityType type) {
+        return type == EntityType.Job ? missingJobs : missingTasks;
+    }
+}
@@ -16,8 +16,10 @@
 
 package com.netflix.titus.federation.service;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -55,6 +57,43 @@ final class PageAggregationUtil {
         return Pair.of(pageItems, finalPagination);
     }
 
+    /**
+     * Equivalent of {@link #takeCombinedPage(Page, List, Pagination, Comparator, Function)} for per cell results, each
+     * ordered by the cursor comparator (as returned by the cells). Only the items of the requested page are taken,
+     * with a k-way merge of the cell results, so the items from all cells are not copied into a single list and sorted.
+     */
+    static <T> Pair<List<T>, Pagination> takeMergedPage(Page requested,
+                                                        List<List<T>> cellItems,
+                                                        Pagination combinedPagination,
+                                                        Comparator<T> cursorComparator,
+                                                        Function<T, String> cursorFactory) {
+        int totalReturned = 0;
+        List<List<T>> sortedCellItems = new ArrayList<>(cellItems.size());
+        for (List<T> items : cellItems) {
+            totalReturned += items.size();
+            sortedCellItems.add(isSorted(items, cursorComparator)
+                    ? items
+                    : items.stream().sorted(cursorComparator).collect(Collectors.toList())
+            );
+        }
+
+        int lastItemOffset = Math.min(totalReturned, requested.getPageSize());
+        List<T> pageItems = mergeSorted(sortedCellItems, cursorComparator, lastItemOffset);
+        String cursor = pageItems.isEmpty() ? "" : cursorFactory.apply(pageItems.get(pageItems.size() - 1));
+
+        // first item position relative to totalItems from all Cells
+        int firstItemPosition = Math.max(0, combinedPagination.getCursorPosition() - (totalReturned - 1));
+        int pageNumber = firstItemPosition / requested.getPageSize();
+        Pagination finalPagination = Pagination.newBuilder(combinedPagination)
+                .setCurrentPage(Page.newBuilder(requested).setPageNumber(pageNumber))
+                .setCursor(cursor)
+                .setCursorPosition(firstItemPosition + lastItemOffset - 1)
+                .setHasMore(combinedPagination.getHasMore() || lastItemOffset < totalReturned)
+                .build();
+
+        return Pair.of(pageItems, finalPagination);
+    }
+
     static Pagination combinePagination(Pagination one, Pagination other) {
         int cursorPosition = one.getCursorPosition() + other.getCursorPosition();
         if (one.getTotalItems() > 0 && other.getTotalItems() > 0) {
@@ -73,4 +112,42 @@ final class PageAggregationUtil {
                 .setCursorPosition(cursorPosition)
                 .build();
     }
+
+    private static <T> boolean isSorted(List<T> items, Comparator<T> comparator) {
+        for (int i = 1; i < items.size(); i++) {
+            if (comparator.compare(items.get(i - 1), items.get(i)) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the first limit items of the sorted lists. Equal items are taken in the list order, the same way as
+     * a stable sort of the concatenated lists would order them.
+     */
+    private static <T> List<T> mergeSorted(List<List<T>> sortedLists, Comparator<T> comparator, int limit) {
+        // Heap entries are (list index, position in the list) pairs.
+        PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, sortedLists.size()), (first, second) -> {
+            int result = comparator.compare(sortedLists.get(first[0]).get(first[1]), sortedLists.get(second[0]).get(second[1]));
+            return result != 0 ? result : Integer.compare(first[0], second[0]);
+        });
+        for (int i = 0; i < sortedLists.size(); i++) {
+            if (!sortedLists.get(i).isEmpty()) {
+                heap.add(new int[]{i, 0});
+            }
+        }
+
+        List<T> result = new ArrayList<>(limit);
+        while (result.size() < limit && !heap.isEmpty()) {
+            int[] head = heap.poll();
+            List<T> list = sortedLists.get(head[0]);
+            result.add(list.get(head[1]));
+            if (head[1] + 1 < list.size()) {
+                head[1]++;
+                heap.add(head);
+            }
+        }
+        return result;
+    }
 }
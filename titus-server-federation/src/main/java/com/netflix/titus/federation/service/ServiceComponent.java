@@ -26,6 +26,7 @@ import org.springframework.context.annotation.Import;
 
         AggregatingJobServiceGateway.class,
         AggregatingJobManagementServiceHelper.class,
+        CellLocationCache.class,
         AggregatingAutoScalingService.class,
         AggregatingLoadbalancerService.class,
         AggregatingReactorMachineServiceStub.class,
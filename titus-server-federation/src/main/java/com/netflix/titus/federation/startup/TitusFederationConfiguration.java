@@ -42,4 +42,27 @@ public interface TitusFederationConfiguration {
 
     @DefaultValue("false")
     boolean isRemoteFederationEnabled();
+
+    /**
+     * If enabled, job and task lookups by id are sent to the cell that owns the entity, if known, instead of being
+     * broadcast to all cells.
+     */
+    @DefaultValue("true")
+    boolean isCellLocationCacheEnabled();
+
+    @DefaultValue("200000")
+    long getCellLocationCacheMaxSize();
+
+    /**
+     * How long a job or task location is kept after it was last confirmed by a cell response.
+     */
+    @DefaultValue("3600000")
+    long getCellLocationCacheTtlMs();
+
+    /**
+     * How long an id not found in any cell is remembered as missing. Keep it short, as a job created through
+     * another federation instance is not visible to this instance's cache.
+     */
+    @DefaultValue("2000")
+    long getCellLocationNegativeCacheTtlMs();
 }
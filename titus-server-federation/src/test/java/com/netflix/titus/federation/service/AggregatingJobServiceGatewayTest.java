@@ -35,6 +35,8 @@ import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
 import com.netflix.titus.api.model.Page;
 import com.netflix.titus.api.service.TitusServiceException;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.time.Clocks;
 import com.netflix.titus.common.util.time.TestClock;
@@ -110,6 +112,7 @@ public class AggregatingJobServiceGatewayTest {
     public final GrpcServerRule cellTwo = new GrpcServerRule().directExecutor();
     private final PublishSubject<JobChangeNotification> cellTwoUpdates = PublishSubject.create();
     private final TitusFederationConfiguration titusFederationConfiguration = mock(TitusFederationConfiguration.class);
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
 
     private String stackName;
     private AggregatingJobServiceGateway service;
@@ -129,6 +132,9 @@ public class AggregatingJobServiceGatewayTest {
         when(titusFederationConfiguration.getStack()).thenReturn(stackName);
         when(titusFederationConfiguration.getCells()).thenReturn("one=1;two=2");
         when(titusFederationConfiguration.getRoutingRules()).thenReturn("one=(app1.*|app2.*);two=(app3.*)");
+        when(titusFederationConfiguration.getCellLocationCacheMaxSize()).thenReturn(1000L);
+        when(titusFederationConfiguration.getCellLocationCacheTtlMs()).thenReturn(60_000L);
+        when(titusFederationConfiguration.getCellLocationNegativeCacheTtlMs()).thenReturn(60_000L);
 
         CellInfoResolver cellInfoResolver = new DefaultCellInfoResolver(titusFederationConfiguration);
         ApplicationCellRouter cellRouter = new ApplicationCellRouter(cellInfoResolver, titusFederationConfiguration);
@@ -151,6 +157,7 @@ public class AggregatingJobServiceGatewayTest {
         );
 
         final AggregatingCellClient aggregatingCellClient = new AggregatingCellClient(cellConnector);
+        CellLocationCache cellLocationCache = new CellLocationCache(titusFederationConfiguration, titusRuntime);
         service = new AggregatingJobServiceGateway(
                 grpcConfiguration,
                 titusFederationConfiguration,
@@ -158,7 +165,7 @@ public class AggregatingJobServiceGatewayTest {
                 cellConnector,
                 cellRouter,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcConfiguration)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcConfiguration, cellLocationCache)
         );
 
         clock = Clocks.test();
@@ -419,6 +426,56 @@ public class AggregatingJobServiceGatewayTest {
         assertThat(Status.fromThrowable(testSubscriber.getOnErrorEvents().get(0))).isEqualTo(UNAVAILABLE);
     }
 
+    @Test
+    public void findJobWithCachedCellLocation() {
+        when(titusFederationConfiguration.isCellLocationCacheEnabled()).thenReturn(true);
+        List<Job> cellOneSnapshot = new ArrayList<>(dataGenerator.newServiceJobs(10, GrpcJobManagementModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(cellOneSnapshot, cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellTwoUpdates.serialize()));
+
+        Job expected = withStackName(cellOneSnapshot.get(0));
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+        assertThat(cellLocationCacheCounter("hits")).isEqualTo(0);
+
+        // Second lookup goes to cell one only
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+        assertThat(cellLocationCacheCounter("hits")).isEqualTo(1);
+        assertThat(cellLocationCacheCounter("negativeHits")).isEqualTo(0);
+    }
+
+    @Test
+    public void findJobWithStaleCachedCellLocation() {
+        when(titusFederationConfiguration.isCellLocationCacheEnabled()).thenReturn(true);
+        List<Job> snapshot = new ArrayList<>(dataGenerator.newServiceJobs(10, GrpcJobManagementModelConverters::toGrpcJob));
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(snapshot, cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellTwoUpdates.serialize()));
+
+        Job expected = withStackName(snapshot.get(0));
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+
+        // Move the job to cell two. The cached cell returns NOT_FOUND, and the lookup falls back to all cells.
+        cellOne.getServiceRegistry().addService(new CellWithFixedJobsService(Collections.emptyList(), cellOneUpdates.serialize()));
+        cellTwo.getServiceRegistry().addService(new CellWithFixedJobsService(snapshot, cellTwoUpdates.serialize()));
+        assertThat(service.findJob(expected.getId(), UNDEFINED_CALL_METADATA).toBlocking().first()).isEqualTo(expected);
+        assertThat(cellLocationCacheCounter("invalidations")).isEqualTo(1);
+    }
+
+    @Test
+    public void findJobWithNegativeCachedCellLocation() {
+        when(titusFederationConfiguration.isCellLocationCacheEnabled()).thenReturn(true);
+        cellOne.getServiceRegistry().addService(new CellWithFailingJobManagementService(NOT_FOUND));
+        cellTwo.getServiceRegistry().addService(new CellWithFailingJobManagementService(NOT_FOUND));
+
+        for (int i = 0; i < 2; i++) {
+            AssertableSubscriber<Job> testSubscriber = service.findJob("missing", UNDEFINED_CALL_METADATA).test();
+            testSubscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+            testSubscriber.assertError(StatusRuntimeException.class);
+            assertThat(Status.fromThrowable(testSubscriber.getOnErrorEvents().get(0)).getCode()).isEqualTo(Status.Code.NOT_FOUND);
+        }
+        assertThat(cellLocationCacheCounter("negativeHits")).isEqualTo(1);
+        assertThat(cellLocationCacheCounter("hits")).isEqualTo(0);
+    }
+
     @Test
     public void killJob() {
         Random random = new Random();
@@ -925,6 +982,10 @@ public class AggregatingJobServiceGatewayTest {
         return JobChangeNotification.newBuilder().setTaskUpdate(TaskUpdate.newBuilder().setTask(task)).build();
     }
 
+    private long cellLocationCacheCounter(String name) {
+        return titusRuntime.getRegistry().counter("titus.federation.cellLocationCache." + name).count();
+    }
+
     private Job withStackName(Job job) {
         JobDescriptor jobDescriptor = job.getJobDescriptor().toBuilder()
                 .putAttributes("titus.stack", stackName)
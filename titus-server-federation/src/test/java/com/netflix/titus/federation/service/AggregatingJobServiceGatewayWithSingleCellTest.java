@@ -28,6 +28,7 @@ import java.util.stream.Collectors;
 import com.google.common.collect.ImmutableMap;
 import com.netflix.titus.api.federation.model.Cell;
 import com.netflix.titus.api.model.Page;
+import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.time.Clocks;
 import com.netflix.titus.common.util.time.TestClock;
 import com.netflix.titus.federation.service.router.ApplicationCellRouter;
@@ -110,7 +111,7 @@ public class AggregatingJobServiceGatewayWithSingleCellTest {
                 cellConnector,
                 cellRouter,
                 aggregatingCellClient,
-                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration)
+                new AggregatingJobManagementServiceHelper(aggregatingCellClient, grpcClientConfiguration, new CellLocationCache(titusFederationConfiguration, TitusRuntimes.internal()))
         );
 
         clock = Clocks.test();
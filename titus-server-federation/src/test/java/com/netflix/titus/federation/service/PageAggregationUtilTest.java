@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.federation.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.Page;
+import com.netflix.titus.grpc.protogen.Pagination;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PageAggregationUtilTest {
+
+    private static final Page PAGE = Page.newBuilder().setPageSize(10).build();
+
+    @Test
+    public void testMergedPageIsSameAsCombinedPage() {
+        Random random = new Random(123);
+        for (int iteration = 0; iteration < 100; iteration++) {
+            List<List<Integer>> cellItems = new ArrayList<>();
+            int cellCount = 1 + random.nextInt(4);
+            for (int cell = 0; cell < cellCount; cell++) {
+                List<Integer> items = new ArrayList<>();
+                int itemCount = random.nextInt(15);
+                for (int i = 0; i < itemCount; i++) {
+                    items.add(random.nextInt(50));
+                }
+                Collections.sort(items);
+                cellItems.add(items);
+            }
+            assertSamePage(cellItems);
+        }
+    }
+
+    @Test
+    public void testMergedPageWithUnsortedCellItems() {
+        assertSamePage(Arrays.asList(Arrays.asList(5, 1, 3), Arrays.asList(4, 2)));
+    }
+
+    @Test
+    public void testMergedPageWithEmptyCells() {
+        Pair<List<Integer>, Pagination> page = assertSamePage(Arrays.asList(Collections.emptyList(), Collections.emptyList()));
+        assertThat(page.getLeft()).isEmpty();
+        assertThat(page.getRight().getCursor()).isEmpty();
+    }
+
+    private Pair<List<Integer>, Pagination> assertSamePage(List<List<Integer>> cellItems) {
+        List<Integer> combinedItems = new ArrayList<>();
+        Pagination combinedPagination = null;
+        for (List<Integer> items : cellItems) {
+            combinedItems.addAll(items);
+            Pagination cellPagination = Pagination.newBuilder()
+                    .setHasMore(false)
+                    .setTotalItems(items.size())
+                    .setCursorPosition(Math.max(0, items.size() - 1))
+                    .build();
+            combinedPagination = combinedPagination == null
+                    ? cellPagination
+                    : PageAggregationUtil.combinePagination(combinedPagination, cellPagination);
+        }
+
+        Pair<List<Integer>, Pagination> merged = PageAggregationUtil.takeMergedPage(
+                PAGE, cellItems, combinedPagination, Comparator.naturalOrder(), String::valueOf
+        );
+        Pair<List<Integer>, Pagination> combined = PageAggregationUtil.takeCombinedPage(
+                PAGE, combinedItems, combinedPagination, Comparator.naturalOrder(), String::valueOf
+        );
+        assertThat(merged).isEqualTo(combined);
+        return merged;
+    }
+}
@@ -17,6 +17,7 @@
 package com.netflix.titus.gateway.service.v3.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
@@ -66,7 +67,7 @@ public class NeedsMigrationQueryHandlerTest {
 
     @Before
     public void setUp() {
-        when(jobDataReplicator.getCurrent()).thenReturn(JobSnapshot.newBuilder("snapshot1").build());
+        when(jobDataReplicator.getCurrent()).thenReturn(JobSnapshot.newInstance("snapshot1", Collections.emptyMap(), Collections.emptyMap()));
         when(relocationDataReplicator.getCurrent()).thenReturn(TaskRelocationSnapshot.newBuilder().build());
     }
 
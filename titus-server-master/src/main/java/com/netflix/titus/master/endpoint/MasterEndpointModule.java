@@ -26,6 +26,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.loadshedding.AdmissionController;
 import com.netflix.titus.common.util.loadshedding.AdmissionControllers;
+import com.netflix.titus.common.util.loadshedding.adaptive.AdaptiveAdmissionControllerConfiguration;
 import com.netflix.titus.common.util.loadshedding.grpc.GrpcAdmissionControllerServerInterceptor;
 import com.netflix.titus.master.endpoint.grpc.GrpcMasterEndpointConfiguration;
 import com.netflix.titus.master.endpoint.grpc.TitusMasterGrpcServer;
@@ -36,6 +37,7 @@ import com.netflix.titus.runtime.endpoint.metadata.CallMetadataResolver;
 public class MasterEndpointModule extends AbstractModule {
 
     public static final String GRPC_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX = "titus.master.grpcServer.admissionController.buckets";
+    public static final String GRPC_ADAPTIVE_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX = "titus.master.grpcServer.admissionController.adaptive";
 
     private static final String UNIDENTIFIED = "unidentified";
 
@@ -55,13 +57,19 @@ public class MasterEndpointModule extends AbstractModule {
     @Provides
     @Singleton
     public GrpcAdmissionControllerServerInterceptor getGrpcAdmissionControllerServerInterceptor(Config config,
+                                                                                                ConfigProxyFactory factory,
                                                                                                 GrpcMasterEndpointConfiguration configuration,
                                                                                                 CallMetadataResolver callMetadataResolver,
                                                                                                 TitusRuntime titusRuntime) {
-        AdmissionController mainController = AdmissionControllers.tokenBucketsFromArchaius(
+        AdmissionController tokenBuckets = AdmissionControllers.tokenBucketsFromArchaius(
                 config.getPrefixedView(GRPC_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX),
                 titusRuntime
         );
+        AdmissionController mainController = AdmissionControllers.adaptive(
+                tokenBuckets,
+                factory.newProxy(AdaptiveAdmissionControllerConfiguration.class, GRPC_ADAPTIVE_ADMISSION_CONTROLLER_CONFIGURATION_PREFIX),
+                titusRuntime
+        );
         AdmissionController circuitBreaker = AdmissionControllers.circuitBreaker(
                 mainController,
                 configuration::isAdmissionControllerEnabled
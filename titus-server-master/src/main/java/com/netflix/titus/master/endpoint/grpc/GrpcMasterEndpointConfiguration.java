@@ -48,4 +48,45 @@ public interface GrpcMasterEndpointConfiguration {
      */
     @DefaultValue("256")
     int getServerStreamsThreadPoolSize();
+
+    /**
+     * Default flow control policy for observeJobs subscribers (buffer, conflate or disconnect). Events are written
+     * to a subscriber only when its GRPC transport is ready, and are kept in a per-subscriber buffer otherwise.
+     */
+    @DefaultValue("buffer")
+    String getObserveJobsFlowControlPolicy();
+
+    /**
+     * Callers (by the id of the first caller in the call metadata) matching this pattern use the conflate policy,
+     * in which only the latest pending state of a job or a task is kept.
+     */
+    @DefaultValue("NONE")
+    String getObserveJobsConflatingCallersPattern();
+
+    /**
+     * Callers matching this pattern use the disconnect policy, and are disconnected when their lag exceeds
+     * {@link #getObserveJobsMaxLagMs()}.
+     */
+    @DefaultValue("NONE")
+    String getObserveJobsDisconnectingCallersPattern();
+
+    /**
+     * Maximum number of pending events (not counting the initial snapshot) per observeJobs subscriber. A subscriber
+     * exceeding this limit is disconnected.
+     */
+    @DefaultValue("1024")
+    int getObserveJobsMaxBufferSize();
+
+    /**
+     * Maximum age of the oldest pending event for subscribers with the disconnect policy.
+     */
+    @DefaultValue("30000")
+    long getObserveJobsMaxLagMs();
+
+    /**
+     * Number of the most recent job events kept in memory, to allow observeJobs clients to resume a broken stream
+     * without a full snapshot.
+     */
+    @DefaultValue("20000")
+    int getObserveJobsJournalSize();
 }
@@ -28,12 +28,14 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.netflix.titus.api.containerhealth.model.event.ContainerHealthUpdateEvent;
 import com.netflix.titus.api.containerhealth.service.ContainerHealthService;
 import com.netflix.titus.api.eviction.model.EvictionQuota;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobState;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.model.reference.Reference;
 import com.netflix.titus.common.runtime.TitusRuntime;
@@ -42,6 +44,7 @@ import com.netflix.titus.common.util.guice.annotation.Activator;
 import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.rx.ReactorRetriers;
 import com.netflix.titus.master.eviction.service.quota.job.EffectiveJobDisruptionBudgetResolver;
+import com.netflix.titus.master.eviction.service.quota.job.HealthyTaskCounters;
 import com.netflix.titus.master.eviction.service.quota.job.JobQuotaController;
 import com.netflix.titus.master.eviction.service.quota.system.SystemQuotaController;
 import com.netflix.titus.runtime.connector.eviction.EvictionConfiguration;
@@ -63,18 +66,28 @@ public class TitusQuotasManager {
 
     private static final ConsumptionResult UNKNOWN_JOB = ConsumptionResult.rejected("Unknown job");
 
+    private static final int JOB_LOCK_STRIPES = 64;
+
     private final V3JobOperations jobOperations;
     private final EffectiveJobDisruptionBudgetResolver budgetResolver;
     private final ContainerHealthService containerHealthService;
     private final SystemQuotaController systemQuotaController;
     private final TitusRuntime titusRuntime;
 
+    private final HealthyTaskCounters healthyTaskCounters;
+
     private final ConcurrentMap<String, JobQuotaController> jobQuotaControllersByJobId = new ConcurrentHashMap<>();
 
-    private final Object lock = new Object();
+    /**
+     * Job quota controllers are not thread safe, so quota consumption is serialized per job. Jobs are mapped to
+     * a fixed set of locks, so evictions of different jobs can proceed in parallel.
+     */
+    private final Object[] jobLocks = new Object[JOB_LOCK_STRIPES];
     private final Function<String, Matcher> appsExemptFromSystemDisruptionWindowMatcherFactory;
 
     private Disposable jobUpdateDisposable;
+    private Disposable taskUpdateDisposable;
+    private Disposable containerHealthUpdateDisposable;
 
     @Inject
     public TitusQuotasManager(V3JobOperations jobOperations,
@@ -87,6 +100,10 @@ public class TitusQuotasManager {
         this.containerHealthService = containerHealthService;
         this.systemQuotaController = systemQuotaController;
         this.jobOperations = jobOperations;
+        this.healthyTaskCounters = new HealthyTaskCounters(jobOperations, containerHealthService);
+        for (int i = 0; i < JOB_LOCK_STRIPES; i++) {
+            jobLocks[i] = new Object();
+        }
         this.appsExemptFromSystemDisruptionWindowMatcherFactory = RegExpExt.dynamicMatcher(evictionConfiguration::getAppsExemptFromSystemDisruptionWindow,
                 "titus.eviction.appsExemptFromSystemDisruptionWindow", Pattern.DOTALL, logger);
         this.titusRuntime = titusRuntime;
@@ -100,11 +117,24 @@ public class TitusQuotasManager {
                 .transformDeferred(ReactorExt.head(jobOperations::getJobs))
                 .transformDeferred(ReactorRetriers.instrumentedRetryer(NAME, RETRY_INTERVAL, logger))
                 .subscribe(this::updateJobController);
+
+        this.taskUpdateDisposable = jobOperations.observeJobsReactor()
+                .filter(event -> event instanceof TaskUpdateEvent)
+                .map(event -> ((TaskUpdateEvent) event).getCurrentTask())
+                .transformDeferred(healthyTaskCounters::withTaskSnapshot)
+                .transformDeferred(ReactorRetriers.instrumentedRetryer(NAME + "TaskUpdates", RETRY_INTERVAL, logger))
+                .subscribe(healthyTaskCounters::onTaskUpdate);
+        this.containerHealthUpdateDisposable = containerHealthService.events(false)
+                .filter(event -> event instanceof ContainerHealthUpdateEvent)
+                .map(event -> ((ContainerHealthUpdateEvent) event).getContainerHealthStatus())
+                .transformDeferred(ReactorRetriers.instrumentedRetryer(NAME + "ContainerHealthUpdates", RETRY_INTERVAL, logger))
+                .subscribe(healthyTaskCounters::onContainerHealthUpdate);
+        healthyTaskCounters.activate();
     }
 
     @PreDestroy
     public void shutdown() {
-        ReactorExt.safeDispose(jobUpdateDisposable);
+        ReactorExt.safeDispose(jobUpdateDisposable, taskUpdateDisposable, containerHealthUpdateDisposable);
     }
 
     public ConsumptionResult tryConsumeQuota(Job<?> job, Task task) {
@@ -142,6 +172,7 @@ public class TitusQuotasManager {
             updateRunningJobController(newJob);
         } else {
             jobQuotaControllersByJobId.remove(newJob.getId());
+            healthyTaskCounters.onJobFinished(newJob.getId());
         }
     }
 
@@ -151,13 +182,16 @@ public class TitusQuotasManager {
         if (jobQuotaController != null) {
             jobQuotaControllersByJobId.put(newJob.getId(), jobQuotaController.update(newJob));
         } else {
-            jobQuotaControllersByJobId.put(newJob.getId(), new JobQuotaController(newJob, jobOperations, budgetResolver, containerHealthService, titusRuntime));
+            jobQuotaControllersByJobId.put(newJob.getId(), new JobQuotaController(newJob, jobOperations, budgetResolver, healthyTaskCounters, titusRuntime));
         }
     }
 
     @VisibleForTesting
     ConsumptionResult tryConsumeSystemAndJobQuota(JobQuotaController jobQuotaController, Job<?> job, String taskId) {
-        synchronized (lock) {
+        // The system quota is a thread safe token bucket, which is consumed and given back without the job lock.
+        // A concurrent request may be rejected because of a token that is about to be given back, but the quota is
+        // never exceeded.
+        synchronized (jobLockOf(job.getId())) {
             ConsumptionResult jobResult = jobQuotaController.consume(taskId);
             ConsumptionResult systemResult = systemQuotaController.consume(taskId);
             if (isJobExemptFromSystemDisruptionWindow(job)) {
@@ -189,6 +223,10 @@ public class TitusQuotasManager {
         }
     }
 
+    private Object jobLockOf(String jobId) {
+        return jobLocks[(jobId.hashCode() & Integer.MAX_VALUE) % JOB_LOCK_STRIPES];
+    }
+
     @VisibleForTesting
     boolean isJobExemptFromSystemDisruptionWindow(Job<?> job) {
         String applicationName = job.getJobDescriptor().getApplicationName();
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.eviction.service.quota.job;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.titus.api.containerhealth.model.ContainerHealthState;
+import com.netflix.titus.api.containerhealth.model.ContainerHealthStatus;
+import com.netflix.titus.api.containerhealth.service.ContainerHealthService;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.service.JobManagerException;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.util.rx.ReactorExt;
+import reactor.core.publisher.Flux;
+
+/**
+ * Number of tasks of a job, which are started and report healthy container status. Once activated, the counters are
+ * maintained incrementally from the task and the container health events, so reading them does not require walking
+ * the job tasks, and querying {@link ContainerHealthService} for each of them. Jobs not seen yet in the events, are
+ * counted by a scan. The task event stream must be subscribed with {@link #withTaskSnapshot(Flux)}, so the counters are
+ * rebuilt from the current tasks after each reconnect.
+ */
+public class HealthyTaskCounters {
+
+    private final V3JobOperations jobOperations;
+    private final ContainerHealthService containerHealthService;
+
+    /**
+     * Replaced as a whole when the task snapshot is loaded, so the readers never see a partially rebuilt state.
+     */
+    private volatile ConcurrentMap<String, AtomicInteger> healthyCountsByJobId = new ConcurrentHashMap<>();
+
+    /**
+     * Task states used to compute the counter deltas. Guarded by this object monitor, as the task and the container
+     * health events are delivered on different threads.
+     */
+    private final Map<String, TaskHealth> tasksById = new HashMap<>();
+
+    private volatile boolean active;
+
+    public HealthyTaskCounters(V3JobOperations jobOperations, ContainerHealthService containerHealthService) {
+        this.jobOperations = jobOperations;
+        this.containerHealthService = containerHealthService;
+    }
+
+    public int getHealthyCount(String jobId) {
+        if (active) {
+            AtomicInteger counter = healthyCountsByJobId.get(jobId);
+            if (counter != null) {
+                return counter.get();
+            }
+        }
+        return countHealthy(jobId);
+    }
+
+    /**
+     * Called after the event subscriptions are established, and the current tasks are loaded.
+     */
+    public void activate() {
+        this.active = true;
+    }
+
+    /**
+     * Prepends the task snapshot to the task update stream. The snapshot is read on each subscription, including the
+     * resubscriptions after an error, and replaces the current counter state. Tasks that finished while the stream
+     * was disconnected have no events, and would be counted as healthy forever otherwise.
+     */
+    public Flux<Task> withTaskSnapshot(Flux<Task> taskUpdates) {
+        return taskUpdates.transformDeferred(ReactorExt.head(() -> {
+            resetTasks(jobOperations.getTasks());
+            return Collections.emptyList();
+        }));
+    }
+
+    public synchronized void resetTasks(Collection<Task> tasks) {
+        tasksById.clear();
+        ConcurrentMap<String, AtomicInteger> newHealthyCounts = new ConcurrentHashMap<>();
+        for (Task task : tasks) {
+            updateTask(task, newHealthyCounts);
+        }
+        this.healthyCountsByJobId = newHealthyCounts;
+    }
+
+    public synchronized void onTaskUpdate(Task task) {
+        updateTask(task, healthyCountsByJobId);
+    }
+
+    private void updateTask(Task task, ConcurrentMap<String, AtomicInteger> healthyCounts) {
+        TaskHealth previous = tasksById.get(task.getId());
+        if (previous != null && !previous.jobId.equals(task.getJobId())) {
+            // Task moved to another job
+            if (previous.isCounted()) {
+                decrement(healthyCounts, previous.jobId);
+            }
+            previous = null;
+        }
+
+        if (task.getStatus().getState() == TaskState.Finished) {
+            tasksById.remove(task.getId());
+            if (previous != null && previous.isCounted()) {
+                decrement(healthyCounts, task.getJobId());
+            }
+            return;
+        }
+
+        boolean started = task.getStatus().getState() == TaskState.Started;
+        boolean healthy = containerHealthService.findHealthStatus(task.getId()).map(HealthyTaskCounters::isHealthy).orElse(false);
+        TaskHealth current = new TaskHealth(task.getJobId(), started, healthy);
+        tasksById.put(task.getId(), current);
+
+        AtomicInteger counter = healthyCounts.computeIfAbsent(task.getJobId(), id -> new AtomicInteger());
+        applyDelta(counter, previous, current);
+    }
+
+    public synchronized void onContainerHealthUpdate(ContainerHealthStatus status) {
+        TaskHealth previous = tasksById.get(status.getTaskId());
+        if (previous == null) {
+            // Health state is read when the task update is processed
+            return;
+        }
+        TaskHealth current = new TaskHealth(previous.jobId, previous.started, isHealthy(status));
+        tasksById.put(status.getTaskId(), current);
+        applyDelta(healthyCountsByJobId.computeIfAbsent(previous.jobId, id -> new AtomicInteger()), previous, current);
+    }
+
+    /**
+     * Tasks of a finished job are all finished, and already removed by {@link #onTaskUpdate(Task)}.
+     */
+    public void onJobFinished(String jobId) {
+        healthyCountsByJobId.remove(jobId);
+    }
+
+    private static void decrement(ConcurrentMap<String, AtomicInteger> healthyCounts, String jobId) {
+        AtomicInteger counter = healthyCounts.get(jobId);
+        if (counter != null) {
+            counter.decrementAndGet();
+        }
+    }
+
+    private static void applyDelta(AtomicInteger counter, TaskHealth previous, TaskHealth current) {
+        int delta = (current.isCounted() ? 1 : 0) - (previous != null && previous.isCounted() ? 1 : 0);
+        if (delta != 0) {
+            counter.addAndGet(delta);
+        }
+    }
+
+    private int countHealthy(String jobId) {
+        List<Task> tasks;
+        try {
+            tasks = jobOperations.getTasks(jobId);
+        } catch (JobManagerException e) {
+            return 0;
+        }
+
+        int healthy = 0;
+        for (Task task : tasks) {
+            if (task.getStatus().getState() == TaskState.Started) {
+                Optional<ContainerHealthStatus> statusOpt = containerHealthService.findHealthStatus(task.getId());
+                if (statusOpt.isPresent() && isHealthy(statusOpt.get())) {
+                    healthy++;
+                }
+            }
+        }
+        return healthy;
+    }
+
+    private static boolean isHealthy(ContainerHealthStatus status) {
+        return status.getState() == ContainerHealthState.Healthy;
+    }
+
+    private static class TaskHealth {
+
+        private final String jobId;
+        private final boolean started;
+        private final boolean healthy;
+
+        private TaskHealth(String jobId, boolean started, boolean healthy) {
+            this.jobId = jobId;
+            this.started = started;
+            this.healthy = healthy;
+        }
+
+        private boolean isCounted() {
+            return started && healthy;
+        }
+    }
+}
@@ -48,7 +48,7 @@ public class JobQuotaController implements QuotaController<Job<?>> {
     private final Job<?> job;
     private final V3JobOperations jobOperations;
     private final EffectiveJobDisruptionBudgetResolver effectiveDisruptionBudgetResolver;
-    private final ContainerHealthService containerHealthService;
+    private final HealthyTaskCounters healthyTaskCounters;
     private final TitusRuntime titusRuntime;
     private final List<QuotaTracker> quotaTrackers;
     private final List<QuotaController<Job<?>>> quotaControllers;
@@ -58,29 +58,37 @@ public class JobQuotaController implements QuotaController<Job<?>> {
                               EffectiveJobDisruptionBudgetResolver effectiveDisruptionBudgetResolver,
                               ContainerHealthService containerHealthService,
                               TitusRuntime titusRuntime) {
+        this(job, jobOperations, effectiveDisruptionBudgetResolver, new HealthyTaskCounters(jobOperations, containerHealthService), titusRuntime);
+    }
+
+    public JobQuotaController(Job<?> job,
+                              V3JobOperations jobOperations,
+                              EffectiveJobDisruptionBudgetResolver effectiveDisruptionBudgetResolver,
+                              HealthyTaskCounters healthyTaskCounters,
+                              TitusRuntime titusRuntime) {
         this.job = job;
         this.jobOperations = jobOperations;
         this.effectiveDisruptionBudgetResolver = effectiveDisruptionBudgetResolver;
-        this.containerHealthService = containerHealthService;
+        this.healthyTaskCounters = healthyTaskCounters;
         this.titusRuntime = titusRuntime;
 
-        this.quotaTrackers = buildQuotaTrackers(job, jobOperations, effectiveDisruptionBudgetResolver, containerHealthService, titusRuntime);
+        this.quotaTrackers = buildQuotaTrackers(job, effectiveDisruptionBudgetResolver, healthyTaskCounters, titusRuntime);
         this.quotaControllers = buildQuotaControllers(job, jobOperations, effectiveDisruptionBudgetResolver, titusRuntime);
     }
 
     private JobQuotaController(Job<?> newJob,
                                V3JobOperations jobOperations,
                                EffectiveJobDisruptionBudgetResolver effectiveDisruptionBudgetResolver,
-                               ContainerHealthService containerHealthService,
+                               HealthyTaskCounters healthyTaskCounters,
                                JobQuotaController previousJobQuotaController,
                                TitusRuntime titusRuntime) {
         this.job = newJob;
         this.jobOperations = jobOperations;
         this.effectiveDisruptionBudgetResolver = effectiveDisruptionBudgetResolver;
-        this.containerHealthService = containerHealthService;
+        this.healthyTaskCounters = healthyTaskCounters;
         this.titusRuntime = titusRuntime;
 
-        this.quotaTrackers = buildQuotaTrackers(job, jobOperations, effectiveDisruptionBudgetResolver, containerHealthService, titusRuntime);
+        this.quotaTrackers = buildQuotaTrackers(job, effectiveDisruptionBudgetResolver, healthyTaskCounters, titusRuntime);
         this.quotaControllers = mergeQuotaControllers(previousJobQuotaController.quotaControllers, newJob, jobOperations, effectiveDisruptionBudgetResolver, titusRuntime);
     }
 
@@ -158,7 +166,7 @@ public class JobQuotaController implements QuotaController<Job<?>> {
                 updatedJob,
                 jobOperations,
                 effectiveDisruptionBudgetResolver,
-                containerHealthService,
+                healthyTaskCounters,
                 this,
                 titusRuntime
         );
@@ -192,6 +200,13 @@ public class JobQuotaController implements QuotaController<Job<?>> {
                                                  EffectiveJobDisruptionBudgetResolver effectiveDisruptionBudgetResolver,
                                                  ContainerHealthService containerHealthService,
                                                  TitusRuntime titusRuntime) {
+        return buildQuotaTrackers(job, effectiveDisruptionBudgetResolver, new HealthyTaskCounters(jobOperations, containerHealthService), titusRuntime);
+    }
+
+    private static List<QuotaTracker> buildQuotaTrackers(Job<?> job,
+                                                         EffectiveJobDisruptionBudgetResolver effectiveDisruptionBudgetResolver,
+                                                         HealthyTaskCounters healthyTaskCounters,
+                                                         TitusRuntime titusRuntime) {
         List<QuotaTracker> quotaTrackers = new ArrayList<>();
 
         DisruptionBudget effectiveBudget = effectiveDisruptionBudgetResolver.resolve(job);
@@ -201,9 +216,9 @@ public class JobQuotaController implements QuotaController<Job<?>> {
 
         DisruptionBudgetPolicy policy = effectiveBudget.getDisruptionBudgetPolicy();
         if (policy instanceof AvailabilityPercentageLimitDisruptionBudgetPolicy) {
-            quotaTrackers.add(UnhealthyTasksLimitTracker.percentageLimit(job, (AvailabilityPercentageLimitDisruptionBudgetPolicy) policy, jobOperations, containerHealthService));
+            quotaTrackers.add(UnhealthyTasksLimitTracker.percentageLimit(job, (AvailabilityPercentageLimitDisruptionBudgetPolicy) policy, healthyTaskCounters));
         } else if (policy instanceof UnhealthyTasksLimitDisruptionBudgetPolicy) {
-            quotaTrackers.add(UnhealthyTasksLimitTracker.absoluteLimit(job, (UnhealthyTasksLimitDisruptionBudgetPolicy) policy, jobOperations, containerHealthService));
+            quotaTrackers.add(UnhealthyTasksLimitTracker.absoluteLimit(job, (UnhealthyTasksLimitDisruptionBudgetPolicy) policy, healthyTaskCounters));
         }
 
         return quotaTrackers;
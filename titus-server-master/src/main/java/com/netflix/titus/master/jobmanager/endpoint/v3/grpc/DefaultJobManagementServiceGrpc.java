@@ -26,7 +26,10 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -49,7 +52,6 @@ import com.netflix.titus.api.jobmanager.service.JobManagerException;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations.Trigger;
 import com.netflix.titus.api.model.Pagination;
-import com.netflix.titus.api.model.PaginationUtil;
 import com.netflix.titus.api.model.ResourceDimension;
 import com.netflix.titus.api.model.Tier;
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
@@ -63,6 +65,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.ExecutorsExt;
 import com.netflix.titus.common.util.ProtobufExt;
+import com.netflix.titus.common.util.RegExpExt;
 import com.netflix.titus.common.util.archaius2.ObjectConfigurationResolver;
 import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
@@ -105,9 +108,9 @@ import com.netflix.titus.runtime.endpoint.metadata.CallMetadataUtils;
 import com.netflix.titus.runtime.endpoint.v3.grpc.DefaultGrpcObjectsCache;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcObjectsCacheConfiguration;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
 import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3TaskQueryCriteriaEvaluator;
-import com.netflix.titus.runtime.jobmanager.JobComparators;
 import com.netflix.titus.runtime.jobmanager.JobManagerCursors;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -136,6 +139,12 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultJobManagementServiceGrpc.class);
 
+    /**
+     * Buffer between the shared job event stream, and a subscriber stream. It is drained by the observeJobs
+     * thread pool, and the slow consumer handling is done by {@link FlowControlledJobEventSubscriber}.
+     */
+    private static final int OBSERVE_JOBS_BUFFER_SIZE = 1024;
+
     private static final JobChangeNotification SNAPSHOT_END_MARKER = JobChangeNotification.newBuilder()
             .setSnapshotEnd(JobChangeNotification.SnapshotEnd.newBuilder())
             .build();
@@ -154,7 +163,10 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
     private final TitusRuntime titusRuntime;
     private final Scheduler observeJobsScheduler;
     private final DefaultGrpcObjectsCache grpcObjectsCache;
+    private final SharedJobEventStream sharedJobEventStream;
     private final DefaultJobManagementServiceGrpcMetrics metrics;
+    private final Function<String, Matcher> conflatingCallersMatcher;
+    private final Function<String, Matcher> disconnectingCallersMatcher;
 
     @Inject
     public DefaultJobManagementServiceGrpc(GrpcMasterEndpointConfiguration configuration,
@@ -188,11 +200,17 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
         this.grpcObjectsCache = new DefaultGrpcObjectsCache(jobOperations, grpcObjectsCacheConfiguration, logStorageInfo, titusRuntime);
         grpcObjectsCache.activate();
+        this.sharedJobEventStream = new SharedJobEventStream(jobOperations, grpcObjectsCache, observeJobsScheduler, configuration.getObserveJobsJournalSize());
         this.metrics = new DefaultJobManagementServiceGrpcMetrics(titusRuntime);
+        this.conflatingCallersMatcher = RegExpExt.dynamicMatcher(configuration::getObserveJobsConflatingCallersPattern,
+                "observeJobsConflatingCallersPattern", 0, logger);
+        this.disconnectingCallersMatcher = RegExpExt.dynamicMatcher(configuration::getObserveJobsDisconnectingCallersPattern,
+                "observeJobsDisconnectingCallersPattern", 0, logger);
     }
 
     @PreDestroy
     public void shutdown() {
+        sharedJobEventStream.shutdown();
         metrics.shutdown();
         grpcObjectsCache.shutdown();
     }
@@ -253,18 +271,10 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         }
 
         try {
-            // We need to find all jobs to get the total number of them.
-            List<com.netflix.titus.api.jobmanager.model.job.Job<?>> allFilteredJobs = jobOperations.findJobs(
+            Pair<List<com.netflix.titus.api.jobmanager.model.job.Job<?>>, Pagination> queryResult = jobOperations.findJobsPage(
                     new V3JobQueryCriteriaEvaluator(toJobQueryCriteria(jobQuery), titusRuntime),
-                    0,
-                    Integer.MAX_VALUE / 2
-            );
-
-            Pair<List<com.netflix.titus.api.jobmanager.model.job.Job<?>>, Pagination> queryResult = PaginationUtil.takePageWithCursorAndKeyExtractor(
                     toPage(jobQuery.getPage()),
-                    allFilteredJobs,
-                    JobComparators::createJobKeyOf,
-                    JobManagerCursors::coreJobIndexOf,
+                    JobManagerCursors::decode,
                     JobManagerCursors::newJobCoreCursorFrom
             );
             List<Job> grpcJobs = new ArrayList<>();
@@ -316,22 +326,10 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
         }
 
         try {
-            // We need to find all tasks to get the total number of them.
-            List<com.netflix.titus.api.jobmanager.model.job.Task> allFilteredTasks = new ArrayList<>();
-            for (Pair<com.netflix.titus.api.jobmanager.model.job.Job<?>, com.netflix.titus.api.jobmanager.model.job.Task> jobTaskPair : jobOperations.findTasks(
+            Pair<List<com.netflix.titus.api.jobmanager.model.job.Task>, Pagination> queryResult = jobOperations.findTasksPage(
                     new V3TaskQueryCriteriaEvaluator(toJobQueryCriteria(taskQuery), titusRuntime),
-                    0,
-                    Integer.MAX_VALUE / 2
-            )) {
-                com.netflix.titus.api.jobmanager.model.job.Task right = jobTaskPair.getRight();
-                allFilteredTasks.add(right);
-            }
-
-            Pair<List<com.netflix.titus.api.jobmanager.model.job.Task>, Pagination> queryResult = PaginationUtil.takePageWithCursorAndKeyExtractor(
                     toPage(taskQuery.getPage()),
-                    allFilteredTasks,
-                    JobComparators::createTaskKeyOf,
-                    JobManagerCursors::coreTaskIndexOf,
+                    JobManagerCursors::decode,
                     JobManagerCursors::newTaskCoreCursorFrom
             );
 
@@ -628,55 +626,116 @@ public class DefaultJobManagementServiceGrpc extends JobManagementServiceGrpc.Jo
 
         String trxId = UUID.randomUUID().toString();
         CallMetadata callMetadata = callMetadataResolver.resolve().orElse(CallMetadataConstants.UNDEFINED_CALL_METADATA);
-        metrics.observeJobsStarted(trxId, callMetadata);
 
         JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria = toJobQueryCriteria(query);
         V3JobQueryCriteriaEvaluator jobsPredicate = new V3JobQueryCriteriaEvaluator(criteria, titusRuntime);
         V3TaskQueryCriteriaEvaluator tasksPredicate = new V3TaskQueryCriteriaEvaluator(criteria, titusRuntime);
 
-        Observable<JobChangeNotification> eventStream = jobOperations.observeJobs(jobsPredicate, tasksPredicate)
-                // avoid clogging the computation scheduler
+        Optional<ObserveJobsResumeToken> resumeToken = ObserveJobsResumeToken.parse(query.getFilteringCriteriaMap().get(ObserveJobsResumeToken.CRITERIA_KEY));
+        sharedJobEventStream.connectJournal();
+
+        // Events already covered by the snapshot (or the journal replay) are dropped from the live stream.
+        AtomicLong lastSequence = new AtomicLong(ObserveJobsResumeToken.NO_SEQUENCE);
+        Observable<JobChangeNotification> eventStream = sharedJobEventStream.observeJobs(jobsPredicate, tasksPredicate, OBSERVE_JOBS_BUFFER_SIZE)
                 .observeOn(observeJobsScheduler)
                 .subscribeOn(observeJobsScheduler, false)
-                .map(event -> GrpcJobManagementModelConverters.toGrpcJobChangeNotification(event, grpcObjectsCache))
-                .compose(ObservableExt.head(() -> {
-                    List<JobChangeNotification> snapshot = createJobsSnapshot(jobsPredicate, tasksPredicate);
-                    snapshot.add(SNAPSHOT_END_MARKER);
-                    return snapshot;
-                }))
+                .compose(ObservableExt.head(() -> createJobsSnapshotOrResume(trxId, resumeToken, jobsPredicate, tasksPredicate)))
+                .filter(event -> {
+                    long sequence = ObserveJobsResumeToken.getSequence(event);
+                    if (sequence == ObserveJobsResumeToken.NO_SEQUENCE) {
+                        return true;
+                    }
+                    if (sequence <= lastSequence.get()) {
+                        return false;
+                    }
+                    lastSequence.set(sequence);
+                    return true;
+                })
                 .doOnError(e -> logger.error("Unexpected error in jobs event stream", e));
 
+        ServerCallStreamObserver<JobChangeNotification> serverObserver = (ServerCallStreamObserver<JobChangeNotification>) responseObserver;
         AtomicBoolean closingProcessed = new AtomicBoolean();
+        FlowControlledJobEventSubscriber subscriber = new FlowControlledJobEventSubscriber(
+                trxId,
+                serverObserver,
+                resolveFlowControlPolicy(callMetadata),
+                configuration.getObserveJobsMaxBufferSize(),
+                configuration.getObserveJobsMaxLagMs(),
+                titusRuntime.getClock(),
+                metrics,
+                e -> {
+                    if (!closingProcessed.getAndSet(true)) {
+                        metrics.observeJobsError(trxId, start.elapsed(TimeUnit.MILLISECONDS), e);
+                    }
+                    if (e instanceof StatusRuntimeException) {
+                        responseObserver.onError(e);
+                    } else {
+                        responseObserver.onError(
+                                new StatusRuntimeException(Status.INTERNAL
+                                        .withDescription("All jobs monitoring stream terminated with an error")
+                                        .withCause(e))
+                        );
+                    }
+                },
+                () -> {
+                    if (!closingProcessed.getAndSet(true)) {
+                        metrics.observeJobsCompleted(trxId, start.elapsed(TimeUnit.MILLISECONDS));
+                    }
+                    responseObserver.onCompleted();
+                }
+        );
+        metrics.observeJobsStarted(trxId, callMetadata, subscriber);
+
         Subscription subscription = eventStream
                 .doOnUnsubscribe(() -> {
                     if (!closingProcessed.getAndSet(true)) {
                         metrics.observeJobsUnsubscribed(trxId, start.elapsed(TimeUnit.MILLISECONDS));
                     }
                 })
-                .subscribe(
-                        responseObserver::onNext,
-                        e -> {
-                            if (!closingProcessed.getAndSet(true)) {
-                                metrics.observeJobsError(trxId, start.elapsed(TimeUnit.MILLISECONDS), e);
-                            }
-                            responseObserver.onError(
-                                    new StatusRuntimeException(Status.INTERNAL
-                                            .withDescription("All jobs monitoring stream terminated with an error")
-                                            .withCause(e))
-                            );
-                        },
-                        () -> {
-                            if (!closingProcessed.getAndSet(true)) {
-                                metrics.observeJobsCompleted(trxId, start.elapsed(TimeUnit.MILLISECONDS));
-                            }
-                            responseObserver.onCompleted();
-                        }
-                );
+                .subscribe(subscriber);
 
-        ServerCallStreamObserver<JobChangeNotification> serverObserver = (ServerCallStreamObserver<JobChangeNotification>) responseObserver;
         serverObserver.setOnCancelHandler(subscription::unsubscribe);
     }
 
+    /**
+     * If the client resume token is still in the event journal, only the events missed by the client are returned.
+     * Otherwise a full snapshot is created. The journal position is read before the snapshot, so the snapshot state
+     * includes all events up to this position.
+     */
+    private List<JobChangeNotification> createJobsSnapshotOrResume(String trxId,
+                                                                   Optional<ObserveJobsResumeToken> resumeToken,
+                                                                   V3JobQueryCriteriaEvaluator jobsPredicate,
+                                                                   V3TaskQueryCriteriaEvaluator tasksPredicate) {
+        if (resumeToken.isPresent()) {
+            Optional<Pair<ObserveJobsResumeToken, List<JobChangeNotification>>> resumed = sharedJobEventStream.readJournal(
+                    resumeToken.get(), jobsPredicate, tasksPredicate
+            );
+            if (resumed.isPresent()) {
+                List<JobChangeNotification> missed = new ArrayList<>(resumed.get().getRight());
+                missed.add(ObserveJobsResumeToken.newSnapshotEndMarker(resumed.get().getLeft(), true));
+                metrics.observeJobsStreamStarted(trxId, "resumed");
+                return missed;
+            }
+        }
+
+        Optional<ObserveJobsResumeToken> position = sharedJobEventStream.getPosition();
+        List<JobChangeNotification> snapshot = createJobsSnapshot(jobsPredicate, tasksPredicate);
+        snapshot.add(position.map(p -> ObserveJobsResumeToken.newSnapshotEndMarker(p, false)).orElse(SNAPSHOT_END_MARKER));
+        metrics.observeJobsStreamStarted(trxId, resumeToken.isPresent() ? "resumeFallback" : "snapshot");
+        return snapshot;
+    }
+
+    private FlowControlledJobEventSubscriber.Policy resolveFlowControlPolicy(CallMetadata callMetadata) {
+        String callerId = CollectionsExt.isNullOrEmpty(callMetadata.getCallers()) ? "" : callMetadata.getCallers().get(0).getId();
+        if (conflatingCallersMatcher.apply(callerId).matches()) {
+            return FlowControlledJobEventSubscriber.Policy.Conflate;
+        }
+        if (disconnectingCallersMatcher.apply(callerId).matches()) {
+            return FlowControlledJobEventSubscriber.Policy.Disconnect;
+        }
+        return FlowControlledJobEventSubscriber.Policy.parse(configuration.getObserveJobsFlowControlPolicy());
+    }
+
     @Override
     public void observeJob(JobId request, StreamObserver<JobChangeNotification> responseObserver) {
         String jobId = request.getId();
@@ -55,19 +55,49 @@ class DefaultJobManagementServiceGrpcMetrics {
 
     private final ConcurrentMap<String, StreamHolder> streamHolders = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Gauge> pendingSubscriptionsByCallerId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> bufferDepthByCallerId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> lagByCallerId = new ConcurrentHashMap<>();
     private final ScheduleReference scheduleRef;
 
     DefaultJobManagementServiceGrpcMetrics(TitusRuntime titusRuntime) {
         this.registry = titusRuntime.getRegistry();
-        this.scheduleRef = titusRuntime.getLocalScheduler().schedule(SCHEDULE_DESCRIPTOR, context -> updatePendingSubscriptionsGauges(), true);
+        this.scheduleRef = titusRuntime.getLocalScheduler().schedule(SCHEDULE_DESCRIPTOR, context -> {
+            updatePendingSubscriptionsGauges();
+            updateFlowControlGauges();
+        }, true);
     }
 
     void shutdown() {
         scheduleRef.cancel();
     }
 
-    void observeJobsStarted(String trxId, CallMetadata callMetadata) {
-        streamHolders.put(trxId, new StreamHolder(callMetadata));
+    void observeJobsStarted(String trxId, CallMetadata callMetadata, FlowControlledJobEventSubscriber subscriber) {
+        streamHolders.put(trxId, new StreamHolder(callMetadata, subscriber));
+    }
+
+    /**
+     * Records how a stream was started: with a full snapshot ('snapshot'), from the event journal ('resumed'),
+     * or with a full snapshot as the resume token was not in the journal anymore ('resumeFallback').
+     */
+    void observeJobsStreamStarted(String trxId, String mode) {
+        StreamHolder holder = streamHolders.get(trxId);
+        if (holder != null) {
+            holder.started(mode);
+        }
+    }
+
+    void observeJobsEventConflated(String trxId) {
+        StreamHolder holder = streamHolders.get(trxId);
+        if (holder != null) {
+            holder.conflated();
+        }
+    }
+
+    void observeJobsSlowConsumerDisconnected(String trxId) {
+        StreamHolder holder = streamHolders.get(trxId);
+        if (holder != null) {
+            holder.slowConsumerDisconnected();
+        }
     }
 
     void observeJobsUnsubscribed(String trxId, long elapsed) {
@@ -111,18 +141,68 @@ class DefaultJobManagementServiceGrpcMetrics {
         });
     }
 
+    /**
+     * Buffer depth and lag are reported per caller, as the largest value among all its streams, as the stream
+     * transaction ids are not suitable for metric tags.
+     */
+    void updateFlowControlGauges() {
+        Map<String, Long> bufferDepths = new HashMap<>();
+        Map<String, Long> lags = new HashMap<>();
+        for (StreamHolder holder : streamHolders.values()) {
+            bufferDepths.merge(holder.getCallerId(), (long) holder.getSubscriber().getBufferDepth(), Math::max);
+            lags.merge(holder.getCallerId(), holder.getSubscriber().getLagMs(), Math::max);
+        }
+        updateCallerGauges(bufferDepthByCallerId, bufferDepths, "observeJobsBufferDepth");
+        updateCallerGauges(lagByCallerId, lags, "observeJobsLagMs");
+    }
+
+    private void updateCallerGauges(ConcurrentMap<String, Gauge> gauges, Map<String, Long> values, String name) {
+        Set<String> lost = CollectionsExt.copyAndRemove(gauges.keySet(), values.keySet());
+        for (String id : lost) {
+            Gauge gauge = gauges.remove(id);
+            if (gauge != null) {
+                gauge.set(0);
+            }
+        }
+        values.forEach((callerId, value) -> {
+            Gauge gauge = gauges.computeIfAbsent(callerId, c -> registry.gauge(ROOT + name, "callerId", callerId));
+            gauge.set(value);
+        });
+    }
+
     private class StreamHolder {
 
         private final String callerId;
+        private final FlowControlledJobEventSubscriber subscriber;
 
-        private StreamHolder(CallMetadata callMetadata) {
+        private StreamHolder(CallMetadata callMetadata, FlowControlledJobEventSubscriber subscriber) {
             this.callerId = CollectionsExt.isNullOrEmpty(callMetadata.getCallers()) ? "unknown" : callMetadata.getCallers().get(0).getId();
+            this.subscriber = subscriber;
         }
 
         private String getCallerId() {
             return callerId;
         }
 
+        private FlowControlledJobEventSubscriber getSubscriber() {
+            return subscriber;
+        }
+
+        private void started(String mode) {
+            registry.counter(ROOT + "observeJobsStreamStarts", "callerId", callerId, "mode", mode).increment();
+        }
+
+        private void conflated() {
+            registry.counter(ROOT + "observeJobsConflatedEvents", "callerId", callerId).increment();
+        }
+
+        private void slowConsumerDisconnected() {
+            registry.counter(ROOT + "observeJobsSlowConsumerDisconnects",
+                    "callerId", callerId,
+                    "policy", subscriber.getPolicy().name()
+            ).increment();
+        }
+
         private void unsubscribed(long elapsed) {
             registry.timer(ROOT + "observeJobsSubscriptionExecutionTime",
                     "callerId", callerId,
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+
+import com.netflix.titus.common.util.time.Clock;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscriber;
+
+/**
+ * Bridges the GRPC transport flow control with the job event stream. Events are written to the client only when
+ * {@link ServerCallStreamObserver#isReady()} is true, and are held in a per-subscriber buffer otherwise. The buffer
+ * is drained from the GRPC 'on ready' callback. How the buffer grows, when the client does not keep up, depends
+ * on the {@link Policy}:
+ * <ul>
+ *     <li>{@link Policy#Buffer} - all events are kept, and the stream is terminated when the buffer limit is exceeded</li>
+ *     <li>{@link Policy#Conflate} - only the latest pending state of a job or a task is kept (in the position of its
+ *     first pending update), so the buffer size is bounded by the number of distinct entities that changed</li>
+ *     <li>{@link Policy#Disconnect} - like {@link Policy#Buffer}, but the stream is also terminated when the oldest
+ *     pending event is older than the lag limit, so the client re-connects and gets a fresh snapshot</li>
+ * </ul>
+ * The snapshot part of the stream (up to and including the snapshot end marker) is already materialized in memory,
+ * so it is not counted against the limits.
+ */
+class FlowControlledJobEventSubscriber extends Subscriber<JobChangeNotification> {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowControlledJobEventSubscriber.class);
+
+    enum Policy {
+        Buffer,
+        Conflate,
+        Disconnect;
+
+        static Policy parse(String name) {
+            for (Policy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            logger.warn("Unknown observeJobs flow control policy {}. Falling back to {}", name, Buffer);
+            return Buffer;
+        }
+    }
+
+    private final String trxId;
+    private final ServerCallStreamObserver<JobChangeNotification> responseObserver;
+    private final Policy policy;
+    private final int maxBufferSize;
+    private final long maxLagMs;
+    private final Clock clock;
+    private final DefaultJobManagementServiceGrpcMetrics metrics;
+    private final Consumer<Throwable> onError;
+    private final Runnable onCompleted;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<Object, PendingEvent> buffer = new LinkedHashMap<>();
+    private long nextEventKey;
+    private boolean snapshotCompleted;
+    private int pendingSnapshotEvents;
+    private boolean completedPending;
+    private boolean done;
+
+    FlowControlledJobEventSubscriber(String trxId,
+                                     ServerCallStreamObserver<JobChangeNotification> responseObserver,
+                                     Policy policy,
+                                     int maxBufferSize,
+                                     long maxLagMs,
+                                     Clock clock,
+                                     DefaultJobManagementServiceGrpcMetrics metrics,
+                                     Consumer<Throwable> onError,
+                                     Runnable onCompleted) {
+        this.trxId = trxId;
+        this.responseObserver = responseObserver;
+        this.policy = policy;
+        this.maxBufferSize = maxBufferSize;
+        this.maxLagMs = maxLagMs;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.onError = onError;
+        this.onCompleted = onCompleted;
+
+        responseObserver.setOnReadyHandler(this::onReady);
+    }
+
+    Policy getPolicy() {
+        return policy;
+    }
+
+    int getBufferDepth() {
+        synchronized (lock) {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * Age of the oldest pending event, or zero if the buffer is empty or the snapshot is still being written.
+     */
+    long getLagMs() {
+        synchronized (lock) {
+            return computeLagMs();
+        }
+    }
+
+    @Override
+    public void onNext(JobChangeNotification event) {
+        synchronized (lock) {
+            if (done) {
+                return;
+            }
+            enqueue(event);
+            if (!snapshotCompleted) {
+                pendingSnapshotEvents++;
+                snapshotCompleted = event.getNotificationCase() == JobChangeNotification.NotificationCase.SNAPSHOTEND;
+            }
+            drain();
+            checkLimits();
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        synchronized (lock) {
+            if (done) {
+                return;
+            }
+            done = true;
+            buffer.clear();
+        }
+        onError.accept(e);
+    }
+
+    @Override
+    public void onCompleted() {
+        synchronized (lock) {
+            if (done) {
+                return;
+            }
+            completedPending = true;
+            drain();
+        }
+    }
+
+    private void onReady() {
+        synchronized (lock) {
+            if (!done) {
+                drain();
+            }
+        }
+    }
+
+    private void enqueue(JobChangeNotification event) {
+        String entityKey = policy == Policy.Conflate ? toEntityKey(event) : null;
+        if (entityKey == null) {
+            buffer.put(nextEventKey++, new PendingEvent(event, clock.wallTime()));
+            return;
+        }
+        PendingEvent pending = buffer.get(entityKey);
+        if (pending == null) {
+            buffer.put(entityKey, new PendingEvent(event, clock.wallTime()));
+        } else {
+            // The conflated event keeps the sequence number of the one it replaces, so the sequence numbers
+            // remain ordered, and a client resuming from it gets all later events.
+            long sequence = ObserveJobsResumeToken.getSequence(pending.event);
+            pending.event = sequence == ObserveJobsResumeToken.NO_SEQUENCE ? event : ObserveJobsResumeToken.withSequence(event, sequence);
+            metrics.observeJobsEventConflated(trxId);
+        }
+    }
+
+    private void drain() {
+        Iterator<PendingEvent> it = buffer.values().iterator();
+        while (it.hasNext() && responseObserver.isReady()) {
+            PendingEvent next = it.next();
+            it.remove();
+            if (pendingSnapshotEvents > 0) {
+                pendingSnapshotEvents--;
+            }
+            responseObserver.onNext(next.event);
+        }
+        if (completedPending && buffer.isEmpty()) {
+            done = true;
+            onCompleted.run();
+        }
+    }
+
+    private void checkLimits() {
+        if (done || !snapshotCompleted) {
+            return;
+        }
+        int liveEvents = buffer.size() - pendingSnapshotEvents;
+        if (liveEvents > maxBufferSize) {
+            disconnect("buffer size limit exceeded: " + liveEvents + " > " + maxBufferSize);
+        } else if (policy == Policy.Disconnect) {
+            long lagMs = computeLagMs();
+            if (lagMs > maxLagMs) {
+                disconnect("lag limit exceeded: " + lagMs + "ms > " + maxLagMs + "ms");
+            }
+        }
+    }
+
+    private long computeLagMs() {
+        if (buffer.isEmpty() || pendingSnapshotEvents > 0) {
+            return 0;
+        }
+        return Math.max(0, clock.wallTime() - buffer.values().iterator().next().timestamp);
+    }
+
+    private void disconnect(String reason) {
+        logger.info("Terminating slow observeJobs subscriber: trxId={}, policy={}, reason={}", trxId, policy, reason);
+        done = true;
+        buffer.clear();
+        metrics.observeJobsSlowConsumerDisconnected(trxId);
+        onError.accept(new StatusRuntimeException(Status.RESOURCE_EXHAUSTED
+                .withDescription("Jobs monitoring stream terminated, as the client does not keep up with the event stream: " + reason)
+        ));
+        unsubscribe();
+    }
+
+    /**
+     * Events of the same job or task share a key, which is used to replace an older pending state with a newer one.
+     * Other events (for example the snapshot end marker) are never conflated.
+     */
+    private static String toEntityKey(JobChangeNotification event) {
+        switch (event.getNotificationCase()) {
+            case JOBUPDATE:
+                return "job/" + event.getJobUpdate().getJob().getId();
+            case TASKUPDATE:
+                return "task/" + event.getTaskUpdate().getTask().getId();
+            default:
+                return null;
+        }
+    }
+
+    private static class PendingEvent {
+
+        private final long timestamp;
+        private JobChangeNotification event;
+
+        private PendingEvent(JobChangeNotification event, long timestamp) {
+            this.event = event;
+            this.timestamp = timestamp;
+        }
+    }
+}
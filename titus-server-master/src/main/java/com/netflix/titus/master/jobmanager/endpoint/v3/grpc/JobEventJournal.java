@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded, in-memory journal of the most recent job events. Each event gets a sequence number, starting from
+ * zero, and incremented by one, so a position in the journal is identified by the journal epoch (unique for each
+ * journal instance), and a sequence number. When the journal is full, the oldest events are discarded.
+ * <p>
+ * Appends are serialized on a separate lock, so the journal lock, which readers contend on, is held only to link
+ * a new event in, and not while the event is created.
+ */
+class JobEventJournal<T> {
+
+    static final long EMPTY_SEQUENCE = -1;
+
+    private final String epoch;
+    private final Object[] ring;
+    private final Object appendLock = new Object();
+
+    private long lastSequence = EMPTY_SEQUENCE;
+
+    /**
+     * Guarded by {@link #appendLock}.
+     */
+    private long nextSequence = 0;
+
+    JobEventJournal(String epoch, int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Journal capacity must be > 0: %s", capacity);
+        this.epoch = epoch;
+        this.ring = new Object[capacity];
+    }
+
+    String getEpoch() {
+        return epoch;
+    }
+
+    synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Appends a new event created with the next sequence number, and returns it.
+     */
+    T append(LongFunction<T> eventFactory) {
+        synchronized (appendLock) {
+            long sequence = nextSequence;
+            T event = eventFactory.apply(sequence);
+            synchronized (this) {
+                ring[(int) (sequence % ring.length)] = event;
+                lastSequence = sequence;
+            }
+            nextSequence = sequence + 1;
+            return event;
+        }
+    }
+
+    /**
+     * Returns all events with sequence numbers higher than the given one, or {@link Optional#empty()} if some of
+     * them are no longer in the journal, or the sequence number is not known.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized Optional<List<T>> readAfter(long sequence) {
+        long firstSequence = Math.max(0, lastSequence - ring.length + 1);
+        if (sequence > lastSequence || sequence < firstSequence - 1) {
+            return Optional.empty();
+        }
+        List<T> result = new ArrayList<>((int) (lastSequence - sequence));
+        for (long next = sequence + 1; next <= lastSequence; next++) {
+            result.add((T) ring[(int) (next % ring.length)]);
+        }
+        return Optional.of(result);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.util.rx.RetryHandlerBuilder;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcObjectsCache;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.BackpressureOverflow;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+
+/**
+ * A single job event stream shared by all observeJobs subscribers. Each job manager event is converted to its GRPC
+ * {@link JobChangeNotification} form once, and the same (immutable) notification instance is delivered to all
+ * subscribers whose predicates match. The predicates are evaluated against the core model, so the per-event cost
+ * for a subscriber is a predicate evaluation only. Job predicates are evaluated against the task list captured
+ * together with the job event, not the current state of the job manager.
+ * <p>
+ * A failure to convert an event is delivered only to the subscribers whose predicates match that event, and the other
+ * subscribers are not affected. An error of the shared upstream terminates all subscribers, as each of them missed
+ * events, and must start from a new snapshot. The journal subscription is re-created after such an error.
+ * <p>
+ * Events are numbered, and the most recent ones are kept in a {@link JobEventJournal}, so a client can resume a broken
+ * stream from its last position (see {@link ObserveJobsResumeToken}). To keep the journal continuous while no
+ * client is connected, the shared stream holds its own subscription, which is created on the first observeJobs call
+ * (which is only served by the leader). A new journal epoch is started each time the shared stream is re-connected.
+ */
+class SharedJobEventStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedJobEventStream.class);
+
+    private static final long JOURNAL_RETRY_INITIAL_DELAY_MS = 1_000;
+    private static final long JOURNAL_RETRY_MAX_DELAY_MS = 30_000;
+
+    private final Observable<SharedJobEvent> events;
+
+    private final AtomicReference<JobEventJournal<SharedJobEvent>> journalRef = new AtomicReference<>();
+    private Subscription journalSubscription;
+
+    SharedJobEventStream(V3JobOperations jobOperations, GrpcObjectsCache grpcObjectsCache, Scheduler scheduler, int journalSize) {
+        this.events = Observable.defer(() -> {
+            JobEventJournal<SharedJobEvent> newJournal = new JobEventJournal<>(UUID.randomUUID().toString(), journalSize);
+            journalRef.set(newJournal);
+            logger.info("Starting new job event journal: epoch={}", newJournal.getEpoch());
+            return jobOperations.observeJobsWithTasks()
+                    // avoid clogging the computation scheduler
+                    .observeOn(scheduler)
+                    .map(eventAndTasks -> newJournal.append(sequence ->
+                            new SharedJobEvent(eventAndTasks.getLeft(), eventAndTasks.getRight(), sequence, grpcObjectsCache)
+                    ))
+                    // Once the stream is disconnected, events are missed, so the journal cannot be used for resume anymore.
+                    .doOnUnsubscribe(() -> journalRef.compareAndSet(newJournal, null));
+        }).share();
+    }
+
+    void shutdown() {
+        synchronized (this) {
+            if (journalSubscription != null) {
+                journalSubscription.unsubscribe();
+            }
+        }
+    }
+
+    /**
+     * Makes sure that the journal subscription is active. If the shared stream terminates with an error, it is
+     * re-subscribed with a backoff delay.
+     */
+    void connectJournal() {
+        synchronized (this) {
+            if (journalSubscription == null || journalSubscription.isUnsubscribed()) {
+                this.journalSubscription = events
+                        .retryWhen(RetryHandlerBuilder.retryHandler()
+                                .withUnlimitedRetries()
+                                .withDelay(JOURNAL_RETRY_INITIAL_DELAY_MS, JOURNAL_RETRY_MAX_DELAY_MS, TimeUnit.MILLISECONDS)
+                                .withTitle("Job event journal stream")
+                                .buildExponentialBackoff()
+                        )
+                        .subscribe(
+                                event -> {
+                                },
+                                e -> logger.warn("Job event journal stream terminated with an error: {}", e.getMessage()),
+                                () -> logger.info("Job event journal stream completed")
+                        );
+            }
+        }
+    }
+
+    /**
+     * Returns notifications matching the given predicates. Each subscriber has its own bounded buffer, so a slow
+     * subscriber does not hold back the shared stream, and other subscribers.
+     */
+    Observable<JobChangeNotification> observeJobs(Predicate<Pair<Job<?>, List<Task>>> jobsPredicate,
+                                                  Predicate<Pair<Job<?>, Task>> tasksPredicate,
+                                                  int bufferSize) {
+        return events
+                .filter(event -> event.matches(jobsPredicate, tasksPredicate))
+                // A conversion error terminates only this subscriber stream.
+                .map(SharedJobEvent::getNotification)
+                .onBackpressureBuffer(
+                        bufferSize,
+                        () -> logger.warn("Overflowed the shared job event stream buffer size: " + bufferSize),
+                        BackpressureOverflow.ON_OVERFLOW_ERROR
+                );
+    }
+
+    /**
+     * Returns the current journal position. The state of the job manager read after this call is consistent with
+     * all events up to this position.
+     */
+    Optional<ObserveJobsResumeToken> getPosition() {
+        JobEventJournal<SharedJobEvent> current = journalRef.get();
+        return current == null
+                ? Optional.empty()
+                : Optional.of(new ObserveJobsResumeToken(current.getEpoch(), current.getLastSequence()));
+    }
+
+    /**
+     * Returns the journal position, and all events after the given one matching the predicates, or
+     * {@link Optional#empty()} if the position is not in the current journal, or a matching event could not be
+     * converted.
+     */
+    Optional<Pair<ObserveJobsResumeToken, List<JobChangeNotification>>> readJournal(ObserveJobsResumeToken from,
+                                                                                  Predicate<Pair<Job<?>, List<Task>>> jobsPredicate,
+                                                                                  Predicate<Pair<Job<?>, Task>> tasksPredicate) {
+        JobEventJournal<SharedJobEvent> current = journalRef.get();
+        if (current == null || !current.getEpoch().equals(from.getEpoch())) {
+            return Optional.empty();
+        }
+        return current.readAfter(from.getSequence()).map(missed -> {
+            long lastSequence = from.getSequence();
+            List<JobChangeNotification> notifications = new ArrayList<>();
+            for (SharedJobEvent event : missed) {
+                if (event.matches(jobsPredicate, tasksPredicate)) {
+                    if (event.getConversionError() != null) {
+                        return null;
+                    }
+                    notifications.add(event.getNotification());
+                }
+                lastSequence = event.getSequence();
+            }
+            return Pair.of(new ObserveJobsResumeToken(current.getEpoch(), lastSequence), notifications);
+        });
+    }
+
+    private static class SharedJobEvent {
+
+        private final JobManagerEvent<?> event;
+        private final List<Task> jobTasks;
+        private final long sequence;
+        private final JobChangeNotification notification;
+        private final RuntimeException conversionError;
+
+        private SharedJobEvent(JobManagerEvent<?> event, List<Task> jobTasks, long sequence, GrpcObjectsCache grpcObjectsCache) {
+            this.event = event;
+            this.jobTasks = jobTasks;
+            this.sequence = sequence;
+
+            JobChangeNotification converted = null;
+            RuntimeException error = null;
+            try {
+                converted = ObserveJobsResumeToken.withSequence(
+                        GrpcJobManagementModelConverters.toGrpcJobChangeNotification(event, grpcObjectsCache),
+                        sequence
+                );
+                // Protobuf memoizes the serialized size, so compute it here once, instead of in each subscriber stream.
+                converted.getSerializedSize();
+            } catch (RuntimeException e) {
+                logger.warn("Cannot convert job event {}: {}", event, e.getMessage());
+                error = e;
+            }
+            this.notification = converted;
+            this.conversionError = error;
+        }
+
+        private long getSequence() {
+            return sequence;
+        }
+
+        private RuntimeException getConversionError() {
+            return conversionError;
+        }
+
+        private JobChangeNotification getNotification() {
+            if (conversionError != null) {
+                throw new IllegalStateException("Cannot convert job event: " + conversionError.getMessage(), conversionError);
+            }
+            return notification;
+        }
+
+        private boolean matches(Predicate<Pair<Job<?>, List<Task>>> jobsPredicate, Predicate<Pair<Job<?>, Task>> tasksPredicate) {
+            if (event instanceof JobUpdateEvent) {
+                return jobsPredicate.test(Pair.of(((JobUpdateEvent) event).getCurrent(), jobTasks));
+            }
+            TaskUpdateEvent taskUpdateEvent = (TaskUpdateEvent) event;
+            return tasksPredicate.test(Pair.of(taskUpdateEvent.getCurrentJob(), taskUpdateEvent.getCurrentTask()));
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.netflix.titus.master.jobmanager.service;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -34,6 +35,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.FeatureActivationConfiguration;
 import com.netflix.titus.api.jobmanager.JobAttributes;
@@ -58,6 +60,10 @@ import com.netflix.titus.api.jobmanager.service.JobManagerConstants;
 import com.netflix.titus.api.jobmanager.service.JobManagerException;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.api.jobmanager.store.JobStore;
+import com.netflix.titus.api.model.IdAndTimestampKey;
+import com.netflix.titus.api.model.Page;
+import com.netflix.titus.api.model.Pagination;
+import com.netflix.titus.api.model.PaginationUtil;
 import com.netflix.titus.api.model.callmetadata.CallMetadata;
 import com.netflix.titus.common.framework.reconciler.ChangeAction;
 import com.netflix.titus.common.framework.reconciler.EntityHolder;
@@ -65,6 +71,7 @@ import com.netflix.titus.common.framework.reconciler.ModelActionHolder;
 import com.netflix.titus.common.framework.reconciler.ModelActionHolder.Model;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.framework.reconciler.ReferenceViewListener;
 import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.Evaluators;
@@ -88,6 +95,9 @@ import com.netflix.titus.master.jobmanager.service.event.JobManagerReconcilerEve
 import com.netflix.titus.master.jobmanager.service.event.JobModelReconcilerEvent.JobModelUpdateReconcilerEvent;
 import com.netflix.titus.master.jobmanager.service.event.JobModelReconcilerEvent.JobNewModelReconcilerEvent;
 import com.netflix.titus.master.jobmanager.service.limiter.JobSubmitLimiter;
+import com.netflix.titus.master.jobmanager.service.query.JobQueryIndex;
+import com.netflix.titus.master.jobmanager.service.query.JobQueryPlanner;
+import com.netflix.titus.master.jobmanager.service.query.JobQueryPlanner.QueryPlan;
 import com.netflix.titus.master.jobmanager.service.service.action.BasicServiceJobActions;
 import com.netflix.titus.master.jobmanager.service.service.action.MoveTaskBetweenJobsAction;
 import com.netflix.titus.master.mesos.VirtualMachineMasterService;
@@ -95,6 +105,7 @@ import com.netflix.titus.master.mesos.kubeapiserver.direct.DirectKubeApiServerIn
 import com.netflix.titus.master.service.management.ManagementSubsystemInitializer;
 import com.netflix.titus.runtime.endpoint.metadata.CallMetadataUtils;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3AbstractQueryCriteriaEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -120,6 +131,10 @@ public class DefaultV3JobOperations implements V3JobOperations {
 
     private static final long RECONCILER_SHUTDOWN_TIMEOUT_MS = 30_000;
 
+    private static final Comparator<EntityHolder> JOB_HOLDER_ORDER = Comparator
+            .comparing((EntityHolder holder) -> holder, JobReconciliationFrameworkFactory::compareByStatusCreationTime)
+            .thenComparing(EntityHolder::getId);
+
     private final JobStore store;
     private final VirtualMachineMasterService vmService;
     private final DirectKubeApiServerIntegrator kubeApiServerIntegrator;
@@ -131,6 +146,9 @@ public class DefaultV3JobOperations implements V3JobOperations {
     private final TitusRuntime titusRuntime;
     private final EntitySanitizer entitySanitizer;
 
+    private final JobQueryIndex queryIndex = new JobQueryIndex();
+    private final JobQueryPlanner queryPlanner = new JobQueryPlanner(queryIndex);
+
     private ReconciliationFramework<JobManagerReconcilerEvent> reconciliationFramework;
     private Subscription transactionLoggerSubscription;
     private Subscription reconcilerEventSubscription;
@@ -163,7 +181,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
 
     @Activator
     public void enterActiveMode() {
-        this.reconciliationFramework = jobReconciliationFrameworkFactory.newInstance();
+        this.reconciliationFramework = jobReconciliationFrameworkFactory.newInstance(new QueryIndexUpdater());
 
         // BUG: event stream breaks permanently, and cannot be retried.
         // As we cannot fix the underlying issue yet, we have to be able to discover when it happens.
@@ -307,7 +325,10 @@ public class DefaultV3JobOperations implements V3JobOperations {
             return Collections.emptyList();
         }
 
-        List<EntityHolder> jobHolders = reconciliationFramework.orderedView(IndexKind.StatusCreationTime);
+        Optional<QueryPlan> queryPlan = planQuery(queryPredicate, false);
+        List<EntityHolder> jobHolders = queryPlan.isPresent()
+                ? resolveJobHolders(queryPlan.get())
+                : reconciliationFramework.orderedView(IndexKind.StatusCreationTime);
 
         List<Job<?>> result = new ArrayList<>();
         int toDrop = offset;
@@ -335,7 +356,12 @@ public class DefaultV3JobOperations implements V3JobOperations {
             return Collections.emptyList();
         }
 
-        List<EntityHolder> jobHolders = reconciliationFramework.orderedView(IndexKind.StatusCreationTime);
+        Optional<QueryPlan> queryPlan = planQuery(queryPredicate, true);
+        List<EntityHolder> jobHolders = queryPlan.isPresent()
+                ? resolveJobHolders(queryPlan.get())
+                : reconciliationFramework.orderedView(IndexKind.StatusCreationTime);
+        Set<String> candidateTaskIds = queryPlan.flatMap(QueryPlan::getTaskIds).orElse(null);
+
         List<Pair<Job<?>, Task>> result = new ArrayList<>();
         long toDrop = offset;
         long toTake = limit;
@@ -343,6 +369,9 @@ public class DefaultV3JobOperations implements V3JobOperations {
         for (EntityHolder jobHolder : jobHolders) {
             if (!jobHolder.getChildren().isEmpty()) {
                 for (EntityHolder taskHolder : jobHolder.getChildren()) {
+                    if (candidateTaskIds != null && !candidateTaskIds.contains(taskHolder.getId())) {
+                        continue;
+                    }
                     Pair<Job<?>, Task> jobTaskPair = Pair.of(jobHolder.getEntity(), taskHolder.getEntity());
                     if (queryPredicate.test(jobTaskPair)) {
                         if (toDrop > 0) {
@@ -361,6 +390,75 @@ public class DefaultV3JobOperations implements V3JobOperations {
         return result;
     }
 
+    /**
+     * Pages are read from the job cursor order index, so the matching jobs are not collected and sorted on each
+     * request. The index holds the job and task versions of the reference model, so no lookups are needed. Queries
+     * with a selective query plan are resolved by sorting the (small) plan result instead.
+     */
+    @Override
+    public Pair<List<Job<?>>, Pagination> findJobsPage(Predicate<Pair<Job<?>, List<Task>>> queryPredicate,
+                                                        Page page,
+                                                        Function<String, Optional<Pair<String, Long>>> cursorDecoder,
+                                                        Function<Job<?>, String> cursorFactory) {
+        if (!jobManagerConfiguration.isQueryIndexEnabled() || planQuery(queryPredicate, false).isPresent()) {
+            return V3JobOperations.super.findJobsPage(queryPredicate, page, cursorDecoder, cursorFactory);
+        }
+        return PaginationUtil.takePageWithSeek(
+                page,
+                queryIndex.getJobCursorIndex(),
+                cursor -> cursorDecoder.apply(cursor).map(position -> IdAndTimestampKey.ofId(position.getLeft(), position.getRight())),
+                jobTasksPair -> queryPredicate.test(jobTasksPair) ? Optional.of(jobTasksPair.getLeft()) : Optional.empty(),
+                cursorFactory
+        );
+    }
+
+    @Override
+    public Pair<List<Task>, Pagination> findTasksPage(Predicate<Pair<Job<?>, Task>> queryPredicate,
+                                                      Page page,
+                                                      Function<String, Optional<Pair<String, Long>>> cursorDecoder,
+                                                      Function<Task, String> cursorFactory) {
+        if (!jobManagerConfiguration.isQueryIndexEnabled() || planQuery(queryPredicate, true).isPresent()) {
+            return V3JobOperations.super.findTasksPage(queryPredicate, page, cursorDecoder, cursorFactory);
+        }
+        return PaginationUtil.takePageWithSeek(
+                page,
+                queryIndex.getTaskCursorIndex(),
+                cursor -> cursorDecoder.apply(cursor).map(position -> IdAndTimestampKey.ofId(position.getLeft(), position.getRight())),
+                task -> queryIndex.findJob(task.getJobId())
+                        .map(job -> Pair.<Job<?>, Task>of(job, task))
+                        .filter(queryPredicate)
+                        .map(Pair::getRight),
+                cursorFactory
+        );
+    }
+
+    /**
+     * Returns a query plan if the predicate is built from query criteria, and one of the criteria can be resolved
+     * with a secondary index. The index only narrows down the set of jobs (and tasks) to evaluate, so the predicate
+     * is always applied on top of it.
+     */
+    private Optional<QueryPlan> planQuery(Predicate<?> queryPredicate, boolean taskQuery) {
+        if (!jobManagerConfiguration.isQueryIndexEnabled() || !(queryPredicate instanceof V3AbstractQueryCriteriaEvaluator)) {
+            return Optional.empty();
+        }
+        V3AbstractQueryCriteriaEvaluator<?> evaluator = (V3AbstractQueryCriteriaEvaluator<?>) queryPredicate;
+        return taskQuery
+                ? queryPlanner.planTaskQuery(evaluator.getCriteria())
+                : queryPlanner.planJobQuery(evaluator.getCriteria());
+    }
+
+    /**
+     * Resolves the current job holders of the query plan jobs, in the same order as the full job view.
+     */
+    private List<EntityHolder> resolveJobHolders(QueryPlan queryPlan) {
+        List<EntityHolder> jobHolders = new ArrayList<>(queryPlan.getJobIds().size());
+        for (String jobId : queryPlan.getJobIds()) {
+            reconciliationFramework.findEngineByRootId(jobId).ifPresent(engine -> jobHolders.add(engine.getReferenceView()));
+        }
+        jobHolders.sort(JOB_HOLDER_ORDER);
+        return jobHolders;
+    }
+
     @Override
     public Optional<Pair<Job<?>, Task>> findTaskById(String taskId) {
         return reconciliationFramework.findEngineByChildId(taskId)
@@ -588,13 +686,28 @@ public class DefaultV3JobOperations implements V3JobOperations {
     @Override
     public Observable<JobManagerEvent<?>> observeJobs(Predicate<Pair<Job<?>, List<Task>>> jobsPredicate,
                                                       Predicate<Pair<Job<?>, Task>> tasksPredicate) {
-        Observable<JobManagerReconcilerEvent> events = reconciliationFramework.events()
+        return toJobManagerEvents(observeReconcilerEvents(), jobsPredicate, tasksPredicate);
+    }
+
+    /**
+     * Emits job events with the task list of the job entity holder the event was created from, so the task list is
+     * consistent with the job event.
+     */
+    @Override
+    public Observable<Pair<JobManagerEvent<?>, List<Task>>> observeJobsWithTasks() {
+        return observeReconcilerEvents()
+                .map(toJobManagerEventWithTasks(alwaysTrue(), alwaysTrue()))
+                .filter(Optional::isPresent)
+                .map(Optional::get);
+    }
+
+    private Observable<JobManagerReconcilerEvent> observeReconcilerEvents() {
+        return reconciliationFramework.events()
                 .onBackpressureBuffer(
                         OBSERVE_JOBS_BACKPRESSURE_BUFFER_SIZE,
                         () -> logger.warn("Overflowed the buffer size: " + OBSERVE_JOBS_BACKPRESSURE_BUFFER_SIZE),
                         BackpressureOverflow.ON_OVERFLOW_ERROR
                 );
-        return toJobManagerEvents(events, jobsPredicate, tasksPredicate);
     }
 
     @Override
@@ -659,6 +772,12 @@ public class DefaultV3JobOperations implements V3JobOperations {
 
     private Func1<JobManagerReconcilerEvent, Optional<JobManagerEvent<?>>> toJobManagerEvent(
             Predicate<Pair<Job<?>, List<Task>>> jobsPredicate, Predicate<Pair<Job<?>, Task>> tasksPredicate) {
+        Func1<JobManagerReconcilerEvent, Optional<Pair<JobManagerEvent<?>, List<Task>>>> withTasks = toJobManagerEventWithTasks(jobsPredicate, tasksPredicate);
+        return event -> withTasks.call(event).map(Pair::getLeft);
+    }
+
+    private Func1<JobManagerReconcilerEvent, Optional<Pair<JobManagerEvent<?>, List<Task>>>> toJobManagerEventWithTasks(
+            Predicate<Pair<Job<?>, List<Task>>> jobsPredicate, Predicate<Pair<Job<?>, Task>> tasksPredicate) {
         return event -> {
             if (event instanceof JobNewModelReconcilerEvent) {
                 JobNewModelReconcilerEvent newModelEvent = (JobNewModelReconcilerEvent) event;
@@ -678,20 +797,20 @@ public class DefaultV3JobOperations implements V3JobOperations {
         };
     }
 
-    private Optional<JobManagerEvent<?>> toJobUpdateEvent(JobNewModelReconcilerEvent newModelEvent,
-                                                          Predicate<Pair<Job<?>, List<Task>>> jobsPredicate) {
+    private Optional<Pair<JobManagerEvent<?>, List<Task>>> toJobUpdateEvent(JobNewModelReconcilerEvent newModelEvent,
+                                                                            Predicate<Pair<Job<?>, List<Task>>> jobsPredicate) {
         Job<?> job = newModelEvent.getNewRoot().getEntity();
         List<Task> tasks = newModelEvent.getNewRoot().getChildren()
                 .stream()
                 .map(EntityHolder::<Task>getEntity)
                 .collect(Collectors.toList());
         return jobsPredicate.test(Pair.of(job, tasks))
-                ? Optional.of(JobUpdateEvent.newJob(job, newModelEvent.getCallMetadata()))
+                ? Optional.of(Pair.of(JobUpdateEvent.newJob(job, newModelEvent.getCallMetadata()), tasks))
                 : Optional.empty();
     }
 
-    private Optional<JobManagerEvent<?>> toJobUpdateEvent(JobModelUpdateReconcilerEvent modelUpdateEvent,
-                                                          Predicate<Pair<Job<?>, List<Task>>> jobsPredicate) {
+    private Optional<Pair<JobManagerEvent<?>, List<Task>>> toJobUpdateEvent(JobModelUpdateReconcilerEvent modelUpdateEvent,
+                                                                            Predicate<Pair<Job<?>, List<Task>>> jobsPredicate) {
         Job<?> changed = modelUpdateEvent.getChangedEntityHolder().getEntity();
         List<Task> tasks = modelUpdateEvent.getChangedEntityHolder().getChildren()
                 .stream()
@@ -700,7 +819,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
 
         if (!modelUpdateEvent.getPreviousEntityHolder().isPresent()) {
             return jobsPredicate.test(Pair.of(changed, tasks))
-                    ? Optional.of(JobUpdateEvent.jobChange(changed, changed, modelUpdateEvent.getCallMetadata()))
+                    ? Optional.of(Pair.of(JobUpdateEvent.jobChange(changed, changed, modelUpdateEvent.getCallMetadata()), tasks))
                     : Optional.empty();
         }
         Job<?> previous = modelUpdateEvent.getPreviousEntityHolder().get().getEntity();
@@ -708,17 +827,17 @@ public class DefaultV3JobOperations implements V3JobOperations {
             return Optional.empty();
         }
         return jobsPredicate.test(Pair.of(changed, tasks))
-                ? Optional.of(JobUpdateEvent.jobChange(changed, previous, modelUpdateEvent.getCallMetadata()))
+                ? Optional.of(Pair.of(JobUpdateEvent.jobChange(changed, previous, modelUpdateEvent.getCallMetadata()), tasks))
                 : Optional.empty();
     }
 
-    private Optional<JobManagerEvent<?>> toTaskUpdateEvent(JobModelUpdateReconcilerEvent modelUpdateEvent,
-                                                           Predicate<Pair<Job<?>, Task>> tasksPredicate) {
+    private Optional<Pair<JobManagerEvent<?>, List<Task>>> toTaskUpdateEvent(JobModelUpdateReconcilerEvent modelUpdateEvent,
+                                                                             Predicate<Pair<Job<?>, Task>> tasksPredicate) {
         Job<?> job = modelUpdateEvent.getJob();
         Task changed = modelUpdateEvent.getChangedEntityHolder().getEntity();
         if (!modelUpdateEvent.getPreviousEntityHolder().isPresent()) {
             return tasksPredicate.test(Pair.of(job, changed))
-                    ? Optional.of(toNewTaskUpdateEvent(job, changed, modelUpdateEvent.getCallMetadata()))
+                    ? Optional.of(Pair.of(toNewTaskUpdateEvent(job, changed, modelUpdateEvent.getCallMetadata()), Collections.emptyList()))
                     : Optional.empty();
         }
         Task previous = modelUpdateEvent.getPreviousEntityHolder().get().getEntity();
@@ -726,7 +845,7 @@ public class DefaultV3JobOperations implements V3JobOperations {
             return Optional.empty();
         }
         return tasksPredicate.test(Pair.of(job, changed))
-                ? Optional.of(TaskUpdateEvent.taskChange(job, changed, previous, modelUpdateEvent.getCallMetadata()))
+                ? Optional.of(Pair.of(TaskUpdateEvent.taskChange(job, changed, previous, modelUpdateEvent.getCallMetadata()), Collections.emptyList()))
                 : Optional.empty();
     }
 
@@ -741,4 +860,22 @@ public class DefaultV3JobOperations implements V3JobOperations {
         }
         return TaskUpdateEvent.newTask(job, newTask, callMetadata);
     }
+
+    /**
+     * Keeps the query index in sync with the reference model. It is called by the reconciliation loop before the
+     * change action subscribers are completed, so a query issued after a change completes always sees it. The task
+     * list is a view of the (immutable) job holder children, so it is not copied on each job update.
+     */
+    private class QueryIndexUpdater implements ReferenceViewListener {
+
+        @Override
+        public void onUpdate(EntityHolder jobHolder) {
+            queryIndex.addOrUpdateJob(jobHolder.getEntity(), Lists.transform(jobHolder.getChildren(), EntityHolder::<Task>getEntity));
+        }
+
+        @Override
+        public void onRemove(EntityHolder jobHolder) {
+            queryIndex.removeJob(jobHolder.getId());
+        }
+    }
 }
@@ -34,6 +34,13 @@ public interface JobManagerConfiguration {
     @DefaultValue("1")
     long getReconcilerActiveTimeoutMs();
 
+    /**
+     * Number of reconciliation loop shards. Each shard runs its own loop thread, and handles jobs with ids hashing
+     * to it. The default (1) keeps all jobs in a single reconciliation loop.
+     */
+    @DefaultValue("1")
+    int getReconcilerShardCount();
+
     /**
      * How many active tasks in the transient state (in other words not Started and not Finished) are allowed in a job.
      * If the number of active tasks in the transient state goes above this limit, no new tasks are created.
@@ -99,4 +106,18 @@ public interface JobManagerConfiguration {
      */
     @DefaultValue("false")
     boolean isFailOnDataValidation();
+
+    /**
+     * If set, job and task queries use secondary indexes (application name, capacity group, owner, image name,
+     * job group, labels, task state) to narrow down the set of evaluated jobs and tasks.
+     */
+    @DefaultValue("true")
+    boolean isQueryIndexEnabled();
+
+    /**
+     * Number of single threaded workers processing the Kube pod events. Events are partitioned by the task id, so
+     * the events of a task are always processed in order, by the same worker.
+     */
+    @DefaultValue("8")
+    int getKubeNotificationPartitionCount();
 }
@@ -21,10 +21,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -55,9 +58,11 @@ import com.netflix.titus.common.framework.reconciler.EntityHolder;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.ReconciliationEngine.DifferenceResolver;
 import com.netflix.titus.common.framework.reconciler.ReconciliationFramework;
+import com.netflix.titus.common.framework.reconciler.ReferenceViewListener;
 import com.netflix.titus.common.framework.reconciler.internal.DefaultReconciliationEngine;
 import com.netflix.titus.common.framework.reconciler.internal.DefaultReconciliationFramework;
 import com.netflix.titus.common.framework.reconciler.internal.InternalReconciliationEngine;
+import com.netflix.titus.common.framework.reconciler.internal.ShardedReconciliationFramework;
 import com.netflix.titus.common.model.sanitizer.EntitySanitizer;
 import com.netflix.titus.common.model.sanitizer.EntitySanitizerUtil;
 import com.netflix.titus.common.model.sanitizer.ValidationError;
@@ -79,7 +84,7 @@ import com.netflix.titus.master.scheduler.constraint.SystemSoftConstraint;
 import com.netflix.titus.master.service.management.ApplicationSlaManagementService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import rx.Observable;
+import rx.Completable;
 import rx.Scheduler;
 
 import static com.netflix.titus.api.jobmanager.model.job.sanitizer.JobSanitizerBuilder.JOB_PERMISSIVE_SANITIZER;
@@ -130,6 +135,9 @@ public class JobReconciliationFrameworkFactory {
     private final Gauge loadedJobs;
     private final Gauge loadedTasks;
     private final Gauge storeLoadTimeMs;
+    private final Gauge storeInitTimeMs;
+    private final Gauge storeJobsLoadTimeMs;
+    private final Gauge storeTasksLoadTimeMs;
 
     @Inject
     public JobReconciliationFrameworkFactory(JobManagerConfiguration jobManagerConfiguration,
@@ -184,6 +192,9 @@ public class JobReconciliationFrameworkFactory {
         this.loadedJobs = registry.gauge(ROOT_METRIC_NAME + "loadedJobs");
         this.loadedTasks = registry.gauge(ROOT_METRIC_NAME + "loadedTasks");
         this.storeLoadTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeLoadTimeMs");
+        this.storeInitTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeInitTimeMs");
+        this.storeJobsLoadTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeJobsLoadTimeMs");
+        this.storeTasksLoadTimeMs = registry.gauge(ROOT_METRIC_NAME + "storeTasksLoadTimeMs");
 
         this.dispatchingResolver = DifferenceResolvers.dispatcher(rootModel -> {
             Job<?> job = rootModel.getEntity();
@@ -198,7 +209,11 @@ public class JobReconciliationFrameworkFactory {
         });
     }
 
-    ReconciliationFramework<JobManagerReconcilerEvent> newInstance() {
+    /**
+     * @param referenceViewListener listener of the job reference view changes, called synchronously by the
+     *                              reconciliation loop (see {@link ReferenceViewListener})
+     */
+    ReconciliationFramework<JobManagerReconcilerEvent> newInstance(ReferenceViewListener referenceViewListener) {
         List<Pair<Job, List<Task>>> jobsAndTasks = checkGlobalConsistency(loadJobsAndTasksFromStore(errorCollector));
 
         // initialize fenzo with running tasks
@@ -227,6 +242,21 @@ public class JobReconciliationFrameworkFactory {
 
         errorCollector.failIfTooManyBadRecords();
 
+        int shardCount = jobManagerConfiguration.getReconcilerShardCount();
+        if (shardCount > 1) {
+            return new ShardedReconciliationFramework<>(
+                    shardCount,
+                    engines,
+                    bootstrapModel -> newEngine(bootstrapModel, true),
+                    jobManagerConfiguration.getReconcilerIdleTimeoutMs(),
+                    jobManagerConfiguration.getReconcilerActiveTimeoutMs(),
+                    INDEX_COMPARATORS,
+                    registry,
+                    optionalScheduler,
+                    referenceViewListener
+            );
+        }
+
         return new DefaultReconciliationFramework<>(
                 engines,
                 bootstrapModel -> newEngine(bootstrapModel, true),
@@ -234,7 +264,8 @@ public class JobReconciliationFrameworkFactory {
                 jobManagerConfiguration.getReconcilerActiveTimeoutMs(),
                 INDEX_COMPARATORS,
                 registry,
-                optionalScheduler
+                optionalScheduler,
+                referenceViewListener
         );
     }
 
@@ -359,15 +390,19 @@ public class JobReconciliationFrameworkFactory {
 
     private List<Pair<Job, List<Task>>> loadJobsAndTasksFromStore(InitializationErrorCollector errorCollector) {
         long startTime = clock.wallTime();
+        AtomicLong phaseStartTime = new AtomicLong(startTime);
 
         // load all job/task pairs
-        List<Pair<Job, Pair<List<Task>, Integer>>> jobTasksPairs;
+        List<Pair<Job, List<Task>>> jobTasksPairs;
         try {
-            jobTasksPairs = store.init().andThen(store.retrieveJobs().flatMap(retrievedJobsAndErrors -> {
+            AtomicInteger corruptedTaskRecords = new AtomicInteger();
+            Completable init = store.init().doOnCompleted(() -> storeInitTimeMs.set(endPhase(phaseStartTime)));
+            jobTasksPairs = init.andThen(store.retrieveJobs().flatMap(retrievedJobsAndErrors -> {
+                storeJobsLoadTimeMs.set(endPhase(phaseStartTime));
                 errorCollector.corruptedJobRecords(retrievedJobsAndErrors.getRight());
 
                 List<Job<?>> retrievedJobs = retrievedJobsAndErrors.getLeft();
-                List<Observable<Pair<Job, Pair<List<Task>, Integer>>>> retrieveTasksObservables = new ArrayList<>();
+                Map<String, Job> validatedJobs = new LinkedHashMap<>();
                 for (Job job : retrievedJobs) {
                     // TODO Finished jobs that were not archived immediately should be archived by background archive process
                     if (job.getStatus().getState() == JobState.Finished) {
@@ -377,33 +412,41 @@ public class JobReconciliationFrameworkFactory {
 
                     Optional<Job> validatedJob = validateJob(job);
                     if (validatedJob.isPresent()) {
-                        Observable<Pair<Job, Pair<List<Task>, Integer>>> retrieveTasksObservable = store.retrieveTasksForJob(job.getId())
-                                .map(taskList -> new Pair<>(validatedJob.get(), taskList));
-                        retrieveTasksObservables.add(retrieveTasksObservable);
+                        validatedJobs.put(job.getId(), validatedJob.get());
                     } else {
                         errorCollector.invalidJob(job.getId());
                     }
                 }
-                return Observable.merge(retrieveTasksObservables, MAX_RETRIEVE_TASK_CONCURRENCY);
-            })).toList().toBlocking().singleOrDefault(Collections.emptyList());
+                return store.retrieveTasksForJobs(new ArrayList<>(validatedJobs.keySet()), MAX_RETRIEVE_TASK_CONCURRENCY).toList().map(tasksAndErrorsBatches -> {
+                    Map<String, List<Task>> tasksByJobId = new HashMap<>();
+                    for (Pair<List<Task>, Integer> tasksAndErrors : tasksAndErrorsBatches) {
+                        tasksAndErrors.getLeft().forEach(task -> tasksByJobId.computeIfAbsent(task.getJobId(), id -> new ArrayList<>()).add(task));
+                        corruptedTaskRecords.addAndGet(tasksAndErrors.getRight());
+                    }
+                    List<Pair<Job, List<Task>>> result = new ArrayList<>();
+                    validatedJobs.forEach((jobId, job) -> result.add(Pair.of(job, tasksByJobId.getOrDefault(jobId, Collections.emptyList()))));
+                    return result;
+                });
+            })).toBlocking().singleOrDefault(Collections.emptyList());
+            storeTasksLoadTimeMs.set(endPhase(phaseStartTime));
 
-            int corruptedTaskRecords = jobTasksPairs.stream().mapToInt(p -> p.getRight().getRight()).sum();
-            errorCollector.corruptedTaskRecords(corruptedTaskRecords);
+            errorCollector.corruptedTaskRecords(corruptedTaskRecords.get());
 
-            int taskCount = jobTasksPairs.stream().map(p -> p.getRight().getLeft().size()).reduce(0, (a, v) -> a + v);
+            int taskCount = jobTasksPairs.stream().map(p -> p.getRight().size()).reduce(0, (a, v) -> a + v);
             loadedJobs.set(jobTasksPairs.size());
             loadedTasks.set(taskCount);
 
-            for (Pair<Job, Pair<List<Task>, Integer>> jobTaskPair : jobTasksPairs) {
+            for (Pair<Job, List<Task>> jobTaskPair : jobTasksPairs) {
                 Job job = jobTaskPair.getLeft();
-                List<Task> tasks = jobTaskPair.getRight().getLeft();
+                List<Task> tasks = jobTaskPair.getRight();
                 List<String> taskStrings = tasks.stream()
                         .map(t -> String.format("<%s,%s:%s>", t.getId(), JobFunctions.isOwnedByKubeScheduler(t) ? "ks" : "fenzo", t.getStatus().getState()))
                         .collect(Collectors.toList());
                 logger.info("Loaded job: {} with tasks: {}", job.getId(), taskStrings);
             }
 
-            logger.info("{} jobs and {} tasks loaded from store in {}ms", jobTasksPairs.size(), taskCount, clock.wallTime() - startTime);
+            logger.info("{} jobs and {} tasks loaded from store in {}ms (init={}ms, jobs={}ms, tasks={}ms)", jobTasksPairs.size(), taskCount,
+                    clock.wallTime() - startTime, (long) storeInitTimeMs.value(), (long) storeJobsLoadTimeMs.value(), (long) storeTasksLoadTimeMs.value());
         } catch (Exception e) {
             logger.error("Failed to load jobs from the store during initialization:", e);
             throw new IllegalStateException("Failed to load jobs from the store during initialization", e);
@@ -411,7 +454,15 @@ public class JobReconciliationFrameworkFactory {
             storeLoadTimeMs.set(clock.wallTime() - startTime);
         }
 
-        return jobTasksPairs.stream().map(p -> Pair.of(p.getLeft(), p.getRight().getLeft())).collect(Collectors.toList());
+        return jobTasksPairs;
+    }
+
+    /**
+     * Returns time elapsed since the beginning of the current bootstrap phase, and starts the next one.
+     */
+    private long endPhase(AtomicLong phaseStartTime) {
+        long now = clock.wallTime();
+        return now - phaseStartTime.getAndSet(now);
     }
 
     private Optional<Job> validateJob(Job job) {
@@ -517,7 +568,7 @@ public class JobReconciliationFrameworkFactory {
         return eniSGs.size() == 1 ? Optional.of(task) : Optional.empty();
     }
 
-    private static int compareByStatusCreationTime(EntityHolder holder1, EntityHolder holder2) {
+    static int compareByStatusCreationTime(EntityHolder holder1, EntityHolder holder2) {
         if (holder1.getEntity() instanceof Job) {
             Job job1 = holder1.getEntity();
             Job job2 = holder2.getEntity();
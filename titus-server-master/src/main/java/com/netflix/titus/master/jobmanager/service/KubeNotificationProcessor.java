@@ -17,12 +17,14 @@
 package com.netflix.titus.master.jobmanager.service;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -34,6 +36,7 @@ import com.google.common.base.Stopwatch;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Gauge;
 import com.netflix.spectator.api.Timer;
+import com.netflix.spectator.api.histogram.PercentileTimer;
 import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.ExecutableStatus;
 import com.netflix.titus.api.jobmanager.model.job.Job;
@@ -58,6 +61,7 @@ import com.netflix.titus.master.mesos.kubeapiserver.KubeJobManagementReconciler;
 import com.netflix.titus.master.mesos.kubeapiserver.KubeUtil;
 import com.netflix.titus.master.mesos.kubeapiserver.PodToTaskMapper;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.DirectKubeApiServerIntegrator;
+import com.netflix.titus.master.mesos.kubeapiserver.direct.model.PodAddedEvent;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.model.PodDeletedEvent;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.model.PodEvent;
 import com.netflix.titus.master.mesos.kubeapiserver.direct.model.PodNotFoundEvent;
@@ -91,6 +95,7 @@ public class KubeNotificationProcessor {
 
     private static final String METRICS_ROOT = MetricConstants.METRIC_JOB_MANAGER + "kubeNotificationProcessor.";
 
+    private final JobManagerConfiguration configuration;
     private final DirectKubeApiServerIntegrator kubeApiServerIntegrator;
     private final KubeJobManagementReconciler kubeJobManagementReconciler;
     private final V3JobOperations v3JobOperations;
@@ -102,17 +107,25 @@ public class KubeNotificationProcessor {
     private final Gauge metricsLag;
     private final Counter metricsChangesApplied;
     private final Counter metricsNoChangesApplied;
+    private final Timer metricsEventToApplied;
+    private final Counter metricsCoalesced;
+
+    private final AtomicLong pendingCounter = new AtomicLong();
 
     private ExecutorService notificationHandlerExecutor;
+    private final List<ExecutorService> partitionExecutors = new ArrayList<>();
     private Scheduler scheduler;
+    private List<PodEventPartition> partitions;
     private Disposable subscription;
 
     @Inject
-    public KubeNotificationProcessor(DirectKubeApiServerIntegrator kubeApiServerIntegrator,
+    public KubeNotificationProcessor(JobManagerConfiguration configuration,
+                                     DirectKubeApiServerIntegrator kubeApiServerIntegrator,
                                      KubeJobManagementReconciler kubeJobManagementReconciler,
                                      V3JobOperations v3JobOperations,
                                      ContainerResultCodeResolver containerResultCodeResolver,
                                      TitusRuntime titusRuntime) {
+        this.configuration = configuration;
         this.kubeApiServerIntegrator = kubeApiServerIntegrator;
         this.kubeJobManagementReconciler = kubeJobManagementReconciler;
         this.v3JobOperations = v3JobOperations;
@@ -124,12 +137,18 @@ public class KubeNotificationProcessor {
         this.metricsLag = titusRuntime.getRegistry().gauge(METRICS_ROOT + "lag");
         this.metricsChangesApplied = titusRuntime.getRegistry().counter(METRICS_ROOT + "changes", "changed", "true");
         this.metricsNoChangesApplied = titusRuntime.getRegistry().counter(METRICS_ROOT + "changes", "changed", "false");
+        this.metricsEventToApplied = PercentileTimer.get(titusRuntime.getRegistry(), titusRuntime.getRegistry().createId(METRICS_ROOT + "eventToApplied"));
+        this.metricsCoalesced = titusRuntime.getRegistry().counter(METRICS_ROOT + "coalesced");
     }
 
     @Activator
     public void enterActiveMode() {
         this.scheduler = initializeNotificationScheduler();
-        AtomicLong pendingCounter = new AtomicLong();
+        int partitionCount = Math.max(1, configuration.getKubeNotificationPartitionCount());
+        this.partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new PodEventPartition(initializePartitionScheduler(i)));
+        }
         this.subscription = kubeApiServerIntegrator.events().mergeWith(kubeJobManagementReconciler.getPodEventSource())
                 .subscribeOn(scheduler)
                 .publishOn(scheduler)
@@ -137,33 +156,13 @@ public class KubeNotificationProcessor {
                 .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)))
                 .subscribe(
                         event -> {
-                            Stopwatch stopwatch = Stopwatch.createStarted();
                             pendingCounter.getAndIncrement();
-
                             metricsRunning.set(pendingCounter.get());
                             metricsLag.set(PodEvent.nextSequence() - event.getSequenceNumber());
 
                             logger.info("New event [pending={}, lag={}]: {}", pendingCounter.get(), PodEvent.nextSequence() - event.getSequenceNumber(), event);
-                            processEvent(event)
-                                    .doAfterTerminate(() -> {
-                                        pendingCounter.decrementAndGet();
-                                        long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-                                        metricsProcessed.record(elapsed, TimeUnit.MILLISECONDS);
-                                        metricsRunning.set(pendingCounter.get());
-                                        logger.info("Event processed [pending={}]: event={}, elapsed={}", pendingCounter.get(), event, elapsed);
-                                    })
-                                    .subscribe(
-                                            next -> {
-                                                // nothing
-                                            },
-                                            error -> {
-                                                logger.info("Kube notification event state update error: event={}, error={}", event, error.getMessage());
-                                                logger.debug("Stack trace", error);
-                                            },
-                                            () -> {
-                                                // nothing
-                                            }
-                                    );
+                            partitions.get((event.getTaskId().hashCode() & Integer.MAX_VALUE) % partitions.size())
+                                    .submit(event, titusRuntime.getClock().wallTime());
                         },
                         e -> logger.error("Event stream terminated"),
                         () -> logger.info("Event stream completed")
@@ -176,6 +175,38 @@ public class KubeNotificationProcessor {
         return Schedulers.fromExecutor(notificationHandlerExecutor);
     }
 
+    @VisibleForTesting
+    protected Scheduler initializePartitionScheduler(int partition) {
+        ExecutorService executor = ExecutorsExt.namedSingleThreadExecutor(KubeNotificationProcessor.class.getSimpleName() + "-" + partition);
+        partitionExecutors.add(executor);
+        return Schedulers.fromExecutor(executor);
+    }
+
+    private void processQueuedEvent(PodEvent event, long receivedTimestamp) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        processEvent(event)
+                .doAfterTerminate(() -> {
+                    pendingCounter.decrementAndGet();
+                    long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                    metricsProcessed.record(elapsed, TimeUnit.MILLISECONDS);
+                    metricsEventToApplied.record(titusRuntime.getClock().wallTime() - receivedTimestamp, TimeUnit.MILLISECONDS);
+                    metricsRunning.set(pendingCounter.get());
+                    logger.info("Event processed [pending={}]: event={}, elapsed={}", pendingCounter.get(), event, elapsed);
+                })
+                .subscribe(
+                        next -> {
+                            // nothing
+                        },
+                        error -> {
+                            logger.info("Kube notification event state update error: event={}, error={}", event, error.getMessage());
+                            logger.debug("Stack trace", error);
+                        },
+                        () -> {
+                            // nothing
+                        }
+                );
+    }
+
     private Mono<Void> processEvent(PodEvent event) {
         Pair<Job<?>, Task> jobAndTask = v3JobOperations.findTaskById(event.getTaskId()).orElse(null);
         if (jobAndTask == null) {
@@ -202,6 +233,8 @@ public class KubeNotificationProcessor {
         ReactorExt.safeDispose(subscription);
         Evaluators.acceptNotNull(scheduler, Scheduler::dispose);
         Evaluators.acceptNotNull(notificationHandlerExecutor, ExecutorService::shutdown);
+        Evaluators.acceptNotNull(partitions, all -> all.forEach(PodEventPartition::shutdown));
+        partitionExecutors.forEach(ExecutorService::shutdown);
     }
 
     private Mono<Void> handlePodUpdatedEvent(PodEvent event, Job job, Task task) {
@@ -503,4 +536,105 @@ public class KubeNotificationProcessor {
         }
         return Optional.empty();
     }
+
+    private static boolean isCoalescible(PodEvent event) {
+        return event instanceof PodAddedEvent || event instanceof PodUpdatedEvent;
+    }
+
+    /**
+     * Events of a partition are processed one at a time, in the arrival order. If a pod added or updated event is
+     * still in the queue when a newer event for the same pod arrives, the queued event is replaced, as the newer one
+     * carries the latest pod state. Pod deleted and pod not found events are never replaced.
+     */
+    private class PodEventPartition {
+
+        private final Scheduler partitionScheduler;
+        private final Scheduler.Worker worker;
+
+        // All guarded by this object monitor
+        private final Queue<QueuedPodEvent> queue = new ArrayDeque<>();
+        private final Map<String, QueuedPodEvent> coalescibleByTaskId = new HashMap<>();
+        private boolean draining;
+
+        private PodEventPartition(Scheduler partitionScheduler) {
+            this.partitionScheduler = partitionScheduler;
+            this.worker = partitionScheduler.createWorker();
+        }
+
+        private void submit(PodEvent event, long receivedTimestamp) {
+            synchronized (this) {
+                QueuedPodEvent pending = coalescibleByTaskId.get(event.getTaskId());
+                if (pending != null && !(event instanceof PodNotFoundEvent)) {
+                    logger.debug("Replacing queued pod event with the newer one: taskId={}, replaced={}, new={}",
+                            event.getTaskId(), pending.event.getSequenceNumber(), event.getSequenceNumber());
+                    pending.event = event;
+                    if (!isCoalescible(event)) {
+                        coalescibleByTaskId.remove(event.getTaskId());
+                    }
+                    metricsCoalesced.increment();
+                    metricsRunning.set(pendingCounter.decrementAndGet());
+                    return;
+                }
+
+                QueuedPodEvent queued = new QueuedPodEvent(event, receivedTimestamp);
+                queue.add(queued);
+                if (isCoalescible(event)) {
+                    coalescibleByTaskId.put(event.getTaskId(), queued);
+                } else {
+                    coalescibleByTaskId.remove(event.getTaskId());
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            worker.schedule(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                PodEvent event;
+                long receivedTimestamp;
+                synchronized (this) {
+                    QueuedPodEvent next = queue.poll();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                    coalescibleByTaskId.remove(next.event.getTaskId(), next);
+                    event = next.event;
+                    receivedTimestamp = next.receivedTimestamp;
+                }
+                try {
+                    processQueuedEvent(event, receivedTimestamp);
+                } catch (Exception e) {
+                    logger.warn("Unexpected error when processing pod event: {}", event, e);
+                }
+            }
+        }
+
+        private void shutdown() {
+            worker.dispose();
+            partitionScheduler.dispose();
+        }
+    }
+
+    private static class QueuedPodEvent {
+
+        /**
+         * The latest event of the pod. Replaced by the newer event, as long as it is still queued.
+         */
+        private PodEvent event;
+
+        /**
+         * Time the first of the coalesced events was received, so the latency covers the whole time the pod change
+         * waited in the queue.
+         */
+        private final long receivedTimestamp;
+
+        private QueuedPodEvent(PodEvent event, long receivedTimestamp) {
+            this.event = event;
+            this.receivedTimestamp = receivedTimestamp;
+        }
+    }
 }
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobDescriptor;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.JobGroupInfo;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.model.IdAndTimestampKey;
+import com.netflix.titus.common.util.tuple.Pair;
+
+/**
+ * Inverted indexes of the job manager state, mapping job attribute values to job ids, and task states to task ids.
+ * The indexes are updated by the reconciliation loop together with the reference model (see
+ * {@link com.netflix.titus.common.framework.reconciler.ReferenceViewListener}), so a completed change is visible in
+ * them. They are meant to narrow down the set of entities a query predicate is evaluated against, so the query
+ * results must always be re-checked against the full predicate.
+ * <p>
+ * Jobs (with their tasks) and tasks are also kept in the pagination cursor order (creation timestamp, id), so a page
+ * following a cursor can be found without sorting the query result, or resolving the entities in the reference model.
+ * The ordered views are concurrent maps, and can be iterated without holding the index lock. The cursor key of an
+ * entity is re-computed on each update, so it always matches the indexed entity version, and the entity is removed
+ * with the key it was indexed with.
+ * <p>
+ * Updates hold the write lock, and queries the read lock, so queries do not block each other. The tasks of an
+ * updated job are compared with the indexed task versions before the write lock is taken, and only the changed ones
+ * are re-indexed. As the entities are immutable, an unchanged task is the same object as the indexed one.
+ */
+public class JobQueryIndex {
+
+    public enum JobField {
+        ApplicationName(job -> job.getJobDescriptor().getApplicationName()),
+        CapacityGroup(job -> job.getJobDescriptor().getCapacityGroup()),
+        Owner(job -> job.getJobDescriptor().getOwner() == null ? null : job.getJobDescriptor().getOwner().getTeamEmail()),
+        ImageName(job -> job.getJobDescriptor().getContainer() == null ? null : job.getJobDescriptor().getContainer().getImage().getName()),
+        JobGroupStack(job -> jobGroupInfo(job).map(JobGroupInfo::getStack).orElse(null)),
+        JobGroupDetail(job -> jobGroupInfo(job).map(JobGroupInfo::getDetail).orElse(null)),
+        JobGroupSequence(job -> jobGroupInfo(job).map(JobGroupInfo::getSequence).orElse(null));
+
+        private final Function<Job<?>, String> valueResolver;
+
+        JobField(Function<Job<?>, String> valueResolver) {
+            this.valueResolver = valueResolver;
+        }
+
+        private static Optional<JobGroupInfo> jobGroupInfo(Job<?> job) {
+            return Optional.ofNullable(job.getJobDescriptor().getJobGroupInfo());
+        }
+    }
+
+    private final Map<JobField, Map<String, Set<String>>> jobFieldIndexes = new EnumMap<>(JobField.class);
+    private final Map<String, Set<String>> labelKeyIndex = new HashMap<>();
+    private final Map<String, Map<String, Set<String>>> labelValueIndex = new HashMap<>();
+    private final Map<String, Job<?>> indexedJobs = new ConcurrentHashMap<>();
+
+    private final Map<TaskState, Set<String>> taskStateIndex = new EnumMap<>(TaskState.class);
+    private final Map<String, Task> indexedTasks = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> jobTaskIds = new HashMap<>();
+
+    private final NavigableMap<IdAndTimestampKey<String>, Pair<Job<?>, List<Task>>> jobCursorIndex = new ConcurrentSkipListMap<>();
+    private final NavigableMap<IdAndTimestampKey<String>, Task> taskCursorIndex = new ConcurrentSkipListMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public JobQueryIndex() {
+        for (JobField field : JobField.values()) {
+            jobFieldIndexes.put(field, new HashMap<>());
+        }
+    }
+
+    public int getJobCount() {
+        return indexedJobs.size();
+    }
+
+    public int getTaskCount() {
+        return indexedTasks.size();
+    }
+
+    /**
+     * Jobs with their tasks ordered by the job creation timestamp and the job id.
+     */
+    public NavigableMap<IdAndTimestampKey<String>, Pair<Job<?>, List<Task>>> getJobCursorIndex() {
+        return Collections.unmodifiableNavigableMap(jobCursorIndex);
+    }
+
+    /**
+     * Tasks ordered by the task creation timestamp and the task id.
+     */
+    public NavigableMap<IdAndTimestampKey<String>, Task> getTaskCursorIndex() {
+        return Collections.unmodifiableNavigableMap(taskCursorIndex);
+    }
+
+    /**
+     * Returns the indexed job version. Can be called without holding the index lock.
+     */
+    public Optional<Job<?>> findJob(String jobId) {
+        return Optional.ofNullable(indexedJobs.get(jobId));
+    }
+
+    /**
+     * Adds a job and all its tasks. Tasks of the job that were indexed before, but are not in the given list
+     * are removed. The task list is kept in the job cursor index, so it must not be modified afterwards.
+     */
+    public void addOrUpdateJob(Job<?> job, List<Task> tasks) {
+        List<Task> changedTasks = new ArrayList<>();
+        for (Task task : tasks) {
+            if (indexedTasks.get(task.getId()) != task) {
+                changedTasks.add(task);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            addOrUpdateJob(job);
+            jobCursorIndex.put(jobCursorKeyOf(job), Pair.of(job, tasks));
+            changedTasks.forEach(this::doAddOrUpdateTask);
+
+            // All tasks in the list are indexed now, so the job has more indexed tasks only if some were removed.
+            Set<String> indexedTaskIds = jobTaskIds.get(job.getId());
+            if (indexedTaskIds != null && indexedTaskIds.size() > tasks.size()) {
+                removeTasksNotIn(indexedTaskIds, tasks);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeTasksNotIn(Set<String> indexedTaskIds, List<Task> tasks) {
+        Set<String> currentTaskIds = new HashSet<>();
+        for (Task task : tasks) {
+            currentTaskIds.add(task.getId());
+        }
+        for (String taskId : new ArrayList<>(indexedTaskIds)) {
+            if (!currentTaskIds.contains(taskId)) {
+                doRemoveTask(taskId);
+            }
+        }
+    }
+
+    private void addOrUpdateJob(Job<?> job) {
+        Job<?> previous = indexedJobs.put(job.getId(), job);
+        if (previous != null) {
+            IdAndTimestampKey<String> previousKey = jobCursorKeyOf(previous);
+            if (!previousKey.equals(jobCursorKeyOf(job))) {
+                jobCursorIndex.remove(previousKey);
+            }
+            if (previous.getJobDescriptor() == job.getJobDescriptor()) {
+                return;
+            }
+            removeJobAttributes(previous);
+        }
+        addJobAttributes(job);
+    }
+
+    public void removeJob(String jobId) {
+        lock.writeLock().lock();
+        try {
+            Job<?> previous = indexedJobs.remove(jobId);
+            if (previous != null) {
+                jobCursorIndex.remove(jobCursorKeyOf(previous));
+                removeJobAttributes(previous);
+            }
+            Set<String> taskIds = jobTaskIds.get(jobId);
+            if (taskIds != null) {
+                new ArrayList<>(taskIds).forEach(this::doRemoveTask);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addOrUpdateTask(Task task) {
+        lock.writeLock().lock();
+        try {
+            doAddOrUpdateTask(task);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeTask(String taskId) {
+        lock.writeLock().lock();
+        try {
+            doRemoveTask(taskId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doAddOrUpdateTask(Task task) {
+        Task previous = indexedTasks.put(task.getId(), task);
+        if (previous == task) {
+            return;
+        }
+        IdAndTimestampKey<String> key = taskCursorKeyOf(task);
+        if (previous != null) {
+            IdAndTimestampKey<String> previousKey = taskCursorKeyOf(previous);
+            if (!previousKey.equals(key)) {
+                taskCursorIndex.remove(previousKey);
+            }
+        }
+        taskCursorIndex.put(key, task);
+        if (previous != null) {
+            if (previous.getStatus().getState() == task.getStatus().getState() && previous.getJobId().equals(task.getJobId())) {
+                return;
+            }
+            removeTaskAttributes(previous);
+        }
+        addTaskAttributes(task);
+    }
+
+    private void doRemoveTask(String taskId) {
+        Task previous = indexedTasks.remove(taskId);
+        if (previous != null) {
+            taskCursorIndex.remove(taskCursorKeyOf(previous));
+            removeTaskAttributes(previous);
+        }
+    }
+
+    public int countJobs(JobField field, String value) {
+        lock.readLock().lock();
+        try {
+            return jobFieldIndexes.get(field).getOrDefault(value, Collections.emptySet()).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> findJobIds(JobField field, String value) {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(jobFieldIndexes.get(field).getOrDefault(value, Collections.emptySet()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns ids of jobs with the given label. If the value set is empty, any value matches.
+     */
+    public Set<String> findJobIdsWithLabel(String key, Set<String> values) {
+        lock.readLock().lock();
+        try {
+            if (values.isEmpty()) {
+                return new HashSet<>(labelKeyIndex.getOrDefault(key, Collections.emptySet()));
+            }
+            Map<String, Set<String>> byValue = labelValueIndex.getOrDefault(key, Collections.emptyMap());
+            Set<String> result = new HashSet<>();
+            for (String value : values) {
+                result.addAll(byValue.getOrDefault(value, Collections.emptySet()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countTasks(Set<TaskState> states) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (TaskState state : states) {
+                count += taskStateIndex.getOrDefault(state, Collections.emptySet()).size();
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> findTaskIds(Set<TaskState> states) {
+        lock.readLock().lock();
+        try {
+            Set<String> result = new HashSet<>();
+            for (TaskState state : states) {
+                result.addAll(taskStateIndex.getOrDefault(state, Collections.emptySet()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Can be called without holding the index lock.
+     */
+    public Optional<String> findJobIdOfTask(String taskId) {
+        Task task = indexedTasks.get(taskId);
+        return task == null ? Optional.empty() : Optional.of(task.getJobId());
+    }
+
+    /**
+     * Returns the total number of tasks in the given jobs.
+     */
+    public int countTasksOfJobs(Collection<String> jobIds) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (String jobId : jobIds) {
+                count += jobTaskIds.getOrDefault(jobId, Collections.emptySet()).size();
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addJobAttributes(Job<?> job) {
+        String jobId = job.getId();
+        for (JobField field : JobField.values()) {
+            String value = field.valueResolver.apply(job);
+            if (value != null) {
+                jobFieldIndexes.get(field).computeIfAbsent(value, v -> new HashSet<>()).add(jobId);
+            }
+        }
+        for (Map.Entry<String, String> label : labels(job).entrySet()) {
+            labelKeyIndex.computeIfAbsent(label.getKey(), k -> new HashSet<>()).add(jobId);
+            labelValueIndex.computeIfAbsent(label.getKey(), k -> new HashMap<>())
+                    .computeIfAbsent(label.getValue(), v -> new HashSet<>())
+                    .add(jobId);
+        }
+    }
+
+    private void removeJobAttributes(Job<?> job) {
+        String jobId = job.getId();
+        for (JobField field : JobField.values()) {
+            String value = field.valueResolver.apply(job);
+            if (value != null) {
+                removeFromIndex(jobFieldIndexes.get(field), value, jobId);
+            }
+        }
+        for (Map.Entry<String, String> label : labels(job).entrySet()) {
+            removeFromIndex(labelKeyIndex, label.getKey(), jobId);
+            Map<String, Set<String>> byValue = labelValueIndex.get(label.getKey());
+            if (byValue != null) {
+                removeFromIndex(byValue, label.getValue(), jobId);
+                if (byValue.isEmpty()) {
+                    labelValueIndex.remove(label.getKey());
+                }
+            }
+        }
+    }
+
+    private void addTaskAttributes(Task task) {
+        taskStateIndex.computeIfAbsent(task.getStatus().getState(), s -> new HashSet<>()).add(task.getId());
+        jobTaskIds.computeIfAbsent(task.getJobId(), j -> new HashSet<>()).add(task.getId());
+    }
+
+    private void removeTaskAttributes(Task task) {
+        removeFromIndex(taskStateIndex, task.getStatus().getState(), task.getId());
+        removeFromIndex(jobTaskIds, task.getJobId(), task.getId());
+    }
+
+    private static IdAndTimestampKey<String> jobCursorKeyOf(Job<?> job) {
+        return IdAndTimestampKey.ofId(job.getId(), JobFunctions.getJobCreateTimestamp(job));
+    }
+
+    private static IdAndTimestampKey<String> taskCursorKeyOf(Task task) {
+        return IdAndTimestampKey.ofId(task.getId(), JobFunctions.getTaskCreateTimestamp(task));
+    }
+
+    private static Map<String, String> labels(Job<?> job) {
+        JobDescriptor<?> jobDescriptor = job.getJobDescriptor();
+        return jobDescriptor.getAttributes() == null ? Collections.emptyMap() : jobDescriptor.getAttributes();
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<String>> index, K key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
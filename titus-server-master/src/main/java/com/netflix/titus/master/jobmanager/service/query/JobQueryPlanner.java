@@ -0,0 +1,206 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.query;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.grpc.protogen.JobDescriptor.JobSpecCase;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.master.jobmanager.service.query.JobQueryIndex.JobField;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+
+/**
+ * Picks the most selective {@link JobQueryIndex} index for a query. Each indexed criteria (job ids, task ids, job
+ * attributes, labels, task states) yields a candidate set of jobs (and optionally tasks), with a cost estimate
+ * being the number of entities the query predicate would be evaluated against. The cheapest candidate is chosen,
+ * unless it is not better than a full scan. Criteria without an index are left to the query predicate.
+ */
+public class JobQueryPlanner {
+
+    private final JobQueryIndex index;
+
+    public JobQueryPlanner(JobQueryIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns a query plan for a job query, or {@link Optional#empty()} if a full scan should be done.
+     */
+    public Optional<QueryPlan> planJobQuery(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        return plan(criteria, false, index.getJobCount());
+    }
+
+    /**
+     * Returns a query plan for a task query, or {@link Optional#empty()} if a full scan should be done.
+     */
+    public Optional<QueryPlan> planTaskQuery(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        return plan(criteria, true, index.getTaskCount());
+    }
+
+    private Optional<QueryPlan> plan(JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria, boolean taskQuery, int fullScanCost) {
+        List<Candidate> candidates = new ArrayList<>();
+
+        if (!criteria.getJobIds().isEmpty()) {
+            Set<String> jobIds = criteria.getJobIds();
+            candidates.add(new Candidate(taskQuery ? index.countTasksOfJobs(jobIds) : jobIds.size(),
+                    () -> new QueryPlan("jobIds", jobIds, Optional.empty())
+            ));
+        }
+        addJobFieldCandidate(candidates, JobField.ApplicationName, criteria.getAppName(), taskQuery);
+        addJobFieldCandidate(candidates, JobField.CapacityGroup, criteria.getCapacityGroup(), taskQuery);
+        addJobFieldCandidate(candidates, JobField.Owner, criteria.getOwner(), taskQuery);
+        addJobFieldCandidate(candidates, JobField.ImageName, criteria.getImageName(), taskQuery);
+        addJobFieldCandidate(candidates, JobField.JobGroupStack, criteria.getJobGroupStack(), taskQuery);
+        addJobFieldCandidate(candidates, JobField.JobGroupDetail, criteria.getJobGroupDetail(), taskQuery);
+        addJobFieldCandidate(candidates, JobField.JobGroupSequence, criteria.getJobGroupSequence(), taskQuery);
+        addLabelCandidates(candidates, criteria.getLabels(), criteria.isLabelsAndOp(), taskQuery);
+
+        if (!criteria.getTaskIds().isEmpty()) {
+            Set<String> taskIds = criteria.getTaskIds();
+            // The index is in sync with the reference model, so a task not known to the index does not exist.
+            Set<String> jobIds = jobIdsOf(taskIds);
+            candidates.add(new Candidate(taskQuery ? taskIds.size() : jobIds.size(),
+                    () -> new QueryPlan("taskIds", jobIds, Optional.of(taskIds))
+            ));
+        }
+        if (!criteria.getTaskStates().isEmpty()) {
+            Set<TaskState> taskStates = criteria.getTaskStates().stream()
+                    .map(GrpcJobManagementModelConverters::toCoreTaskState)
+                    .collect(Collectors.toSet());
+            // For job queries the number of jobs is not known until the task set is resolved, so use the task count
+            // as the (upper bound) estimate.
+            candidates.add(new Candidate(index.countTasks(taskStates), () -> {
+                Set<String> taskIds = index.findTaskIds(taskStates);
+                return new QueryPlan("taskStates", jobIdsOf(taskIds), Optional.of(taskIds));
+            }));
+        }
+
+        Candidate best = null;
+        for (Candidate candidate : candidates) {
+            if (best == null || candidate.cost < best.cost) {
+                best = candidate;
+            }
+        }
+        if (best == null || best.cost >= fullScanCost) {
+            return Optional.empty();
+        }
+        return Optional.of(best.planSupplier.get());
+    }
+
+    private void addJobFieldCandidate(List<Candidate> candidates, JobField field, Optional<String> valueOpt, boolean taskQuery) {
+        valueOpt.ifPresent(value -> {
+            if (taskQuery) {
+                Set<String> jobIds = index.findJobIds(field, value);
+                candidates.add(new Candidate(index.countTasksOfJobs(jobIds),
+                        () -> new QueryPlan(field.name(), jobIds, Optional.empty())
+                ));
+            } else {
+                candidates.add(new Candidate(index.countJobs(field, value),
+                        () -> new QueryPlan(field.name(), index.findJobIds(field, value), Optional.empty())
+                ));
+            }
+        });
+    }
+
+    private void addLabelCandidates(List<Candidate> candidates, Map<String, Set<String>> labels, boolean andOp, boolean taskQuery) {
+        if (labels.isEmpty()) {
+            return;
+        }
+        if (andOp) {
+            labels.forEach((key, values) -> addJobIdsCandidate(candidates, "labels", index.findJobIdsWithLabel(key, values), taskQuery));
+        } else {
+            Set<String> jobIds = new HashSet<>();
+            labels.forEach((key, values) -> jobIds.addAll(index.findJobIdsWithLabel(key, values)));
+            addJobIdsCandidate(candidates, "labels", jobIds, taskQuery);
+        }
+    }
+
+    private void addJobIdsCandidate(List<Candidate> candidates, String name, Set<String> jobIds, boolean taskQuery) {
+        candidates.add(new Candidate(taskQuery ? index.countTasksOfJobs(jobIds) : jobIds.size(),
+                () -> new QueryPlan(name, jobIds, Optional.empty())
+        ));
+    }
+
+    private Set<String> jobIdsOf(Set<String> taskIds) {
+        Set<String> jobIds = new HashSet<>();
+        for (String taskId : taskIds) {
+            index.findJobIdOfTask(taskId).ifPresent(jobIds::add);
+        }
+        return jobIds;
+    }
+
+    public static class QueryPlan {
+
+        private final String indexName;
+        private final Set<String> jobIds;
+        private final Optional<Set<String>> taskIds;
+
+        private QueryPlan(String indexName, Set<String> jobIds, Optional<Set<String>> taskIds) {
+            this.indexName = indexName;
+            this.jobIds = jobIds;
+            this.taskIds = taskIds;
+        }
+
+        public String getIndexName() {
+            return indexName;
+        }
+
+        /**
+         * Jobs that may match the query. Jobs not in this set do not match.
+         */
+        public Set<String> getJobIds() {
+            return jobIds;
+        }
+
+        /**
+         * Tasks that may match the query, if the plan is based on a task index. Otherwise all tasks of
+         * {@link #getJobIds()} should be evaluated.
+         */
+        public Optional<Set<String>> getTaskIds() {
+            return taskIds;
+        }
+
+        @Override
+        public String toString() {
+            return "QueryPlan{" +
+                    "indexName='" + indexName + '\'' +
+                    ", jobIds=" + jobIds.size() +
+                    ", taskIds=" + taskIds.map(Set::size).orElse(-1) +
+                    '}';
+        }
+    }
+
+    private static class Candidate {
+
+        private final int cost;
+        private final Supplier<QueryPlan> planSupplier;
+
+        private Candidate(int cost, Supplier<QueryPlan> planSupplier) {
+            this.cost = cost;
+            this.planSupplier = planSupplier;
+        }
+    }
+}
@@ -171,4 +171,11 @@ public interface SchedulerConfiguration {
      */
     @DefaultValue("15000")
     long getStateDumpTimeoutMs();
-}
\ No newline at end of file
+
+    /**
+     * @return interval at which {@link com.netflix.titus.master.scheduler.resourcecache.TaskCache} rebuilds its
+     * aggregates from the full job/task snapshot, to correct any drift of its incremental updates.
+     */
+    @DefaultValue("300000")
+    long getTaskCacheFullResyncIntervalMs();
+}
@@ -23,7 +23,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -32,138 +33,253 @@ import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.model.job.vpc.IpAddressAllocationUtils;
 import com.netflix.titus.api.jobmanager.service.V3JobOperations;
 import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.code.CodeInvariants;
+import com.netflix.titus.common.util.guice.annotation.Activator;
+import com.netflix.titus.common.util.rx.ObservableExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscription;
 
 /**
  * Helper class that aggregates task data by multiple criteria used by Fenzo constraint/fitness evaluators.
+ * <p>
+ * Once activated, the aggregates are maintained incrementally from the job manager task update events. The events
+ * are collected (coalesced by task id) as they arrive, and applied in {@link #prepare()}, so the cache state does
+ * not change during a scheduling iteration. A full rebuild from the job manager snapshot is done periodically, to
+ * correct any drift (for example caused by events lost during the event stream re-subscription). Before activation
+ * the aggregates are rebuilt in each {@link #prepare()} call.
+ * <p>
+ * IP allocations and opportunistic CPU allocations added by the scheduler during an iteration are kept separately,
+ * and dropped in the next {@link #prepare()} call, as by then the task updates are the source of truth.
  */
 @Singleton
 public class TaskCache {
 
+    private static final Logger logger = LoggerFactory.getLogger(TaskCache.class);
+
+    private final SchedulerConfiguration configuration;
     private final TitusRuntime titusRuntime;
     private final V3JobOperations v3JobOperations;
-    private final AtomicReference<TaskCacheValue> currentCacheValue;
+
+    /**
+     * Task updates received since the last {@link #prepare()} call. Written by the job manager event stream.
+     */
+    private final ConcurrentMap<String, Pair<Job<?>, Task>> pendingTaskUpdates = new ConcurrentHashMap<>();
+
+    // Aggregates below are modified only in prepare(), and read by the constraint/fitness evaluators.
+
+    private final Map<String, TaskEntry> tasksById = new HashMap<>();
+
+    private final Map<String, Map<String, Integer>> zoneBalanceCountersByJobId = new HashMap<>();
+
+    // This map contains currently assigned IP allocations, Map<IP Allocation ID, Task ID>
+    private final Map<String, String> assignedIpAllocations = new HashMap<>();
+
+    // Maps an IP allocation ID to the zone it exists in, Map<IP Allocation ID, Zone ID>. IP allocation zone never
+    // changes, so entries are not removed incrementally, but only during the full rebuild.
+    private final Map<String, String> ipAllocationIdToZoneId = new HashMap<>();
+
+    // agentId -> all tasks that were allocated with
+    private final Map<String, List<OpportunisticCpuAllocation>> assignedOpportunisticCpus = new HashMap<>();
+
+    // Assignments made during the current scheduling iteration.
+    private final ConcurrentMap<String, String> iterationIpAllocations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<OpportunisticCpuAllocation>> iterationOpportunisticCpus = new ConcurrentHashMap<>();
+
+    private Subscription taskUpdateSubscription;
+    private long nextFullRebuildTimestamp;
 
     @Inject
-    public TaskCache(TitusRuntime titusRuntime, V3JobOperations v3JobOperations) {
+    public TaskCache(SchedulerConfiguration configuration, TitusRuntime titusRuntime, V3JobOperations v3JobOperations) {
+        this.configuration = configuration;
         this.titusRuntime = titusRuntime;
         this.v3JobOperations = v3JobOperations;
-        this.currentCacheValue = new AtomicReference<>();
+    }
+
+    @Activator
+    public void enterActiveMode() {
+        Observable<TaskUpdateEvent> taskUpdates = v3JobOperations.observeJobs()
+                .filter(event -> event instanceof TaskUpdateEvent)
+                .cast(TaskUpdateEvent.class);
+        this.taskUpdateSubscription = titusRuntime.persistentStream(taskUpdates).subscribe(
+                event -> pendingTaskUpdates.put(event.getCurrentTask().getId(), Pair.of(event.getCurrentJob(), event.getCurrentTask())),
+                e -> logger.error("Task update event stream terminated with an error", e),
+                () -> logger.info("Task update event stream completed")
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ObservableExt.safeUnsubscribe(taskUpdateSubscription);
     }
 
     public void prepare() {
-        currentCacheValue.set(new TaskCacheValue());
+        iterationIpAllocations.clear();
+        iterationOpportunisticCpus.clear();
+
+        long now = titusRuntime.getClock().wallTime();
+        if (taskUpdateSubscription == null || now >= nextFullRebuildTimestamp) {
+            // Updates received after this point are applied again in the next iteration, which is safe, as each update
+            // replaces the previous task state.
+            pendingTaskUpdates.clear();
+            rebuild(v3JobOperations.getJobsAndTasks());
+            this.nextFullRebuildTimestamp = now + configuration.getTaskCacheFullResyncIntervalMs();
+            return;
+        }
+
+        for (String taskId : pendingTaskUpdates.keySet()) {
+            Pair<Job<?>, Task> update = pendingTaskUpdates.remove(taskId);
+            if (update != null) {
+                applyTaskUpdate(update.getLeft(), update.getRight());
+            }
+        }
     }
 
     public Map<String, Integer> getTasksByZoneIdCounters(String jobId) {
-        return currentCacheValue.get().getTasksByZoneIdCounters(jobId);
+        return zoneBalanceCountersByJobId.getOrDefault(jobId, Collections.emptyMap());
     }
 
     // Returns a task ID if there is a task assigned to the provided IP allocation
     public Optional<String> getTaskByIpAllocationId(String ipAllocationId) {
-        return Optional.ofNullable(currentCacheValue.get().assignedIpAllocations.get(ipAllocationId));
+        String taskId = iterationIpAllocations.get(ipAllocationId);
+        return taskId != null ? Optional.of(taskId) : Optional.ofNullable(assignedIpAllocations.get(ipAllocationId));
     }
 
     // Updates the cache to reflect assignment of an IP allocation to a task
     public void addTaskIpAllocation(String ipAllocationId, String taskId) {
-        currentCacheValue.get().assignedIpAllocations.put(ipAllocationId, taskId);
+        iterationIpAllocations.put(ipAllocationId, taskId);
     }
 
     public Optional<String> getZoneIdByIpAllocationId(String ipAllocationId) {
-        return Optional.ofNullable(currentCacheValue.get().ipAllocationIdToZoneId.get(ipAllocationId));
+        return Optional.ofNullable(ipAllocationIdToZoneId.get(ipAllocationId));
     }
 
     public void addOpportunisticCpuAllocation(OpportunisticCpuAllocation allocation) {
-        CollectionsExt.multiMapAddValue(currentCacheValue.get().assignedOpportunisticCpus, allocation.getAgentId(), allocation);
+        CollectionsExt.multiMapAddValue(iterationOpportunisticCpus, allocation.getAgentId(), allocation);
     }
 
     public int getOpportunisticCpusAllocated(String agentId) {
-        return currentCacheValue.get().assignedOpportunisticCpus.getOrDefault(agentId, Collections.emptyList()).stream()
-                .mapToInt(OpportunisticCpuAllocation::getCpuCount)
-                .sum();
+        return sumCpus(assignedOpportunisticCpus.get(agentId)) + sumCpus(iterationOpportunisticCpus.get(agentId));
     }
 
-    private class TaskCacheValue {
+    private void rebuild(List<Pair<Job, List<Task>>> jobsAndTasks) {
+        tasksById.clear();
+        zoneBalanceCountersByJobId.clear();
+        assignedIpAllocations.clear();
+        ipAllocationIdToZoneId.clear();
+        assignedOpportunisticCpus.clear();
 
-        private final Map<String, Map<String, Integer>> zoneBalanceCountersByJobId;
+        for (Pair<Job, List<Task>> jobAndTasks : jobsAndTasks) {
+            for (Task task : jobAndTasks.getRight()) {
+                addTask(jobAndTasks.getLeft(), task);
+            }
+        }
+    }
 
-        // This map contains currently assigned IP allocations, Map<IP Allocation ID, Task ID>
-        private final ConcurrentMap<String, String> assignedIpAllocations;
+    private void applyTaskUpdate(Job<?> job, Task task) {
+        removeTask(task.getId());
+        addTask(job, task);
+    }
 
-        // Maps an IP allocation ID to the zone it exists in, Map<IP Allocation ID, Zone ID>
-        private final Map<String, String> ipAllocationIdToZoneId;
+    private void addTask(Job<?> job, Task task) {
+        TaskState state = task.getStatus().getState();
+        if (state == TaskState.Finished) {
+            return;
+        }
+        boolean running = TaskState.isRunning(state);
 
-        // agentId -> all tasks that were allocated with
-        private final ConcurrentMap<String, List<OpportunisticCpuAllocation>> assignedOpportunisticCpus;
+        String zoneId = getZoneId(task);
+        if (zoneId != null) {
+            zoneBalanceCountersByJobId.computeIfAbsent(task.getJobId(), id -> new HashMap<>()).merge(zoneId, 1, Integer::sum);
+        }
 
-        private TaskCacheValue() {
-            List<Pair<Job, List<Task>>> jobsAndTasks = v3JobOperations.getJobsAndTasks();
-            this.assignedIpAllocations = new ConcurrentHashMap<>();
-            this.zoneBalanceCountersByJobId = new HashMap<>();
-            this.ipAllocationIdToZoneId = new HashMap<>();
-            this.assignedOpportunisticCpus = new ConcurrentHashMap<>();
-            buildTaskCacheInfo(jobsAndTasks);
+        // Get an IP allocation ID that has been assigned to this task. If present,
+        // check if the task is running and if so, mark the IP allocation as in use.
+        // In addition, resolve the IP allocation ID's zone ID and cache that as well.
+        String ipAllocationId = IpAddressAllocationUtils.getIpAllocationId(task).orElse(null);
+        if (ipAllocationId != null) {
+            if (running) {
+                assignedIpAllocations.put(ipAllocationId, task.getId());
+            }
+            IpAddressAllocationUtils.getIpAllocationZoneForId(ipAllocationId, job.getJobDescriptor(), codeInvariants()).ifPresent(zoneIdForIpAllocation ->
+                    ipAllocationIdToZoneId.put(ipAllocationId, zoneIdForIpAllocation));
         }
 
-        private Map<String, Integer> getTasksByZoneIdCounters(String jobId) {
-            return zoneBalanceCountersByJobId.getOrDefault(jobId, Collections.emptyMap());
+        OpportunisticCpuAllocation opportunisticCpuAllocation = null;
+        if (running) {
+            opportunisticCpuAllocation = getOpportunisticCpuAllocation(task).orElse(null);
+            if (opportunisticCpuAllocation != null) {
+                CollectionsExt.multiMapAddValue(assignedOpportunisticCpus, opportunisticCpuAllocation.getAgentId(), opportunisticCpuAllocation);
+            }
         }
 
-        private void buildTaskCacheInfo(List<Pair<Job, List<Task>>> jobsAndTasks) {
-            for (Pair<Job, List<Task>> jobAndTask : jobsAndTasks) {
-                Map<String, Integer> jobZoneBalancing = new HashMap<>();
-                for (Task task : jobAndTask.getRight()) {
-                    String zoneId = getZoneId(task);
-                    if (zoneId != null) {
-                        jobZoneBalancing.put(zoneId, jobZoneBalancing.getOrDefault(zoneId, 0) + 1);
-                    }
-
-                    // Get an IP allocation ID that has been assigned to this task. If present,
-                    // check if the task is running and if so, mark the IP allocation as in use.
-                    // In addition, resolve the IP allocation ID's zone ID and cache that as well.
-                    IpAddressAllocationUtils.getIpAllocationId(task).ifPresent(ipAllocationId -> {
-                        if (TaskState.isRunning(task.getStatus().getState())) {
-                            assignedIpAllocations.put(ipAllocationId, task.getId());
-                        }
-                        IpAddressAllocationUtils.getIpAllocationZoneForId(ipAllocationId, jobAndTask.getLeft().getJobDescriptor(), codeInvariants()).ifPresent(zoneIdForIpAllocation ->
-                                ipAllocationIdToZoneId.put(ipAllocationId, zoneIdForIpAllocation));
-                    });
-
-                    getOpportunisticCpuAllocation(task).ifPresent(allocation -> {
-                        if (TaskState.isRunning(task.getStatus().getState())) {
-                            CollectionsExt.multiMapAddValue(assignedOpportunisticCpus, allocation.getAgentId(), allocation);
-                        }
-                    });
+        tasksById.put(task.getId(), new TaskEntry(task.getJobId(), zoneId, running ? ipAllocationId : null, opportunisticCpuAllocation));
+    }
+
+    private void removeTask(String taskId) {
+        TaskEntry entry = tasksById.remove(taskId);
+        if (entry == null) {
+            return;
+        }
+
+        if (entry.zoneId != null) {
+            Map<String, Integer> jobZoneBalancing = zoneBalanceCountersByJobId.get(entry.jobId);
+            if (jobZoneBalancing != null) {
+                jobZoneBalancing.computeIfPresent(entry.zoneId, (zoneId, count) -> count > 1 ? count - 1 : null);
+                if (jobZoneBalancing.isEmpty()) {
+                    zoneBalanceCountersByJobId.remove(entry.jobId);
                 }
-                zoneBalanceCountersByJobId.put(jobAndTask.getLeft().getId(), jobZoneBalancing);
             }
         }
 
-        private Optional<OpportunisticCpuAllocation> getOpportunisticCpuAllocation(Task task) {
-            Optional<String> allocationIdOpt = getOpportunisticCpuAllocationId(task);
-            Optional<OpportunisticCpuAllocation> allocationOpt = allocationIdOpt
-                    .map(allocationId -> OpportunisticCpuAllocation.newBuilder().withAllocationId(allocationId))
-                    .flatMap(builder -> JobFunctions.getOpportunisticCpuCount(task).map(builder::withCpuCount))
-                    .flatMap(builder -> getAgentId(task).map(builder::withAgentId))
-                    .map(builder -> builder.withTaskId(task.getId()).build());
-
-            if (allocationIdOpt.isPresent() && !allocationOpt.isPresent()) {
-                codeInvariants().inconsistent("Task %s is allocated opportunistic CPU, but is missing extra required information",
-                        task.getId());
-            }
-            return allocationOpt;
+        if (entry.assignedIpAllocationId != null) {
+            assignedIpAllocations.remove(entry.assignedIpAllocationId, taskId);
+        }
+
+        if (entry.opportunisticCpuAllocation != null) {
+            assignedOpportunisticCpus.computeIfPresent(entry.opportunisticCpuAllocation.getAgentId(), (agentId, allocations) -> {
+                List<OpportunisticCpuAllocation> remaining = allocations.stream()
+                        .filter(allocation -> !allocation.getTaskId().equals(taskId))
+                        .collect(Collectors.toList());
+                return remaining.isEmpty() ? null : remaining;
+            });
         }
     }
 
+    private Optional<OpportunisticCpuAllocation> getOpportunisticCpuAllocation(Task task) {
+        Optional<String> allocationIdOpt = getOpportunisticCpuAllocationId(task);
+        Optional<OpportunisticCpuAllocation> allocationOpt = allocationIdOpt
+                .map(allocationId -> OpportunisticCpuAllocation.newBuilder().withAllocationId(allocationId))
+                .flatMap(builder -> JobFunctions.getOpportunisticCpuCount(task).map(builder::withCpuCount))
+                .flatMap(builder -> getAgentId(task).map(builder::withAgentId))
+                .map(builder -> builder.withTaskId(task.getId()).build());
+
+        if (allocationIdOpt.isPresent() && !allocationOpt.isPresent()) {
+            codeInvariants().inconsistent("Task %s is allocated opportunistic CPU, but is missing extra required information",
+                    task.getId());
+        }
+        return allocationOpt;
+    }
+
     private CodeInvariants codeInvariants() {
         return titusRuntime.getCodeInvariants();
     }
 
+    private static int sumCpus(List<OpportunisticCpuAllocation> allocations) {
+        if (allocations == null) {
+            return 0;
+        }
+        return allocations.stream().mapToInt(OpportunisticCpuAllocation::getCpuCount).sum();
+    }
+
     private static Optional<String> getAgentId(Task task) {
         return Optional.ofNullable(task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID));
     }
@@ -176,4 +292,21 @@ public class TaskCache {
         return task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_ZONE);
     }
 
-}
\ No newline at end of file
+    /**
+     * Task contributions to the aggregates, needed to revert them when the task changes.
+     */
+    private static class TaskEntry {
+
+        private final String jobId;
+        private final String zoneId;
+        private final String assignedIpAllocationId;
+        private final OpportunisticCpuAllocation opportunisticCpuAllocation;
+
+        private TaskEntry(String jobId, String zoneId, String assignedIpAllocationId, OpportunisticCpuAllocation opportunisticCpuAllocation) {
+            this.jobId = jobId;
+            this.zoneId = zoneId;
+            this.assignedIpAllocationId = assignedIpAllocationId;
+            this.opportunisticCpuAllocation = opportunisticCpuAllocation;
+        }
+    }
+}
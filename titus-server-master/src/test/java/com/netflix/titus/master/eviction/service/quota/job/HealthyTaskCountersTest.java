@@ -0,0 +1,151 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.eviction.service.quota.job;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.netflix.titus.api.containerhealth.model.ContainerHealthState;
+import com.netflix.titus.api.containerhealth.service.ContainerHealthService;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.testkit.model.job.JobComponentStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import static com.netflix.titus.testkit.model.eviction.DisruptionBudgetGenerator.budget;
+import static com.netflix.titus.testkit.model.eviction.DisruptionBudgetGenerator.newBatchJob;
+import static com.netflix.titus.testkit.model.eviction.DisruptionBudgetGenerator.percentageOfHealthyPolicy;
+import static com.netflix.titus.testkit.model.eviction.DisruptionBudgetGenerator.unlimitedRate;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HealthyTaskCountersTest {
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test();
+
+    private final JobComponentStub jobComponentStub = new JobComponentStub(titusRuntime);
+
+    private final V3JobOperations jobOperations = jobComponentStub.getJobOperations();
+
+    private final ContainerHealthService containerHealthService = jobComponentStub.getContainerHealthService();
+
+    private final HealthyTaskCounters counters = new HealthyTaskCounters(jobOperations, containerHealthService);
+
+    private Job<BatchJobExt> job;
+
+    private Disposable taskUpdateDisposable;
+
+    @Before
+    public void setUp() {
+        job = newBatchJob(3, budget(percentageOfHealthyPolicy(50), unlimitedRate(), Collections.emptyList()));
+        jobComponentStub.createJobAndTasks(job);
+    }
+
+    @After
+    public void tearDown() {
+        if (taskUpdateDisposable != null) {
+            taskUpdateDisposable.dispose();
+        }
+    }
+
+    @Test
+    public void testCountersFollowTaskAndHealthUpdates() {
+        List<Task> tasks = jobOperations.getTasks();
+        tasks.forEach(counters::onTaskUpdate);
+        counters.activate();
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(0);
+
+        // Start all tasks
+        for (Task task : tasks) {
+            counters.onTaskUpdate(jobComponentStub.moveTaskToState(task, TaskState.Started));
+        }
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(3);
+
+        // Make one unhealthy
+        String taskId = tasks.get(0).getId();
+        jobComponentStub.changeContainerHealth(taskId, ContainerHealthState.Unhealthy);
+        counters.onContainerHealthUpdate(containerHealthService.getHealthStatus(taskId));
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(2);
+
+        // Repeated update does not change the counter
+        counters.onContainerHealthUpdate(containerHealthService.getHealthStatus(taskId));
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(2);
+
+        // Finish a healthy one
+        Task healthyTask = jobOperations.findTaskById(tasks.get(1).getId()).get().getRight();
+        counters.onTaskUpdate(jobComponentStub.moveTaskToState(healthyTask, TaskState.Finished));
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(1);
+    }
+
+    @Test
+    public void testScanIsUsedForJobsNotSeenInEvents() {
+        counters.activate();
+        List<Task> tasks = jobOperations.getTasks();
+        tasks.forEach(task -> jobComponentStub.moveTaskToState(task, TaskState.Started));
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(3);
+
+        counters.onJobFinished(job.getId());
+        assertThat(counters.getHealthyCount("unknownJob")).isEqualTo(0);
+    }
+
+    @Test
+    public void testCountersAreRebuiltFromSnapshotAfterReconnect() {
+        AtomicReference<DirectProcessor<Task>> taskUpdates = new AtomicReference<>();
+        DirectProcessor<Long> reconnects = DirectProcessor.create();
+        taskUpdateDisposable = Flux.defer(() -> {
+            taskUpdates.set(DirectProcessor.create());
+            return taskUpdates.get();
+        })
+                .transformDeferred(counters::withTaskSnapshot)
+                .retryWhen(Retry.from(retrySignals -> retrySignals.concatMap(signal -> reconnects.next())))
+                .subscribe(counters::onTaskUpdate);
+        counters.activate();
+
+        List<Task> tasks = jobOperations.getTasks();
+        for (Task task : tasks) {
+            taskUpdates.get().onNext(jobComponentStub.moveTaskToState(task, TaskState.Started));
+        }
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(3);
+
+        // Drop the stream, and finish a task while disconnected
+        DirectProcessor<Task> disconnected = taskUpdates.get();
+        disconnected.onError(new RuntimeException("simulated stream error"));
+        Task finishedTask = jobOperations.findTaskById(tasks.get(0).getId()).get().getRight();
+        jobComponentStub.moveTaskToState(finishedTask, TaskState.Finished);
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(3);
+
+        // Reconnect reloads the snapshot, in which the task is finished
+        reconnects.onNext(1L);
+        assertThat(taskUpdates.get()).isNotSameAs(disconnected);
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(2);
+
+        Task killedTask = jobOperations.findTaskById(tasks.get(1).getId()).get().getRight();
+        taskUpdates.get().onNext(jobComponentStub.moveTaskToState(killedTask, TaskState.Finished));
+        assertThat(counters.getHealthyCount(job.getId())).isEqualTo(1);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.grpc.protogen.Job;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.grpc.protogen.JobStatus;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FlowControlledJobEventSubscriberTest {
+
+    private static final JobChangeNotification SNAPSHOT_END = JobChangeNotification.newBuilder()
+            .setSnapshotEnd(JobChangeNotification.SnapshotEnd.newBuilder())
+            .build();
+
+    private static final int MAX_BUFFER_SIZE = 3;
+    private static final long MAX_LAG_MS = 1_000;
+
+    private final TestClock clock = Clocks.test();
+
+    @SuppressWarnings("unchecked")
+    private final ServerCallStreamObserver<JobChangeNotification> responseObserver = mock(ServerCallStreamObserver.class);
+    private final DefaultJobManagementServiceGrpcMetrics metrics = mock(DefaultJobManagementServiceGrpcMetrics.class);
+
+    private final AtomicBoolean ready = new AtomicBoolean(true);
+    private final List<JobChangeNotification> written = new ArrayList<>();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private Runnable onReadyHandler;
+
+    @Before
+    public void setUp() {
+        when(responseObserver.isReady()).thenAnswer(invocation -> ready.get());
+        doAnswer(invocation -> written.add(invocation.getArgument(0))).when(responseObserver).onNext(any());
+    }
+
+    @Test
+    public void testEventsAreHeldUntilTransportIsReady() {
+        FlowControlledJobEventSubscriber subscriber = newSubscriber(FlowControlledJobEventSubscriber.Policy.Buffer);
+        subscriber.onNext(SNAPSHOT_END);
+
+        ready.set(false);
+        subscriber.onNext(jobUpdate("job1", "a"));
+        subscriber.onNext(jobUpdate("job1", "b"));
+        subscriber.onCompleted();
+        assertThat(written).containsExactly(SNAPSHOT_END);
+        assertThat(subscriber.getBufferDepth()).isEqualTo(2);
+        assertThat(completed).isFalse();
+
+        ready.set(true);
+        onReadyHandler.run();
+        assertThat(written).containsExactly(SNAPSHOT_END, jobUpdate("job1", "a"), jobUpdate("job1", "b"));
+        assertThat(subscriber.getBufferDepth()).isZero();
+        assertThat(completed).isTrue();
+    }
+
+    @Test
+    public void testBufferOverflowDisconnectsSubscriber() {
+        FlowControlledJobEventSubscriber subscriber = newSubscriber(FlowControlledJobEventSubscriber.Policy.Buffer);
+        ready.set(false);
+
+        // Snapshot is not counted against the limit
+        for (int i = 0; i < MAX_BUFFER_SIZE * 2; i++) {
+            subscriber.onNext(jobUpdate("snapshotJob" + i, "a"));
+        }
+        subscriber.onNext(SNAPSHOT_END);
+        for (int i = 0; i < MAX_BUFFER_SIZE; i++) {
+            subscriber.onNext(jobUpdate("job" + i, "a"));
+        }
+        assertThat(error.get()).isNull();
+
+        subscriber.onNext(jobUpdate("job" + MAX_BUFFER_SIZE, "a"));
+        assertThat(error.get()).isInstanceOf(StatusRuntimeException.class);
+        assertThat(((StatusRuntimeException) error.get()).getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+        assertThat(subscriber.isUnsubscribed()).isTrue();
+        verify(metrics).observeJobsSlowConsumerDisconnected("trx1");
+    }
+
+    @Test
+    public void testConflatePolicyKeepsLatestEntityState() {
+        FlowControlledJobEventSubscriber subscriber = newSubscriber(FlowControlledJobEventSubscriber.Policy.Conflate);
+        subscriber.onNext(SNAPSHOT_END);
+
+        ready.set(false);
+        for (int i = 0; i < MAX_BUFFER_SIZE * 10; i++) {
+            subscriber.onNext(jobUpdate("job1", "v" + i));
+            subscriber.onNext(jobUpdate("job2", "v" + i));
+        }
+        assertThat(error.get()).isNull();
+        assertThat(subscriber.getBufferDepth()).isEqualTo(2);
+
+        ready.set(true);
+        onReadyHandler.run();
+        int last = MAX_BUFFER_SIZE * 10 - 1;
+        assertThat(written).containsExactly(SNAPSHOT_END, jobUpdate("job1", "v" + last), jobUpdate("job2", "v" + last));
+    }
+
+    @Test
+    public void testDisconnectPolicyTerminatesLaggingSubscriber() {
+        FlowControlledJobEventSubscriber subscriber = newSubscriber(FlowControlledJobEventSubscriber.Policy.Disconnect);
+        subscriber.onNext(SNAPSHOT_END);
+
+        ready.set(false);
+        subscriber.onNext(jobUpdate("job1", "a"));
+        clock.advanceTime(MAX_LAG_MS + 1, TimeUnit.MILLISECONDS);
+        assertThat(subscriber.getLagMs()).isEqualTo(MAX_LAG_MS + 1);
+        assertThat(error.get()).isNull();
+
+        subscriber.onNext(jobUpdate("job2", "a"));
+        assertThat(error.get()).isInstanceOf(StatusRuntimeException.class);
+        assertThat(subscriber.getBufferDepth()).isZero();
+    }
+
+    private FlowControlledJobEventSubscriber newSubscriber(FlowControlledJobEventSubscriber.Policy policy) {
+        FlowControlledJobEventSubscriber subscriber = new FlowControlledJobEventSubscriber(
+                "trx1",
+                responseObserver,
+                policy,
+                MAX_BUFFER_SIZE,
+                MAX_LAG_MS,
+                clock,
+                metrics,
+                error::set,
+                () -> completed.set(true)
+        );
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(responseObserver).setOnReadyHandler(captor.capture());
+        this.onReadyHandler = captor.getValue();
+        return subscriber;
+    }
+
+    private static JobChangeNotification jobUpdate(String jobId, String reason) {
+        return JobChangeNotification.newBuilder()
+                .setJobUpdate(JobChangeNotification.JobUpdate.newBuilder()
+                        .setJob(Job.newBuilder()
+                                .setId(jobId)
+                                .setStatus(JobStatus.newBuilder().setReasonMessage(reason))
+                        )
+                )
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobEventJournalTest {
+
+    private final JobEventJournal<String> journal = new JobEventJournal<>("epoch1", 3);
+
+    @Test
+    public void testEmptyJournal() {
+        assertThat(journal.getLastSequence()).isEqualTo(JobEventJournal.EMPTY_SEQUENCE);
+        assertThat(journal.readAfter(JobEventJournal.EMPTY_SEQUENCE)).hasValueSatisfying(events -> assertThat(events).isEmpty());
+        assertThat(journal.readAfter(0)).isEmpty();
+    }
+
+    @Test
+    public void testReadAfter() {
+        assertThat(journal.append(sequence -> "e" + sequence)).isEqualTo("e0");
+        journal.append(sequence -> "e" + sequence);
+
+        assertThat(journal.getLastSequence()).isEqualTo(1);
+        assertThat(journal.readAfter(JobEventJournal.EMPTY_SEQUENCE)).hasValueSatisfying(events -> assertThat(events).containsExactly("e0", "e1"));
+        assertThat(journal.readAfter(0)).hasValueSatisfying(events -> assertThat(events).containsExactly("e1"));
+        assertThat(journal.readAfter(1)).hasValueSatisfying(events -> assertThat(events).isEmpty());
+        assertThat(journal.readAfter(2)).isEmpty();
+    }
+
+    @Test
+    public void testOldestEventsAreDiscarded() {
+        for (int i = 0; i < 5; i++) {
+            journal.append(sequence -> "e" + sequence);
+        }
+        assertThat(journal.readAfter(0)).isEmpty();
+        assertThat(journal.readAfter(1)).hasValueSatisfying(events -> assertThat(events).containsExactly("e2", "e3", "e4"));
+    }
+
+    @Test(timeout = 30_000)
+    public void testReadersAreNotBlockedWhileEventIsCreated() {
+        journal.append(sequence -> "e" + sequence);
+        String event = journal.append(sequence -> {
+            // Read from another thread, while this one is inside append.
+            long lastSequence = CompletableFuture.supplyAsync(journal::getLastSequence).join();
+            return "e" + sequence + "/" + lastSequence;
+        });
+        assertThat(event).isEqualTo("e1/0");
+        assertThat(journal.readAfter(0)).hasValueSatisfying(events -> assertThat(events).containsExactly("e1/0"));
+    }
+}
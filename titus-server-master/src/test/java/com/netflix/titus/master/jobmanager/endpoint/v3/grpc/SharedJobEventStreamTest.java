@@ -0,0 +1,187 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.endpoint.v3.grpc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
+import com.netflix.titus.api.jobmanager.service.V3JobOperations;
+import com.netflix.titus.api.model.callmetadata.CallMetadataConstants;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobChangeNotification;
+import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcObjectsCache;
+import com.netflix.titus.runtime.endpoint.v3.grpc.ObserveJobsResumeToken;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import com.netflix.titus.testkit.rx.ExtTestSubscriber;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SharedJobEventStreamTest {
+
+    private static final int BUFFER_SIZE = 16;
+    private static final int JOURNAL_SIZE = 2;
+
+    private final V3JobOperations jobOperations = mock(V3JobOperations.class);
+    private final GrpcObjectsCache grpcObjectsCache = mock(GrpcObjectsCache.class);
+
+    private final PublishSubject<JobManagerEvent<?>> jobEvents = PublishSubject.create();
+
+    /**
+     * Tasks emitted together with a job event, mimicking the job manager, which takes them from the children of the
+     * job entity holder.
+     */
+    private final Map<String, List<Task>> eventJobTasks = new HashMap<>();
+
+    private SharedJobEventStream sharedStream;
+
+    @Before
+    public void setUp() {
+        when(jobOperations.observeJobsWithTasks()).thenReturn(jobEvents.map(event -> {
+            List<Task> tasks = event instanceof JobUpdateEvent
+                    ? eventJobTasks.getOrDefault(((JobUpdateEvent) event).getCurrent().getId(), Collections.emptyList())
+                    : Collections.emptyList();
+            return Pair.<JobManagerEvent<?>, List<Task>>of(event, tasks);
+        }));
+        when(grpcObjectsCache.getJob(any())).thenReturn(com.netflix.titus.grpc.protogen.Job.getDefaultInstance());
+        when(grpcObjectsCache.getTask(any())).thenReturn(com.netflix.titus.grpc.protogen.Task.getDefaultInstance());
+        sharedStream = new SharedJobEventStream(jobOperations, grpcObjectsCache, Schedulers.immediate(), JOURNAL_SIZE);
+    }
+
+    @Test
+    public void testEventIsConvertedOnceForAllSubscribers() {
+        ExtTestSubscriber<JobChangeNotification> subscriber1 = new ExtTestSubscriber<>();
+        ExtTestSubscriber<JobChangeNotification> subscriber2 = new ExtTestSubscriber<>();
+        sharedStream.observeJobs(jobAndTasks -> true, jobAndTask -> true, BUFFER_SIZE).subscribe(subscriber1);
+        sharedStream.observeJobs(jobAndTasks -> true, jobAndTask -> true, BUFFER_SIZE).subscribe(subscriber2);
+
+        Job<?> job = JobGenerator.oneBatchJob();
+        jobEvents.onNext(JobUpdateEvent.newJob(job, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+
+        JobChangeNotification notification1 = subscriber1.takeNext();
+        JobChangeNotification notification2 = subscriber2.takeNext();
+        assertThat(notification1).isSameAs(notification2);
+        verify(grpcObjectsCache, times(1)).getJob(job);
+        verify(jobOperations, times(1)).observeJobsWithTasks();
+    }
+
+    @Test
+    public void testSubscriberPredicatesAreApplied() {
+        Job<?> job = JobGenerator.oneBatchJob();
+        Task task = JobGenerator.oneBatchTask().toBuilder().withJobId(job.getId()).build();
+        eventJobTasks.put(job.getId(), Collections.singletonList(task));
+
+        ExtTestSubscriber<JobChangeNotification> jobsOnly = new ExtTestSubscriber<>();
+        ExtTestSubscriber<JobChangeNotification> withTasks = new ExtTestSubscriber<>();
+        sharedStream.observeJobs(jobAndTasks -> true, jobAndTask -> false, BUFFER_SIZE).subscribe(jobsOnly);
+        sharedStream.observeJobs(jobAndTasks -> jobAndTasks.getRight().contains(task), jobAndTask -> true, BUFFER_SIZE).subscribe(withTasks);
+
+        jobEvents.onNext(JobUpdateEvent.newJob(job, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+        jobEvents.onNext(TaskUpdateEvent.newTask(job, task, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+
+        assertThat(jobsOnly.takeNext().getNotificationCase()).isEqualTo(JobChangeNotification.NotificationCase.JOBUPDATE);
+        assertThat(jobsOnly.takeNext()).isNull();
+
+        assertThat(withTasks.takeNext().getNotificationCase()).isEqualTo(JobChangeNotification.NotificationCase.JOBUPDATE);
+        assertThat(withTasks.takeNext().getNotificationCase()).isEqualTo(JobChangeNotification.NotificationCase.TASKUPDATE);
+    }
+
+    @Test
+    public void testJobPredicateIsEvaluatedAgainstTasksCapturedWithEvent() {
+        Job<?> job = JobGenerator.oneBatchJob();
+        Task task = JobGenerator.oneBatchTask().toBuilder().withJobId(job.getId()).build();
+        eventJobTasks.put(job.getId(), Collections.singletonList(task));
+        // The current job manager state differs from the event state, and must not be used.
+        when(jobOperations.getTasks(job.getId())).thenReturn(Collections.emptyList());
+
+        ExtTestSubscriber<JobChangeNotification> subscriber = new ExtTestSubscriber<>();
+        sharedStream.observeJobs(jobAndTasks -> jobAndTasks.getRight().contains(task), jobAndTask -> true, BUFFER_SIZE).subscribe(subscriber);
+
+        jobEvents.onNext(JobUpdateEvent.newJob(job, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+        assertThat(subscriber.takeNext().getNotificationCase()).isEqualTo(JobChangeNotification.NotificationCase.JOBUPDATE);
+        verify(jobOperations, times(0)).getTasks(any());
+    }
+
+    @Test
+    public void testConversionErrorTerminatesOnlyMatchingSubscribers() {
+        Job<?> badJob = JobGenerator.oneBatchJob();
+        Job<?> goodJob = JobGenerator.oneBatchJob();
+        when(grpcObjectsCache.getJob(badJob)).thenThrow(new RuntimeException("simulated conversion error"));
+
+        ExtTestSubscriber<JobChangeNotification> matching = new ExtTestSubscriber<>();
+        ExtTestSubscriber<JobChangeNotification> other = new ExtTestSubscriber<>();
+        sharedStream.observeJobs(jobAndTasks -> true, jobAndTask -> true, BUFFER_SIZE).subscribe(matching);
+        sharedStream.observeJobs(jobAndTasks -> jobAndTasks.getLeft().getId().equals(goodJob.getId()), jobAndTask -> true, BUFFER_SIZE).subscribe(other);
+
+        jobEvents.onNext(JobUpdateEvent.newJob(badJob, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+        jobEvents.onNext(JobUpdateEvent.newJob(goodJob, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+
+        assertThat(matching.isError()).isTrue();
+        assertThat(other.isError()).isFalse();
+        assertThat(other.takeNext().getNotificationCase()).isEqualTo(JobChangeNotification.NotificationCase.JOBUPDATE);
+    }
+
+    @Test
+    public void testResumeFromJournal() {
+        sharedStream.connectJournal();
+        ObserveJobsResumeToken start = sharedStream.getPosition().orElseThrow(IllegalStateException::new);
+        assertThat(start.getSequence()).isEqualTo(-1);
+
+        Job<?> job1 = JobGenerator.oneBatchJob();
+        Job<?> job2 = JobGenerator.oneBatchJob();
+        jobEvents.onNext(JobUpdateEvent.newJob(job1, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+        jobEvents.onNext(JobUpdateEvent.newJob(job2, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+
+        Pair<ObserveJobsResumeToken, List<JobChangeNotification>> resumed = sharedStream.readJournal(start, jobAndTasks -> true, jobAndTask -> true)
+                .orElseThrow(IllegalStateException::new);
+        assertThat(resumed.getLeft().getSequence()).isEqualTo(1);
+        assertThat(resumed.getRight()).hasSize(2);
+        assertThat(ObserveJobsResumeToken.getSequence(resumed.getRight().get(0))).isEqualTo(0);
+        assertThat(ObserveJobsResumeToken.getSequence(resumed.getRight().get(1))).isEqualTo(1);
+
+        // Journal overflow
+        jobEvents.onNext(JobUpdateEvent.jobChange(job1, job1, CallMetadataConstants.UNDEFINED_CALL_METADATA));
+        assertThat(sharedStream.readJournal(start, jobAndTasks -> true, jobAndTask -> true)).isEmpty();
+
+        // Unknown epoch
+        assertThat(sharedStream.readJournal(new ObserveJobsResumeToken("unknown", 1), jobAndTasks -> true, jobAndTask -> true)).isEmpty();
+    }
+
+    @Test
+    public void testJournalIsDiscardedWhenStreamTerminates() {
+        sharedStream.connectJournal();
+        assertThat(sharedStream.getPosition()).isPresent();
+
+        jobEvents.onError(new RuntimeException("simulated error"));
+        assertThat(sharedStream.getPosition()).isEmpty();
+    }
+}
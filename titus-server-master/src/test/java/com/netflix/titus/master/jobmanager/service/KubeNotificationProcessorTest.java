@@ -16,9 +16,11 @@
 
 package com.netflix.titus.master.jobmanager.service;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -38,6 +40,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.runtime.TitusRuntimes;
 import com.netflix.titus.common.util.CollectionsExt;
 import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.master.MetricConstants;
 import com.netflix.titus.master.mesos.ContainerEvent;
 import com.netflix.titus.master.mesos.TitusExecutorDetails;
 import com.netflix.titus.master.mesos.kubeapiserver.ContainerResultCodeResolver;
@@ -101,16 +104,20 @@ public class KubeNotificationProcessorTest {
     private V3JobOperations jobOperations;
     @Mock
     private ContainerResultCodeResolver containerResultCodeResolver;
+    @Mock
+    private JobManagerConfiguration jobManagerConfiguration;
     @Captor
     private ArgumentCaptor<Function<Task, Optional<Task>>> changeFunctionCaptor;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        when(jobManagerConfiguration.getKubeNotificationPartitionCount()).thenReturn(8);
         podEvents = DirectProcessor.create();
         reconcilerPodEvents = DirectProcessor.create();
         reconcilerContainerEvents = DirectProcessor.create();
-        processor = new KubeNotificationProcessor(new FakeDirectKube(),
+        processor = new KubeNotificationProcessor(jobManagerConfiguration,
+                new FakeDirectKube(),
                 new FakeReconciler(),
                 jobOperations,
                 containerResultCodeResolver,
@@ -120,6 +127,11 @@ public class KubeNotificationProcessorTest {
             protected Scheduler initializeNotificationScheduler() {
                 return Schedulers.immediate();
             }
+
+            @Override
+            protected Scheduler initializePartitionScheduler(int partition) {
+                return Schedulers.immediate();
+            }
         };
         processor.enterActiveMode();
 
@@ -218,6 +230,46 @@ public class KubeNotificationProcessorTest {
                 eq("Pod status updated from kubernetes node (k8phase='Failed', taskState=Accepted)"), any());
     }
 
+    @Test
+    public void testQueuedPodEventsAreCoalesced() {
+        processor.shutdown();
+
+        Queue<Runnable> partitionTasks = new ArrayDeque<>();
+        KubeNotificationProcessor delayedProcessor = new KubeNotificationProcessor(jobManagerConfiguration,
+                new FakeDirectKube(),
+                new FakeReconciler(),
+                jobOperations,
+                containerResultCodeResolver,
+                titusRuntime
+        ) {
+            @Override
+            protected Scheduler initializeNotificationScheduler() {
+                return Schedulers.immediate();
+            }
+
+            @Override
+            protected Scheduler initializePartitionScheduler(int partition) {
+                return Schedulers.fromExecutor(partitionTasks::add);
+            }
+        };
+        delayedProcessor.enterActiveMode();
+
+        V1Pod pendingPod = newPod(TASK.getId(), andPhase(PodPhase.PENDING.getPhaseName()), andWaiting());
+        V1Pod failedPod = newPod(TASK.getId(), andPhase("Failed"));
+        podEvents.onNext(PodEvent.onAdd(pendingPod));
+        podEvents.onNext(PodEvent.onUpdate(pendingPod, failedPod, Optional.empty()));
+        while (!partitionTasks.isEmpty()) {
+            partitionTasks.poll().run();
+        }
+
+        verify(jobOperations, times(1)).updateTask(eq(TASK.getId()), any(), any(), anyString(), any());
+        verify(jobOperations, times(1)).updateTask(eq(TASK.getId()), any(), eq(V3JobOperations.Trigger.Kube),
+                eq("Pod status updated from kubernetes node (k8phase='Failed', taskState=Accepted)"), any());
+        assertThat(titusRuntime.getRegistry().counter(MetricConstants.METRIC_JOB_MANAGER + "kubeNotificationProcessor.coalesced").count()).isEqualTo(1);
+
+        delayedProcessor.shutdown();
+    }
+
     @Test
     public void testTaskStateDoesNotMoveBack() {
         V1Pod pod = newPod(TASK.getId(), andRunning());
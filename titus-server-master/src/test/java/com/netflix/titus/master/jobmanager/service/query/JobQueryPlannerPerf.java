@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.grpc.protogen.JobDescriptor.JobSpecCase;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.master.jobmanager.service.query.JobQueryPlanner.QueryPlan;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.runtime.endpoint.v3.grpc.query.V3JobQueryCriteriaEvaluator;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+
+/**
+ * Compares the cost of a job query evaluated with a full scan, and with a {@link JobQueryPlanner} query plan, on
+ * a synthetic cell. Run with the number of jobs and tasks per job as arguments (defaults to 50000 jobs with 4 tasks
+ * each).
+ */
+public class JobQueryPlannerPerf {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 20;
+
+    private static final int APPLICATION_COUNT = 1_000;
+    private static final int CAPACITY_GROUP_COUNT = 20;
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.internal();
+
+    private final Map<String, Pair<Job<?>, List<Task>>> jobsAndTasks = new LinkedHashMap<>();
+    private final JobQueryIndex index = new JobQueryIndex();
+    private final JobQueryPlanner planner = new JobQueryPlanner(index);
+
+    private JobQueryPlannerPerf(int jobCount, int tasksPerJob) {
+        List<Job<BatchJobExt>> jobs = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(tasksPerJob)).getValues(jobCount);
+        for (int i = 0; i < jobs.size(); i++) {
+            Job<BatchJobExt> job = jobs.get(i);
+            job = job.toBuilder()
+                    .withJobDescriptor(job.getJobDescriptor().toBuilder()
+                            .withApplicationName("app" + (i % APPLICATION_COUNT))
+                            .withCapacityGroup("cg" + (i % CAPACITY_GROUP_COUNT))
+                            .withAttributes(Collections.singletonMap("stack", "stack" + (i % 10)))
+                            .build()
+                    )
+                    .build();
+            List<Task> tasks = new ArrayList<>();
+            for (Task task : JobGenerator.batchTasks(job).getValues(tasksPerJob)) {
+                // Make a small fraction of tasks Started, and leave the rest in Accepted state
+                tasks.add(tasks.isEmpty() && i % 100 == 0
+                        ? JobFunctions.changeTaskStatus(task, TaskState.Started, "perf", "perf", Clocks.system())
+                        : task
+                );
+            }
+            jobsAndTasks.put(job.getId(), Pair.of(job, tasks));
+            index.addOrUpdateJob(job, tasks);
+        }
+    }
+
+    private void run(String name, JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        V3JobQueryCriteriaEvaluator evaluator = new V3JobQueryCriteriaEvaluator(criteria, titusRuntime);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            fullScan(evaluator);
+            indexed(evaluator, criteria);
+        }
+
+        int fullScanResult = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            fullScanResult = fullScan(evaluator);
+        }
+        long fullScanNs = (System.nanoTime() - startTime) / MEASURED_ITERATIONS;
+
+        int indexedResult = 0;
+        startTime = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            indexedResult = indexed(evaluator, criteria);
+        }
+        long indexedNs = (System.nanoTime() - startTime) / MEASURED_ITERATIONS;
+
+        String plan = planner.planJobQuery(criteria).map(QueryPlan::getIndexName).orElse("fullScan");
+        System.out.println(String.format("%-24s plan=%-16s matches=%6d/%6d, fullScan=%10.2fms, indexed=%10.2fms",
+                name, plan, indexedResult, fullScanResult, fullScanNs / 1_000_000.0, indexedNs / 1_000_000.0
+        ));
+    }
+
+    private int fullScan(V3JobQueryCriteriaEvaluator evaluator) {
+        int matches = 0;
+        for (Pair<Job<?>, List<Task>> jobAndTasks : jobsAndTasks.values()) {
+            if (evaluator.test(jobAndTasks)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private int indexed(V3JobQueryCriteriaEvaluator evaluator, JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> criteria) {
+        Optional<QueryPlan> plan = planner.planJobQuery(criteria);
+        if (!plan.isPresent()) {
+            return fullScan(evaluator);
+        }
+        int matches = 0;
+        for (String jobId : plan.get().getJobIds()) {
+            Pair<Job<?>, List<Task>> jobAndTasks = jobsAndTasks.get(jobId);
+            if (jobAndTasks != null && evaluator.test(jobAndTasks)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static JobQueryCriteria.Builder<TaskStatus.TaskState, JobSpecCase> criteria() {
+        return JobQueryCriteria.newBuilder();
+    }
+
+    public static void main(String[] args) {
+        int jobCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int tasksPerJob = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        JobQueryPlannerPerf perf = new JobQueryPlannerPerf(jobCount, tasksPerJob);
+        perf.run("appName", criteria().withAppName("app7").build());
+        perf.run("capacityGroup+label", criteria()
+                .withCapacityGroup("cg3")
+                .withLabels(Collections.singletonMap("stack", Collections.singleton("stack3")))
+                .withLabelsAndOp(true)
+                .build()
+        );
+        perf.run("taskState", criteria().withTaskStates(Collections.singleton(TaskStatus.TaskState.Started)).build());
+        perf.run("imageTag (not indexed)", criteria().withImageTag("latest").build());
+    }
+}
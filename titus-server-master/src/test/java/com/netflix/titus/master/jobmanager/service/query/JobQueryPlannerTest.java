@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.jobmanager.service.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.titus.api.jobmanager.model.job.Job;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
+import com.netflix.titus.api.model.IdAndTimestampKey;
+import com.netflix.titus.common.util.CollectionsExt;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.grpc.protogen.JobDescriptor.JobSpecCase;
+import com.netflix.titus.grpc.protogen.TaskStatus;
+import com.netflix.titus.master.jobmanager.service.query.JobQueryPlanner.QueryPlan;
+import com.netflix.titus.runtime.endpoint.JobQueryCriteria;
+import com.netflix.titus.testkit.model.job.JobDescriptorGenerator;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobQueryPlannerTest {
+
+    private final JobQueryIndex index = new JobQueryIndex();
+    private final JobQueryPlanner planner = new JobQueryPlanner(index);
+
+    private Job<BatchJobExt> appAJob1;
+    private Job<BatchJobExt> appAJob2;
+    private Job<BatchJobExt> appBJob;
+    private Task appBTask;
+
+    @Before
+    public void setUp() {
+        List<Job<BatchJobExt>> jobs = JobGenerator.batchJobs(JobDescriptorGenerator.batchJobDescriptor(1)).getValues(3);
+        appAJob1 = newJob(jobs.get(0), "appA", "cg1", ImmutableMap.of("team", "x"));
+        appAJob2 = newJob(jobs.get(1), "appA", "cg2", ImmutableMap.of("team", "y"));
+        appBJob = newJob(jobs.get(2), "appB", "cg2", ImmutableMap.of("team", "y", "env", "test"));
+        appBTask = JobGenerator.batchTasks(appBJob).getValue();
+
+        index.addOrUpdateJob(appAJob1, Collections.singletonList(JobGenerator.batchTasks(appAJob1).getValue()));
+        index.addOrUpdateJob(appAJob2, Collections.singletonList(JobGenerator.batchTasks(appAJob2).getValue()));
+        index.addOrUpdateJob(appBJob, Collections.singletonList(appBTask));
+    }
+
+    @Test
+    public void testJobFieldIndex() {
+        QueryPlan plan = planner.planJobQuery(criteria().withAppName("appB").build()).orElseThrow(IllegalStateException::new);
+        assertThat(plan.getIndexName()).isEqualTo("ApplicationName");
+        assertThat(plan.getJobIds()).containsExactly(appBJob.getId());
+        assertThat(plan.getTaskIds()).isEmpty();
+    }
+
+    @Test
+    public void testMostSelectiveIndexIsChosen() {
+        QueryPlan plan = planner.planJobQuery(criteria().withAppName("appA").withCapacityGroup("cg1").build())
+                .orElseThrow(IllegalStateException::new);
+        assertThat(plan.getIndexName()).isEqualTo("CapacityGroup");
+        assertThat(plan.getJobIds()).containsExactly(appAJob1.getId());
+    }
+
+    @Test
+    public void testFullScanWhenNoIndexIsSelective() {
+        assertThat(planner.planJobQuery(criteria().build())).isEmpty();
+        assertThat(planner.planJobQuery(criteria().withImageTag("latest").build())).isEmpty();
+        assertThat(planner.planJobQuery(criteria().withOwner(appAJob1.getJobDescriptor().getOwner().getTeamEmail()).build())).isEmpty();
+    }
+
+    @Test
+    public void testLabelIndex() {
+        QueryPlan andPlan = planner.planJobQuery(criteria()
+                .withLabels(ImmutableMap.of("team", Collections.singleton("y"), "env", Collections.emptySet()))
+                .withLabelsAndOp(true)
+                .build()
+        ).orElseThrow(IllegalStateException::new);
+        assertThat(andPlan.getJobIds()).containsExactly(appBJob.getId());
+
+        QueryPlan orPlan = planner.planJobQuery(criteria()
+                .withLabels(ImmutableMap.of("team", Collections.singleton("x"), "env", Collections.emptySet()))
+                .withLabelsAndOp(false)
+                .build()
+        ).orElseThrow(IllegalStateException::new);
+        assertThat(orPlan.getJobIds()).containsExactlyInAnyOrder(appAJob1.getId(), appBJob.getId());
+    }
+
+    @Test
+    public void testTaskStateIndexFollowsTaskUpdates() {
+        JobQueryCriteria<TaskStatus.TaskState, JobSpecCase> startedTasks = criteria()
+                .withTaskStates(Collections.singleton(TaskStatus.TaskState.Started))
+                .build();
+        assertThat(planner.planTaskQuery(startedTasks).map(QueryPlan::getJobIds)).hasValue(Collections.emptySet());
+
+        index.addOrUpdateTask(JobFunctions.changeTaskStatus(appBTask, TaskState.Started, "test", "test", Clocks.system()));
+        QueryPlan plan = planner.planTaskQuery(startedTasks).orElseThrow(IllegalStateException::new);
+        assertThat(plan.getIndexName()).isEqualTo("taskStates");
+        assertThat(plan.getJobIds()).containsExactly(appBJob.getId());
+        assertThat(plan.getTaskIds()).hasValue(Collections.singleton(appBTask.getId()));
+    }
+
+    @Test
+    public void testTaskIdsNotInIndexDoNotExist() {
+        QueryPlan plan = planner.planTaskQuery(criteria().withTaskIds(CollectionsExt.asSet(appBTask.getId(), "newTask")).build())
+                .orElseThrow(IllegalStateException::new);
+        assertThat(plan.getIndexName()).isEqualTo("taskIds");
+        assertThat(plan.getJobIds()).containsExactly(appBJob.getId());
+    }
+
+    @Test
+    public void testRemovedJobIsNotIndexed() {
+        index.removeJob(appBJob.getId());
+        assertThat(index.getJobCount()).isEqualTo(2);
+        assertThat(index.getTaskCount()).isEqualTo(2);
+        assertThat(index.getJobCursorIndex().keySet()).extracting(IdAndTimestampKey::getId).containsExactlyInAnyOrder(appAJob1.getId(), appAJob2.getId());
+        assertThat(index.getTaskCursorIndex()).hasSize(2);
+        assertThat(planner.planJobQuery(criteria().withAppName("appB").build()).map(QueryPlan::getJobIds)).hasValue(Collections.emptySet());
+    }
+
+    @Test
+    public void testTaskIsRemovedWithItsIndexedCursorKey() {
+        // A task without the Accepted state in its history, so its cursor key changes with each status update.
+        Task startedTask = appBTask.toBuilder()
+                .withStatus(com.netflix.titus.api.jobmanager.model.job.TaskStatus.newBuilder().withState(TaskState.Started).withTimestamp(1_000).build())
+                .withStatusHistory(Collections.emptyList())
+                .build();
+        Task killInitiatedTask = startedTask.toBuilder()
+                .withStatus(com.netflix.titus.api.jobmanager.model.job.TaskStatus.newBuilder().withState(TaskState.KillInitiated).withTimestamp(2_000).build())
+                .build();
+
+        index.addOrUpdateTask(startedTask);
+        index.addOrUpdateTask(killInitiatedTask);
+        assertThat(index.getTaskCursorIndex().values()).filteredOn(task -> task.getId().equals(appBTask.getId())).containsExactly(killInitiatedTask);
+
+        index.removeJob(appBJob.getId());
+        assertThat(index.getTaskCursorIndex().values()).extracting(Task::getId).doesNotContain(appBTask.getId());
+    }
+
+    @Test
+    public void testTasksRemovedFromJobAreNotIndexed() {
+        index.addOrUpdateJob(appBJob, Collections.emptyList());
+        assertThat(index.getTaskCount()).isEqualTo(2);
+        assertThat(index.findJobIdOfTask(appBTask.getId())).isEmpty();
+    }
+
+    @Test
+    public void testJobUpdateReindexesChangedAndRemovedTasks() {
+        Task secondTask = JobGenerator.batchTasks(appBJob).getValues(2).get(1);
+        index.addOrUpdateJob(appBJob, Arrays.asList(appBTask, secondTask));
+        assertThat(index.countTasksOfJobs(Collections.singleton(appBJob.getId()))).isEqualTo(2);
+
+        Task startedTask = JobFunctions.changeTaskStatus(appBTask, TaskState.Started, "test", "test", Clocks.system());
+        index.addOrUpdateJob(appBJob, Collections.singletonList(startedTask));
+        assertThat(index.countTasksOfJobs(Collections.singleton(appBJob.getId()))).isEqualTo(1);
+        assertThat(index.findTaskIds(Collections.singleton(TaskState.Started))).containsExactly(appBTask.getId());
+        assertThat(index.findJobIdOfTask(secondTask.getId())).isEmpty();
+        assertThat(index.getTaskCursorIndex().values()).filteredOn(task -> task.getId().equals(appBTask.getId())).containsExactly(startedTask);
+    }
+
+    private static JobQueryCriteria.Builder<TaskStatus.TaskState, JobSpecCase> criteria() {
+        return JobQueryCriteria.newBuilder();
+    }
+
+    private static Job<BatchJobExt> newJob(Job<BatchJobExt> job, String applicationName, String capacityGroup, Map<String, String> attributes) {
+        return job.toBuilder()
+                .withJobDescriptor(job.getJobDescriptor().toBuilder()
+                        .withApplicationName(applicationName)
+                        .withCapacityGroup(capacityGroup)
+                        .withAttributes(attributes)
+                        .build()
+                )
+                .build();
+    }
+}
@@ -169,7 +169,7 @@ public class DefaultV3TaskInfoRequestFactoryTest {
         DataGenerator<BatchJobTask> tasks = JobGenerator.batchTasks(job);
         BatchJobTask task = tasks.getValue();
         V3ConstraintEvaluatorTransformer transformer = new V3ConstraintEvaluatorTransformer(masterConfiguration,
-                mock(SchedulerConfiguration.class), new TaskCache(mock(TitusRuntime.class), mock(V3JobOperations.class)),
+                mock(SchedulerConfiguration.class), new TaskCache(mock(SchedulerConfiguration.class), mock(TitusRuntime.class), mock(V3JobOperations.class)),
                 mock(AgentManagementService.class));
 
         V3QueueableTask fenzoTask = new V3QueueableTask(Tier.Flex, null, job, task, runtimePrediction,
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.master.scheduler.resourcecache;
+
+import java.time.Duration;
+
+import com.netflix.titus.api.agent.model.AgentInstance;
+import com.netflix.titus.api.jobmanager.model.job.Task;
+import com.netflix.titus.api.jobmanager.model.job.TaskState;
+import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.runtime.TitusRuntimes;
+import com.netflix.titus.common.util.time.Clocks;
+import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.master.scheduler.SchedulerConfiguration;
+import com.netflix.titus.testkit.model.agent.AgentGenerator;
+import com.netflix.titus.testkit.model.job.JobComponentStub;
+import com.netflix.titus.testkit.model.job.JobGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskCacheTest {
+
+    private static final long FULL_RESYNC_INTERVAL_MS = 60_000;
+
+    private final TestClock clock = Clocks.test();
+
+    private final TitusRuntime titusRuntime = TitusRuntimes.test(clock);
+
+    private final SchedulerConfiguration configuration = mock(SchedulerConfiguration.class);
+
+    private final JobComponentStub jobComponentStub = new JobComponentStub(titusRuntime);
+
+    private final TaskCache taskCache = new TaskCache(configuration, titusRuntime, jobComponentStub.getJobOperations());
+
+    private final AgentInstance agent = AgentGenerator.agentInstances().getValue();
+
+    private Task task;
+
+    @Before
+    public void setUp() {
+        when(configuration.getTaskCacheFullResyncIntervalMs()).thenReturn(FULL_RESYNC_INTERVAL_MS);
+        task = jobComponentStub.createJobAndTasks(JobGenerator.batchJobsOfSize(2).getValue()).getRight().get(0);
+    }
+
+    @Test
+    public void testTaskUpdatesAreAppliedIncrementally() {
+        taskCache.enterActiveMode();
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(0);
+
+        jobComponentStub.makeOpportunistic(task, 2);
+        jobComponentStub.place(task.getId(), agent);
+
+        // Not visible until the next iteration
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(0);
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(2);
+
+        jobComponentStub.moveTaskToState(task.getId(), TaskState.Finished);
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(0);
+    }
+
+    @Test
+    public void testIterationAssignmentsAreDroppedInNextIteration() {
+        taskCache.enterActiveMode();
+        taskCache.prepare();
+
+        taskCache.addTaskIpAllocation("ipAllocation1", task.getId());
+        taskCache.addOpportunisticCpuAllocation(new OpportunisticCpuAllocation(task.getId(), agent.getId(), "cpuAllocation1", 4));
+        assertThat(taskCache.getTaskByIpAllocationId("ipAllocation1")).hasValue(task.getId());
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(4);
+
+        taskCache.prepare();
+        assertThat(taskCache.getTaskByIpAllocationId("ipAllocation1")).isEmpty();
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(0);
+    }
+
+    @Test
+    public void testPeriodicFullRebuild() {
+        taskCache.enterActiveMode();
+        taskCache.prepare();
+
+        // Simulate lost events
+        taskCache.shutdown();
+        jobComponentStub.makeOpportunistic(task, 2);
+        jobComponentStub.place(task.getId(), agent);
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(0);
+
+        clock.advanceTime(Duration.ofMillis(FULL_RESYNC_INTERVAL_MS));
+        taskCache.prepare();
+        assertThat(taskCache.getOpportunisticCpusAllocated(agent.getId())).isEqualTo(2);
+    }
+}
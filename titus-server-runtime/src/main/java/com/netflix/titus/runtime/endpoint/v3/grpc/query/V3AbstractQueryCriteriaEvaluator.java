@@ -38,15 +38,25 @@ import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverte
 
 public abstract class V3AbstractQueryCriteriaEvaluator<TASK_OR_SET> implements Predicate<Pair<Job<?>, TASK_OR_SET>> {
 
+    private final JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria;
     private final Predicate<Pair<Job<?>, TASK_OR_SET>> queryPredicate;
 
     protected V3AbstractQueryCriteriaEvaluator(List<Predicate<Pair<Job<?>, TASK_OR_SET>>> taskPredicates,
                                                JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> criteria) {
+        this.criteria = criteria;
         List<Predicate<Pair<Job<?>, TASK_OR_SET>>> predicates = createJobPredicates(criteria);
         predicates.addAll(taskPredicates);
         this.queryPredicate = matchAll(predicates);
     }
 
+    /**
+     * Query criteria this evaluator was built from. Query executors may use it to narrow down the set of evaluated
+     * entities (for example with secondary indexes), before applying the predicate.
+     */
+    public JobQueryCriteria<TaskStatus.TaskState, JobDescriptor.JobSpecCase> getCriteria() {
+        return criteria;
+    }
+
     @Override
     public boolean test(Pair<Job<?>, TASK_OR_SET> jobListPair) {
         return queryPredicate.test(jobListPair);
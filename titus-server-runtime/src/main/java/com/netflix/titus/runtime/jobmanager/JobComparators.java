@@ -17,14 +17,10 @@
 package com.netflix.titus.runtime.jobmanager;
 
 import java.util.Comparator;
-import java.util.List;
 
 import com.netflix.titus.api.jobmanager.model.job.Job;
-import com.netflix.titus.api.jobmanager.model.job.JobState;
-import com.netflix.titus.api.jobmanager.model.job.JobStatus;
+import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
-import com.netflix.titus.api.jobmanager.model.job.TaskState;
-import com.netflix.titus.api.jobmanager.model.job.TaskStatus;
 import com.netflix.titus.api.model.IdAndTimestampKey;
 
 public class JobComparators {
@@ -74,49 +70,11 @@ public class JobComparators {
     }
 
     public static long getJobCreateTimestamp(Job job) {
-        List<JobStatus> statusHistory = job.getStatusHistory();
-        int historySize = statusHistory.size();
-
-        // Fast path
-        if (historySize == 0) {
-            return job.getStatus().getTimestamp();
-        }
-        JobStatus first = statusHistory.get(0);
-        if (historySize == 1 || first.getState() == JobState.Accepted) {
-            return first.getTimestamp();
-        }
-        // Slow path
-        for (int i = 1; i < historySize; i++) {
-            JobStatus next = statusHistory.get(i);
-            if (next.getState() == JobState.Accepted) {
-                return next.getTimestamp();
-            }
-        }
-        // No Accepted state
-        return job.getStatus().getTimestamp();
+        return JobFunctions.getJobCreateTimestamp(job);
     }
 
     public static long getTaskCreateTimestamp(Task task) {
-        List<TaskStatus> statusHistory = task.getStatusHistory();
-        int historySize = statusHistory.size();
-
-        // Fast path
-        if (historySize == 0) {
-            return task.getStatus().getTimestamp();
-        }
-        com.netflix.titus.api.jobmanager.model.job.TaskStatus first = statusHistory.get(0);
-        if (historySize == 1 || first.getState() == TaskState.Accepted) {
-            return first.getTimestamp();
-        }
-        // Slow path
-        for (int i = 1; i < historySize; i++) {
-            com.netflix.titus.api.jobmanager.model.job.TaskStatus next = statusHistory.get(i);
-            if (next.getState() == TaskState.Accepted) {
-                return next.getTimestamp();
-            }
-        }
-        // No Accepted state
-        return task.getStatus().getTimestamp();
+        return JobFunctions.getTaskCreateTimestamp(task);
     }
 
     public static IdAndTimestampKey<Job<?>> createJobKeyOf(Job<?> job) {
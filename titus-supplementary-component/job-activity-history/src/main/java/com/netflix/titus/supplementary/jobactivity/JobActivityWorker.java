@@ -47,7 +47,7 @@ public class JobActivityWorker {
 
         this.schedulerRef = titusRuntime.getLocalScheduler().schedule(
                 scheduleDescriptor,
-                e -> jobActivityStore.processRecords(),
+                e -> jobActivityStore.processRecords().block(),
                 ExecutorsExt.namedSingleThreadExecutor(JobActivityWorker.class.getSimpleName())
         );
     }
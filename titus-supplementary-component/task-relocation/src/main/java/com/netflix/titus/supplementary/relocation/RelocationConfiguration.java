@@ -39,6 +39,13 @@ public interface RelocationConfiguration {
     @DefaultValue("300000")
     long getRelocationTimeoutMs();
 
+    /**
+     * Between the full recomputes, the relocation plans are updated only for tasks affected by the job, task and node
+     * changes. The full recompute is a fallback, correcting the plans if any change was missed.
+     */
+    @DefaultValue("600000")
+    long getRelocationPlanFullRecomputeIntervalMs();
+
     @DefaultValue("30000")
     long getDataStalenessThresholdMs();
 
@@ -16,6 +16,8 @@
 
 package com.netflix.titus.supplementary.relocation.connector;
 
+import java.util.Objects;
+
 import com.google.common.base.Preconditions;
 
 public class Node {
@@ -63,6 +65,29 @@ public class Node {
         return inBadCondition;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Node node = (Node) o;
+        return relocationNotAllowed == node.relocationNotAllowed &&
+                relocationRequired == node.relocationRequired &&
+                relocationRequiredImmediately == node.relocationRequiredImmediately &&
+                serverGroupRelocationRequired == node.serverGroupRelocationRequired &&
+                inBadCondition == node.inBadCondition &&
+                Objects.equals(id, node.id) &&
+                Objects.equals(serverGroupId, node.serverGroupId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, serverGroupId, relocationNotAllowed, relocationRequired, relocationRequiredImmediately, serverGroupRelocationRequired, inBadCondition);
+    }
+
     public Builder toBuilder() {
         return newBuilder()
                 .withId(id)
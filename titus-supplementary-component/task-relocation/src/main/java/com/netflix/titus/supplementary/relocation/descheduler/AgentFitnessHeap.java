@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.supplementary.relocation.descheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexed binary max-heap of agent fitness values. Besides the regular heap operations, the fitness of an agent
+ * already in the heap can be changed or removed in O(log(n)) time, as the position of each agent in the heap array
+ * is tracked. Agents with the same fitness are ordered by their ids, so the result does not depend on the insertion
+ * order.
+ */
+class AgentFitnessHeap {
+
+    private final List<Entry> heap = new ArrayList<>();
+    private final Map<String, Integer> positionsByAgentId = new HashMap<>();
+
+    boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    int size() {
+        return heap.size();
+    }
+
+    boolean contains(String agentId) {
+        return positionsByAgentId.containsKey(agentId);
+    }
+
+    /**
+     * Returns the id of an agent with the highest fitness, or null if the heap is empty.
+     */
+    String peek() {
+        return heap.isEmpty() ? null : heap.get(0).agentId;
+    }
+
+    double getFitness(String agentId) {
+        Integer position = positionsByAgentId.get(agentId);
+        if (position == null) {
+            throw new IllegalArgumentException("Agent not found: " + agentId);
+        }
+        return heap.get(position).fitness;
+    }
+
+    /**
+     * Adds a new agent, or changes the fitness of an agent already in the heap.
+     */
+    void put(String agentId, double fitness) {
+        Integer position = positionsByAgentId.get(agentId);
+        Entry entry = new Entry(agentId, fitness);
+        if (position == null) {
+            heap.add(entry);
+            positionsByAgentId.put(agentId, heap.size() - 1);
+            siftUp(heap.size() - 1);
+            return;
+        }
+        Entry previous = heap.get(position);
+        heap.set(position, entry);
+        if (isBefore(entry, previous)) {
+            siftUp(position);
+        } else {
+            siftDown(position);
+        }
+    }
+
+    void remove(String agentId) {
+        Integer position = positionsByAgentId.remove(agentId);
+        if (position == null) {
+            return;
+        }
+        int lastPosition = heap.size() - 1;
+        Entry last = heap.remove(lastPosition);
+        if (position == lastPosition) {
+            return;
+        }
+        heap.set(position, last);
+        positionsByAgentId.put(last.agentId, position);
+        siftDown(position);
+        siftUp(positionsByAgentId.get(last.agentId));
+    }
+
+    void clear() {
+        heap.clear();
+        positionsByAgentId.clear();
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isBefore(heap.get(position), heap.get(parent))) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        int size = heap.size();
+        while (true) {
+            int left = 2 * position + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int best = right < size && isBefore(heap.get(right), heap.get(left)) ? right : left;
+            if (!isBefore(heap.get(best), heap.get(position))) {
+                return;
+            }
+            swap(position, best);
+            position = best;
+        }
+    }
+
+    private void swap(int first, int second) {
+        Entry firstEntry = heap.get(first);
+        Entry secondEntry = heap.get(second);
+        heap.set(first, secondEntry);
+        heap.set(second, firstEntry);
+        positionsByAgentId.put(secondEntry.agentId, first);
+        positionsByAgentId.put(firstEntry.agentId, second);
+    }
+
+    private static boolean isBefore(Entry first, Entry second) {
+        int result = Double.compare(first.fitness, second.fitness);
+        if (result != 0) {
+            return result > 0;
+        }
+        return first.agentId.compareTo(second.agentId) < 0;
+    }
+
+    private static class Entry {
+
+        private final String agentId;
+        private final double fitness;
+
+        private Entry(String agentId, double fitness) {
+            this.agentId = agentId;
+            this.fitness = fitness;
+        }
+    }
+}
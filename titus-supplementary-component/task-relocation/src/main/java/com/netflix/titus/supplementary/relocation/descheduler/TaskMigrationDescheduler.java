@@ -18,11 +18,13 @@ package com.netflix.titus.supplementary.relocation.descheduler;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -69,6 +71,21 @@ class TaskMigrationDescheduler {
     private final Clock clock;
     private final Function<String, Matcher> appsExemptFromSystemDisruptionWindowMatcherFactory;
 
+    /**
+     * Agent fitness index used by {@link #nextBestMatch()}. It is built on the first call, and after that only the
+     * agents affected by a descheduling decision are re-evaluated. The job and the system eviction quotas can only
+     * go down during a descheduling cycle, so the fitness of an agent not affected by a decision cannot change.
+     * Agents with no fitness are not kept in the index.
+     */
+    private final AgentFitnessHeap fitnessHeap = new AgentFitnessHeap();
+    private final Map<String, Pair<Double, List<Task>>> fitnessResultsByAgentId = new HashMap<>();
+    private final Map<String, Set<String>> removableAgentIdsByJobId = new HashMap<>();
+    // Agents grouped by the number of tasks chosen for eviction, to find agents limited by the system eviction quota.
+    private final TreeMap<Integer, Set<String>> agentIdsByChosenTaskCount = new TreeMap<>();
+    private boolean fitnessIndexBuilt;
+    private boolean indexedSystemWindowOpen;
+    private long indexedSystemEvictionQuota;
+
     TaskMigrationDescheduler(Map<String, TaskRelocationPlan> plannedAheadTaskRelocationPlans,
                              EvacuatedAgentsAllocationTracker evacuatedAgentsAllocationTracker,
                              EvictionQuotaTracker evictionQuotaTracker,
@@ -126,27 +143,31 @@ class TaskMigrationDescheduler {
     }
 
     Optional<Pair<Node, List<Task>>> nextBestMatch() {
-        return evacuatedAgentsAllocationTracker.getRemovableAgentsById().values().stream()
-                .map(i -> Pair.of(i, computeFitness(i)))
-                .filter(p -> p.getRight().getLeft() > 0)
-                .max(Comparator.comparingDouble(p -> p.getRight().getLeft()))
-                .map(p -> {
-                    Node agent = p.getLeft();
-                    List<Task> tasks = p.getRight().getRight();
-
-                    tasks.forEach(task -> {
-                        evacuatedAgentsAllocationTracker.descheduled(task);
-                        Job<?> job = jobsById.get(task.getJobId());
-                        if (job != null) {
-                            evictionQuotaTracker.consumeQuota(task.getJobId(), isJobExemptFromSystemDisruptionWindow(job));
-                        } else {
-                            logger.warn("Missing job for ID = {}", task.getJobId());
-                            evictionQuotaTracker.consumeQuota(task.getJobId(), false);
-                        }
-                    });
+        refreshFitnessIndex();
 
-                    return Pair.of(agent, tasks);
-                });
+        String agentId = fitnessHeap.peek();
+        if (agentId == null) {
+            return Optional.empty();
+        }
+        Node agent = evacuatedAgentsAllocationTracker.getRemovableAgentsById().get(agentId);
+        List<Task> tasks = fitnessResultsByAgentId.get(agentId).getRight();
+
+        Set<String> affectedAgentIds = new HashSet<>();
+        affectedAgentIds.add(agentId);
+        tasks.forEach(task -> {
+            evacuatedAgentsAllocationTracker.descheduled(task);
+            Job<?> job = jobsById.get(task.getJobId());
+            if (job != null) {
+                evictionQuotaTracker.consumeQuota(task.getJobId(), isJobExemptFromSystemDisruptionWindow(job));
+            } else {
+                logger.warn("Missing job for ID = {}", task.getJobId());
+                evictionQuotaTracker.consumeQuota(task.getJobId(), false);
+            }
+            affectedAgentIds.addAll(removableAgentIdsByJobId.getOrDefault(task.getJobId(), Collections.emptySet()));
+        });
+        affectedAgentIds.forEach(this::updateFitness);
+
+        return Optional.of(Pair.of(agent, tasks));
     }
 
     DeschedulingFailure getDeschedulingFailure(Task task) {
@@ -191,6 +212,61 @@ class TaskMigrationDescheduler {
                 .build();
     }
 
+    private void refreshFitnessIndex() {
+        boolean systemWindowOpen = evictionQuotaTracker.isSystemDisruptionWindowOpen();
+        long systemEvictionQuota = evictionQuotaTracker.getSystemEvictionQuota();
+
+        if (!fitnessIndexBuilt || systemWindowOpen != indexedSystemWindowOpen || systemEvictionQuota > indexedSystemEvictionQuota) {
+            buildFitnessIndex();
+        } else if (systemWindowOpen && systemEvictionQuota < indexedSystemEvictionQuota) {
+            // Only agents with more tasks chosen than the system quota left are affected.
+            Set<String> affectedAgentIds = new HashSet<>();
+            agentIdsByChosenTaskCount.tailMap((int) Math.min(systemEvictionQuota, Integer.MAX_VALUE), false)
+                    .values()
+                    .forEach(affectedAgentIds::addAll);
+            affectedAgentIds.forEach(this::updateFitness);
+        }
+
+        this.fitnessIndexBuilt = true;
+        this.indexedSystemWindowOpen = systemWindowOpen;
+        this.indexedSystemEvictionQuota = systemEvictionQuota;
+    }
+
+    private void buildFitnessIndex() {
+        fitnessHeap.clear();
+        fitnessResultsByAgentId.clear();
+        removableAgentIdsByJobId.clear();
+        agentIdsByChosenTaskCount.clear();
+
+        evacuatedAgentsAllocationTracker.getRemovableAgentsById().keySet().forEach(agentId -> {
+            evacuatedAgentsAllocationTracker.getTasksOnAgent(agentId).forEach(task ->
+                    removableAgentIdsByJobId.computeIfAbsent(task.getJobId(), jobId -> new HashSet<>()).add(agentId)
+            );
+            updateFitness(agentId);
+        });
+    }
+
+    private void updateFitness(String agentId) {
+        Pair<Double, List<Task>> previous = fitnessResultsByAgentId.remove(agentId);
+        if (previous != null) {
+            int previousCount = previous.getRight().size();
+            Set<String> agentIds = agentIdsByChosenTaskCount.get(previousCount);
+            agentIds.remove(agentId);
+            if (agentIds.isEmpty()) {
+                agentIdsByChosenTaskCount.remove(previousCount);
+            }
+        }
+
+        Pair<Double, List<Task>> fitness = computeFitness(evacuatedAgentsAllocationTracker.getRemovableAgentsById().get(agentId));
+        if (fitness.getLeft() > 0) {
+            fitnessHeap.put(agentId, fitness.getLeft());
+            fitnessResultsByAgentId.put(agentId, fitness);
+            agentIdsByChosenTaskCount.computeIfAbsent(fitness.getRight().size(), count -> new HashSet<>()).add(agentId);
+        } else {
+            fitnessHeap.remove(agentId);
+        }
+    }
+
     private Pair<Double, List<Task>> computeFitness(Node agent) {
         List<Task> tasks = evacuatedAgentsAllocationTracker.getTasksOnAgent(agent.getId());
         if (tasks.isEmpty()) {
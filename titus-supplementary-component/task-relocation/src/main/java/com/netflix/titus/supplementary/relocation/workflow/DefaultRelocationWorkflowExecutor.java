@@ -41,6 +41,7 @@ import com.netflix.titus.common.runtime.TitusRuntime;
 import com.netflix.titus.common.util.IOExt;
 import com.netflix.titus.common.util.retry.Retryers;
 import com.netflix.titus.common.util.rx.ReactorExt;
+import com.netflix.titus.common.util.tuple.Pair;
 import com.netflix.titus.runtime.connector.eviction.EvictionDataReplicator;
 import com.netflix.titus.runtime.connector.eviction.EvictionServiceClient;
 import com.netflix.titus.runtime.connector.jobmanager.JobDataReplicator;
@@ -125,7 +126,13 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
 
         RelocationTransactionLogger transactionLog = new RelocationTransactionLogger(jobOperations);
         this.relocationMetricsStep = new RelocationMetricsStep(nodeDataResolver, jobOperations, titusRuntime);
-        this.mustBeRelocatedSelfManagedTaskCollectorStep = new MustBeRelocatedSelfManagedTaskCollectorStep(nodeDataResolver, jobOperations, titusRuntime);
+        this.mustBeRelocatedSelfManagedTaskCollectorStep = new MustBeRelocatedSelfManagedTaskCollectorStep(
+                configuration,
+                nodeDataResolver,
+                jobOperations,
+                jobDataReplicator.events().map(Pair::getRight),
+                titusRuntime
+        );
         this.mustBeRelocatedTaskStoreUpdateStep = new MustBeRelocatedTaskStoreUpdateStep(configuration, activeStore, transactionLog, titusRuntime);
         this.deschedulerStep = new DeschedulerStep(deschedulerService, transactionLog, titusRuntime);
         this.taskEvictionStep = new TaskEvictionStep(evictionServiceClient, titusRuntime, transactionLog, Schedulers.parallel());
@@ -179,7 +186,7 @@ public class DefaultRelocationWorkflowExecutor implements RelocationWorkflowExec
 
     @PreDestroy
     public void shutdown() {
-        IOExt.closeSilently(newRelocationPlanEmitter::dispose, localSchedulerDisposable::cancel);
+        IOExt.closeSilently(newRelocationPlanEmitter::dispose, localSchedulerDisposable::cancel, mustBeRelocatedSelfManagedTaskCollectorStep::shutdown);
     }
 
     @Override
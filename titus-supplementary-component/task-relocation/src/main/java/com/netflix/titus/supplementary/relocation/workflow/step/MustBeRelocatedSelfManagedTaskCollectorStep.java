@@ -16,29 +16,46 @@
 
 package com.netflix.titus.supplementary.relocation.workflow.step;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import com.google.common.base.Stopwatch;
+import com.netflix.spectator.api.Counter;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.TaskState;
 import com.netflix.titus.api.jobmanager.model.job.disruptionbudget.SelfManagedDisruptionBudgetPolicy;
+import com.netflix.titus.api.jobmanager.model.job.event.JobManagerEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.JobUpdateEvent;
+import com.netflix.titus.api.jobmanager.model.job.event.TaskUpdateEvent;
 import com.netflix.titus.api.jobmanager.service.ReadOnlyJobOperations;
 import com.netflix.titus.api.relocation.model.TaskRelocationPlan;
 import com.netflix.titus.api.relocation.model.TaskRelocationPlan.TaskRelocationReason;
 import com.netflix.titus.common.runtime.TitusRuntime;
+import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.time.Clock;
-import com.netflix.titus.common.util.tuple.Triple;
+import com.netflix.titus.common.util.tuple.Pair;
+import com.netflix.titus.supplementary.relocation.RelocationConfiguration;
+import com.netflix.titus.supplementary.relocation.RelocationMetrics;
 import com.netflix.titus.supplementary.relocation.connector.Node;
 import com.netflix.titus.supplementary.relocation.connector.NodeDataResolver;
-import com.netflix.titus.supplementary.relocation.util.RelocationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
 
 import static com.netflix.titus.api.relocation.model.RelocationFunctions.areEqualExceptRelocationTime;
 import static com.netflix.titus.supplementary.relocation.util.RelocationPredicates.checkIfNeedsRelocationPlan;
@@ -46,25 +63,85 @@ import static com.netflix.titus.supplementary.relocation.util.RelocationPredicat
 /**
  * Step at which all self managed containers that are requested to terminate are identified,
  * and their relocation timestamps are set.
+ * <p>
+ * If a job event stream is provided, the relocation plans are maintained incrementally. Only tasks changed, tasks
+ * of changed jobs, and tasks running on changed nodes are re-evaluated. A full recompute is done on the first
+ * invocation, periodically after that, and when the job event stream is interrupted. Without the job event stream,
+ * all tasks are evaluated on each invocation.
  */
 public class MustBeRelocatedSelfManagedTaskCollectorStep {
 
     private static final Logger logger = LoggerFactory.getLogger(MustBeRelocatedSelfManagedTaskCollectorStep.class);
 
+    private static final String STEP_NAME = "mustBeRelocatedTaskCollectorStep";
+
+    private final RelocationConfiguration configuration;
     private final NodeDataResolver nodeDataResolver;
     private final ReadOnlyJobOperations jobOperations;
     private final StepMetrics metrics;
     private final Clock clock;
 
-    private Map<String, TaskRelocationPlan> lastResult = Collections.emptyMap();
+    private final Counter fullRecomputeCounter;
+    private final Counter fullEvaluationCounter;
+    private final Counter incrementalEvaluationCounter;
+
+    private final boolean incremental;
+    private final Disposable jobEventSubscription;
+
+    // Changes received from the job event stream, which are not processed yet.
+    private final Set<String> changedJobIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedTaskIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean fullRecomputeRequested = true;
+
+    private long nextFullRecomputeTimestamp;
+    private Map<String, Node> lastNodes = Collections.emptyMap();
+
+    private final Map<String, TaskRelocationPlan> plans = new HashMap<>();
+
+    // Active tasks that were evaluated. Map<task id, Pair<job id, agent id>>
+    private final Map<String, Pair<String, String>> trackedTasks = new HashMap<>();
+    private final Map<String, Set<String>> trackedTaskIdsByJobId = new HashMap<>();
+    private final Map<String, Set<String>> trackedTaskIdsByAgentId = new HashMap<>();
 
     public MustBeRelocatedSelfManagedTaskCollectorStep(NodeDataResolver nodeDataResolver,
                                                        ReadOnlyJobOperations jobOperations,
                                                        TitusRuntime titusRuntime) {
+        this(null, nodeDataResolver, jobOperations, null, titusRuntime);
+    }
+
+    public MustBeRelocatedSelfManagedTaskCollectorStep(RelocationConfiguration configuration,
+                                                       NodeDataResolver nodeDataResolver,
+                                                       ReadOnlyJobOperations jobOperations,
+                                                       Flux<JobManagerEvent<?>> jobEvents,
+                                                       TitusRuntime titusRuntime) {
+        this.configuration = configuration;
         this.nodeDataResolver = nodeDataResolver;
         this.jobOperations = jobOperations;
         this.clock = titusRuntime.getClock();
-        this.metrics = new StepMetrics("mustBeRelocatedTaskCollectorStep", titusRuntime);
+        this.metrics = new StepMetrics(STEP_NAME, titusRuntime);
+
+        Registry registry = titusRuntime.getRegistry();
+        Id evaluatedTasksId = registry.createId(RelocationMetrics.METRIC_ROOT + "steps", "evaluatedTasks", STEP_NAME);
+        this.fullRecomputeCounter = registry.counter(RelocationMetrics.METRIC_ROOT + "steps", "fullRecompute", STEP_NAME);
+        this.fullEvaluationCounter = registry.counter(evaluatedTasksId.withTag("mode", "full"));
+        this.incrementalEvaluationCounter = registry.counter(evaluatedTasksId.withTag("mode", "incremental"));
+
+        this.incremental = jobEvents != null;
+        this.jobEventSubscription = jobEvents == null ? null : jobEvents
+                .doOnError(error -> {
+                    logger.warn("Job event stream terminated with an error (retrying soon)", error);
+                    this.fullRecomputeRequested = true;
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)))
+                .subscribe(
+                        this::onJobEvent,
+                        e -> logger.error("Job event stream terminated", e),
+                        () -> logger.info("Job event stream completed")
+                );
+    }
+
+    public void shutdown() {
+        ReactorExt.safeDispose(jobEventSubscription);
     }
 
     public Map<String, TaskRelocationPlan> collectTasksThatMustBeRelocated() {
@@ -77,58 +154,155 @@ public class MustBeRelocatedSelfManagedTaskCollectorStep {
         } catch (Exception e) {
             logger.error("Step processing error", e);
             metrics.onError(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            // Changes drained in this invocation could be lost.
+            this.fullRecomputeRequested = true;
             throw e;
         }
     }
 
+    private void onJobEvent(JobManagerEvent<?> event) {
+        if (event instanceof TaskUpdateEvent) {
+            changedTaskIds.add(((TaskUpdateEvent) event).getCurrentTask().getId());
+        } else if (event instanceof JobUpdateEvent) {
+            changedJobIds.add(((JobUpdateEvent) event).getCurrent().getId());
+        } else if (event == JobManagerEvent.snapshotMarker()) {
+            // The job data was reloaded.
+            this.fullRecomputeRequested = true;
+        }
+    }
+
     private Map<String, TaskRelocationPlan> buildRelocationPlans() {
         Map<String, Node> nodes = nodeDataResolver.resolve();
-        List<Triple<Job<?>, Task, Node>> allItems = findAllJobTaskAgentTriples(nodes);
+        long now = clock.wallTime();
 
-        Map<String, TaskRelocationPlan> result = new HashMap<>();
+        if (!incremental || fullRecomputeRequested || now >= nextFullRecomputeTimestamp) {
+            // Events received after this point are processed in the next invocation, which is safe, as they are
+            // re-evaluated against the latest job data.
+            this.fullRecomputeRequested = false;
+            changedJobIds.clear();
+            changedTaskIds.clear();
 
-        logger.debug("Number of triplets to check: {}", allItems.size());
+            recomputeAll(nodes);
+            if (incremental) {
+                this.nextFullRecomputeTimestamp = now + configuration.getRelocationPlanFullRecomputeIntervalMs();
+            }
+        } else {
+            recomputeChanged(nodes);
+        }
+        this.lastNodes = nodes;
 
-        allItems.forEach(triple -> {
+        return new HashMap<>(plans);
+    }
 
-            Job<?> job = triple.getFirst();
-            Task task = triple.getSecond();
-            Node instance = triple.getThird();
+    private void recomputeAll(Map<String, Node> nodes) {
+        Map<String, TaskRelocationPlan> previousPlans = new HashMap<>(plans);
+        plans.clear();
+        trackedTasks.clear();
+        trackedTaskIdsByJobId.clear();
+        trackedTaskIdsByAgentId.clear();
 
-            checkIfNeedsRelocationPlan(job, task, instance).ifPresent(reason ->
-                    result.put(task.getId(), buildSelfManagedRelocationPlan(job, task, reason))
+        int evaluated = 0;
+        for (Job<?> job : jobOperations.getJobs()) {
+            for (Task task : jobOperations.getTasks(job.getId())) {
+                evaluate(job, task, nodes, previousPlans.get(task.getId()));
+                evaluated++;
+            }
+        }
+
+        logger.debug("Number of tasks checked in the full recompute: {}", evaluated);
+        fullRecomputeCounter.increment();
+        fullEvaluationCounter.increment(evaluated);
+    }
+
+    private void recomputeChanged(Map<String, Node> nodes) {
+        Set<String> taskIds = new HashSet<>();
+        drain(changedTaskIds, taskIds::add);
+        drain(changedJobIds, jobId -> {
+            taskIds.addAll(trackedTaskIdsByJobId.getOrDefault(jobId, Collections.emptySet()));
+            jobOperations.getJob(jobId).ifPresent(job ->
+                    jobOperations.getTasks(jobId).forEach(task -> taskIds.add(task.getId()))
             );
         });
 
-        this.lastResult = result;
+        Set<String> agentIds = new HashSet<>(nodes.keySet());
+        agentIds.addAll(lastNodes.keySet());
+        for (String agentId : agentIds) {
+            if (!Objects.equals(nodes.get(agentId), lastNodes.get(agentId))) {
+                taskIds.addAll(trackedTaskIdsByAgentId.getOrDefault(agentId, Collections.emptySet()));
+            }
+        }
+
+        for (String taskId : taskIds) {
+            untrack(taskId);
+            TaskRelocationPlan previous = plans.remove(taskId);
+            Optional<Pair<Job<?>, Task>> jobAndTask = jobOperations.findTaskById(taskId);
+            jobAndTask.ifPresent(pair -> evaluate(pair.getLeft(), pair.getRight(), nodes, previous));
+        }
 
-        return result;
+        logger.debug("Number of tasks checked in the incremental update: {}", taskIds.size());
+        incrementalEvaluationCounter.increment(taskIds.size());
     }
 
-    private List<Triple<Job<?>, Task, Node>> findAllJobTaskAgentTriples(Map<String, Node> nodes) {
-        Map<String, Node> taskToInstanceMap = RelocationUtil.buildTasksToInstanceMap(nodes, jobOperations);
-
-        List<Triple<Job<?>, Task, Node>> result = new ArrayList<>();
-        jobOperations.getJobs().forEach(job -> {
-            jobOperations.getTasks(job.getId()).forEach(task -> {
-                TaskState taskState = task.getStatus().getState();
-                if (taskState == TaskState.StartInitiated || taskState == TaskState.Started) {
-                    Node instance = taskToInstanceMap.get(task.getId());
-                    if (instance != null) {
-                        result.add(Triple.of(job, task, instance));
-                    } else {
-                        logger.debug("Task in active state with no agent instance: taskId={}, state={}", task.getId(), task.getStatus().getState());
-                    }
-                }
-            });
-        });
-        return result;
+    private void evaluate(Job<?> job, Task task, Map<String, Node> nodes, TaskRelocationPlan previous) {
+        TaskState taskState = task.getStatus().getState();
+        if (taskState != TaskState.StartInitiated && taskState != TaskState.Started) {
+            return;
+        }
+
+        String agentId = task.getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID);
+        track(task, agentId);
+
+        Node instance = agentId == null ? null : nodes.get(agentId);
+        if (instance == null) {
+            logger.debug("Task in active state with no agent instance: taskId={}, state={}", task.getId(), taskState);
+            return;
+        }
+
+        checkIfNeedsRelocationPlan(job, task, instance).ifPresent(reason ->
+                plans.put(task.getId(), buildSelfManagedRelocationPlan(job, task, reason, previous))
+        );
+    }
+
+    private void track(Task task, String agentId) {
+        trackedTasks.put(task.getId(), Pair.of(task.getJobId(), agentId));
+        trackedTaskIdsByJobId.computeIfAbsent(task.getJobId(), id -> new HashSet<>()).add(task.getId());
+        if (agentId != null) {
+            trackedTaskIdsByAgentId.computeIfAbsent(agentId, id -> new HashSet<>()).add(task.getId());
+        }
+    }
+
+    private void untrack(String taskId) {
+        Pair<String, String> jobAndAgentIds = trackedTasks.remove(taskId);
+        if (jobAndAgentIds != null) {
+            removeFromIndex(trackedTaskIdsByJobId, jobAndAgentIds.getLeft(), taskId);
+            if (jobAndAgentIds.getRight() != null) {
+                removeFromIndex(trackedTaskIdsByAgentId, jobAndAgentIds.getRight(), taskId);
+            }
+        }
+    }
+
+    private static void removeFromIndex(Map<String, Set<String>> index, String key, String taskId) {
+        Set<String> taskIds = index.get(key);
+        if (taskIds != null) {
+            taskIds.remove(taskId);
+            if (taskIds.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static void drain(Set<String> source, Consumer<String> consumer) {
+        for (String id : source) {
+            if (source.remove(id)) {
+                consumer.accept(id);
+            }
+        }
     }
 
     /**
      * Relocation plans today are limited to self managed polices.
      */
-    private TaskRelocationPlan buildSelfManagedRelocationPlan(Job<?> job, Task task, String reason) {
+    private TaskRelocationPlan buildSelfManagedRelocationPlan(Job<?> job, Task task, String reason, TaskRelocationPlan previous) {
         long now = clock.wallTime();
 
         SelfManagedDisruptionBudgetPolicy selfManaged = (SelfManagedDisruptionBudgetPolicy) job.getJobDescriptor().getDisruptionBudget().getDisruptionBudgetPolicy();
@@ -141,7 +315,6 @@ public class MustBeRelocatedSelfManagedTaskCollectorStep {
                 .withRelocationTime(now + selfManaged.getRelocationTimeMs())
                 .build();
 
-        TaskRelocationPlan previous = lastResult.get(task.getId());
         boolean keepPrevious = previous != null &&
                 (areEqualExceptRelocationTime(previous, relocationPlan) || previous.getRelocationTime() < relocationPlan.getRelocationTime());
 
@@ -40,6 +40,7 @@ import com.netflix.titus.testkit.model.eviction.EvictionComponentStub;
 import com.netflix.titus.testkit.model.job.JobComponentStub;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.StaticApplicationContext;
+import reactor.core.publisher.Flux;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -97,6 +98,7 @@ public class RelocationConnectorStubs {
 
         JobDataReplicator jobDataReplicator = mock(JobDataReplicator.class);
         when(jobDataReplicator.getStalenessMs()).thenReturn(0L);
+        when(jobDataReplicator.events()).thenReturn(Flux.never());
         context.getBeanFactory().registerSingleton("jobDataReplicator", jobDataReplicator);
 
         EvictionDataReplicator evictionDataReplicator = mock(EvictionDataReplicator.class);
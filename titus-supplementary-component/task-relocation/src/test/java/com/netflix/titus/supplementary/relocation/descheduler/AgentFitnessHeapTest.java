@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.titus.supplementary.relocation.descheduler;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AgentFitnessHeapTest {
+
+    private final AgentFitnessHeap heap = new AgentFitnessHeap();
+
+    @Test
+    public void testPutUpdateAndRemove() {
+        heap.put("agent1", 0.5);
+        heap.put("agent2", 0.8);
+        heap.put("agent3", 0.2);
+        assertThat(heap.peek()).isEqualTo("agent2");
+
+        heap.put("agent3", 0.9);
+        assertThat(heap.peek()).isEqualTo("agent3");
+
+        heap.put("agent3", 0.1);
+        assertThat(heap.peek()).isEqualTo("agent2");
+
+        heap.remove("agent2");
+        assertThat(heap.peek()).isEqualTo("agent1");
+        assertThat(heap.contains("agent2")).isFalse();
+        assertThat(heap.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEqualFitnessIsOrderedByAgentId() {
+        heap.put("agent2", 1.0);
+        heap.put("agent1", 1.0);
+        assertThat(heap.peek()).isEqualTo("agent1");
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(123);
+        Map<String, Double> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            String agentId = "agent" + random.nextInt(100);
+            if (random.nextInt(4) == 0) {
+                heap.remove(agentId);
+                expected.remove(agentId);
+            } else {
+                double fitness = random.nextInt(20) / 20.0;
+                heap.put(agentId, fitness);
+                expected.put(agentId, fitness);
+            }
+
+            assertThat(heap.size()).isEqualTo(expected.size());
+            String expectedTop = expected.entrySet().stream()
+                    .min(Comparator.<Map.Entry<String, Double>>comparingDouble(e -> -e.getValue()).thenComparing(Map.Entry::getKey))
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+            assertThat(heap.peek()).isEqualTo(expectedTop);
+        }
+    }
+}
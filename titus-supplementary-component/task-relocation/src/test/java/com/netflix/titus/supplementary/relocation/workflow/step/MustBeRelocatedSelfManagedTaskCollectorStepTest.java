@@ -19,26 +19,47 @@ package com.netflix.titus.supplementary.relocation.workflow.step;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import com.netflix.titus.api.jobmanager.TaskAttributes;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.JobFunctions;
 import com.netflix.titus.api.jobmanager.model.job.Task;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
 import com.netflix.titus.api.relocation.model.TaskRelocationPlan;
+import com.netflix.titus.common.util.rx.ReactorExt;
 import com.netflix.titus.common.util.time.TestClock;
+import com.netflix.titus.runtime.RelocationAttributes;
 import com.netflix.titus.supplementary.relocation.AbstractTaskRelocationTest;
+import com.netflix.titus.supplementary.relocation.RelocationConfiguration;
 import com.netflix.titus.supplementary.relocation.TestDataFactory;
+import org.junit.After;
 import org.junit.Test;
 
 import static com.netflix.titus.supplementary.relocation.TestDataFactory.newSelfManagedDisruptionBudget;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class MustBeRelocatedSelfManagedTaskCollectorStepTest extends AbstractTaskRelocationTest {
 
+    private static final long FULL_RECOMPUTE_INTERVAL_MS = 60_000;
+
     private final MustBeRelocatedSelfManagedTaskCollectorStep step;
 
+    private final MustBeRelocatedSelfManagedTaskCollectorStep incrementalStep;
+
     public MustBeRelocatedSelfManagedTaskCollectorStepTest() {
         super(TestDataFactory.activeRemovableSetup());
         this.step = new MustBeRelocatedSelfManagedTaskCollectorStep(nodeDataResolver, jobOperations, titusRuntime);
+
+        RelocationConfiguration configuration = mock(RelocationConfiguration.class);
+        when(configuration.getRelocationPlanFullRecomputeIntervalMs()).thenReturn(FULL_RECOMPUTE_INTERVAL_MS);
+        this.incrementalStep = new MustBeRelocatedSelfManagedTaskCollectorStep(configuration, nodeDataResolver, jobOperations,
+                ReactorExt.toFlux(jobOperations.observeJobs()), titusRuntime);
+    }
+
+    @After
+    public void tearDown() {
+        incrementalStep.shutdown();
     }
 
     @Test
@@ -80,4 +101,35 @@ public class MustBeRelocatedSelfManagedTaskCollectorStepTest extends AbstractTas
 
         assertThat(first).isEqualTo(second);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIncrementalUpdatesFollowTaskAndNodeChanges() {
+        Job<BatchJobExt> job1 = TestDataFactory.newBatchJob("job1", 1, newSelfManagedDisruptionBudget(1_000));
+        relocationConnectorStubs.addJob(job1);
+        relocationConnectorStubs.place(TestDataFactory.REMOVABLE_INSTANCE_GROUP, jobOperations.getTasks("job1").get(0));
+        assertThat(incrementalStep.collectTasksThatMustBeRelocated()).hasSize(1);
+
+        // Task placed on a removable agent
+        Job<BatchJobExt> job2 = TestDataFactory.newBatchJob("job2", 1, newSelfManagedDisruptionBudget(1_000));
+        relocationConnectorStubs.addJob(job2);
+        Task job2Task = jobOperations.getTasks("job2").get(0);
+        relocationConnectorStubs.place(TestDataFactory.REMOVABLE_INSTANCE_GROUP, job2Task);
+        assertThat(incrementalStep.collectTasksThatMustBeRelocated()).containsKey(job2Task.getId()).hasSize(2);
+
+        // Task placed on an active agent, which is tagged for relocation afterwards
+        Job<BatchJobExt> job3 = TestDataFactory.newBatchJob("job3", 1, newSelfManagedDisruptionBudget(1_000));
+        relocationConnectorStubs.addJob(job3);
+        Task job3Task = jobOperations.getTasks("job3").get(0);
+        relocationConnectorStubs.place(TestDataFactory.ACTIVE_INSTANCE_GROUP, job3Task);
+        assertThat(incrementalStep.collectTasksThatMustBeRelocated()).doesNotContainKey(job3Task.getId());
+
+        String agentId = jobOperations.findTaskById(job3Task.getId()).get().getRight().getTaskContext().get(TaskAttributes.TASK_ATTRIBUTES_AGENT_INSTANCE_ID);
+        relocationConnectorStubs.addInstanceAttribute(agentId, RelocationAttributes.RELOCATION_REQUIRED, "true");
+        assertThat(incrementalStep.collectTasksThatMustBeRelocated()).containsKey(job3Task.getId()).hasSize(3);
+
+        // Plans are the same after the full recompute
+        Map<String, TaskRelocationPlan> incrementalResult = incrementalStep.collectTasksThatMustBeRelocated();
+        clock.advanceTime(FULL_RECOMPUTE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        assertThat(incrementalStep.collectTasksThatMustBeRelocated()).isEqualTo(incrementalResult);
+    }
+}
@@ -163,6 +163,18 @@ public class TitusClientImpl implements TitusClient {
         PolledMeter.using(registry)
                 .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.numMissingJobUpdate"))
                 .monitorValue(numMissingJobUpdate);
+        PolledMeter.using(registry)
+                .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.jobCache.hits"))
+                .monitorValue(jobs, cache -> cache.synchronous().stats().hitCount());
+        PolledMeter.using(registry)
+                .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.jobCache.misses"))
+                .monitorValue(jobs, cache -> cache.synchronous().stats().missCount());
+        PolledMeter.using(registry)
+                .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.jobCache.loadFailures"))
+                .monitorValue(jobs, cache -> cache.synchronous().stats().loadFailureCount());
+        PolledMeter.using(registry)
+                .withId(registry.createId(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.jobCache.size"))
+                .monitorValue(jobs, cache -> cache.synchronous().estimatedSize());
     }
 
 
@@ -175,6 +187,7 @@ public class TitusClientImpl implements TitusClient {
     private AsyncLoadingCache<String, Job> buildCacheForJobs() {
         return Caffeine.newBuilder()
                 .maximumSize(MAX_CACHE_SIZE)
+                .recordStats()
                 .buildAsync(new AsyncCacheLoader<String, Job>() {
                     @Nonnull
                     @Override
@@ -39,6 +39,9 @@ public class EsPublisherConfiguration {
     @Value("${titus.es.publish.enabled}")
     private boolean enabled;
 
+    @Value("${titus.es.publish.maxBulkPayloadBytes:5242880}")
+    private long maxBulkPayloadBytes;
+
     public String getTaskDocumentEsIndexDateSuffixPattern() {
         return taskDocumentEsIndexDateSuffixPattern;
     }
@@ -62,4 +65,12 @@ public class EsPublisherConfiguration {
     public boolean isEnabled() {
         return enabled;
     }
+
+    /**
+     * Upper bound on the size of a single bulk index request payload. A batch of task documents exceeding it is split
+     * into multiple requests.
+     */
+    public long getMaxBulkPayloadBytes() {
+        return maxBulkPayloadBytes;
+    }
 }
@@ -19,6 +19,7 @@ import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 
 import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
 import com.netflix.titus.ext.elasticsearch.DefaultEsClient;
 import com.netflix.titus.ext.elasticsearch.DefaultEsWebClientFactory;
 import com.netflix.titus.ext.elasticsearch.EsClient;
@@ -79,14 +80,20 @@ public class TasksPublisherConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public TitusClient getTitusClient() {
-        return new TitusClientImpl(getJobManagementServiceStub(), getJobManagementServiceFutureStub(), new DefaultRegistry());
+    public Registry getRegistry() {
+        return new DefaultRegistry();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TitusClient getTitusClient(Registry registry) {
+        return new TitusClientImpl(getJobManagementServiceStub(), getJobManagementServiceFutureStub(), registry);
     }
 
     @Bean
     @ConditionalOnMissingBean
     public EsClient<TaskDocument> getEsClient() {
-        return new DefaultEsClient<>(getEsWebClientFactory());
+        return new DefaultEsClient<>(getEsWebClientFactory(), esClientConfiguration);
     }
 
     @Bean
@@ -97,14 +104,14 @@ public class TasksPublisherConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public TaskEventsGenerator getTaskEventsGenerator() {
-        return new TaskEventsGenerator(getTitusClient(), Collections.emptyMap());
+    public TaskEventsGenerator getTaskEventsGenerator(TitusClient titusClient) {
+        return new TaskEventsGenerator(titusClient, Collections.emptyMap());
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public EsPublisher getEsPublisher() {
-        return new EsPublisher(getTaskEventsGenerator(), getEsClient(), esPublisherConfiguration, new DefaultRegistry());
+    public EsPublisher getEsPublisher(TaskEventsGenerator taskEventsGenerator, Registry registry) {
+        return new EsPublisher(taskEventsGenerator, getEsClient(), esPublisherConfiguration, registry);
     }
 
 
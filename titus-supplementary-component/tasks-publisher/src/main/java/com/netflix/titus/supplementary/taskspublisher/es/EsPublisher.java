@@ -77,7 +77,8 @@ public class EsPublisher implements TasksPublisher, LeaderActivationListener {
                                 esClient.bulkIndexDocuments(
                                         taskDocuments,
                                         ElasticSearchUtils.buildEsIndexNameCurrent(esPublisherConfiguration.getTaskDocumentEsIndexName(), indexDateFormat),
-                                        ES_RECORD_TYPE)
+                                        ES_RECORD_TYPE,
+                                        esPublisherConfiguration.getMaxBulkPayloadBytes())
                                         .retryWhen(TaskPublisherRetryUtil.buildRetryHandler(
                                                 TaskPublisherRetryUtil.INITIAL_RETRY_DELAY_MS,
                                                 TaskPublisherRetryUtil.MAX_RETRY_DELAY_MS, 3)),
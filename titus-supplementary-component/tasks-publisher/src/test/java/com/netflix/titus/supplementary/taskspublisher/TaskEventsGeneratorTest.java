@@ -42,6 +42,7 @@ import reactor.core.scheduler.Schedulers;
 import static org.assertj.core.api.Fail.fail;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -59,7 +60,7 @@ public class TaskEventsGeneratorTest {
 
     private EsClient<TaskDocument> mockElasticSearchClient() {
         EsClient<TaskDocument> esClient = mock(EsClient.class);
-        when(esClient.bulkIndexDocuments(anyList(), anyString(), anyString())).thenAnswer((Answer<Mono<BulkEsIndexResp>>) invocation -> {
+        when(esClient.bulkIndexDocuments(anyList(), anyString(), anyString(), anyLong())).thenAnswer((Answer<Flux<BulkEsIndexResp>>) invocation -> {
             final List<TaskDocument> documents = invocation.getArgument(0);
             final List<BulkEsIndexRespItem> bulkEsIndexRespItemList = documents.stream().map(doc -> {
                 EsIndexResp esIndexResp = new EsIndexResp(true, "created", doc.getId());
@@ -67,7 +68,7 @@ public class TaskEventsGeneratorTest {
             }).collect(Collectors.toList());
 
             final BulkEsIndexResp bulkEsIndexResp = new BulkEsIndexResp(bulkEsIndexRespItemList);
-            return Mono.just(bulkEsIndexResp);
+            return Flux.just(bulkEsIndexResp);
         });
         return esClient;
     }
@@ -1,6 +1,7 @@
 package com.netflix.titus.supplementary.taskspublisher;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -8,6 +9,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.patterns.PolledMeter;
 import com.netflix.titus.api.jobmanager.model.job.BatchJobTask;
 import com.netflix.titus.api.jobmanager.model.job.Job;
 import com.netflix.titus.api.jobmanager.model.job.ext.BatchJobExt;
@@ -21,6 +24,7 @@ import com.netflix.titus.grpc.protogen.Task;
 import com.netflix.titus.grpc.protogen.TaskId;
 import com.netflix.titus.runtime.endpoint.common.EmptyLogStorageInfo;
 import com.netflix.titus.runtime.endpoint.v3.grpc.GrpcJobManagementModelConverters;
+import com.netflix.titus.supplementary.taskspublisher.es.EsTaskPublisherMetrics;
 import com.netflix.titus.testkit.model.job.JobGenerator;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
@@ -37,6 +41,7 @@ import static org.assertj.core.api.Java6Assertions.fail;
 public class TitusClientImplTest {
 
     private static TitusClient titusClient;
+    private static Registry registry;
     private static Server testServer;
 
     private static BatchJobTask taskOne = JobGenerator.oneBatchTask();
@@ -96,7 +101,8 @@ public class TitusClientImplTest {
                 .build();
         final JobManagementServiceStub jobManagementServiceStub = JobManagementServiceGrpc.newStub(channel);
         final JobManagementServiceFutureStub jobManagementServiceFutureStub = JobManagementServiceGrpc.newFutureStub(channel);
-        titusClient = new TitusClientImpl(jobManagementServiceStub, jobManagementServiceFutureStub, new DefaultRegistry());
+        registry = new DefaultRegistry();
+        titusClient = new TitusClientImpl(jobManagementServiceStub, jobManagementServiceFutureStub, registry);
     }
 
     @After
@@ -133,6 +139,17 @@ public class TitusClientImplTest {
         }
     }
 
+    @Test
+    public void jobCacheMetrics() {
+        titusClient.getJobById(jobOne.getId()).block(Duration.ofSeconds(1));
+        titusClient.getJobById(jobOne.getId()).block(Duration.ofSeconds(1));
+
+        PolledMeter.update(registry);
+        assertThat(registry.gauge(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.jobCache.misses").value()).isEqualTo(1);
+        assertThat(registry.gauge(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.jobCache.hits").value()).isEqualTo(1);
+        assertThat(registry.gauge(EsTaskPublisherMetrics.METRIC_ES_PUBLISHER + "titusApi.jobCache.size").value()).isEqualTo(1);
+    }
+
     @Test
     public void getTaskUpdates() {
         final CountDownLatch latch = new CountDownLatch(1);